@@ -0,0 +1,9 @@
+package spoon.test.api.testclasses;
+
+
+public class Bar {
+    public javax.sound.sampled.AudioFormat doSomething() {
+        return new javax.sound.sampled.AudioFormat(javax.sound.sampled.AudioFormat.Encoding.ALAW , ((float)(1.0)) , 8 , 2 , 1 , ((float)(1.0)) , true , new java.util.HashMap<java.lang.String, java.lang.Object>());
+    }
+}
+
@@ -0,0 +1,16 @@
+package spoon.test.refactoring.testclasses;
+
+
+public class AClass extends spoon.test.refactoring.testclasses.AbstractClass {
+    private final java.lang.String string;
+
+    public AClass() {
+        this("");
+    }
+
+    public AClass(java.lang.String string) {
+        super();
+        this.string = string;
+    }
+}
+
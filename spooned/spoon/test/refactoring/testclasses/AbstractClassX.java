@@ -0,0 +1,8 @@
+package spoon.test.refactoring.testclasses;
+
+
+public abstract class AbstractClassX {
+    public AbstractClassX() {
+    }
+}
+
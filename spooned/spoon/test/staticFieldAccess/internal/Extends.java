@@ -0,0 +1,7 @@
+package spoon.test.staticFieldAccess.internal;
+
+
+public class Extends extends spoon.test.staticFieldAccess.internal.Origin {
+    public static final java.lang.String MY_OTHER_STATIC_VALUE = "Value2";
+}
+
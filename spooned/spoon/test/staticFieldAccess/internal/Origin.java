@@ -0,0 +1,13 @@
+package spoon.test.staticFieldAccess.internal;
+
+
+class Origin {
+    public static final java.lang.String MY_STATIC_VALUE = "Value";
+
+    public int test() {
+        {
+            return 0;
+        }
+    }
+}
+
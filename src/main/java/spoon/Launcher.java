@@ -45,6 +45,7 @@ import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.PrettyPrinter;
+import spoon.reflect.visitor.filter.QualifiedNameFilter;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.JavaOutputProcessor;
 import spoon.support.StandardEnvironment;
@@ -352,6 +353,65 @@ public class Launcher implements SpoonAPI {
 			sw1.setDefault("false");
 			jsap.registerParameter(sw1);
 
+			// Incremental build
+			opt2 = new FlaggedOption("build-state");
+			opt2.setLongFlag("build-state");
+			opt2.setStringParser(FileStringParser.getParser());
+			opt2.setRequired(false);
+			opt2.setHelp("File where the state of the build is saved. When the state of a previous build is found, only the files that have changed since and the files depending on them are rebuilt.");
+			jsap.registerParameter(opt2);
+
+			// Model cache
+			opt2 = new FlaggedOption("model-cache");
+			opt2.setLongFlag("model-cache");
+			opt2.setStringParser(FileStringParser.getParser());
+			opt2.setRequired(false);
+			opt2.setHelp("Directory where the built model is cached. The files that have not changed since the cached build are loaded from the cache instead of being built.");
+			jsap.registerParameter(opt2);
+
+			// Types that get a full model
+			opt2 = new FlaggedOption("include");
+			opt2.setLongFlag("include");
+			opt2.setStringParser(JSAP.STRING_PARSER);
+			opt2.setRequired(false);
+			opt2.setHelp("List of the qualified names of the types that get a full model, separated by '" + File.pathSeparator + "'. '*' matches a part of a name without dots and '**' matches any part of a name (e.g. com.foo.** for all the types of com.foo and its sub-packages). The other types are only built as stubs, with the signatures of their members, and are not processed.");
+			jsap.registerParameter(opt2);
+
+			// Number of threads used to build the model
+			opt2 = new FlaggedOption("build-threads");
+			opt2.setLongFlag("build-threads");
+			opt2.setStringParser(JSAP.INTEGER_PARSER);
+			opt2.setDefault("1");
+			opt2.setHelp("Number of threads used to build the model from the compilation units (1 builds the model on the main thread).");
+			jsap.registerParameter(opt2);
+
+			// Number of threads used to apply the parallel processors
+			opt2 = new FlaggedOption("processing-threads");
+			opt2.setLongFlag("processing-threads");
+			opt2.setStringParser(JSAP.INTEGER_PARSER);
+			opt2.setDefault("1");
+			opt2.setHelp("Number of threads used to apply the processors that implement spoon.processing.ParallelProcessor to the top-level types (1 applies them on the main thread).");
+			jsap.registerParameter(opt2);
+
+			// Build the model of each unit as soon as it is resolved
+			sw1 = new Switch("streaming-build");
+			sw1.setLongFlag("streaming-build");
+			sw1.setHelp("Build the model of each compilation unit as soon as it is resolved and release the compiler's AST right after, to lower the memory usage (ignored when building with several threads).");
+			sw1.setDefault("false");
+			jsap.registerParameter(sw1);
+
+			sw1 = new Switch("lazy-bodies");
+			sw1.setLongFlag("lazy-bodies");
+			sw1.setHelp("Build the bodies of the methods and constructors of a source file only when one of them is accessed.");
+			sw1.setDefault("false");
+			jsap.registerParameter(sw1);
+
+			sw1 = new Switch("release-lazy-bodies");
+			sw1.setLongFlag("release-lazy-bodies");
+			sw1.setHelp("Let the lazily built bodies be released when the memory is low, and built again when they are accessed (implies --lazy-bodies).");
+			sw1.setDefault("false");
+			jsap.registerParameter(sw1);
+
 			sw1 = new Switch("lines");
 			sw1.setLongFlag("lines");
 			sw1.setHelp("Set Spoon to try to preserve the original line numbers when generating the source code (may lead to human-unfriendly formatting).");
@@ -425,6 +485,8 @@ public class Launcher implements SpoonAPI {
 				.setNoClasspath(jsapActualArgs.getBoolean("noclasspath"));
 		environment.setPreserveLineNumbers(jsapActualArgs
 				.getBoolean("lines"));
+		environment.setProcessingThreadCount(jsapActualArgs
+				.getInt("processing-threads"));
 
 		environment.setTabulationSize(jsapActualArgs.getInt("tabsize"));
 		environment.useTabulations(jsapActualArgs.getBoolean("tabs"));
@@ -582,6 +644,21 @@ public class Launcher implements SpoonAPI {
 		// building
 		comp.setEncoding(getArguments().getString("encoding"));
 		comp.setBuildOnlyOutdatedFiles(jsapActualArgs.getBoolean("buildOnlyOutdatedFiles"));
+		if (jsapActualArgs.contains("build-state")) {
+			comp.setBuildStateFile(jsapActualArgs.getFile("build-state"));
+		}
+		if (jsapActualArgs.contains("model-cache")) {
+			comp.setModelCacheDirectory(jsapActualArgs.getFile("model-cache"));
+		}
+		if (jsapActualArgs.getString("include") != null) {
+			comp.setBuildFilter(new QualifiedNameFilter(jsapActualArgs
+					.getString("include").split(File.pathSeparator)));
+		}
+		comp.setBuildThreadCount(jsapActualArgs.getInt("build-threads"));
+		comp.setStreamingBuild(jsapActualArgs.getBoolean("streaming-build"));
+		comp.setLazyBodies(jsapActualArgs.getBoolean("lazy-bodies")
+				|| jsapActualArgs.getBoolean("release-lazy-bodies"));
+		comp.setReleaseLazyBodies(jsapActualArgs.getBoolean("release-lazy-bodies"));
 		comp.setDestinationDirectory(jsapActualArgs.getFile("destination"));
 		comp.setOutputDirectory(jsapActualArgs.getFile("output"));
 		comp.setEncoding(jsapActualArgs.getString("encoding"));
@@ -22,7 +22,9 @@ import java.util.List;
 import java.util.Set;
 
 import spoon.compiler.SpoonResource;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.Filter;
 
 /**
  * Responsible for building a spoon model from Java source code.
@@ -206,10 +208,51 @@ public interface SpoonModelBuilder {
 
 	/**
 	 * Sets this compiler to optimize the model building process by ignoring
-	 * files that has not be modified since the latest source code generation.
+	 * files that has not be modified since the latest build, as well as the
+	 * files that do not depend on a modified file. The changes are detected
+	 * with the content of the files, recorded in the build state file (see
+	 * {@link #setBuildStateFile(File)}, which defaults to a file of the output
+	 * directory).
 	 */
 	void setBuildOnlyOutdatedFiles(boolean buildOnlyOutdatedFiles);
 
+	/**
+	 * Sets the file where the state of the build (the content hash of each
+	 * source file and the types it depends on) is saved, in order to build
+	 * incrementally. When the state of a previous build is found, only the
+	 * files that have changed since, and the files that depend on them, are
+	 * rebuilt. If the factory already contains the model of the other files
+	 * (for instance because it has been built by a previous compiler), the
+	 * rebuilt types replace the stale ones in the factory. Otherwise, the
+	 * whole model is built, unless {@link #setBuildOnlyOutdatedFiles(boolean)}
+	 * is set.
+	 */
+	void setBuildStateFile(File buildStateFile);
+
+	/**
+	 * Gets the file where the state of the build is saved (see
+	 * {@link #setBuildStateFile(File)}), null if none.
+	 */
+	File getBuildStateFile();
+
+	/**
+	 * Sets the directory where the built model is cached, together with the
+	 * state of the build (see {@link #setBuildStateFile(File)}). The cache is
+	 * specific to the compliance level and to the classpath. When building,
+	 * the model of the files that have not changed since the cached build (and
+	 * that do not depend on a changed file) is loaded from the cache instead
+	 * of being built from the sources. The numbers of loaded and built files
+	 * are reported to the environment (see
+	 * {@link spoon.compiler.Environment#reportModelCacheUsage(int, int)}).
+	 */
+	void setModelCacheDirectory(File modelCacheDirectory);
+
+	/**
+	 * Gets the directory where the built model is cached (see
+	 * {@link #setModelCacheDirectory(File)}), null if none.
+	 */
+	File getModelCacheDirectory();
+
 	/**
 	 * When {@link #setBuildOnlyOutdatedFiles(boolean)} is true, adds a resource
 	 * to the forced-to-be-built list. All the files added here will be build
@@ -218,6 +261,94 @@ public interface SpoonModelBuilder {
 	 */
 	void forceBuild(SpoonResource source);
 
+	/**
+	 * Sets the number of threads used to build the Spoon model from the
+	 * resolved compilation units. Each thread builds its own share of the
+	 * compilation units. A value lower than or equal to 1 (the default) builds
+	 * the model on the calling thread.
+	 */
+	void setBuildThreadCount(int threadCount);
+
+	/**
+	 * Gets the number of threads used to build the Spoon model (see
+	 * {@link #setBuildThreadCount(int)}).
+	 */
+	int getBuildThreadCount();
+
+	/**
+	 * Sets this compiler to build the Spoon model of each compilation unit as
+	 * soon as it has been resolved by the Java compiler, and to release the
+	 * compiler's AST of the unit right after. This lowers the peak memory
+	 * usage of the build. This mode is not used when the model is built with
+	 * several threads (see {@link #setBuildThreadCount(int)}).
+	 */
+	void setStreamingBuild(boolean streamingBuild);
+
+	/**
+	 * Tells if the model is built in streaming mode (see
+	 * {@link #setStreamingBuild(boolean)}).
+	 */
+	boolean isStreamingBuild();
+
+	/**
+	 * Sets this compiler to build the model without the bodies of the methods
+	 * and constructors. The bodies of the executables of a source file are
+	 * built the first time one of them is accessed, by compiling the file
+	 * again. This lowers the time and memory needed to build a model of which
+	 * only the signatures are used. The bodies of in-memory sources are
+	 * always built, and this mode is not used together with an incremental
+	 * build (see {@link #setBuildStateFile(File)} and
+	 * {@link #setModelCacheDirectory(File)}).
+	 */
+	void setLazyBodies(boolean lazyBodies);
+
+	/**
+	 * Tells if the bodies of the executables are built lazily (see
+	 * {@link #setLazyBodies(boolean)}).
+	 */
+	boolean isLazyBodies();
+
+	/**
+	 * Sets the lazily built bodies (see {@link #setLazyBodies(boolean)}) to be
+	 * only softly referenced until they are accessed, so that they can be
+	 * released when the memory is low and built again. A body is kept once it
+	 * has been accessed, so that the changes made to it are not lost.
+	 */
+	void setReleaseLazyBodies(boolean releaseLazyBodies);
+
+	/**
+	 * Tells if the lazily built bodies can be released (see
+	 * {@link #setReleaseLazyBodies(boolean)}).
+	 */
+	boolean isReleaseLazyBodies();
+
+	/**
+	 * Sets a filter on the top-level types of the input sources: only the
+	 * types that match it, and the types nested in them, get a full model.
+	 * The other types are still resolved by the Java compiler, but are built
+	 * as shallow stubs: their members only have their signatures, without
+	 * bodies nor initial values (see
+	 * {@link spoon.reflect.factory.TypeFactory#isStub(CtType)}). A
+	 * {@link spoon.reflect.visitor.filter.QualifiedNameFilter} is applied to
+	 * the qualified name of each type before it is built, so that each type is
+	 * built once. Any other filter is given the stub of each type, which is
+	 * built again if it matches. The stubs are neither processed nor
+	 * printed. The build state file and the model cache are not used by a
+	 * filtered build.
+	 * 
+	 * @param filter
+	 *            the filter of the fully built types, or null to fully build
+	 *            all the types (default)
+	 * @see spoon.reflect.visitor.filter.QualifiedNameFilter
+	 */
+	void setBuildFilter(Filter<CtType<?>> filter);
+
+	/**
+	 * Gets the filter of the fully built types (see
+	 * {@link #setBuildFilter(Filter)}).
+	 */
+	Filter<CtType<?>> getBuildFilter();
+
 	/**
 	 * Sets the encoding to use when different from the system encoding.
 	 */
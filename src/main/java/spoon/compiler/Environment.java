@@ -30,7 +30,10 @@ import spoon.reflect.declaration.CtElement;
 /**
  * This interface represents the environment in which Spoon is launched -
  * accessible through {@link spoon.reflect.factory.Factory#getEnvironment()}. Its
- * primary use is to report messages, warnings, and errors.
+ * primary use is to report messages, warnings, and errors. The reports may be
+ * called by processors running on several threads (see
+ * {@link #setProcessingThreadCount(int)}), so the implementations must be
+ * thread-safe.
  */
 public interface Environment {
 
@@ -228,6 +231,24 @@ public interface Environment {
 	 */
 	int getWarningCount();
 
+	/**
+	 * Reports how many compilation units have been loaded from the model cache
+	 * (hits) and how many have been built from the sources (misses).
+	 */
+	void reportModelCacheUsage(int hits, int misses);
+
+	/**
+	 * Gets the number of compilation units loaded from the model cache within
+	 * this environment.
+	 */
+	int getModelCacheHitCount();
+
+	/**
+	 * Gets the number of compilation units that could not be loaded from the
+	 * model cache within this environment.
+	 */
+	int getModelCacheMissCount();
+
 	/**
 	 * Gets the class loader used to compile/process the input source code.
 	 */
@@ -316,4 +337,80 @@ public interface Environment {
 	 * Sets the option generate-javadoc to generate javadoc of the project on the source generated.
 	 */
 	void setGenerateJavadoc(boolean generateJavadoc);
+
+	/**
+	 * Tells if the references keep a link to the declaration that they
+	 * resolve to, so that the next calls to
+	 * {@link spoon.reflect.reference.CtReference#getDeclaration()} do not
+	 * search it again. The links are dropped when a reference or a
+	 * declaration of the model changes. True by default.
+	 */
+	boolean isLinkingDeclarations();
+
+	/**
+	 * Sets whether the references keep a link to their declaration (see
+	 * {@link #isLinkingDeclarations()}).
+	 */
+	void setLinkingDeclarations(boolean linkingDeclarations);
+
+	/**
+	 * Tells if the queries of the elements of a given type use an index of
+	 * the elements of the model by type instead of scanning the model (see
+	 * {@link spoon.support.visitor.ElementIndex}). False by default, since
+	 * the index takes memory and scans again the top-level types that
+	 * changed.
+	 */
+	boolean isIndexingElements();
+
+	/**
+	 * Sets whether the queries of the elements of a given type use an index
+	 * (see {@link #isIndexingElements()}).
+	 */
+	void setIndexingElements(boolean indexingElements);
+
+	/**
+	 * Tells if the refactorings find the references to a declaration with an
+	 * index of the usages of the declarations of the model instead of
+	 * scanning the model (see
+	 * {@link spoon.support.reflect.reference.UsageIndex}). False by default,
+	 * since the index takes memory: the refactorings then only use it if it
+	 * has been built by a query.
+	 */
+	boolean isIndexingUsages();
+
+	/**
+	 * Sets whether the refactorings use an index of the usages (see
+	 * {@link #isIndexingUsages()}).
+	 */
+	void setIndexingUsages(boolean indexingUsages);
+
+	/**
+	 * Tells if the model may be too deep to be scanned recursively, for
+	 * instance because of generated expressions with thousands of nested
+	 * operands. The queries, the indexes and the processing then scan the
+	 * model with an explicit stack (see
+	 * {@link spoon.reflect.visitor.CtIterativeScanner}), which is slower.
+	 * False by default.
+	 */
+	boolean isDeepModel();
+
+	/**
+	 * Sets whether the model may be too deep to be scanned recursively (see
+	 * {@link #isDeepModel()}).
+	 */
+	void setDeepModel(boolean deepModel);
+
+	/**
+	 * Gets the number of threads used to apply the
+	 * {@link spoon.processing.ParallelProcessor}s. 1 by default.
+	 */
+	int getProcessingThreadCount();
+
+	/**
+	 * Sets the number of threads used to apply the
+	 * {@link spoon.processing.ParallelProcessor}s, each thread processing its
+	 * own share of the top-level types. A value lower than or equal to 1
+	 * applies them on the calling thread.
+	 */
+	void setProcessingThreadCount(int threadCount);
 }
\ No newline at end of file
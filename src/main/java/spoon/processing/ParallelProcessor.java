@@ -0,0 +1,41 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.processing;
+
+import spoon.reflect.declaration.CtElement;
+
+/**
+ * This interface should be implemented by the read-only processors that can
+ * process several top-level types at the same time. When the processing
+ * environment uses several threads (see
+ * {@link spoon.compiler.Environment#setProcessingThreadCount(int)}), the
+ * {@link spoon.support.QueueProcessingManager} applies the parallel
+ * processors that follow each other in its queue on all the threads, each
+ * thread processing its own share of the top-level types. The
+ * {@link #process(CtElement)} method of such a processor is thus called
+ * concurrently, and the order of the processed top-level types is not
+ * defined. The elements that contain the top-level types, such as the
+ * packages, are processed on the calling thread, before the types in
+ * pre-order and after all of them in post-order.
+ * The {@link #init()} and {@link #processingDone()} methods are still called
+ * on the calling thread, before and after the processing.
+ */
+public interface ParallelProcessor<E extends CtElement> extends
+		ReadOnlyProcessor<E> {
+
+}
@@ -0,0 +1,31 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.processing;
+
+import spoon.reflect.declaration.CtElement;
+
+/**
+ * This interface should be implemented by the processors that do not change
+ * the structure of the model: they neither add, remove nor replace elements
+ * (metrics, checkers, reporters...). The {@link spoon.support.QueueProcessingManager}
+ * applies the read-only processors that follow each other in its queue in a
+ * single traversal of the model, instead of one traversal per processor.
+ */
+public interface ReadOnlyProcessor<E extends CtElement> extends Processor<E> {
+
+}
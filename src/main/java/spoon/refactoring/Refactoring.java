@@ -1,9 +1,11 @@
 package spoon.refactoring;
 
 import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.TypeFactory;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.AbstractReferenceFilter;
+import spoon.support.reflect.reference.CtReferenceImpl;
 
 import java.util.List;
 
@@ -20,16 +22,27 @@ public final class Refactoring {
 	 * 		New name of the element.
 	 */
 	public static void changeTypeName(final CtType<?> type, String name) {
-		final List<CtTypeReference<?>> references = Query.getReferences(type.getFactory(), new AbstractReferenceFilter<CtTypeReference<?>>(CtTypeReference.class) {
-			@Override
-			public boolean matches(CtTypeReference<?> reference) {
-				return type.getQualifiedName().equals(reference.getQualifiedName());
-			}
-		});
+		final TypeFactory types = type.getFactory().Type();
+		final List<? extends CtTypeReference<?>> references;
+		if (types.isIndexingUsages()) {
+			references = types.getUsages().getReferencesTo(type);
+		} else {
+			references = Query.getReferences(type.getFactory(), new AbstractReferenceFilter<CtTypeReference<?>>(CtTypeReference.class) {
+				@Override
+				public boolean matches(CtTypeReference<?> reference) {
+					return type.getQualifiedName().equals(reference.getQualifiedName());
+				}
+			});
+		}
 
 		type.setSimpleName(name);
 		for (CtTypeReference<?> reference : references) {
-			reference.setSimpleName(name);
+			// the shared references only refer to the renamed type
+			if (reference instanceof CtReferenceImpl) {
+				((CtReferenceImpl) reference).rename(name);
+			} else {
+				reference.setSimpleName(name);
+			}
 		}
 	}
 }
@@ -73,5 +73,16 @@ public interface CompilationUnit extends FactoryAccessor {
 	 */
 	int getTabCount(int index);
 
+	/**
+	 * Gets the positions of the line separators in the original source code,
+	 * as computed by the compiler (null if unknown).
+	 */
+	int[] getLineSeparatorPositions();
+
+	/**
+	 * Sets the positions of the line separators in the original source code.
+	 */
+	void setLineSeparatorPositions(int[] lineSeparatorPositions);
+
 
 }
@@ -19,8 +19,6 @@ package spoon.reflect.cu;
 
 import java.io.File;
 
-import spoon.compiler.Environment;
-
 /**
  * This interface represents the position of a program element in a source file.
  */
@@ -55,18 +53,14 @@ public interface SourcePosition {
 	int getEndLine();
 
 	/**
-	 * Gets the column in the source file (1 indexed). This method is slow
-	 * because it has to calculate the column number depending on
-	 * {@link Environment#getTabulationSize()} and
-	 * {@link CompilationUnit#getOriginalSourceCode()}. Prefer {@link #getSourceStart()}.
+	 * Gets the column in the source file (1 indexed), counted in characters
+	 * from the beginning of the line (a tabulation counts as one character).
 	 */
 	int getColumn();
 
 	/**
-	 * Gets the end column in the source file (1 indexed). This method is slow
-	 * because it has to calculate the column number depending on
-	 * {@link Environment#getTabulationSize()} and
-	 * {@link CompilationUnit#getOriginalSourceCode()}. Prefer {@link #getSourceEnd()}.
+	 * Gets the end column in the source file (1 indexed), counted in characters
+	 * from the beginning of the line (a tabulation counts as one character).
 	 */
 	int getEndColumn();
 
@@ -222,6 +222,28 @@ public interface CtElement extends FactoryAccessor, CtVisitable {
 	 */
 	<E extends CtElement> List<E> getElements(Filter<E> filter);
 
+	/**
+	 * Gets the first element of the subtree of this element, itself included,
+	 * that matches the filter, or null if none matches. The search stops at
+	 * the first match (see
+	 * {@link spoon.reflect.visitor.Query#getFirstElement(CtElement, Filter)}).
+	 */
+	<E extends CtElement> E getFirstElement(Filter<E> filter);
+
+	/**
+	 * Gets the first elements of the subtree of this element, itself
+	 * included, that match the filter. The search stops once the given number
+	 * of elements is found (see
+	 * {@link spoon.reflect.visitor.Query#getElements(CtElement, Filter, int)}).
+	 */
+	<E extends CtElement> List<E> getElements(Filter<E> filter, int limit);
+
+	/**
+	 * Tells if an element of the subtree of this element, itself included,
+	 * matches the filter. The search stops at the first match.
+	 */
+	<E extends CtElement> boolean hasElement(Filter<E> filter);
+
 	/**
 	 * @param filter
 	 * @return
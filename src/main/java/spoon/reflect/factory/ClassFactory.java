@@ -19,6 +19,7 @@ package spoon.reflect.factory;
 
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 
 /**
  * The {@link CtClass} sub-factory.
@@ -60,10 +61,12 @@ public class ClassFactory extends TypeFactory {
 	public <T> CtClass<T> create(CtPackage owner, String simpleName) {
 		CtClass<T> c = factory.Core().createClass();
 		c.setSimpleName(simpleName);
-		if (owner.getTypes().contains(c)) {
-			owner.getTypes().remove(c);
+		CtType<?> previous = owner.getType(simpleName);
+		if (previous != null) {
+			owner.getTypes().remove(previous);
 		}
-		owner.getTypes().add(c);
+		// the types are ordered by qualified name, so the class is added to
+		// the package (by setParent) once it belongs to it
 		c.setParent(owner);
 		return c;
 	}
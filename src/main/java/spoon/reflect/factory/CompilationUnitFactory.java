@@ -60,9 +60,10 @@ public class CompilationUnitFactory extends SubFactory {
 	}
 
 	/**
-	 * Creates or gets a compilation unit for a given file path.
+	 * Creates or gets a compilation unit for a given file path. This method is
+	 * synchronized since it is called by the builders of a parallel build.
 	 */
-	public CompilationUnit create(String filePath) {
+	public synchronized CompilationUnit create(String filePath) {
 		CompilationUnit cu = compilationUnits.get(filePath);
 		if (cu == null) {
 			if ("".equals(filePath)) {
@@ -108,6 +108,23 @@ public interface CoreFactory {
 	 */
 	<T> T clone(T element);
 
+	/**
+	 * Clones a given element of the metamodel as {@link #clone(Object)}, but
+	 * copies the bodies of the executables only when they are first accessed
+	 * through the clone, which must be done to change them. Until then, they
+	 * are shared with the original element, which must not be changed in the
+	 * meantime: accessing the body of the clone after the original body has
+	 * been changed throws a {@link spoon.SpoonException}. It allows to keep many variants of a large element, which
+	 * only hold the bodies that have been accessed.
+	 * 
+	 * @param <T>
+	 *            the element's type
+	 * @param element
+	 *            the element
+	 * @return a clone of <code>element</code>
+	 */
+	<T> T lazyClone(T element);
+
 	/**
 	 * Creates an annotation.
 	 */
@@ -33,6 +33,7 @@ import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.StandardEnvironment;
+import spoon.support.util.ModelChanges;
 
 /**
  * Implements {@link Factory}
@@ -253,5 +254,24 @@ public class FactoryImpl implements Factory, Serializable {
 		this(coreFactory, environment, null);
 	}
 
+	private transient volatile ModelChanges modelChanges;
+
+	/**
+	 * Gets the counters of the changes of the model of this factory.
+	 */
+	public ModelChanges getModelChanges() {
+		ModelChanges c = modelChanges;
+		if (c == null) {
+			synchronized (this) {
+				c = modelChanges;
+				if (c == null) {
+					c = new ModelChanges();
+					modelChanges = c;
+				}
+			}
+		}
+		return c;
+	}
+
 
 }
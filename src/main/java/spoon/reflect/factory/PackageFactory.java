@@ -18,16 +18,17 @@
 package spoon.reflect.factory;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 
+import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtPackageReference;
+import spoon.support.util.ModelChanges;
+import spoon.support.visitor.ElementIndex;
 
 /**
  * The {@link CtPackage} sub-factory.
@@ -40,6 +41,10 @@ public class PackageFactory extends SubFactory implements Serializable {
 	 */
 	private Map<String, CtPackage> packages = new TreeMap<String, CtPackage>();
 
+	private transient TypeRegistry registry;
+
+	private transient ElementIndex elementIndex;
+
 	/**
 	 * Creates a new package sub-factory.
 	 * 
@@ -111,12 +116,13 @@ public class PackageFactory extends SubFactory implements Serializable {
 	}
 
 	/**
-	 * Gets or creates a package.
+	 * Gets or creates a package. This method is synchronized since the
+	 * packages are shared by the builders of a parallel build.
 	 * 
 	 * @param qualifiedName
 	 *            the full name of the package
 	 */
-	public CtPackage getOrCreate(String qualifiedName) {
+	public synchronized CtPackage getOrCreate(String qualifiedName) {
 		StringTokenizer token = new StringTokenizer(qualifiedName,
 				CtPackage.PACKAGE_SEPARATOR);
 		CtPackage last = null;
@@ -141,8 +147,10 @@ public class PackageFactory extends SubFactory implements Serializable {
 			if (next == null) {
 				next = factory.Core().createPackage();
 				next.setSimpleName(name);
-				last.getPackages().add(next);
+				// the parent is set first since the packages are sorted by
+				// their qualified names
 				next.setParent(last);
+				last.getPackages().add(next);
 			}
 			last = next;
 		}
@@ -161,57 +169,70 @@ public class PackageFactory extends SubFactory implements Serializable {
 		if (qualifiedName.contains(CtType.INNERTTYPE_SEPARATOR)) {
 			throw new RuntimeException("Invalid package name " + qualifiedName);
 		}
-		StringTokenizer token = new StringTokenizer(qualifiedName,
-				CtPackage.PACKAGE_SEPARATOR);
-		CtPackage current = null;
-		if (token.hasMoreElements()) {
-			current = packages.get(token.nextElement());
-			while (token.hasMoreElements() && current != null) {
-				current = current.getPackage(token.nextToken());
-			}
-		}
-		
-
-		return current;
+		return getRegistry().getPackage(qualifiedName);
 	}
 
 	/**
 	 * Gets the list of all created packages. It includes all the top-level
-	 * packages and their sub-packages.
+	 * packages and their sub-packages. The returned collection cannot be
+	 * modified and is shared until the next change of the package tree.
 	 */
 	public Collection<CtPackage> getAll() {
-		Collection<CtPackage> packs = new ArrayList<CtPackage>();
-		for (CtPackage pack : packages.values()) {
-			packs.addAll(getSubPackageList(pack));
+		return getRegistry().getPackages();
+	}
+
+	/**
+	 * Gets the index of the packages and types of the factory by qualified
+	 * name.
+	 */
+	synchronized TypeRegistry getRegistry() {
+		if (registry == null) {
+			registry = new TypeRegistry(this);
 		}
-		return packs;
+		return registry;
 	}
 
 	/**
-	 * Gets the list of all created root packages
+	 * Signals that the given package or type may have been added to the
+	 * package tree of this factory, removed, moved or renamed, so that it is
+	 * found by its qualified name and the lists of all the packages and types
+	 * are built again. This method is called by the model (see
+	 * {@link ModelChanges#packageTreeChanged(CtNamedElement)}).
 	 */
-	public Collection<CtPackage> getAllRoots() {
-		return packages.values();
+	public void packageTreeChanged(CtNamedElement element) {
+		getRegistry().changed(element);
+		factory.Type().packageTreeChanged(element);
 	}
 
-	private List<CtPackage> getSubPackageList(CtPackage pack) {
-		List<CtPackage> packs = new ArrayList<CtPackage>();
-		packs.add(pack);
-		for (CtPackage p : pack.getPackages()) {
-			packs.addAll(getSubPackageList(p));
+	/**
+	 * Gets the index of the elements of the model by type (see
+	 * {@link spoon.compiler.Environment#isIndexingElements()}).
+	 */
+	public synchronized ElementIndex getElementIndex() {
+		if (elementIndex == null) {
+			elementIndex = new ElementIndex(factory);
 		}
-		return packs;
+		return elementIndex;
+	}
+
+	/**
+	 * Gets the list of all created root packages
+	 */
+	public Collection<CtPackage> getAllRoots() {
+		return packages.values();
 	}
 
 	/**
 	 * Registers a top-level package.
 	 */
-	public void register(CtPackage pck) {
+	public synchronized void register(CtPackage pck) {
 		if (packages.containsKey(pck.getQualifiedName())) {
 			throw new RuntimeException("package " + pck.getQualifiedName()
 					+ " already created");
 		}
 		packages.put(pck.getQualifiedName(), pck);
+		packageTreeChanged(pck);
+		getElementIndex().invalidate();
 	}
 
 }
\ No newline at end of file
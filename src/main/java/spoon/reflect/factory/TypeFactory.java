@@ -18,16 +18,23 @@
 package spoon.reflect.factory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeParameter;
 import spoon.reflect.reference.CtArrayTypeReference;
 import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
+import spoon.support.compiler.jdt.ClassFileTypeBuilder;
+import spoon.support.reflect.reference.TypeHierarchy;
+import spoon.support.reflect.reference.UsageIndex;
 
 /**
  * The {@link CtType} sub-factory.
@@ -36,6 +43,15 @@ public class TypeFactory extends SubFactory {
 
 	CtTypeReference<?> nullType;
 
+	private final Set<CtType<?>> stubs = Collections.synchronizedSet(Collections
+			.newSetFromMap(new IdentityHashMap<CtType<?>, Boolean>()));
+
+	private ClassFileTypeBuilder shadowTypes;
+
+	private TypeHierarchy hierarchy;
+
+	private UsageIndex usages;
+
 	public final CtTypeReference<Void> VOID = createReference(Void.class);
 	public final CtTypeReference<String> STRING = createReference(String.class);
 	public final CtTypeReference<Boolean> BOOLEAN = createReference(Boolean.class);
@@ -186,6 +202,12 @@ public class TypeFactory extends SubFactory {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> CtType<T> get(String qualifiedName) {
+		CtType<T> type = (CtType<T>) factory.Package().getRegistry()
+				.getType(qualifiedName);
+		if (type != null) {
+			return type;
+		}
+		// looks for the local types
 		int inertTypeIndex = qualifiedName
 				.lastIndexOf(CtType.INNERTTYPE_SEPARATOR);
 		if (inertTypeIndex > 0) {
@@ -196,56 +218,150 @@ public class TypeFactory extends SubFactory {
 			}
 			return t.getNestedType(qualifiedName.substring(inertTypeIndex + 1));
 		}
+		return null;
+	}
 
-		int packageIndex = qualifiedName
-				.lastIndexOf(CtPackage.PACKAGE_SEPARATOR);
-		CtPackage pack;
-		if (packageIndex > 0) {
-			pack = factory.Package().get(
-					qualifiedName.substring(0, packageIndex));
-		} else {
-			pack = factory.Package().get(CtPackage.TOP_LEVEL_PACKAGE_NAME);
+	/**
+	 * Gets the list of all top-level created types. The returned list cannot
+	 * be modified and is shared until the next change of the package tree.
+	 */
+	public List<CtType<?>> getAll() {
+		return factory.Package().getRegistry().getTopLevelTypes();
+	}
+
+	/**
+	 * Gets the list of all created types. The returned list cannot be
+	 * modified and is shared until the next change of the package tree.
+	 */
+	public List<CtType<?>> getAll(boolean includeNestedTypes) {
+		if (!includeNestedTypes) {
+			return getAll();
 		}
+		return factory.Package().getRegistry().getTypes();
+	}
 
-		if (pack == null) {
-			return null;
+	/**
+	 * Tells if the given type, or the top-level type that declares it, has
+	 * been built as a shallow stub: its members have their signatures, but
+	 * no bodies nor initial values (see
+	 * {@link spoon.SpoonModelBuilder#setBuildFilter(spoon.reflect.visitor.Filter)}).
+	 * The stubs are not processed.
+	 */
+	public boolean isStub(CtType<?> type) {
+		// shared by the sub-factories of the types
+		Set<CtType<?>> stubs = factory.Type().stubs;
+		if (stubs.isEmpty()) {
+			return false;
 		}
+		CtElement e = type;
+		while (e != null && !(e instanceof CtPackage)) {
+			if (stubs.contains(e)) {
+				return true;
+			}
+			e = e.isParentInitialized() ? e.getParent() : null;
+		}
+		return false;
+	}
 
-		return (CtType<T>) pack.getType(qualifiedName
-				.substring(packageIndex + 1));
+	/**
+	 * Sets whether the given top-level type is a shallow stub (see
+	 * {@link #isStub(CtType)}).
+	 */
+	public void setStub(CtType<?> type, boolean stub) {
+		Set<CtType<?>> stubs = factory.Type().stubs;
+		if (stub) {
+			stubs.add(type);
+		} else {
+			stubs.remove(type);
+		}
 	}
 
 	/**
-	 * Gets the list of all top-level created types.
+	 * Gets a shadow declaration of a type that is not part of the model,
+	 * built from its class file in the class path of the environment (see
+	 * {@link ClassFileTypeBuilder}). The shadow types only have the
+	 * signatures of their members, are built once, and are not returned by
+	 * {@link #get(String)} nor {@link #getAll()}.
+	 * 
+	 * @return the shadow type or null if no class file is found
 	 */
-	public List<CtType<?>> getAll() {
-		List<CtType<?>> types = new ArrayList<CtType<?>>();
-		for (CtPackage pack : factory.Package().getAll()) {
-			types.addAll(pack.getTypes());
+	@SuppressWarnings("unchecked")
+	public <T> CtType<T> getShadowType(String qualifiedName) {
+		TypeFactory types = factory.Type();
+		ClassFileTypeBuilder builder;
+		synchronized (types) {
+			if (types.shadowTypes == null) {
+				types.shadowTypes = new ClassFileTypeBuilder(factory);
+			}
+			builder = types.shadowTypes;
 		}
-		return types;
+		return (CtType<T>) builder.getType(qualifiedName);
 	}
 
 	/**
-	 * Gets the list of all created types.
+	 * Gets the index of the subtype relations between the types of the
+	 * model and of the class path (see {@link TypeHierarchy}).
 	 */
-	public List<CtType<?>> getAll(boolean includeNestedTypes) {
-		if (!includeNestedTypes) {
-			return getAll();
+	public TypeHierarchy getHierarchy() {
+		TypeFactory types = factory.Type();
+		synchronized (types) {
+			if (types.hierarchy == null) {
+				types.hierarchy = new TypeHierarchy(factory);
+			}
+			return types.hierarchy;
 		}
-		List<CtType<?>> types = new ArrayList<CtType<?>>();
-		for (CtPackage pack : factory.Package().getAll()) {
-			for (CtType<?> type : pack.getTypes()) {
-				addNestedType(types, type);
+	}
+
+	/**
+	 * Gets the index of the references to the types, executables and fields
+	 * of the model (see {@link UsageIndex}).
+	 */
+	public UsageIndex getUsages() {
+		TypeFactory types = factory.Type();
+		synchronized (types) {
+			if (types.usages == null) {
+				types.usages = new UsageIndex(factory);
 			}
+			return types.usages;
 		}
-		return types;
 	}
 
-	private void addNestedType(List<CtType<?>> list, CtType<?> t) {
-		list.add(t);
-		for (CtType<?> nt : t.getNestedTypes()) {
-			addNestedType(list, nt);
+	/**
+	 * Tells if the usages of the declarations of the model are indexed,
+	 * because the index is enabled (see
+	 * {@link spoon.compiler.Environment#isIndexingUsages()}) or has already
+	 * been built by a query (see {@link #getUsages()}).
+	 */
+	public boolean isIndexingUsages() {
+		if (factory.getEnvironment().isIndexingUsages()) {
+			return true;
+		}
+		TypeFactory types = factory.Type();
+		synchronized (types) {
+			return types.usages != null && types.usages.isBuilt();
+		}
+	}
+
+	/**
+	 * Signals that the superclass or the super interfaces of the given type
+	 * have changed, which updates the type hierarchy.
+	 */
+	public void supertypesChanged(CtType<?> type) {
+		TypeHierarchy h = factory.Type().hierarchy;
+		if (h != null) {
+			h.supertypesChanged(type);
+		}
+	}
+
+	/**
+	 * Signals that the given package or type may have been added to the
+	 * package tree, removed, moved or renamed, which updates the type
+	 * hierarchy (see {@link PackageFactory#packageTreeChanged(CtNamedElement)}).
+	 */
+	public void packageTreeChanged(CtNamedElement element) {
+		TypeHierarchy h = factory.Type().hierarchy;
+		if (h != null) {
+			h.packageTreeChanged(element);
 		}
 	}
 
@@ -0,0 +1,385 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.reflect.factory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.support.util.ModelChanges;
+import spoon.support.util.NamedElementSet;
+
+/**
+ * Indexes the packages and the types of a factory by qualified name. The
+ * index is built on the first lookup, and is then kept up to date with the
+ * packages and types that are added to the package tree, moved or renamed
+ * (see {@link PackageFactory#packageTreeChanged(CtNamedElement)}). The
+ * packages and types that are removed, moved or renamed are dropped from the
+ * index when they are looked up under their former name.
+ *
+ * <p>
+ * The lists of all the packages and types are built on the first call to
+ * their getter, and are shared until the package tree changes.
+ * </p>
+ */
+class TypeRegistry {
+
+	private final PackageFactory packageFactory;
+
+	private boolean upToDate = false;
+
+	/**
+	 * The number of changes of the package trees of the elements that have no
+	 * factory when the index was built (see
+	 * {@link ModelChanges#getDetachedPackageTreeChanges()}).
+	 */
+	private int detachedChanges;
+
+	private Map<String, CtPackage> packagesByName;
+
+	private Map<String, CtType<?>> typesByName;
+
+	/**
+	 * The packages and types that may have been added, moved or renamed since
+	 * the last lookup.
+	 */
+	private final List<CtNamedElement> changed = new ArrayList<CtNamedElement>();
+
+	/**
+	 * Tells if a package or a type has been hidden by another one of the same
+	 * qualified name, which can only be found again by building the index
+	 * again.
+	 */
+	private boolean hidden;
+
+	private List<CtPackage> packages;
+
+	private List<CtType<?>> topLevelTypes;
+
+	private List<CtType<?>> types;
+
+	/**
+	 * The number of changes of the package trees of the elements that have no
+	 * factory when the lists of all the packages and types were built.
+	 */
+	private int listsDetachedChanges;
+
+	TypeRegistry(PackageFactory packageFactory) {
+		this.packageFactory = packageFactory;
+	}
+
+	/**
+	 * Makes this index out of date.
+	 */
+	synchronized void invalidate() {
+		upToDate = false;
+		changed.clear();
+		dropLists();
+	}
+
+	/**
+	 * Drops the lists of all the packages and types, which are built again
+	 * by their next getter.
+	 */
+	private void dropLists() {
+		packages = null;
+		topLevelTypes = null;
+		types = null;
+	}
+
+	/**
+	 * Drops the lists of all the packages and types if the package tree of
+	 * an element that has no factory has changed since they were built.
+	 */
+	private void checkLists() {
+		int c = ModelChanges.getDetachedPackageTreeChanges();
+		if (c != listsDetachedChanges) {
+			listsDetachedChanges = c;
+			dropLists();
+		}
+	}
+
+	/**
+	 * Signals that the given package or type may have been added to the
+	 * package tree, removed, moved or renamed.
+	 */
+	synchronized void changed(CtNamedElement element) {
+		dropLists();
+		if (!upToDate) {
+			return;
+		}
+		if (changed.size() > packagesByName.size() + typesByName.size()) {
+			// building the index again is cheaper
+			invalidate();
+		} else {
+			changed.add(element);
+		}
+	}
+
+	private void update() {
+		if (upToDate
+				&& detachedChanges == ModelChanges.getDetachedPackageTreeChanges()) {
+			for (CtNamedElement e : changed) {
+				if (e instanceof CtPackage) {
+					String qualifiedName = ((CtPackage) e).getQualifiedName();
+					if (isRegistered(qualifiedName, e)) {
+						addPackage(qualifiedName, (CtPackage) e);
+					}
+				} else if (e instanceof CtType) {
+					String qualifiedName = ((CtType<?>) e).getQualifiedName();
+					if (isRegistered(qualifiedName, e)) {
+						addType(qualifiedName, (CtType<?>) e);
+					}
+				}
+			}
+			changed.clear();
+			return;
+		}
+		detachedChanges = ModelChanges.getDetachedPackageTreeChanges();
+		packagesByName = new HashMap<String, CtPackage>();
+		typesByName = new HashMap<String, CtType<?>>();
+		changed.clear();
+		hidden = false;
+		for (CtPackage pack : packageFactory.getAllRoots()) {
+			addPackage(pack.getSimpleName(), pack);
+		}
+		upToDate = true;
+	}
+
+	private void addPackage(String qualifiedName, CtPackage pack) {
+		put(packagesByName, qualifiedName, pack);
+		String prefix = CtPackage.TOP_LEVEL_PACKAGE_NAME.equals(qualifiedName) ? ""
+				: qualifiedName + CtPackage.PACKAGE_SEPARATOR;
+		for (CtType<?> type : pack.getTypes()) {
+			addType(prefix + type.getSimpleName(), type);
+		}
+		for (CtPackage p : pack.getPackages()) {
+			addPackage(qualifiedName + CtPackage.PACKAGE_SEPARATOR
+					+ p.getSimpleName(), p);
+		}
+	}
+
+	private void addType(String qualifiedName, CtType<?> type) {
+		put(typesByName, qualifiedName, type);
+		for (CtType<?> nested : type.getNestedTypes()) {
+			addType(qualifiedName + CtType.INNERTTYPE_SEPARATOR
+					+ nested.getSimpleName(), nested);
+		}
+	}
+
+	private <E extends CtNamedElement> void put(Map<String, E> elements,
+			String qualifiedName, E element) {
+		E e = elements.get(qualifiedName);
+		if (e == null || (e != element && !isRegistered(qualifiedName, e))) {
+			elements.put(qualifiedName, element);
+		} else if (e != element) {
+			hidden = true;
+		}
+	}
+
+	/**
+	 * Tells if the given package or type is part of the package tree under
+	 * the given qualified name, that is, if it is found by following the
+	 * simple names of the qualified name from a top-level package.
+	 */
+	private boolean isRegistered(String qualifiedName, CtNamedElement element) {
+		int end = qualifiedName.length();
+		CtNamedElement e = element;
+		while (true) {
+			String simpleName = e.getSimpleName();
+			if (simpleName == null) {
+				return false;
+			}
+			int start = end - simpleName.length();
+			if (start < 0 || !qualifiedName.startsWith(simpleName, start)) {
+				return false;
+			}
+			CtNamedElement parent;
+			char separator;
+			if (e instanceof CtPackage) {
+				CtPackage pack = ((CtPackage) e).getDeclaringPackage();
+				if (pack == null) {
+					return start == 0 && isRoot(e);
+				}
+				if (pack.getPackage(simpleName) != e) {
+					return false;
+				}
+				parent = pack;
+				separator = CtPackage.PACKAGE_SEPARATOR.charAt(0);
+			} else {
+				CtElement p = e.isParentInitialized() ? e.getParent() : null;
+				if (p instanceof CtType) {
+					if (!isNestedType((CtType<?>) p, e)) {
+						return false;
+					}
+					separator = CtType.INNERTTYPE_SEPARATOR.charAt(0);
+				} else if (p instanceof CtPackage) {
+					if (((CtPackage) p).getType(simpleName) != e) {
+						return false;
+					}
+					if (CtPackage.TOP_LEVEL_PACKAGE_NAME.equals(((CtPackage) p)
+							.getSimpleName()) && isRoot((CtPackage) p)) {
+						return start == 0;
+					}
+					separator = CtPackage.PACKAGE_SEPARATOR.charAt(0);
+				} else {
+					return false;
+				}
+				parent = (CtNamedElement) p;
+			}
+			end = start - 1;
+			if (end < 0 || qualifiedName.charAt(end) != separator) {
+				return false;
+			}
+			e = parent;
+		}
+	}
+
+	private boolean isRoot(CtNamedElement pack) {
+		for (CtPackage p : packageFactory.getAllRoots()) {
+			if (p == pack) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean isNestedType(CtType<?> declaringType,
+			CtNamedElement type) {
+		Collection<CtType<?>> nestedTypes = declaringType.getNestedTypes();
+		if (nestedTypes instanceof NamedElementSet) {
+			return ((NamedElementSet<CtType<?>>) nestedTypes).getFirst(type
+					.getSimpleName()) == type;
+		}
+		for (CtType<?> t : nestedTypes) {
+			if (t == type) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the package of the given qualified name, or null.
+	 */
+	synchronized CtPackage getPackage(String qualifiedName) {
+		update();
+		CtPackage pack = packagesByName.get(qualifiedName);
+		if (pack != null && !isRegistered(qualifiedName, pack)) {
+			// removed, moved or renamed
+			packagesByName.remove(qualifiedName);
+			pack = null;
+			if (hidden) {
+				invalidate();
+				update();
+				pack = packagesByName.get(qualifiedName);
+			}
+		}
+		return pack;
+	}
+
+	/**
+	 * Gets the top-level or member type of the given qualified name, or null.
+	 */
+	synchronized CtType<?> getType(String qualifiedName) {
+		update();
+		CtType<?> type = typesByName.get(qualifiedName);
+		if (type != null && !isRegistered(qualifiedName, type)) {
+			// removed, moved or renamed
+			typesByName.remove(qualifiedName);
+			type = null;
+			if (hidden) {
+				invalidate();
+				update();
+				type = typesByName.get(qualifiedName);
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Gets all the packages, parents first. The list cannot be modified.
+	 */
+	synchronized List<CtPackage> getPackages() {
+		checkLists();
+		if (packages == null) {
+			List<CtPackage> l = new ArrayList<CtPackage>();
+			for (CtPackage pack : packageFactory.getAllRoots()) {
+				addPackages(l, pack);
+			}
+			packages = Collections.unmodifiableList(l);
+		}
+		return packages;
+	}
+
+	private void addPackages(List<CtPackage> packages, CtPackage pack) {
+		packages.add(pack);
+		for (CtPackage p : pack.getPackages()) {
+			addPackages(packages, p);
+		}
+	}
+
+	/**
+	 * Gets all the top-level types. The list cannot be modified.
+	 */
+	synchronized List<CtType<?>> getTopLevelTypes() {
+		checkLists();
+		if (topLevelTypes == null) {
+			List<CtType<?>> l = new ArrayList<CtType<?>>();
+			for (CtPackage pack : getPackages()) {
+				l.addAll(pack.getTypes());
+			}
+			topLevelTypes = Collections.unmodifiableList(l);
+		}
+		return topLevelTypes;
+	}
+
+	/**
+	 * Gets all the top-level and member types, declaring types first. The
+	 * list cannot be modified.
+	 */
+	synchronized List<CtType<?>> getTypes() {
+		checkLists();
+		if (types == null) {
+			List<CtType<?>> l = new ArrayList<CtType<?>>();
+			for (CtPackage pack : getPackages()) {
+				for (CtType<?> type : pack.getTypes()) {
+					addTypes(l, type);
+				}
+			}
+			types = Collections.unmodifiableList(l);
+		}
+		return types;
+	}
+
+	private void addTypes(List<CtType<?>> types, CtType<?> type) {
+		types.add(type);
+		for (CtType<?> nested : type.getNestedTypes()) {
+			addTypes(types, nested);
+		}
+	}
+
+}
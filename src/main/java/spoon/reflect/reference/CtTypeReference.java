@@ -17,6 +17,7 @@
 
 package spoon.reflect.reference;
 
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypeInformation;
 
 /**
@@ -41,6 +42,18 @@ public interface CtTypeReference<T> extends CtReference,
 	 */
 	Class<T> getActualClass();
 
+	/**
+	 * Gets the declaration of the referenced type: the type of the model if
+	 * any (see {@link #getDeclaration()}), or else a shadow type built from
+	 * the class file of the referenced type, which only has the signatures of
+	 * its members (see
+	 * {@link spoon.reflect.factory.TypeFactory#getShadowType(String)}).
+	 * 
+	 * @return the declaration or null if the type is neither in the model nor
+	 *         in the class path
+	 */
+	CtType<T> getTypeDeclaration();
+
 	/**
 	 * Gets the type that declares the referenced type.
 	 * 
@@ -0,0 +1,290 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.reflect.visitor;
+
+import java.util.Arrays;
+
+import spoon.processing.FactoryAccessor;
+import spoon.reflect.code.CtCodeSnippetExpression;
+import spoon.reflect.code.CtCodeSnippetStatement;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtUnboundVariableReference;
+
+/**
+ * A scanner that can traverse the model with an explicit stack instead of
+ * recursing once per element, so that it scans models of any depth. It
+ * upcalls {@link #enter(CtElement)}, {@link #exit(CtElement)},
+ * {@link #enterReference(CtReference)} and
+ * {@link #exitReference(CtReference)} in the same order as
+ * {@link CtScanner}.
+ * 
+ * <p>
+ * The explicit stack is only used when the model of the scanned node is
+ * deep (see {@link spoon.compiler.Environment#isDeepModel()}), since it is
+ * slower: the scanner recurses like {@link CtScanner} otherwise. In both
+ * cases, the children of an element are the ones that the
+ * <code>visit</code> methods of {@link CtScanner} scan. With the explicit
+ * stack, they are read right after entering the element, and the
+ * <code>visit</code> and <code>scan</code> methods of the scanner are not
+ * called. The subclasses must therefore implement their processing in the
+ * upcalled methods. Unlike {@link CtScanner}, the scanner also enters and
+ * exits the code snippets and the unbound variable references.
+ */
+public class CtIterativeScanner extends CtScanner {
+
+	/**
+	 * The state of a traversal: the children of the nodes being scanned, in
+	 * the order of a scan, and a frame per such node. The children of a node
+	 * are appended after the ones of its parent, so that they are never
+	 * reordered, and are read by scanning the node with this collecting
+	 * scanner, which does not recurse.
+	 */
+	static class Traversal extends CtScanner {
+		static final byte ENTER_ELEMENT = 0;
+
+		static final byte EXIT_ELEMENT = 1;
+
+		static final byte ENTER_REFERENCE = 2;
+
+		static final byte EXIT_REFERENCE = 3;
+
+		static final byte END = -1;
+
+		Object[] nodes = new Object[64];
+
+		/**
+		 * What to do with each node, which also saves testing their type.
+		 */
+		byte[] actions = new byte[64];
+
+		int size;
+
+		/**
+		 * The nodes whose children are being scanned, from the root.
+		 */
+		Object[] owners = new Object[16];
+
+		byte[] exits = new byte[16];
+
+		/**
+		 * The index of the first child of each frame, which is also the end
+		 * of the children of the frame below.
+		 */
+		int[] starts = new int[16];
+
+		/**
+		 * The index of the next child to scan in each frame.
+		 */
+		int[] cursors = new int[16];
+
+		int depth;
+
+		/**
+		 * The node of the last step.
+		 */
+		Object node;
+
+		/**
+		 * Creates a traversal that starts with the given node.
+		 */
+		Traversal(Object root, byte action) {
+			push(root, action);
+			exits[0] = END;
+			depth = 1;
+		}
+
+		void push(Object node, byte action) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				actions = Arrays.copyOf(actions, size * 2);
+			}
+			nodes[size] = node;
+			actions[size++] = action;
+		}
+
+		/**
+		 * Reads the children of the given element or reference, which are
+		 * scanned by the next steps, before it is exited.
+		 */
+		void open(CtVisitable node, byte exit) {
+			if (depth == owners.length) {
+				owners = Arrays.copyOf(owners, depth * 2);
+				exits = Arrays.copyOf(exits, depth * 2);
+				starts = Arrays.copyOf(starts, depth * 2);
+				cursors = Arrays.copyOf(cursors, depth * 2);
+			}
+			int d = depth++;
+			owners[d] = node;
+			exits[d] = exit;
+			starts[d] = size;
+			cursors[d] = size;
+			node.accept(this);
+		}
+
+		/**
+		 * Moves to the next node to enter or exit, and tells what to do with
+		 * it, or {@link #END} at the end of the traversal.
+		 */
+		byte next() {
+			int d = depth - 1;
+			int i = cursors[d];
+			// the children of the frames above have been dropped
+			if (i < size) {
+				cursors[d] = i + 1;
+				node = nodes[i];
+				nodes[i] = null;
+				return actions[i];
+			}
+			node = owners[d];
+			owners[d] = null;
+			size = starts[d];
+			if (d > 0) {
+				depth = d;
+			}
+			return exits[d];
+		}
+
+		@Override
+		public void scan(CtElement element) {
+			if (element != null) {
+				push(element, ENTER_ELEMENT);
+			}
+		}
+
+		@Override
+		public void scan(CtReference reference) {
+			if (reference != null) {
+				push(reference, ENTER_REFERENCE);
+			}
+		}
+	}
+
+	/**
+	 * Tells if the given element and its children are scanned, which lets
+	 * the subclasses prune the traversal. True by default.
+	 */
+	protected boolean isToBeScanned(CtElement element) {
+		return true;
+	}
+
+	/**
+	 * True while the scan recurses through the <code>visit</code> methods.
+	 */
+	private boolean recursing;
+
+	/**
+	 * Tells if the model of the given node is scanned with an explicit stack.
+	 */
+	private static boolean isDeep(FactoryAccessor node) {
+		Factory factory = node.getFactory();
+		return factory != null && factory.getEnvironment().isDeepModel();
+	}
+
+	@Override
+	public void scan(CtElement element) {
+		if (element == null) {
+			return;
+		}
+		if (recursing) {
+			if (isToBeScanned(element)) {
+				element.accept(this);
+			}
+		} else if (isDeep(element)) {
+			traverse(element, Traversal.ENTER_ELEMENT);
+		} else {
+			recursing = true;
+			try {
+				if (isToBeScanned(element)) {
+					element.accept(this);
+				}
+			} finally {
+				recursing = false;
+			}
+		}
+	}
+
+	@Override
+	public void scan(CtReference reference) {
+		if (reference == null) {
+			return;
+		}
+		if (recursing) {
+			reference.accept(this);
+		} else if (isDeep(reference)) {
+			traverse(reference, Traversal.ENTER_REFERENCE);
+		} else {
+			recursing = true;
+			try {
+				reference.accept(this);
+			} finally {
+				recursing = false;
+			}
+		}
+	}
+
+	@Override
+	public <T> void visitCtCodeSnippetExpression(
+			CtCodeSnippetExpression<T> expression) {
+		enter(expression);
+		exit(expression);
+	}
+
+	@Override
+	public void visitCtCodeSnippetStatement(CtCodeSnippetStatement statement) {
+		enter(statement);
+		exit(statement);
+	}
+
+	@Override
+	public <T> void visitCtUnboundVariableReference(
+			CtUnboundVariableReference<T> reference) {
+		enterReference(reference);
+		exitReference(reference);
+	}
+
+	private void traverse(Object root, byte action) {
+		Traversal t = new Traversal(root, action);
+		while (true) {
+			switch (t.next()) {
+			case Traversal.ENTER_ELEMENT:
+				CtElement e = (CtElement) t.node;
+				if (isToBeScanned(e)) {
+					enter(e);
+					t.open(e, Traversal.EXIT_ELEMENT);
+				}
+				break;
+			case Traversal.EXIT_ELEMENT:
+				exit((CtElement) t.node);
+				break;
+			case Traversal.ENTER_REFERENCE:
+				CtReference r = (CtReference) t.node;
+				enterReference(r);
+				t.open(r, Traversal.EXIT_REFERENCE);
+				break;
+			case Traversal.EXIT_REFERENCE:
+				exitReference((CtReference) t.node);
+				break;
+			default:
+				return;
+			}
+		}
+	}
+
+}
@@ -17,13 +17,20 @@
 
 package spoon.reflect.visitor;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtReference;
+import spoon.reflect.visitor.filter.AbstractFilter;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.visitor.ElementIndex;
 
 /**
  * This class provides some useful methods to retrieve program elements and
@@ -31,9 +38,23 @@ import spoon.reflect.reference.CtReference;
  * search. It uses the {@link spoon.reflect.visitor.Filter} and
  * {@link spoon.reflect.visitor.ReferenceFilter} facility to select the right
  * elements or references.
+ * 
+ * <p>
+ * A filter is only given the elements of the type that it declares (see
+ * {@link #getElementType(Filter)}). When the elements of the model are
+ * indexed by type (see
+ * {@link spoon.compiler.Environment#isIndexingElements()}), these elements
+ * are taken from the index instead of scanning the model.
  */
 public abstract class Query extends CtScanner {
 
+	/**
+	 * The parameter types of the <code>matches</code> methods of the filter
+	 * classes, or {@link AbstractFilter} for the filters that inherit its
+	 * method.
+	 */
+	private static final Map<Class<?>, Class<?>> matchedTypes = new ConcurrentHashMap<Class<?>, Class<?>>();
+
 	private Query() {
 	}
 
@@ -51,13 +72,60 @@ public abstract class Query extends CtScanner {
 	 */
 	public static <E extends CtElement> List<E> getElements(Factory factory,
 			Filter<E> filter) {
+		return getElements(factory, filter, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Within a given factory, returns the first program elements that match
+	 * the filter, in the order of a scan of the model. The search stops once
+	 * the given number of elements is found.
+	 * 
+	 * @param <E>
+	 *            the type of the sought program elements
+	 * @param factory
+	 *            the factory that contains the elements where to recursive
+	 *            search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 * @param limit
+	 *            the maximum number of returned elements
+	 */
+	public static <E extends CtElement> List<E> getElements(Factory factory,
+			Filter<E> filter, int limit) {
+		if (isIndexed(factory)) {
+			return select(factory.Package().getElementIndex()
+					.<E> getElements(getElementType(filter)),
+					filter, limit);
+		}
 		List<E> e = new ArrayList<E>();
 		for (CtPackage p : factory.Package().getAllRoots()) {
-			e.addAll(getElements(p, filter));
+			if (e.size() >= limit) {
+				break;
+			}
+			e.addAll(getElements(p, filter, limit - e.size()));
 		}
 		return e;
 	}
 
+	/**
+	 * Within a given factory, returns the first program element that matches
+	 * the filter, or null if none matches. The search stops at the first
+	 * match.
+	 * 
+	 * @param <E>
+	 *            the type of the sought program element
+	 * @param factory
+	 *            the factory that contains the elements where to recursive
+	 *            search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 */
+	public static <E extends CtElement> E getFirstElement(Factory factory,
+			Filter<E> filter) {
+		List<E> e = getElements(factory, filter, 1);
+		return e.isEmpty() ? null : e.get(0);
+	}
+
 	/**
 	 * Returns all the program elements that match the filter.
 	 * 
@@ -70,11 +138,170 @@ public abstract class Query extends CtScanner {
 	 */
 	public static <E extends CtElement> List<E> getElements(
 			CtElement rootElement, Filter<E> filter) {
-		QueryVisitor<E> visitor = new QueryVisitor<E>(filter);
+		return getElements(rootElement, filter, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the first program elements that match the filter, in the order
+	 * of a scan of the given element. The search stops once the given number
+	 * of elements is found.
+	 * 
+	 * @param <E>
+	 *            the type of the sought program elements
+	 * @param rootElement
+	 *            the element to start the recursive search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 * @param limit
+	 *            the maximum number of returned elements
+	 */
+	public static <E extends CtElement> List<E> getElements(
+			CtElement rootElement, Filter<E> filter, int limit) {
+		if (rootElement != null && isIndexed(rootElement.getFactory())) {
+			ElementIndex index = rootElement.getFactory().Package()
+					.getElementIndex();
+			if (index.contains(rootElement)) {
+				return select(index.<E> getElements(rootElement,
+						getElementType(filter)), filter, limit);
+			}
+		}
+		QueryVisitor<E> visitor = new QueryVisitor<E>(filter, limit);
 		visitor.scan(rootElement);
 		return visitor.getResult();
 	}
 
+	/**
+	 * Returns the first program element that matches the filter, in the
+	 * order of a scan of the given element, or null if none matches. The
+	 * search stops at the first match, which makes it cheaper than
+	 * {@link #getElements(CtElement, Filter)} to test if an element contains
+	 * a given kind of element.
+	 * 
+	 * @param <E>
+	 *            the type of the sought program element
+	 * @param rootElement
+	 *            the element to start the recursive search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 */
+	public static <E extends CtElement> E getFirstElement(
+			CtElement rootElement, Filter<E> filter) {
+		List<E> e = getElements(rootElement, filter, 1);
+		return e.isEmpty() ? null : e.get(0);
+	}
+
+	/**
+	 * Returns the program elements that match the filter as they are found,
+	 * in the order of a scan of the given element. Unlike
+	 * {@link #getElements(CtElement, Filter, int)}, the number of elements
+	 * does not need to be known in advance: each iterator scans the model
+	 * only as far as the iteration goes (see {@link QueryIterator}).
+	 * 
+	 * @param <E>
+	 *            the type of the sought program elements
+	 * @param rootElement
+	 *            the element to start the recursive search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 */
+	public static <E extends CtElement> Iterable<E> iterate(
+			final CtElement rootElement, final Filter<E> filter) {
+		return new Iterable<E>() {
+			public Iterator<E> iterator() {
+				if (rootElement != null
+						&& isIndexed(rootElement.getFactory())) {
+					ElementIndex index = rootElement.getFactory().Package()
+							.getElementIndex();
+					if (index.contains(rootElement)) {
+						return new QueryIterator<E>(index.<E> getElements(
+								rootElement, getElementType(filter))
+								.iterator(), filter);
+					}
+				}
+				return new QueryIterator<E>(rootElement, filter);
+			}
+		};
+	}
+
+	/**
+	 * Tells if a program element matches the filter, which stops the search
+	 * at the first match.
+	 * 
+	 * @param rootElement
+	 *            the element to start the recursive search on
+	 * @param filter
+	 *            the filter which defines the matching criteria
+	 */
+	public static <E extends CtElement> boolean hasElement(
+			CtElement rootElement, Filter<E> filter) {
+		return getFirstElement(rootElement, filter) != null;
+	}
+
+	/**
+	 * Gets the type of the elements that a filter can be given, which is the
+	 * parameter type of its <code>matches</code> method, or the type of an
+	 * {@link AbstractFilter} that does not override this method. The other
+	 * elements are never a match. The type is computed once per filter class.
+	 */
+	public static Class<?> getElementType(Filter<?> filter) {
+		Class<?> type = matchedTypes.get(filter.getClass());
+		if (type == null) {
+			for (Method m : filter.getClass().getMethods()) {
+				if ("matches".equals(m.getName())
+						&& m.getParameterTypes().length == 1 && !m.isBridge()) {
+					if (m.getDeclaringClass() == AbstractFilter.class) {
+						type = AbstractFilter.class;
+						break;
+					}
+					// the most general one if the method is overloaded
+					if (type == null
+							|| m.getParameterTypes()[0].isAssignableFrom(type)) {
+						type = m.getParameterTypes()[0];
+					}
+				}
+			}
+			if (type == null) {
+				type = CtElement.class;
+			}
+			matchedTypes.put(filter.getClass(), type);
+		}
+		if (type == AbstractFilter.class) {
+			return ((AbstractFilter<?>) filter).getType();
+		}
+		return type;
+	}
+
+	private static boolean isIndexed(Factory factory) {
+		return factory != null
+				&& factory.getEnvironment().isIndexingElements();
+	}
+
+	/**
+	 * Keeps the first elements of an index that match a filter, which are
+	 * all the elements up to the limit when the filter only tests their type.
+	 */
+	private static <E extends CtElement> List<E> select(List<E> elements,
+			Filter<E> filter, int limit) {
+		if (filter.getClass() == TypeFilter.class) {
+			return elements.size() > limit ? new ArrayList<E>(elements.subList(
+					0, limit)) : elements;
+		}
+		List<E> result = new ArrayList<E>();
+		for (E element : elements) {
+			if (result.size() >= limit) {
+				break;
+			}
+			try {
+				if (filter.matches(element)) {
+					result.add(element);
+				}
+			} catch (ClassCastException e) {
+				// thrown by the filter itself, like in QueryVisitor
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Returns all the program element references that match the filter.
 	 * 
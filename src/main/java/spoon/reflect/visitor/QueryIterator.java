@@ -0,0 +1,173 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.reflect.visitor;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.CtIterativeScanner.Traversal;
+
+/**
+ * An iterator over the elements that match a filter, which scans the model
+ * only as far as the iteration goes (see
+ * {@link Query#iterate(CtElement, Filter)}). The elements are returned in the
+ * order of a scan, and the traversal stack of {@link CtIterativeScanner} is
+ * kept between two calls.
+ * 
+ * <p>
+ * The children of an element are read when the iteration goes past it, so
+ * that the children that it has then are the ones that are scanned. The
+ * iterator does not support {@link #remove()}.
+ */
+public class QueryIterator<E extends CtElement> implements Iterator<E> {
+
+	private final Filter<E> filter;
+
+	/**
+	 * The type of the elements given to the filter.
+	 */
+	private final Class<?> type;
+
+	/**
+	 * Tells, for each class of scanned element, if the filter is given its
+	 * instances.
+	 */
+	private final Map<Class<?>, Boolean> filtered = new HashMap<Class<?>, Boolean>();
+
+	/**
+	 * The elements and references to scan, or null if the candidates are
+	 * given or there is no element to scan.
+	 */
+	private final Traversal traversal;
+
+	/**
+	 * The elements to give to the filter, instead of a scan.
+	 */
+	private final Iterator<? extends CtElement> candidates;
+
+	/**
+	 * The last scanned element, whose children are not read yet.
+	 */
+	private CtElement last;
+
+	private E next;
+
+	/**
+	 * Creates an iterator over the elements of the tree of the given element,
+	 * itself included, that match the filter.
+	 */
+	public QueryIterator(CtElement rootElement, Filter<E> filter) {
+		this.filter = filter;
+		this.type = Query.getElementType(filter);
+		this.traversal = rootElement == null ? null : new Traversal(
+				rootElement, Traversal.ENTER_ELEMENT);
+		this.candidates = null;
+	}
+
+	/**
+	 * Creates an iterator over the given elements that match the filter.
+	 */
+	QueryIterator(Iterator<? extends CtElement> candidates, Filter<E> filter) {
+		this.filter = filter;
+		this.type = Query.getElementType(filter);
+		this.traversal = null;
+		this.candidates = candidates;
+	}
+
+	public boolean hasNext() {
+		if (next == null) {
+			next = findNext();
+		}
+		return next != null;
+	}
+
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		E e = next;
+		next = null;
+		return e;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@SuppressWarnings("unchecked")
+	private E findNext() {
+		CtElement element;
+		while ((element = nextCandidate()) != null) {
+			if (isFiltered(element.getClass())) {
+				try {
+					if (filter.matches((E) element)) {
+						return (E) element;
+					}
+				} catch (ClassCastException e) {
+					// thrown by the filter itself, like in QueryVisitor
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the next element to give to the filter, or null at the end of the
+	 * scan. The references are not scanned, since they hold no elements.
+	 */
+	private CtElement nextCandidate() {
+		if (candidates != null) {
+			return candidates.hasNext() ? candidates.next() : null;
+		}
+		Traversal t = traversal;
+		if (t == null) {
+			return null;
+		}
+		if (last != null) {
+			t.open(last, Traversal.EXIT_ELEMENT);
+			last = null;
+		}
+		while (true) {
+			switch (t.next()) {
+			case Traversal.ENTER_ELEMENT:
+				last = (CtElement) t.node;
+				return last;
+			case Traversal.END:
+				return null;
+			default:
+				// the references and the exits
+			}
+		}
+	}
+
+	/**
+	 * Tells if the filter is given the elements of the given class.
+	 */
+	private boolean isFiltered(Class<?> elementClass) {
+		Boolean f = filtered.get(elementClass);
+		if (f == null) {
+			f = type.isAssignableFrom(elementClass);
+			filtered.put(elementClass, f);
+		}
+		return f;
+	}
+
+}
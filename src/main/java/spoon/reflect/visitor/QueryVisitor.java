@@ -18,25 +18,58 @@
 package spoon.reflect.visitor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import spoon.reflect.declaration.CtElement;
 
 /**
  * A simple visitor that takes a filter and returns all the elements that match
- * it.
+ * it, or the first ones when the number of results is limited.
  */
-public class QueryVisitor<T extends CtElement> extends CtScanner {
+public class QueryVisitor<T extends CtElement> extends CtIterativeScanner {
 	Filter<T> filter;
 
 	List<T> result = new ArrayList<T>();
 
+	int limit = Integer.MAX_VALUE;
+
+	/**
+	 * The type of the elements given to the filter.
+	 */
+	Class<?> type;
+
+	/**
+	 * Tells, for each class of scanned element, if the filter is given its
+	 * instances.
+	 */
+	Map<Class<?>, Boolean> filtered = new HashMap<Class<?>, Boolean>();
+
 	/**
 	 * Constructs a query visitor with a given filter.
 	 */
 	public QueryVisitor(Filter<T> filter) {
 		super();
 		this.filter = filter;
+		this.type = Query.getElementType(filter);
+	}
+
+	/**
+	 * Constructs a query visitor with a given filter, which stops scanning
+	 * once the given number of matching elements is found.
+	 */
+	public QueryVisitor(Filter<T> filter, int limit) {
+		this(filter);
+		this.limit = limit;
+	}
+
+	/**
+	 * Tells if the number of matching elements has reached the limit, after
+	 * which the next elements are not scanned.
+	 */
+	public boolean isDone() {
+		return result.size() >= limit;
 	}
 
 	/**
@@ -46,18 +79,34 @@ public class QueryVisitor<T extends CtElement> extends CtScanner {
 		return result;
 	}
 
+	/**
+	 * Tells if the filter is given the elements of the given class.
+	 */
+	private boolean isFiltered(Class<?> elementClass) {
+		Boolean f = filtered.get(elementClass);
+		if (f == null) {
+			f = type.isAssignableFrom(elementClass);
+			filtered.put(elementClass, f);
+		}
+		return f;
+	}
+
+	@Override
+	protected boolean isToBeScanned(CtElement element) {
+		return !isDone();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
-	public void scan(CtElement element) {
-		if (element == null) 
-			return;
-		try {
-			if (filter.matches((T) element)) {
-				result.add((T) element);
+	protected void enter(CtElement element) {
+		if (isFiltered(element.getClass())) {
+			try {
+				if (filter.matches((T) element)) {
+					result.add((T) element);
+				}
+			} catch (ClassCastException e) {
+				// thrown by the filter itself
 			}
-		} catch (ClassCastException e) {
-			// expected, some elements are not of type T
 		}
-		super.scan(element);
 	}
 }
@@ -27,7 +27,7 @@ import spoon.reflect.reference.CtReference;
  * that match it.
  */
 
-public class ReferenceQueryVisitor<T extends CtReference> extends CtScanner {
+public class ReferenceQueryVisitor<T extends CtReference> extends CtIterativeScanner {
 	ReferenceFilter<T> filter;
 
 	List<T> result = new ArrayList<T>();
@@ -49,14 +49,11 @@ public class ReferenceQueryVisitor<T extends CtReference> extends CtScanner {
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public void scan(CtReference reference) {
-		if (reference == null)
-			return;
+	protected void enterReference(CtReference reference) {
 		if (filter.getType().isAssignableFrom(reference.getClass())) {
 			if (filter.matches((T) reference)) {
 				result.add((T) reference);
 			}
 		}
-		super.scan(reference);
 	}
 }
\ No newline at end of file
@@ -37,6 +37,13 @@ public abstract class AbstractFilter<T extends CtElement> implements Filter<T> {
 		this.type = (Class<T>) type;
 	}
 
+	/**
+	 * Gets the type of the potentially matching elements.
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
 	@Override
 	public boolean matches(T element) {
 		return type.isAssignableFrom(element.getClass());
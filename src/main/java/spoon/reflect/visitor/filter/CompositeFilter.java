@@ -19,6 +19,7 @@ package spoon.reflect.visitor.filter;
 
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.visitor.Filter;
+import spoon.reflect.visitor.Query;
 
 /**
  * This class defines a composite filter, which can compose several filters
@@ -35,24 +36,26 @@ public class CompositeFilter<T extends CtElement> implements Filter<T> {
 	public boolean matches(T element) {
 		switch (operator) {
 		case INTERSECTION:
-			for (Filter<T> f : filters) {
-				if (! hasMatch(f, element))
+			for (int i = 0; i < filters.length; i++) {
+				if (! hasMatch(filters[i], types[i], element))
 					return false;
 			}
 			return true;
 		case UNION:
-			for (Filter<T> f : filters) {
-				if (hasMatch(f, element))
+			for (int i = 0; i < filters.length; i++) {
+				if (hasMatch(filters[i], types[i], element))
 					return true;
 			}
 			return false;
 		case SUBSTRACTION:
 			if (filters.length == 0)
 				return false;
-			if (!filters[0].matches(element))
+			if (!hasMatch(filters[0], types[0], element))
 				return false;
+			// a subtracted filter that is not given the element does not
+			// exclude it
 			for (int i = 1; i < filters.length; i++) {
-				if (filters[i].matches(element))
+				if (hasMatch(filters[i], types[i], element))
 					return false;
 			}
 			return true;
@@ -63,6 +66,12 @@ public class CompositeFilter<T extends CtElement> implements Filter<T> {
 
 	Filter<T>[] filters;
 
+	/**
+	 * The types of the elements given to the filters (see
+	 * {@link Query#getElementType(Filter)}).
+	 */
+	Class<?>[] types;
+
 	FilteringOperator operator;
 
 	/**
@@ -76,9 +85,16 @@ public class CompositeFilter<T extends CtElement> implements Filter<T> {
 	public CompositeFilter(FilteringOperator operator, Filter<T>... filters) {
 		this.filters = filters;
 		this.operator = operator;
+		types = new Class<?>[filters.length];
+		for (int i = 0; i < filters.length; i++) {
+			types[i] = Query.getElementType(filters[i]);
+		}
 	}
 
-	private boolean hasMatch(Filter<T> filter, T element) {
+	private boolean hasMatch(Filter<T> filter, Class<?> type, T element) {
+		if (!type.isInstance(element)) {
+			return false;
+		}
 		try {
 			return filter.matches(element);
 		} catch (ClassCastException e) {
@@ -0,0 +1,83 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.reflect.visitor.filter;
+
+import java.util.regex.Pattern;
+
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.visitor.Filter;
+
+/**
+ * This filter matches the types whose qualified name matches one of the given
+ * glob patterns. In a pattern, <code>*</code> matches any part of a name
+ * that does not contain a dot, and <code>**</code> matches any part of a
+ * name. For instance, <code>com.foo.*</code> matches the types of the
+ * <code>com.foo</code> package, <code>com.foo.**</code> also matches the
+ * types of its sub-packages, and <code>**Test</code> matches the types whose
+ * name ends with <code>Test</code>.
+ */
+public class QualifiedNameFilter implements Filter<CtType<?>> {
+
+	private final Pattern pattern;
+
+	/**
+	 * Creates the filter.
+	 * 
+	 * @param globs
+	 *            the patterns of the qualified names of the matched types
+	 */
+	public QualifiedNameFilter(String... globs) {
+		StringBuilder regex = new StringBuilder();
+		for (String glob : globs) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			int start = 0;
+			int star;
+			while ((star = glob.indexOf('*', start)) >= 0) {
+				if (star > start) {
+					regex.append(Pattern.quote(glob.substring(start, star)));
+				}
+				if (glob.startsWith("**", star)) {
+					regex.append(".*");
+					start = star + 2;
+				} else {
+					regex.append("[^.]*");
+					start = star + 1;
+				}
+			}
+			if (start < glob.length()) {
+				regex.append(Pattern.quote(glob.substring(start)));
+			}
+		}
+		this.pattern = Pattern.compile(regex.toString());
+	}
+
+	public boolean matches(CtType<?> element) {
+		return matches(element.getQualifiedName());
+	}
+
+	/**
+	 * Tells if the given qualified name matches one of the patterns of this
+	 * filter.
+	 */
+	public boolean matches(String qualifiedName) {
+		return pattern.matcher(qualifiedName).matches();
+	}
+
+}
@@ -19,14 +19,7 @@ package spoon.support;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.Collection;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Stack;
-
-import spoon.Launcher;
+
 import spoon.reflect.code.CtAnnotationFieldAccess;
 import spoon.reflect.code.CtArrayAccess;
 import spoon.reflect.code.CtAssert;
@@ -145,7 +138,6 @@ import spoon.support.reflect.declaration.CtAnnotationTypeImpl;
 import spoon.support.reflect.declaration.CtAnonymousExecutableImpl;
 import spoon.support.reflect.declaration.CtClassImpl;
 import spoon.support.reflect.declaration.CtConstructorImpl;
-import spoon.support.reflect.declaration.CtElementImpl;
 import spoon.support.reflect.declaration.CtEnumImpl;
 import spoon.support.reflect.declaration.CtFieldImpl;
 import spoon.support.reflect.declaration.CtInterfaceImpl;
@@ -162,7 +154,7 @@ import spoon.support.reflect.reference.CtPackageReferenceImpl;
 import spoon.support.reflect.reference.CtParameterReferenceImpl;
 import spoon.support.reflect.reference.CtTypeParameterReferenceImpl;
 import spoon.support.reflect.reference.CtTypeReferenceImpl;
-import spoon.support.util.RtHelper;
+import spoon.support.util.ElementCloner;
 
 /**
  * This class implements a default core factory for Spoon's meta-model. This
@@ -172,8 +164,6 @@ public class DefaultCoreFactory implements CoreFactory, Serializable {
 
 	private static final long serialVersionUID = 1L;
 
-	// transient Stack<CtElement> cloningContext = new Stack<CtElement>();
-
 	Factory mainFactory;
 
 	/**
@@ -183,112 +173,17 @@ public class DefaultCoreFactory implements CoreFactory, Serializable {
 	}
 
 	public <T> T clone(T object) {
-		return clone(object, new Stack<CtElement>());
-	}
-
-	@SuppressWarnings("unchecked")
-	private <T> T clone(T object, Stack<CtElement> cloningContext) {
-		if (object == null)
-			return null;
-		T result = null;
-		try {
-			if (!(object instanceof CtElement || object instanceof CtReference)) {
-				return object;
-			}
-			// RP: this should be done first or removed?
-			if (object instanceof Cloneable) {
-				return (T) object.getClass().getMethod("clone").invoke(object);
-			}
-			// RP: never called?
-			if (object.getClass().isEnum()) {
-				return object;
-			}
-			// System.out.println("cloning " + object + "["
-			// + object.getClass().getSimpleName() + "]");
-			result = (T) object.getClass().newInstance();
-			if (result instanceof CtElement) {
-				// if (cloningContext.isEmpty()) {
-				// //CtElement e = (CtElement)object;
-				// //if(e.isParentInitialized()) {
-				// // cloningContext.push(e.getParent());
-				// //} else {
-				// cloningContext.push(null);
-				// //}
-				// }
-				cloningContext.push((CtElement) result);
-			}
-			for (Field f : RtHelper.getAllFields(object.getClass())) {
-				// if (!clonedFields.contains(f)) {
-				// clonedFields.push(f);
-				f.setAccessible(true);
-				// if (f.getName().equals("parent")) {
-				// // if (!cloningContext.isEmpty()) {
-				// ((CtElement) result).setParent(cloningContext
-				// .get(cloningContext.size() - 2));
-				// // }
-				// } else {
-				if (!f.getName().equals("parent")) {
-					Object fieldValue = f.get(object);
-					if (!Modifier.isFinal(f.getModifiers())
-							&& !Modifier.isStatic(f.getModifiers())) {
-						if (fieldValue instanceof Collection) {
-							Collection<Object> c;
-							if (fieldValue == CtElementImpl.EMPTY_COLLECTION()
-									|| fieldValue == CtElementImpl.EMPTY_SET()) {
-								c = (Collection<Object>) fieldValue;
-							} else {
-								c = (Collection<Object>) fieldValue.getClass()
-										.getMethod("clone").invoke(fieldValue);
-								c.clear();
-								for (Object o : (Collection<Object>) fieldValue) {
-									c.add(clone(o, cloningContext));
-								}
-							}
-							f.set(result, c);
-
-						} else if (fieldValue instanceof Map) {
-							// TODO: ARE THERE REALLY MAP FIELDS IN THE MODEL?
-							// System.err.println(" cloning collection " + f+" :
-							// "+cloningContext.peek().getClass().getSimpleName());
-							Map<Object, Object> m = (Map<Object, Object>) fieldValue
-									.getClass().getMethod("clone")
-									.invoke(fieldValue);
-							// m.clear();
-							f.set(result, m);
-							for (Entry<?, ?> e : ((Map<?, ?>) fieldValue)
-									.entrySet()) {
-								m.put(e.getKey(),
-										clone(e.getValue(), cloningContext));
-							}
-						} else if ((object instanceof CtReference)
-								&& (fieldValue instanceof CtElement)) {
-
-							f.set(result, fieldValue);
-						} else {
-							// System.err.println(" cloning field " + f+" :
-							// "+cloningContext.peek().getClass().getSimpleName());
-							f.set(result, clone(f.get(object), cloningContext));
-						}
-					}
-				}
-				// clonedFields.pop();
-			}
-			// }
-			if (result instanceof CtElement) {
-				cloningContext.pop();
-				if (cloningContext.isEmpty()) {
-					((CtElement) result).setParent(null);
-				} else {
-					((CtElement) result).setParent(cloningContext.peek());
-				}
-				// if (cloningContext.size() == 1)
-				// cloningContext.pop();
-			}
-		} catch (Exception e) {
-			Launcher.logger.error(e.getMessage(), e);
+		if (!(object instanceof CtElement || object instanceof CtReference)) {
+			return object;
 		}
-		return result;
+		return new ElementCloner().clone(object);
+	}
 
+	public <T> T lazyClone(T object) {
+		if (!(object instanceof CtElement || object instanceof CtReference)) {
+			return object;
+		}
+		return new ElementCloner(true).clone(object);
 	}
 
 	public <A extends Annotation> CtAnnotation<A> createAnnotation() {
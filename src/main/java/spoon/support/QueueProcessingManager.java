@@ -19,14 +19,28 @@ package spoon.support;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import spoon.SpoonException;
 import spoon.processing.AbstractProcessor;
 import spoon.processing.ProcessingManager;
+import spoon.processing.ParallelProcessor;
 import spoon.processing.Processor;
+import spoon.processing.ReadOnlyProcessor;
 import spoon.processing.Severity;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.support.util.Timer;
 import spoon.support.visitor.ProcessingVisitor;
@@ -34,7 +48,10 @@ import spoon.support.visitor.ProcessingVisitor;
 /**
  * This processing manager implements a blocking processing policy that consists
  * of applying the processors in a FIFO order until no processors remain to be
- * applied.The processors will be removed from the manager once applied.
+ * applied.The processors will be removed from the manager once applied. The
+ * {@link ReadOnlyProcessor}s that follow each other in the queue are applied
+ * together, in a single traversal of the model, and the
+ * {@link ParallelProcessor}s on several threads if the environment says so.
  */
 public class QueueProcessingManager implements ProcessingManager {
 	Processor<?> current;
@@ -128,31 +145,83 @@ public class QueueProcessingManager implements ProcessingManager {
 		Timer.stop("process");
 	}
 
+	/**
+	 * Polls the next processors to be applied in a single traversal: the next
+	 * processor, and the {@link ReadOnlyProcessor}s that directly follow it
+	 * in the queue if it is read-only itself. When the processing uses
+	 * several threads, the parallel processors are not polled together with
+	 * the other ones.
+	 */
+	protected List<Processor<?>> pollProcessors() {
+		List<Processor<?>> polled = new ArrayList<Processor<?>>();
+		Processor<?> p = getProcessors().poll();
+		if (p != null) {
+			polled.add(p);
+			if (p instanceof ReadOnlyProcessor) {
+				boolean parallel = isParallel(p);
+				while (getProcessors().peek() instanceof ReadOnlyProcessor
+						&& isParallel(getProcessors().peek()) == parallel) {
+					polled.add(getProcessors().poll());
+				}
+			}
+		}
+		return polled;
+	}
+
+	/**
+	 * Tells if the given processor is applied on several threads (see
+	 * {@link ParallelProcessor}).
+	 */
+	protected boolean isParallel(Processor<?> processor) {
+		return processor instanceof ParallelProcessor
+				&& getFactory().getEnvironment().getProcessingThreadCount() > 1;
+	}
+
 	public void process(Collection<? extends CtElement> elements) {
-		Processor<?> p;
-		while ((p = getProcessors().poll()) != null) {
-			if (getFactory().getEnvironment().isVerbose()) {
-				getFactory().getEnvironment().reportProgressMessage(
-						p.getClass().getName());
+		List<Processor<?>> polled;
+		while (!(polled = pollProcessors()).isEmpty()) {
+			for (Processor<?> p : polled) {
+				if (getFactory().getEnvironment().isVerbose()) {
+					getFactory().getEnvironment().reportProgressMessage(
+							p.getClass().getName());
+				}
+				current = p;
+				p.initProperties(AbstractProcessor.loadProperties(p));
+				p.init();
+				p.process();
+			}
+			current = polled.get(0);
+			if (isParallel(current)) {
+				processInParallel(elements, polled);
+			} else {
+				for (CtElement e : new ArrayList<CtElement>(elements))
+					process(e, polled);
+			}
+			for (Processor<?> p : polled) {
+				current = p;
+				p.processingDone();
 			}
-			current = p;
-			p.initProperties(AbstractProcessor.loadProperties(p));
-			p.init();
-			p.process();
-			for (CtElement e : new ArrayList<CtElement>(elements))
-				process(e, p);
-			p.processingDone();
 		}
 	}
 
 	public void process(CtElement element) {
-		Processor<?> p;
-		while ((p = getProcessors().poll()) != null) {
-			current = p;
-			p.init();
-			p.process();
-			process(element, p);
-			p.processingDone();
+		List<Processor<?>> polled;
+		while (!(polled = pollProcessors()).isEmpty()) {
+			for (Processor<?> p : polled) {
+				current = p;
+				p.init();
+				p.process();
+			}
+			current = polled.get(0);
+			if (isParallel(current)) {
+				processInParallel(Collections.singletonList(element), polled);
+			} else {
+				process(element, polled);
+			}
+			for (Processor<?> p : polled) {
+				current = p;
+				p.processingDone();
+			}
 		}
 	}
 
@@ -161,6 +230,146 @@ public class QueueProcessingManager implements ProcessingManager {
 		getVisitor().scan(element);
 	}
 
+	/**
+	 * Applies the given processors to the given element in a single
+	 * traversal.
+	 */
+	protected void process(CtElement element, List<Processor<?>> processors) {
+		if (processors.size() == 1) {
+			process(element, processors.get(0));
+			return;
+		}
+		getVisitor().setProcessors(processors);
+		getVisitor().scan(element);
+	}
+
+	/**
+	 * A visitor that processes the elements above the top-level types, and
+	 * collects the top-level types, grouped by compilation unit, instead of
+	 * scanning them. The post-order processing of the scanned elements is
+	 * deferred until {@link #exitAll()} is called, so that an element is
+	 * still processed after its children.
+	 */
+	private static class TopLevelTypeCollector extends ProcessingVisitor {
+
+		final Map<Object, List<CtType<?>>> units = new LinkedHashMap<Object, List<CtType<?>>>();
+
+		final List<CtElement> exited = new ArrayList<CtElement>();
+
+		TopLevelTypeCollector(Factory factory) {
+			super(factory);
+		}
+
+		@Override
+		protected boolean isToBeScanned(CtElement e) {
+			if (!super.isToBeScanned(e)) {
+				return false;
+			}
+			if (e instanceof CtType && e.isParentInitialized()
+					&& e.getParent() instanceof CtPackage) {
+				CtType<?> type = (CtType<?>) e;
+				Object unit = type.getPosition() == null ? null : type
+						.getPosition().getCompilationUnit();
+				if (unit == null) {
+					unit = type;
+				}
+				List<CtType<?>> types = units.get(unit);
+				if (types == null) {
+					types = new ArrayList<CtType<?>>();
+					units.put(unit, types);
+				}
+				types.add(type);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		protected void exit(CtElement e) {
+			exited.add(e);
+		}
+
+		/**
+		 * Applies the deferred post-order processing, in the order of the
+		 * traversal.
+		 */
+		void exitAll() {
+			for (CtElement e : exited) {
+				super.exit(e);
+			}
+			exited.clear();
+		}
+	}
+
+	/**
+	 * Applies the given parallel processors to the given elements. The
+	 * elements are processed on the calling thread, except the top-level
+	 * types, which are processed on
+	 * {@link spoon.compiler.Environment#getProcessingThreadCount()} threads,
+	 * each one with its own {@link ProcessingVisitor}. The types of a same
+	 * compilation unit are processed by the same thread, since they share
+	 * the lazily built bodies of the unit. The elements that contain the
+	 * top-level types, such as the packages, are given to the post-order
+	 * processors once all the types have been processed.
+	 */
+	protected void processInParallel(Collection<? extends CtElement> elements,
+			List<Processor<?>> processors) {
+		TopLevelTypeCollector collector = new TopLevelTypeCollector(
+				getFactory());
+		collector.setProcessors(processors);
+		for (CtElement e : new ArrayList<CtElement>(elements)) {
+			collector.scan(e);
+		}
+
+		final List<List<CtType<?>>> toProcess = new ArrayList<List<CtType<?>>>(
+				collector.units.values());
+		final List<Processor<?>> applied = processors;
+		int threadCount = Math.min(getFactory().getEnvironment()
+				.getProcessingThreadCount(), toProcess.size());
+		if (threadCount > 0) {
+			processTypes(toProcess, applied, threadCount);
+		}
+		collector.exitAll();
+	}
+
+	private void processTypes(final List<List<CtType<?>>> toProcess,
+			final List<Processor<?>> applied, int threadCount) {
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int i = 0; i < threadCount; i++) {
+				results.add(executor.submit(new Runnable() {
+					public void run() {
+						ProcessingVisitor visitor = new ProcessingVisitor(
+								getFactory());
+						visitor.setProcessors(applied);
+						int index;
+						while ((index = next.getAndIncrement()) < toProcess
+								.size()) {
+							for (CtType<?> type : toProcess.get(index)) {
+								visitor.scan(type);
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpoonException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SpoonException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	public void setFactory(Factory factory) {
 		this.factory = factory;
 		factory.getEnvironment().setManager(this);
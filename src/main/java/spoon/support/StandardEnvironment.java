@@ -54,7 +54,8 @@ import spoon.support.processing.XmlProcessorProperties;
 
 /**
  * This class implements a simple Spoon environment that reports messages in the
- * standard output stream (Java-compliant).
+ * standard output stream (Java-compliant). The reports are synchronized, so
+ * that the processors applied on several threads can report problems.
  */
 public class StandardEnvironment implements Serializable, Environment {
 
@@ -77,7 +78,7 @@ public class StandardEnvironment implements Serializable, Environment {
 
 	ProcessingManager manager;
 
-	private boolean processingStopped = false;
+	private volatile boolean processingStopped = false;
 
 	private boolean verbose = false;
 
@@ -85,6 +86,10 @@ public class StandardEnvironment implements Serializable, Environment {
 
 	private int warningCount = 0;
 
+	private int modelCacheHitCount = 0;
+
+	private int modelCacheMissCount = 0;
+
 	private File xmlRootFolder;
 
 	private String[] sourceClasspath = null;
@@ -97,6 +102,16 @@ public class StandardEnvironment implements Serializable, Environment {
 
 	private boolean generateJavadoc = false;
 
+	private boolean linkingDeclarations = true;
+
+	private boolean indexingElements = false;
+
+	private boolean indexingUsages = false;
+
+	private boolean deepModel = false;
+
+	private int processingThreadCount = 1;
+
 	/**
 	 * Creates a new environment with a <code>null</code> default file
 	 * generator.
@@ -222,7 +237,7 @@ public class StandardEnvironment implements Serializable, Environment {
 		}
 	}
 
-	public void report(Processor<?> processor, Severity severity,
+	public synchronized void report(Processor<?> processor, Severity severity,
 			CtElement element, String message) {
 		StringBuffer buffer = new StringBuffer();
 
@@ -256,7 +271,8 @@ public class StandardEnvironment implements Serializable, Environment {
 		print(buffer, severity);
 	}
 
-	public void report(Processor<?> processor, Severity severity, String message) {
+	public synchronized void report(Processor<?> processor, Severity severity,
+			String message) {
 		StringBuffer buffer = new StringBuffer();
 
 		prefix(buffer, severity);
@@ -268,7 +284,7 @@ public class StandardEnvironment implements Serializable, Environment {
 	/**
 	 * This method should be called to report the end of the processing.
 	 */
-	public void reportEnd() {
+	public synchronized void reportEnd() {
 		if (!isVerbose()) {
 			return;
 		}
@@ -295,7 +311,7 @@ public class StandardEnvironment implements Serializable, Environment {
 		}
 	}
 
-	public void reportProgressMessage(String message) {
+	public synchronized void reportProgressMessage(String message) {
 		if (!isVerbose()) {
 			return;
 		}
@@ -429,15 +445,36 @@ public class StandardEnvironment implements Serializable, Environment {
 	}
 	
 	@Override
-	public int getErrorCount() {
+	public synchronized int getErrorCount() {
 		return errorCount;
 	}
 
 	@Override
-	public int getWarningCount() {
+	public synchronized int getWarningCount() {
 		return warningCount;
 	}
 
+	@Override
+	public synchronized void reportModelCacheUsage(int hits, int misses) {
+		modelCacheHitCount += hits;
+		modelCacheMissCount += misses;
+		if (hits + misses > 0) {
+			reportProgressMessage("model cache: " + hits + " hit(s), "
+					+ misses + " miss(es) (" + (100 * hits / (hits + misses))
+					+ "% hit ratio)");
+		}
+	}
+
+	@Override
+	public synchronized int getModelCacheHitCount() {
+		return modelCacheHitCount;
+	}
+
+	@Override
+	public synchronized int getModelCacheMissCount() {
+		return modelCacheMissCount;
+	}
+
 	private ClassLoader inputClassLoader;
 
 	@Override
@@ -493,4 +530,54 @@ public class StandardEnvironment implements Serializable, Environment {
 	public void setGenerateJavadoc(boolean generateJavadoc) {
 		this.generateJavadoc = generateJavadoc;
 	}
+
+	@Override
+	public boolean isLinkingDeclarations() {
+		return linkingDeclarations;
+	}
+
+	@Override
+	public void setLinkingDeclarations(boolean linkingDeclarations) {
+		this.linkingDeclarations = linkingDeclarations;
+	}
+
+	@Override
+	public boolean isIndexingElements() {
+		return indexingElements;
+	}
+
+	@Override
+	public void setIndexingElements(boolean indexingElements) {
+		this.indexingElements = indexingElements;
+	}
+
+	@Override
+	public boolean isIndexingUsages() {
+		return indexingUsages;
+	}
+
+	@Override
+	public void setIndexingUsages(boolean indexingUsages) {
+		this.indexingUsages = indexingUsages;
+	}
+
+	@Override
+	public boolean isDeepModel() {
+		return deepModel;
+	}
+
+	@Override
+	public void setDeepModel(boolean deepModel) {
+		this.deepModel = deepModel;
+	}
+
+	@Override
+	public int getProcessingThreadCount() {
+		return processingThreadCount;
+	}
+
+	@Override
+	public void setProcessingThreadCount(int threadCount) {
+		this.processingThreadCount = threadCount;
+	}
 }
@@ -0,0 +1,981 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import spoon.Launcher;
+import spoon.SpoonException;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtReference;
+import spoon.support.compiler.IncrementalBuildState.UnitState;
+import spoon.support.reflect.cu.SourcePositionImpl;
+import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildContainer;
+
+/**
+ * An on-disk cache of the Spoon model of a set of source files, which allows
+ * to skip the Java compiler when the sources have not changed.
+ *
+ * <p>
+ * A cache file is specific to a compliance level and to a classpath (the
+ * content of the classpath entries, or the names and CRCs of the entries of
+ * the archives). It starts with a string table
+ * shared by the whole file, followed by an index of the compilation units
+ * (path, content hash and dependencies, see {@link IncrementalBuildState}),
+ * and by one section per compilation unit, which contains the types it
+ * declares. A section can be loaded on its own.
+ * </p>
+ *
+ * <p>
+ * Only the classes of the metamodel, the enumerations of Spoon and the
+ * collections of {@link #CONTAINERS} can be instantiated when reading a
+ * cache file.
+ * </p>
+ */
+public class BinaryModelCache {
+
+	private static final int MAGIC = 0x53504d43;
+
+	private static final int VERSION = 6;
+
+	private static final int NULL = 0;
+
+	private static final int REFERENCE = 1;
+
+	private static final int STRING = 2;
+
+	private static final int INTEGER = 3;
+
+	private static final int LONG = 4;
+
+	private static final int BOOLEAN = 5;
+
+	private static final int CHARACTER = 6;
+
+	private static final int BYTE = 7;
+
+	private static final int SHORT = 8;
+
+	private static final int FLOAT = 9;
+
+	private static final int DOUBLE = 10;
+
+	private static final int ENUM = 11;
+
+	private static final int OBJECT = 12;
+
+	private static final int LIST = 13;
+
+	private static final int SET = 14;
+
+	private static final int MAP = 15;
+
+	private static final int EMPTY_LIST = 16;
+
+	private static final int EMPTY_SET = 17;
+
+	private static final int INT_ARRAY = 18;
+
+	private static final int ARRAY = 19;
+
+	private static final int PACKAGE = 20;
+
+	private static final int COMPILATION_UNIT = 21;
+
+	private static final int POSITION = 22;
+
+	private static final int FILE = 23;
+
+	private static final int CLASS = 24;
+
+	private static final int FACTORY = 25;
+
+	/**
+	 * The collections that can be instantiated when reading a cache file,
+	 * besides the ones of Spoon.
+	 */
+	static final Set<String> CONTAINERS = new HashSet<String>(Arrays.asList(
+			ArrayList.class.getName(), LinkedList.class.getName(),
+			HashSet.class.getName(), LinkedHashSet.class.getName(),
+			TreeSet.class.getName(), HashMap.class.getName(),
+			LinkedHashMap.class.getName(), TreeMap.class.getName()));
+
+	private final File file;
+
+	private final String key;
+
+	private final IncrementalBuildState state = new IncrementalBuildState();
+
+	private final Map<String, byte[]> sections = new HashMap<String, byte[]>();
+
+	private String[] strings = new String[0];
+
+	private final Map<Class<?>, Field[]> fields = new HashMap<Class<?>, Field[]>();
+
+	/**
+	 * Opens the cache of the given directory for the given compliance level
+	 * and classpath. The cache is empty if no model has been saved for them.
+	 */
+	public BinaryModelCache(File directory, int complianceLevel,
+			String classpath) {
+		key = complianceLevel + ":" + computeClasspathFingerprint(classpath);
+		file = new File(directory, "spoon-model-"
+				+ hash(key).substring(0, 16) + ".bin");
+		if (file.exists()) {
+			try {
+				read();
+			} catch (Exception e) {
+				Launcher.logger.warn("cannot read model cache " + file, e);
+				sections.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the cache file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets the state of the build that produced the cached model. The
+	 * compilation units that are up-to-date according to this state can be
+	 * loaded with {@link #load(Factory, Map)}.
+	 */
+	public IncrementalBuildState getState() {
+		return state;
+	}
+
+	/**
+	 * Computes a fingerprint of the given classpath, which changes when an
+	 * entry is added, removed or modified. The archives are fingerprinted by
+	 * the names and CRCs of their entries, and the other files by their
+	 * content.
+	 */
+	public static String computeClasspathFingerprint(String classpath) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			if (classpath != null) {
+				for (String entry : classpath.split(File.pathSeparator)) {
+					update(digest, entry);
+					appendFingerprint(digest, new File(entry));
+				}
+			}
+			return toHex(digest.digest());
+		} catch (IOException e) {
+			throw new SpoonException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new SpoonException(e);
+		}
+	}
+
+	private static void appendFingerprint(MessageDigest digest, File f)
+			throws IOException {
+		if (f.isDirectory()) {
+			File[] children = f.listFiles();
+			if (children != null) {
+				// the order of the listed files is not specified
+				Arrays.sort(children);
+				for (File child : children) {
+					appendFingerprint(digest, child);
+				}
+			}
+		} else if (f.isFile()) {
+			update(digest, f.getPath());
+			String name = f.getName().toLowerCase();
+			if (name.endsWith(".jar") || name.endsWith(".zip")) {
+				try {
+					ZipFile zip = new ZipFile(f);
+					try {
+						Enumeration<? extends ZipEntry> entries = zip.entries();
+						while (entries.hasMoreElements()) {
+							ZipEntry entry = entries.nextElement();
+							update(digest, entry.getName());
+							update(digest, Long.toHexString(entry.getCrc()));
+						}
+					} finally {
+						zip.close();
+					}
+					return;
+				} catch (ZipException e) {
+					// not an archive: its content is hashed
+				}
+			}
+			InputStream in = new FileInputStream(f);
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	private static void update(MessageDigest digest, String s)
+			throws IOException {
+		digest.update(s.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	private static String hash(String s) {
+		try {
+			return toHex(MessageDigest.getInstance("SHA-1").digest(
+					s.getBytes("UTF-8")));
+		} catch (Exception e) {
+			throw new SpoonException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hash = new StringBuilder();
+		for (byte b : bytes) {
+			hash.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+		}
+		return hash.toString();
+	}
+
+	/**
+	 * Loads the cached model of the given source files into the given
+	 * factory.
+	 *
+	 * @param units
+	 *            the source files to be loaded, as a map from the path of the
+	 *            files to the name of their compilation units in the factory
+	 * @return the paths of the source files that have been loaded
+	 */
+	public Set<String> load(Factory factory, Map<String, String> units) {
+		Set<String> loaded = new HashSet<String>();
+		for (Map.Entry<String, String> unit : units.entrySet()) {
+			byte[] section = sections.get(unit.getKey());
+			if (section == null) {
+				continue;
+			}
+			CompilationUnit cu = factory.CompilationUnit().create(
+					unit.getValue());
+			try {
+				List<CtType<?>> types = new SectionReader(factory, cu,
+						section).readTypes();
+				for (CtType<?> type : types) {
+					type.getPackage().addType(type);
+					cu.getDeclaredTypes().add(type);
+				}
+				loaded.add(unit.getKey());
+			} catch (Exception e) {
+				Launcher.logger.warn("cannot load " + unit.getKey()
+						+ " from the model cache", e);
+				factory.CompilationUnit().getMap().remove(unit.getValue());
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Saves the model of the given compilation units with the given build
+	 * state.
+	 *
+	 * @param units
+	 *            the compilation units to be saved, indexed by the path of
+	 *            their source files (a null compilation unit stands for a
+	 *            source file that does not declare any type)
+	 */
+	public void save(IncrementalBuildState state,
+			Map<String, CompilationUnit> units) {
+		StringTable table = new StringTable();
+		Map<String, byte[]> newSections = new TreeMap<String, byte[]>();
+		for (Map.Entry<String, CompilationUnit> unit : units.entrySet()) {
+			if (state.getUnitState(unit.getKey()) == null) {
+				continue;
+			}
+			try {
+				newSections.put(unit.getKey(), new SectionWriter(table)
+						.writeTypes(unit.getValue()));
+			} catch (Exception e) {
+				// the unit will be rebuilt next time
+				Launcher.logger.debug("cannot cache " + unit.getKey(), e);
+			}
+		}
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			file.getParentFile().mkdirs();
+			// the index references the string table too
+			List<Object[]> index = new ArrayList<Object[]>();
+			for (Map.Entry<String, byte[]> section : newSections.entrySet()) {
+				UnitState unit = state.getUnitState(section.getKey());
+				index.add(new Object[] { table.index(section.getKey()),
+						table.index(unit.hash), table.index(unit.packageName),
+						table.indexes(unit.declaredTypes),
+						table.indexes(unit.referencedTypes),
+						table.indexes(unit.unresolvedTypes),
+						section.getValue() });
+			}
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(key);
+				writeUnsigned(out, table.strings.size());
+				for (String s : table.strings) {
+					byte[] bytes = s.getBytes("UTF-8");
+					writeUnsigned(out, bytes.length);
+					out.write(bytes);
+				}
+				writeUnsigned(out, index.size());
+				for (Object[] unit : index) {
+					writeUnsigned(out, (Integer) unit[0]);
+					writeUnsigned(out, (Integer) unit[1]);
+					writeUnsigned(out, (Integer) unit[2]);
+					writeIndexes(out, (int[]) unit[3]);
+					writeIndexes(out, (int[]) unit[4]);
+					writeIndexes(out, (int[]) unit[5]);
+					writeUnsigned(out, ((byte[]) unit[6]).length);
+				}
+				for (Object[] unit : index) {
+					out.write((byte[]) unit[6]);
+				}
+			} finally {
+				out.close();
+			}
+			if (file.exists()) {
+				file.delete();
+			}
+			if (!tmp.renameTo(file)) {
+				throw new IOException("cannot rename " + tmp + " to " + file);
+			}
+		} catch (IOException e) {
+			Launcher.logger.error(e.getMessage(), e);
+			tmp.delete();
+		}
+	}
+
+	private void read() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| !key.equals(in.readUTF())) {
+				return;
+			}
+			strings = new String[readUnsigned(in)];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[readUnsigned(in)];
+				in.readFully(bytes);
+				strings[i] = new String(bytes, "UTF-8");
+			}
+			int unitCount = readUnsigned(in);
+			String[] paths = new String[unitCount];
+			int[] lengths = new int[unitCount];
+			for (int i = 0; i < unitCount; i++) {
+				paths[i] = strings[readUnsigned(in)];
+				UnitState unit = new UnitState();
+				unit.hash = strings[readUnsigned(in)];
+				unit.packageName = strings[readUnsigned(in)];
+				readStrings(in, unit.declaredTypes);
+				readStrings(in, unit.referencedTypes);
+				readStrings(in, unit.unresolvedTypes);
+				lengths[i] = readUnsigned(in);
+				state.setUnitState(paths[i], unit);
+			}
+			for (int i = 0; i < unitCount; i++) {
+				byte[] section = new byte[lengths[i]];
+				in.readFully(section);
+				sections.put(paths[i], section);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void readStrings(DataInputStream in, Collection<String> result)
+			throws IOException {
+		int count = readUnsigned(in);
+		for (int i = 0; i < count; i++) {
+			result.add(strings[readUnsigned(in)]);
+		}
+	}
+
+	private static void writeIndexes(DataOutputStream out, int[] indexes)
+			throws IOException {
+		writeUnsigned(out, indexes.length);
+		for (int i : indexes) {
+			writeUnsigned(out, i);
+		}
+	}
+
+	private static void writeUnsigned(DataOutputStream out, int value)
+			throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readUnsigned(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static void writeSigned(DataOutputStream out, int value)
+			throws IOException {
+		writeUnsigned(out, (value << 1) ^ (value >> 31));
+	}
+
+	private static int readSigned(DataInputStream in) throws IOException {
+		int value = readUnsigned(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Gets the non-static and non-transient fields of the given class and of
+	 * its super classes.
+	 */
+	private Field[] getFields(Class<?> type) {
+		Field[] result = fields.get(type);
+		if (result == null) {
+			List<Field> l = new ArrayList<Field>();
+			for (Class<?> c = type; c != null && c != Object.class; c = c
+					.getSuperclass()) {
+				List<Field> declared = new ArrayList<Field>();
+				for (Field f : c.getDeclaredFields()) {
+					int modifiers = f.getModifiers();
+					if (!Modifier.isStatic(modifiers)
+							&& !Modifier.isTransient(modifiers)
+							&& !f.isSynthetic()) {
+						f.setAccessible(true);
+						declared.add(f);
+					}
+				}
+				// the fields of the super classes come first
+				l.addAll(0, declared);
+			}
+			result = l.toArray(new Field[0]);
+			fields.put(type, result);
+		}
+		return result;
+	}
+
+	private static boolean isSpoonClass(String name) {
+		return name.startsWith("spoon.");
+	}
+
+	/**
+	 * Tells if the class of the given name can be loaded when reading a cache
+	 * file (without being initialized).
+	 */
+	private static boolean isLoadable(String name) {
+		String component = name.replaceFirst("^\\[+L?", "").replaceFirst(";$", "");
+		return isSpoonClass(component) || component.startsWith("java.")
+				|| component.length() == 1;
+	}
+
+	/**
+	 * Tells if the given class is a class of the metamodel, whose instances
+	 * are cached field by field.
+	 */
+	private static boolean isModelClass(Class<?> type) {
+		return isSpoonClass(type.getName())
+				&& (CtElement.class.isAssignableFrom(type) || CtReference.class
+						.isAssignableFrom(type));
+	}
+
+	/**
+	 * Tells if the collection of the given class can be instantiated when
+	 * reading a cache file.
+	 */
+	private static boolean isContainerClass(String name) {
+		return CONTAINERS.contains(name)
+				|| name.startsWith("spoon.support.util.");
+	}
+
+	private static Object newInstance(Class<?> type) throws Exception {
+		Constructor<?> constructor = type.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		return constructor.newInstance();
+	}
+
+	/**
+	 * The strings of a cache file.
+	 */
+	private static class StringTable {
+		final List<String> strings = new ArrayList<String>();
+
+		final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+		int index(String s) {
+			Integer index = indexes.get(s);
+			if (index == null) {
+				index = strings.size();
+				strings.add(s);
+				indexes.put(s, index);
+			}
+			return index;
+		}
+
+		int[] indexes(Collection<String> l) {
+			int[] result = new int[l.size()];
+			int i = 0;
+			for (String s : l) {
+				result[i++] = index(s);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Writes the types of a compilation unit into a section.
+	 */
+	private class SectionWriter {
+		final StringTable table;
+
+		final Map<Object, Integer> ids = new IdentityHashMap<Object, Integer>();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		final DataOutputStream out = new DataOutputStream(bytes);
+
+		SectionWriter(StringTable table) {
+			this.table = table;
+		}
+
+		byte[] writeTypes(CompilationUnit cu) throws Exception {
+			List<CtType<?>> types = cu == null ? new ArrayList<CtType<?>>()
+					: cu.getDeclaredTypes();
+			write(cu == null ? null : cu.getLineSeparatorPositions());
+			writeUnsigned(out, types.size());
+			for (CtType<?> type : types) {
+				write(type);
+			}
+			out.close();
+			return bytes.toByteArray();
+		}
+
+		void writeString(String s) throws IOException {
+			writeUnsigned(out, table.index(s));
+		}
+
+		boolean writeReference(Object value) throws IOException {
+			Integer id = ids.get(value);
+			if (id != null) {
+				out.writeByte(REFERENCE);
+				writeUnsigned(out, id);
+				return true;
+			}
+			ids.put(value, ids.size());
+			return false;
+		}
+
+		void write(Object value) throws Exception {
+			if (value == null) {
+				out.writeByte(NULL);
+			} else if (value instanceof String) {
+				out.writeByte(STRING);
+				writeString((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(INTEGER);
+				writeSigned(out, (Integer) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (value instanceof Long) {
+				out.writeByte(LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Character) {
+				out.writeByte(CHARACTER);
+				out.writeChar((Character) value);
+			} else if (value instanceof Byte) {
+				out.writeByte(BYTE);
+				out.writeByte((Byte) value);
+			} else if (value instanceof Short) {
+				out.writeByte(SHORT);
+				out.writeShort((Short) value);
+			} else if (value instanceof Float) {
+				out.writeByte(FLOAT);
+				out.writeFloat((Float) value);
+			} else if (value instanceof Double) {
+				out.writeByte(DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof Enum) {
+				if (!isSpoonClass(((Enum<?>) value).getDeclaringClass()
+						.getName())) {
+					throw new SpoonException("cannot cache "
+							+ value.getClass());
+				}
+				out.writeByte(ENUM);
+				writeString(((Enum<?>) value).getDeclaringClass().getName());
+				writeString(((Enum<?>) value).name());
+			} else if (value instanceof Class) {
+				if (!isLoadable(((Class<?>) value).getName())) {
+					throw new SpoonException("cannot cache " + value);
+				}
+				out.writeByte(CLASS);
+				writeString(((Class<?>) value).getName());
+			} else if (value instanceof File) {
+				out.writeByte(FILE);
+				writeString(((File) value).getPath());
+			} else if (value instanceof Factory) {
+				out.writeByte(FACTORY);
+			} else if (value == CtElementImpl.EMPTY_LIST()) {
+				out.writeByte(EMPTY_LIST);
+			} else if (value == CtElementImpl.EMPTY_SET()) {
+				out.writeByte(EMPTY_SET);
+			} else if (value instanceof CtPackage) {
+				// packages are shared by the compilation units
+				out.writeByte(PACKAGE);
+				writeString(((CtPackage) value).getQualifiedName());
+			} else if (value instanceof CompilationUnit) {
+				out.writeByte(COMPILATION_UNIT);
+				File f = ((CompilationUnit) value).getFile();
+				writeString(f == null ? "" : f.getPath());
+			} else if (!writeReference(value)) {
+				writeObject(value);
+			}
+		}
+
+		void writeObject(Object value) throws Exception {
+			if (value instanceof SourcePositionImpl) {
+				SourcePositionImpl position = (SourcePositionImpl) value;
+				out.writeByte(POSITION);
+				write(position.getCompilationUnit());
+				writeSigned(out, position.getSourceStart());
+				writeSigned(out, position.getSourceEnd());
+			} else if (value instanceof int[]) {
+				int[] array = (int[]) value;
+				out.writeByte(INT_ARRAY);
+				writeUnsigned(out, array.length);
+				for (int i : array) {
+					writeSigned(out, i);
+				}
+			} else if (value instanceof Object[]) {
+				Object[] array = (Object[]) value;
+				out.writeByte(ARRAY);
+				writeString(array.getClass().getComponentType().getName());
+				writeUnsigned(out, array.length);
+				for (Object o : array) {
+					write(o);
+				}
+			} else if (value instanceof Collection) {
+				Collection<?> collection = (Collection<?>) value;
+				out.writeByte(value instanceof Set ? SET : LIST);
+				writeString(value.getClass().getName());
+				writeUnsigned(out, collection.size());
+				for (Object o : collection) {
+					write(o);
+				}
+			} else if (value instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) value;
+				out.writeByte(MAP);
+				writeString(value.getClass().getName());
+				writeUnsigned(out, map.size());
+				for (Map.Entry<?, ?> e : map.entrySet()) {
+					write(e.getKey());
+					write(e.getValue());
+				}
+			} else if (isModelClass(value.getClass())) {
+				out.writeByte(OBJECT);
+				writeString(value.getClass().getName());
+				for (Field f : getFields(value.getClass())) {
+					write(f.get(value));
+				}
+			} else {
+				throw new SpoonException("cannot cache " + value.getClass());
+			}
+		}
+	}
+
+	/**
+	 * Reads the types of a compilation unit from a section.
+	 */
+	private class SectionReader {
+		final Factory factory;
+
+		final CompilationUnit cu;
+
+		final DataInputStream in;
+
+		final List<Object> objects = new ArrayList<Object>();
+
+		/**
+		 * The sets and maps are filled once the whole section has been read,
+		 * since their elements may not be comparable before.
+		 */
+		final List<Object[]> pending = new ArrayList<Object[]>();
+
+		SectionReader(Factory factory, CompilationUnit cu, byte[] section) {
+			this.factory = factory;
+			this.cu = cu;
+			this.in = new DataInputStream(new ByteArrayInputStream(section));
+		}
+
+		@SuppressWarnings("unchecked")
+		List<CtType<?>> readTypes() throws Exception {
+			cu.setLineSeparatorPositions((int[]) read(null));
+			int count = readUnsigned(in);
+			List<CtType<?>> types = new ArrayList<CtType<?>>();
+			for (int i = 0; i < count; i++) {
+				types.add((CtType<?>) read(null));
+			}
+			for (Object[] p : pending) {
+				if (p[0] instanceof Collection) {
+					((Collection<Object>) p[0]).addAll((List<Object>) p[1]);
+				} else {
+					List<Object> entries = (List<Object>) p[1];
+					for (int i = 0; i < entries.size(); i += 2) {
+						((Map<Object, Object>) p[0]).put(entries.get(i),
+								entries.get(i + 1));
+					}
+				}
+			}
+			return types;
+		}
+
+		String readString() throws IOException {
+			return strings[readUnsigned(in)];
+		}
+
+		Class<?> readClass() throws IOException, ClassNotFoundException {
+			String name = readString();
+			if (!isLoadable(name)) {
+				throw new IOException("unexpected class " + name);
+			}
+			try {
+				return Class.forName(name, false,
+						BinaryModelCache.class.getClassLoader());
+			} catch (ClassNotFoundException e) {
+				return Class.forName(name, false, Thread.currentThread()
+						.getContextClassLoader());
+			}
+		}
+
+		/**
+		 * Reads a value.
+		 *
+		 * @param current
+		 *            the current value of the field being read, which is
+		 *            reused if the value is a collection of the same class
+		 */
+		Object read(Object current) throws Exception {
+			return read(current, null);
+		}
+
+		/**
+		 * Reads a value of a field of the given element or reference, which
+		 * holds the collections of children that are read (see
+		 * {@link ChildContainer}).
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Object read(Object current, Object owner) throws Exception {
+			int tag = in.readByte();
+			switch (tag) {
+			case NULL:
+				return null;
+			case REFERENCE:
+				return objects.get(readUnsigned(in));
+			case STRING:
+				return readString();
+			case INTEGER:
+				return readSigned(in);
+			case BOOLEAN:
+				return in.readBoolean();
+			case LONG:
+				return in.readLong();
+			case CHARACTER:
+				return in.readChar();
+			case BYTE:
+				return in.readByte();
+			case SHORT:
+				return in.readShort();
+			case FLOAT:
+				return in.readFloat();
+			case DOUBLE:
+				return in.readDouble();
+			case ENUM:
+				Class<?> enumType = readClass();
+				if (!enumType.isEnum() || !isSpoonClass(enumType.getName())) {
+					throw new IOException("unexpected enum " + enumType);
+				}
+				return Enum.valueOf((Class<Enum>) enumType, readString());
+			case CLASS:
+				return readClass();
+			case FILE:
+				return new File(readString());
+			case FACTORY:
+				return factory;
+			case EMPTY_LIST:
+				return CtElementImpl.EMPTY_LIST();
+			case EMPTY_SET:
+				return CtElementImpl.EMPTY_SET();
+			case PACKAGE:
+				return factory.Package().getOrCreate(readString());
+			case COMPILATION_UNIT:
+				// the elements of a section belong to its compilation unit
+				readString();
+				return cu;
+			case POSITION:
+				int id = objects.size();
+				objects.add(null);
+				CompilationUnit positionCu = (CompilationUnit) read(null);
+				int start = readSigned(in);
+				int end = readSigned(in);
+				SourcePositionImpl position = new SourcePositionImpl(
+						positionCu, start, end,
+						positionCu.getLineSeparatorPositions());
+				objects.set(id, position);
+				return position;
+			case INT_ARRAY:
+				int[] ints = new int[readUnsigned(in)];
+				objects.add(ints);
+				for (int i = 0; i < ints.length; i++) {
+					ints[i] = readSigned(in);
+				}
+				return ints;
+			case ARRAY:
+				Class<?> componentType = readClass();
+				Object[] array = (Object[]) Array.newInstance(componentType,
+						readUnsigned(in));
+				objects.add(array);
+				for (int i = 0; i < array.length; i++) {
+					array[i] = read(null);
+				}
+				return array;
+			case LIST:
+			case SET:
+			case MAP:
+				return readContainer(tag, current, owner);
+			case OBJECT:
+				Class<?> type = readClass();
+				if (!isModelClass(type)) {
+					throw new IOException("unexpected class " + type);
+				}
+				Object o = newInstance(type);
+				objects.add(o);
+				if (o instanceof CtElement) {
+					((CtElement) o).setFactory(factory);
+				} else if (o instanceof CtReference) {
+					((CtReference) o).setFactory(factory);
+				}
+				for (Field f : getFields(type)) {
+					f.set(o, read(f.get(o), o));
+				}
+				return o;
+			default:
+				throw new IOException("unexpected tag " + tag);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		Object readContainer(int tag, Object current, Object owner)
+				throws Exception {
+			String className = readString();
+			Object container = null;
+			if (current != null && current != CtElementImpl.EMPTY_LIST()
+					&& current != CtElementImpl.EMPTY_SET()
+					&& current.getClass().getName().equals(className)) {
+				container = current;
+				if (container instanceof Map) {
+					((Map<?, ?>) container).clear();
+				} else {
+					((Collection<?>) container).clear();
+				}
+			} else {
+				try {
+					if (isContainerClass(className)) {
+						container = newInstance(Class.forName(className,
+								false, BinaryModelCache.class.getClassLoader()));
+					}
+					if (container instanceof ChildContainer) {
+						container = ((ChildContainer) container)
+								.newContainer(owner);
+					}
+				} catch (Exception e) {
+					// not instantiable
+				}
+				if (!(tag == MAP ? container instanceof Map
+						: container instanceof Collection)) {
+					// e.g. unmodifiable views
+					container = tag == LIST ? new ArrayList<Object>()
+							: tag == SET ? new TreeSet<Object>()
+									: new TreeMap<Object, Object>();
+				}
+			}
+			objects.add(container);
+			int size = readUnsigned(in);
+			List<Object> values = new ArrayList<Object>();
+			for (int i = 0; i < size * (tag == MAP ? 2 : 1); i++) {
+				values.add(read(null));
+			}
+			if (tag == LIST) {
+				((Collection<Object>) container).addAll(values);
+			} else {
+				pending.add(new Object[] { container, values });
+			}
+			return container;
+		}
+	}
+
+}
@@ -0,0 +1,372 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.compiler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spoon.Launcher;
+import spoon.SpoonException;
+import spoon.compiler.SpoonFile;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.ReferenceTypeFilter;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+/**
+ * The state of the latest build of a set of source files, used to build them
+ * incrementally. For each source file, it records the hash of its content,
+ * its package, the types it declares, the types it references and the names
+ * of the referenced types that could not be resolved. The source files are
+ * identified by their canonical path (see {@link #getPath(SpoonFile)}).
+ */
+public class IncrementalBuildState implements Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * The state of a single compilation unit.
+	 */
+	static class UnitState implements Serializable {
+		private static final long serialVersionUID = 2L;
+
+		String hash;
+
+		String packageName;
+
+		Set<String> declaredTypes = new HashSet<String>();
+
+		Set<String> referencedTypes = new HashSet<String>();
+
+		/**
+		 * The simple names of the referenced types that could not be resolved,
+		 * which may be declared by a source file that is added later.
+		 */
+		Set<String> unresolvedTypes = new HashSet<String>();
+	}
+
+	private Map<String, UnitState> units = new HashMap<String, UnitState>();
+
+	/**
+	 * The classes of the objects of a build state, which are the only ones
+	 * that are loaded when a build state is read.
+	 */
+	private static final Set<String> STATE_CLASSES = new HashSet<String>(
+			Arrays.asList(IncrementalBuildState.class.getName(),
+					UnitState.class.getName(), HashMap.class.getName(),
+					HashSet.class.getName(), String.class.getName()));
+
+	/**
+	 * A stream that reads a build state, which refuses the other classes, so
+	 * that reading a crafted file cannot instantiate arbitrary classes.
+	 */
+	private static class StateInputStream extends ObjectInputStream {
+		StateInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc)
+				throws IOException, ClassNotFoundException {
+			if (!STATE_CLASSES.contains(desc.getName())) {
+				throw new InvalidClassException(desc.getName(),
+						"unexpected class");
+			}
+			return super.resolveClass(desc);
+		}
+	}
+
+	/**
+	 * Loads a build state from the given file. Returns an empty state if the
+	 * file does not exist or cannot be read.
+	 */
+	public static IncrementalBuildState load(File file) {
+		if (file.exists()) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					return (IncrementalBuildState) new StateInputStream(in)
+							.readObject();
+				} finally {
+					in.close();
+				}
+			} catch (Exception e) {
+				Launcher.logger.warn("cannot read build state " + file
+						+ ", building all the files", e);
+			}
+		}
+		return new IncrementalBuildState();
+	}
+
+	/**
+	 * Saves this build state to the given file.
+	 */
+	public void save(File file) {
+		try {
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			ObjectOutputStream out = new ObjectOutputStream(
+					new FileOutputStream(file));
+			try {
+				out.writeObject(this);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			Launcher.logger.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Gets the path that identifies the given source file in a build state,
+	 * which does not depend on how the file has been given to the compiler.
+	 */
+	public static String getPath(SpoonFile file) {
+		File f = file.toFile();
+		if (f == null) {
+			return file.getPath();
+		}
+		try {
+			return f.getCanonicalPath();
+		} catch (IOException e) {
+			return f.getAbsolutePath();
+		}
+	}
+
+	/**
+	 * Computes the hash of the content of the given file.
+	 */
+	public static String computeHash(SpoonFile file) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			InputStream in = file.getContent();
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			StringBuilder hash = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hash.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+			}
+			return hash.toString();
+		} catch (IOException e) {
+			throw new SpoonException(e);
+		} catch (NoSuchAlgorithmException e) {
+			throw new SpoonException(e);
+		}
+	}
+
+	/**
+	 * Gets the paths of all the source files known by this state.
+	 */
+	public Set<String> getPaths() {
+		return units.keySet();
+	}
+
+	/**
+	 * Tells if the source file of the given path has been built with the
+	 * given content hash.
+	 */
+	public boolean isUpToDate(String path, String hash) {
+		UnitState unit = units.get(path);
+		return unit != null && unit.hash.equals(hash);
+	}
+
+	/**
+	 * Gets the paths of the source files that depend, directly or not, on one
+	 * of the given source files: the files that reference a type declared in
+	 * them, or that reference a type that could not be resolved and that has
+	 * the name of one of them or of one of their types (a new source file may
+	 * declare it), and the files that depend on those.
+	 */
+	public Set<String> getDependents(Collection<String> paths) {
+		Map<String, List<String>> referencing = new HashMap<String, List<String>>();
+		Map<String, List<String>> unresolved = new HashMap<String, List<String>>();
+		for (Map.Entry<String, UnitState> e : units.entrySet()) {
+			for (String type : e.getValue().referencedTypes) {
+				add(referencing, type, e.getKey());
+			}
+			for (String name : e.getValue().unresolvedTypes) {
+				add(unresolved, name, e.getKey());
+			}
+		}
+
+		Set<String> dependents = new HashSet<String>();
+		List<String> toVisit = new ArrayList<String>(paths);
+		Set<String> visited = new HashSet<String>(paths);
+		while (!toVisit.isEmpty()) {
+			String path = toVisit.remove(toVisit.size() - 1);
+			List<String> users = new ArrayList<String>();
+			String name = new File(path).getName();
+			if (name.endsWith(".java")) {
+				addAll(users, unresolved.get(name.substring(0,
+						name.length() - 5)));
+			}
+			UnitState unit = units.get(path);
+			if (unit != null) {
+				for (String type : unit.declaredTypes) {
+					addAll(users, referencing.get(type));
+					addAll(users, unresolved.get(getSimpleName(type)));
+				}
+			}
+			for (String user : users) {
+				dependents.add(user);
+				if (visited.add(user)) {
+					toVisit.add(user);
+				}
+			}
+		}
+		return dependents;
+	}
+
+	private static void add(Map<String, List<String>> map, String key,
+			String value) {
+		List<String> values = map.get(key);
+		if (values == null) {
+			values = new ArrayList<String>();
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static void addAll(List<String> result, List<String> values) {
+		if (values != null) {
+			result.addAll(values);
+		}
+	}
+
+	private static String getSimpleName(String qualifiedName) {
+		int i = Math.max(qualifiedName.lastIndexOf('.'),
+				qualifiedName.lastIndexOf(CtType.INNERTTYPE_SEPARATOR));
+		return qualifiedName.substring(i + 1);
+	}
+
+	/**
+	 * Gets the source folder of the given source file, deduced from its
+	 * package, or null if the file is not stored in the folder of its
+	 * package.
+	 */
+	public String getSourceRoot(String path) {
+		UnitState unit = units.get(path);
+		if (unit == null) {
+			return null;
+		}
+		File folder = new File(path).getParentFile();
+		if (unit.packageName.length() > 0) {
+			String[] names = unit.packageName.split("\\.");
+			for (int i = names.length - 1; i >= 0; i--) {
+				if (folder == null || !folder.getName().equals(names[i])) {
+					return null;
+				}
+				folder = folder.getParentFile();
+			}
+		}
+		return folder == null ? null : folder.getPath();
+	}
+
+	/**
+	 * Records the state of the given source file, which has been built into
+	 * the given compilation unit (null if it does not declare any type).
+	 */
+	public void update(String path, String hash, CompilationUnit cu) {
+		update(path, hash, cu, new ArrayList<String>());
+	}
+
+	/**
+	 * Records the state of the given source file, which has been built into
+	 * the given compilation unit (null if it does not declare any type), and
+	 * in which the given types could not be resolved.
+	 *
+	 * @param unresolvedTypes
+	 *            the simple or qualified names of the types that could not be
+	 *            resolved
+	 */
+	public void update(String path, String hash, CompilationUnit cu,
+			Collection<String> unresolvedTypes) {
+		UnitState unit = new UnitState();
+		unit.hash = hash;
+		unit.packageName = "";
+		if (cu != null) {
+			for (CtType<?> type : cu.getDeclaredTypes()) {
+				CtPackage pack = type.getPackage();
+				if (pack != null
+						&& !CtPackage.TOP_LEVEL_PACKAGE_NAME.equals(pack
+								.getQualifiedName())) {
+					unit.packageName = pack.getQualifiedName();
+				}
+				for (CtType<?> t : Query.getElements(type,
+						new TypeFilter<CtType<?>>(CtType.class))) {
+					unit.declaredTypes.add(t.getQualifiedName());
+				}
+				for (CtTypeReference<?> ref : Query.getReferences(type,
+						new ReferenceTypeFilter<CtTypeReference<?>>(
+								CtTypeReference.class))) {
+					unit.referencedTypes.add(ref.getQualifiedName());
+				}
+			}
+			unit.referencedTypes.removeAll(unit.declaredTypes);
+		}
+		for (String type : unresolvedTypes) {
+			unit.unresolvedTypes.add(getSimpleName(type));
+		}
+		units.put(path, unit);
+	}
+
+	UnitState getUnitState(String path) {
+		return units.get(path);
+	}
+
+	void setUnitState(String path, UnitState unit) {
+		units.put(path, unit);
+	}
+
+	/**
+	 * Forgets the given source file.
+	 */
+	public void remove(String path) {
+		units.remove(path);
+	}
+
+}
@@ -59,7 +59,7 @@ public class SnippetCompilationHelper {
 
 		// Get the part we want
 
-		CtMethod<?> wrapper = Query.getElements(c, new Filter<CtMethod<?>>() {
+		CtMethod<?> wrapper = Query.getFirstElement(c, new Filter<CtMethod<?>>() {
 
 			@SuppressWarnings("unchecked")
 			public Class<CtMethod<?>> getType() {
@@ -76,7 +76,7 @@ public class SnippetCompilationHelper {
 				return element.getSimpleName().equals("wrap");
 			}
 
-		}).get(0);
+		});
 
 		CtStatement ret = wrapper.getBody().getStatements().get(0);
 
@@ -146,7 +146,7 @@ public class SnippetCompilationHelper {
 
 		// Get the part we want
 
-		CtMethod<T> wrapper = Query.getElements(c, new Filter<CtMethod<T>>() {
+		CtMethod<T> wrapper = Query.getFirstElement(c, new Filter<CtMethod<T>>() {
 
 			public Class<?> getType() {
 				return CtMethod.class;
@@ -156,7 +156,7 @@ public class SnippetCompilationHelper {
 				return element.getSimpleName().equals("wrap");
 			}
 
-		}).get(0);
+		});
 
 		CtReturn<T> ret = (CtReturn<T>) wrapper.getBody().getStatements()
 				.get(0);
@@ -0,0 +1,340 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.compiler.jdt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.IBinaryField;
+import org.eclipse.jdt.internal.compiler.env.IBinaryMethod;
+import org.eclipse.jdt.internal.compiler.env.IBinaryNestedType;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtAnnotationType;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.support.util.RtHelper;
+
+/**
+ * Builds shadow declarations of the types that are not part of the model from
+ * their class files, which are read with the JDT class file reader. The class
+ * files are found as resources of the class loader of the environment, so that
+ * no class is loaded nor initialized. A shadow type only has the signatures of
+ * its members, and is not registered in the packages of the factory.
+ */
+public class ClassFileTypeBuilder {
+
+	private static final int TYPE_MODIFIERS = Modifier.PUBLIC
+			| Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC
+			| Modifier.FINAL | Modifier.ABSTRACT | Modifier.STRICT;
+
+	private static final int FIELD_MODIFIERS = Modifier.PUBLIC
+			| Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC
+			| Modifier.FINAL | Modifier.VOLATILE | Modifier.TRANSIENT;
+
+	private static final int METHOD_MODIFIERS = Modifier.PUBLIC
+			| Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC
+			| Modifier.FINAL | Modifier.ABSTRACT | Modifier.SYNCHRONIZED
+			| Modifier.NATIVE | Modifier.STRICT;
+
+	private final Factory factory;
+
+	private final Map<String, CtType<?>> types = new HashMap<String, CtType<?>>();
+
+	private final Map<String, CtPackage> packages = new HashMap<String, CtPackage>();
+
+	public ClassFileTypeBuilder(Factory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Gets the shadow type of the given qualified name (inner types being
+	 * separated with {@link CtType#INNERTTYPE_SEPARATOR}).
+	 * 
+	 * @return the shadow type, or null if its class file cannot be found
+	 */
+	public synchronized CtType<?> getType(String qualifiedName) {
+		if (types.containsKey(qualifiedName)) {
+			return types.get(qualifiedName);
+		}
+		CtType<?> type = null;
+		int inner = qualifiedName.lastIndexOf(CtType.INNERTTYPE_SEPARATOR);
+		if (inner > 0) {
+			CtType<?> declaringType = getType(qualifiedName.substring(0, inner));
+			if (declaringType != null) {
+				type = declaringType.getNestedType(qualifiedName
+						.substring(inner + 1));
+			}
+		} else if (!qualifiedName.endsWith("[]")) {
+			ClassFileReader reader = read(qualifiedName);
+			if (reader != null) {
+				type = build(reader);
+				getPackage(qualifiedName).addType(type);
+			}
+		}
+		types.put(qualifiedName, type);
+		return type;
+	}
+
+	private CtPackage getPackage(String qualifiedName) {
+		int i = qualifiedName.lastIndexOf(CtPackage.PACKAGE_SEPARATOR);
+		String name = i > 0 ? qualifiedName.substring(0, i)
+				: CtPackage.TOP_LEVEL_PACKAGE_NAME;
+		CtPackage pack = packages.get(name);
+		if (pack == null) {
+			pack = factory.Core().createPackage();
+			pack.setSimpleName(name);
+			pack.setRootElement(true);
+			packages.put(name, pack);
+		}
+		return pack;
+	}
+
+	private ClassFileReader read(String binaryName) {
+		InputStream in = factory.getEnvironment().getClassLoader()
+				.getResourceAsStream(binaryName.replace('.', '/') + ".class");
+		if (in == null) {
+			return null;
+		}
+		try {
+			return ClassFileReader.read(in, binaryName);
+		} catch (ClassFormatException e) {
+			Launcher.logger.warn("cannot read class file of " + binaryName, e);
+		} catch (IOException e) {
+			Launcher.logger.warn("cannot read class file of " + binaryName, e);
+		} finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// ignored
+			}
+		}
+		return null;
+	}
+
+	private CtType<?> build(ClassFileReader reader) {
+		int modifiers = reader.getModifiers();
+		CtType<?> type;
+		if ((modifiers & ClassFileConstants.AccAnnotation) != 0) {
+			type = factory.Core().createAnnotationType();
+		} else if ((modifiers & ClassFileConstants.AccEnum) != 0) {
+			type = factory.Core().createEnum();
+		} else if ((modifiers & ClassFileConstants.AccInterface) != 0) {
+			type = factory.Core().createInterface();
+		} else {
+			type = factory.Core().createClass();
+		}
+		String name = toName(reader.getName());
+		type.setSimpleName(name.substring(Math.max(
+				name.lastIndexOf(CtPackage.PACKAGE_SEPARATOR),
+				name.lastIndexOf(CtType.INNERTTYPE_SEPARATOR)) + 1));
+		type.setModifiers(RtHelper.getModifiers(modifiers & TYPE_MODIFIERS));
+		if (type instanceof CtClass && reader.getSuperclassName() != null) {
+			((CtClass<?>) type).setSuperclass(factory.Type().createReference(
+					toName(reader.getSuperclassName())));
+		}
+		if (reader.getInterfaceNames() != null) {
+			for (char[] i : reader.getInterfaceNames()) {
+				type.addSuperInterface(factory.Type().createReference(toName(i)));
+			}
+		}
+		if (reader.getFields() != null) {
+			for (IBinaryField f : reader.getFields()) {
+				if ((f.getModifiers() & ClassFileConstants.AccSynthetic) != 0) {
+					continue;
+				}
+				CtField<Object> field = factory.Core().createField();
+				field.setSimpleName(new String(f.getName()));
+				field.setType(getTypeReference(f.getTypeName(), new int[1]));
+				field.setModifiers(RtHelper.getModifiers(f.getModifiers()
+						& FIELD_MODIFIERS));
+				field.setParent(type);
+				type.addField(field);
+			}
+		}
+		if (reader.getMethods() != null) {
+			for (IBinaryMethod m : reader.getMethods()) {
+				addExecutable(type, m);
+			}
+		}
+		if (reader.getMemberTypes() != null) {
+			for (IBinaryNestedType t : reader.getMemberTypes()) {
+				// member types are also listed by their nested types
+				if (!CharOperation.equals(reader.getName(),
+						t.getEnclosingTypeName())) {
+					continue;
+				}
+				ClassFileReader nestedReader = read(toName(t.getName()));
+				if (nestedReader != null) {
+					CtType<?> nested = build(nestedReader);
+					nested.setParent(type);
+					type.addNestedType(nested);
+				}
+			}
+		}
+		return type;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addExecutable(CtType<?> type, IBinaryMethod m) {
+		int modifiers = m.getModifiers();
+		if (m.isClinit()
+				|| (modifiers & (ClassFileConstants.AccSynthetic | ClassFileConstants.AccBridge)) != 0) {
+			return;
+		}
+		char[] descriptor = m.getMethodDescriptor();
+		int[] position = new int[] { 1 };
+		if (type instanceof CtAnnotationType) {
+			// annotation elements are modeled as fields
+			CtField<Object> field = factory.Core().createField();
+			field.setSimpleName(new String(m.getSelector()));
+			field.setType(getTypeReference(descriptor, new int[] { 2 }));
+			field.setParent(type);
+			type.addField(field);
+			return;
+		}
+		CtExecutable<Object> executable;
+		if (m.isConstructor()) {
+			if (!(type instanceof CtClass)) {
+				return;
+			}
+			CtConstructor<Object> constructor = factory.Core().createConstructor();
+			constructor.setModifiers(RtHelper.getModifiers(modifiers
+					& METHOD_MODIFIERS));
+			executable = constructor;
+		} else {
+			CtMethod<Object> method = factory.Core().createMethod();
+			method.setSimpleName(new String(m.getSelector()));
+			method.setModifiers(RtHelper.getModifiers(modifiers
+					& METHOD_MODIFIERS));
+			executable = method;
+		}
+		executable.setParent(type);
+		int i = 0;
+		while (descriptor[position[0]] != ')') {
+			CtParameter<Object> parameter = factory.Core().createParameter();
+			parameter.setSimpleName("arg" + i++);
+			parameter.setType(getTypeReference(descriptor, position));
+			parameter.setParent(executable);
+			executable.addParameter(parameter);
+		}
+		if ((modifiers & ClassFileConstants.AccVarargs) != 0
+				&& !executable.getParameters().isEmpty()) {
+			executable.getParameters()
+					.get(executable.getParameters().size() - 1)
+					.setVarArgs(true);
+		}
+		position[0]++;
+		if (m.getExceptionTypeNames() != null) {
+			for (char[] e : m.getExceptionTypeNames()) {
+				executable.addThrownType(factory.Type()
+						.<Throwable> createReference(toName(e)));
+			}
+		}
+		if (executable instanceof CtMethod) {
+			CtMethod<Object> method = (CtMethod<Object>) executable;
+			method.setType(getTypeReference(descriptor, position));
+			type.addMethod(method);
+		} else {
+			((CtClass<Object>) type)
+					.addConstructor((CtConstructor<Object>) executable);
+		}
+	}
+
+	/**
+	 * Parses the type descriptor that starts at the given position, and
+	 * advances the position past it.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> CtTypeReference<T> getTypeReference(char[] descriptor,
+			int[] position) {
+		int dimensions = 0;
+		while (descriptor[position[0]] == '[') {
+			dimensions++;
+			position[0]++;
+		}
+		String name;
+		char c = descriptor[position[0]++];
+		switch (c) {
+		case 'L':
+			int end = position[0];
+			while (descriptor[end] != ';') {
+				end++;
+			}
+			name = toName(new String(descriptor, position[0], end - position[0]));
+			position[0] = end + 1;
+			break;
+		case 'Z':
+			name = "boolean";
+			break;
+		case 'B':
+			name = "byte";
+			break;
+		case 'C':
+			name = "char";
+			break;
+		case 'S':
+			name = "short";
+			break;
+		case 'I':
+			name = "int";
+			break;
+		case 'J':
+			name = "long";
+			break;
+		case 'F':
+			name = "float";
+			break;
+		case 'D':
+			name = "double";
+			break;
+		default:
+			name = "void";
+		}
+		CtTypeReference<?> reference = factory.Type().createReference(name);
+		if (dimensions > 0) {
+			reference = factory.Type().createArrayReference(reference,
+					dimensions);
+		}
+		return (CtTypeReference<T>) reference;
+	}
+
+	private static String toName(char[] binaryName) {
+		return toName(new String(binaryName));
+	}
+
+	private static String toName(String binaryName) {
+		return binaryName.replace('/', '.');
+	}
+
+}
@@ -26,6 +26,7 @@ import java.io.PrintWriter;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -33,6 +34,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -56,13 +62,17 @@ import spoon.compiler.SpoonResource;
 import spoon.compiler.SpoonResourceHelper;
 import spoon.processing.ProcessingManager;
 import spoon.processing.Severity;
+import spoon.reflect.declaration.CtExecutable;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.PrettyPrinter;
 import spoon.support.QueueProcessingManager;
+import spoon.support.compiler.BinaryModelCache;
 import spoon.support.compiler.FileSystemFile;
+import spoon.support.compiler.IncrementalBuildState;
 import spoon.support.compiler.VirtualFolder;
 
 public class JDTBasedSpoonCompiler implements SpoonCompiler {
@@ -132,10 +142,59 @@ public class JDTBasedSpoonCompiler implements SpoonCompiler {
 		return createBatchCompiler(false);
 	}
 
+	/**
+	 * Creates the builder that turns the JDT compilation units into the Spoon
+	 * model of this compiler's factory.
+	 */
+	protected JDTTreeBuilder createTreeBuilder() {
+		JDTTreeBuilder builder = new JDTTreeBuilder(factory);
+		if (lazyBodyUnits != null) {
+			builder.lazyBodyCompiler = this;
+		}
+		builder.buildFilter = buildFilter;
+		return builder;
+	}
+
+	/**
+	 * Removes from the given files the ones that do not need to be rebuilt
+	 * since the build recorded in the given state, i.e. the files whose
+	 * content has not changed and that do not depend on a changed or removed
+	 * file.
+	 *
+	 * @param hashes
+	 *            the content hashes of the given files, indexed by path
+	 */
 	protected void keepOutdatedFiles(List<SpoonFile> files,
-			Collection<File> outputFiles) {
-		// System.out.println("outputfiles: " + outputFiles);
+			IncrementalBuildState state, Map<String, String> hashes) {
+		Set<String> changed = new HashSet<String>(state.getPaths());
+		changed.removeAll(hashes.keySet());
+		for (SpoonFile sf : files) {
+			String path = IncrementalBuildState.getPath(sf);
+			if (forceBuildList.contains(sf)
+					|| !state.isUpToDate(path, hashes.get(path))) {
+				changed.add(path);
+			}
+		}
+		Set<String> outdated = state.getDependents(changed);
+		outdated.addAll(changed);
+		for (SpoonFile sf : new ArrayList<SpoonFile>(files)) {
+			if (!outdated.contains(IncrementalBuildState.getPath(sf))) {
+				files.remove(sf);
+			}
+		}
+	}
 
+	/**
+	 * Removes from the given files the ones that are older than the file of
+	 * the same relative path in the output directory.
+	 *
+	 * @deprecated the outdated files are computed from the state of the
+	 *             previous build, see
+	 *             {@link #keepOutdatedFiles(List, IncrementalBuildState, Map)}
+	 */
+	@Deprecated
+	protected void keepOutdatedFiles(List<SpoonFile> files,
+			Collection<File> outputFiles) {
 		int offset = outputDirectory.getAbsolutePath().length() + 1;
 		Collection<String> relativeOutputPaths = new ArrayList<String>();
 		for (File f : outputFiles) {
@@ -155,7 +214,54 @@ public class JDTBasedSpoonCompiler implements SpoonCompiler {
 				}
 			}
 		}
-		// System.out.println("filtered: " + files);
+	}
+
+	/**
+	 * Gets the names of the types that could not be resolved by the build,
+	 * indexed by the name of the files that reference them.
+	 */
+	private Map<String, List<String>> getUnresolvedTypes() {
+		Map<String, List<String>> types = new HashMap<String, List<String>>();
+		for (CategorizedProblem problem : probs) {
+			if ((problem.getID() != IProblem.UndefinedType && problem.getID() != IProblem.ImportNotFound)
+					|| problem.getArguments().length == 0
+					|| problem.getOriginatingFileName() == null) {
+				continue;
+			}
+			String file = new String(problem.getOriginatingFileName());
+			List<String> names = types.get(file);
+			if (names == null) {
+				names = new ArrayList<String>();
+				types.put(file, names);
+			}
+			names.add(problem.getArguments()[0]);
+		}
+		return types;
+	}
+
+	/**
+	 * Removes from the factory the compilation units of the given files (and
+	 * the types they declare) so that they can be rebuilt.
+	 */
+	protected void removeCompilationUnits(Collection<String> paths) {
+		Map<String, spoon.reflect.cu.CompilationUnit> units = factory
+				.CompilationUnit().getMap();
+		for (String key : new ArrayList<String>(units.keySet())) {
+			String path;
+			try {
+				path = new File(key).getCanonicalPath();
+			} catch (IOException e) {
+				path = key;
+			}
+			if (paths.contains(path)) {
+				spoon.reflect.cu.CompilationUnit cu = units.remove(key);
+				for (CtType<?> type : cu.getDeclaredTypes()) {
+					if (type.getPackage() != null) {
+						type.getPackage().removeType(type);
+					}
+				}
+			}
+		}
 	}
 
 	protected boolean buildSources() {
@@ -203,35 +309,360 @@ public class JDTBasedSpoonCompiler implements SpoonCompiler {
 		// // within archives
 		// paths.add(file.getFileSystemParent().getPath());
 		// }
-		args.addAll(toStringList(sources.getAllJavaFiles()));
 
-		getFactory().getEnvironment().debugMessage("build args: " + args);
-
-		batchCompiler.configure(args.toArray(new String[0]));
-		
 		List<SpoonFile> filesToBuild = sources.getAllJavaFiles();
-		if (buildOnlyOutdatedFiles) {
-			if (outputDirectory.exists()) {
-				@SuppressWarnings("unchecked")
-				Collection<File> outputFiles = FileUtils.listFiles(
-						outputDirectory, new String[] { "java" }, true);
-				keepOutdatedFiles(filesToBuild, outputFiles);
+		File stateFile = getBuildStateFile();
+		if (stateFile == null && buildOnlyOutdatedFiles) {
+			stateFile = new File(outputDirectory, BUILD_STATE_FILE_NAME);
+		}
+		IncrementalBuildState state = null;
+		BinaryModelCache cache = null;
+		Map<String, String> hashes = new HashMap<String, String>();
+		boolean incremental = false;
+		if (buildFilter != null) {
+			// the model of a filtered build is partial: it cannot be reused
+			// by an incremental build
+		} else if (modelCacheDirectory != null) {
+			int cp = args.indexOf("-cp");
+			cache = new BinaryModelCache(modelCacheDirectory, javaCompliance,
+					cp >= 0 ? args.get(cp + 1) : null);
+			state = cache.getState();
+		} else if (stateFile != null) {
+			state = IncrementalBuildState.load(stateFile);
+		}
+		List<String> lazyBodyArgs = null;
+		if (lazyBodies && state == null) {
+			lazyBodyArgs = new ArrayList<String>(args);
+			lazyBodyUnits = new HashMap<spoon.reflect.cu.CompilationUnit, JDTLazyBody>();
+		}
+		if (state != null) {
+			for (SpoonFile sf : filesToBuild) {
+				if (!sf.isActualFile()) {
+					// in-memory files are always built from scratch
+					hashes = null;
+					break;
+				}
+				hashes.put(IncrementalBuildState.getPath(sf),
+						IncrementalBuildState.computeHash(sf));
+			}
+		}
+		if (hashes != null && state != null) {
+			List<SpoonFile> outdatedFiles = new ArrayList<SpoonFile>(
+					filesToBuild);
+			keepOutdatedFiles(outdatedFiles, state, hashes);
+			Set<String> outdatedPaths = new HashSet<String>();
+			for (SpoonFile sf : outdatedFiles) {
+				outdatedPaths.add(IncrementalBuildState.getPath(sf));
+			}
+			// the up-to-date files are given to JDT as a source path, so that
+			// only the files that are needed to resolve the outdated ones are
+			// parsed
+			Set<String> sourcePath = new HashSet<String>();
+			Map<String, String> toLoad = new HashMap<String, String>();
+			incremental = true;
+			for (SpoonFile sf : filesToBuild) {
+				String statePath = IncrementalBuildState.getPath(sf);
+				if (outdatedPaths.contains(statePath)) {
+					continue;
+				}
+				String root = state.getSourceRoot(statePath);
+				if (root == null) {
+					incremental = false;
+					break;
+				}
+				if (!buildOnlyOutdatedFiles
+						&& !factory.CompilationUnit().getMap()
+								.containsKey(sf.toString())) {
+					if (cache == null) {
+						// the model of the up-to-date file is not available
+						incremental = false;
+						break;
+					}
+					toLoad.put(statePath, sf.toString());
+				}
+				sourcePath.add(root);
+			}
+			if (incremental && cache != null) {
+				Set<String> loaded = cache.load(factory, toLoad);
+				for (SpoonFile sf : filesToBuild) {
+					String statePath = IncrementalBuildState.getPath(sf);
+					if (toLoad.containsKey(statePath)
+							&& !loaded.contains(statePath)) {
+						outdatedFiles.add(sf);
+					}
+				}
+				factory.getEnvironment().reportModelCacheUsage(loaded.size(),
+						outdatedFiles.size());
+			}
+			if (incremental) {
+				getFactory().getEnvironment().debugMessage(
+						"rebuilding " + outdatedFiles.size() + " out of "
+								+ filesToBuild.size() + " files");
+				Set<String> stalePaths = new HashSet<String>(state.getPaths());
+				stalePaths.removeAll(hashes.keySet());
+				for (SpoonFile sf : outdatedFiles) {
+					stalePaths.add(IncrementalBuildState.getPath(sf));
+				}
+				removeCompilationUnits(stalePaths);
+				filesToBuild = outdatedFiles;
+				if (!sourcePath.isEmpty()) {
+					StringBuilder path = new StringBuilder();
+					for (String root : sourcePath) {
+						if (path.length() > 0) {
+							path.append(File.pathSeparator);
+						}
+						path.append(root);
+					}
+					args.add("-sourcepath");
+					args.add(path.toString());
+				}
+			}
+		}
+
+		if (!filesToBuild.isEmpty()) {
+			args.addAll(toStringList(filesToBuild));
+
+			getFactory().getEnvironment().debugMessage("build args: " + args);
+
+			batchCompiler.configure(args.toArray(new String[0]));
+
+			if (incremental) {
+				// the units found in the source path are up-to-date
+				Set<String> fileNames = new HashSet<String>(
+						toStringList(filesToBuild));
+				List<CompilationUnitDeclaration> units = new ArrayList<CompilationUnitDeclaration>();
+				for (CompilationUnitDeclaration unit : batchCompiler
+						.getUnits(filesToBuild)) {
+					if (unit != null
+							&& fileNames.contains(new String(unit.getFileName()))) {
+						units.add(unit);
+					}
+				}
+				traverseUnits(units.toArray(new CompilationUnitDeclaration[0]));
 			} else {
-				keepOutdatedFiles(filesToBuild, new ArrayList<File>());
+				buildUnits(batchCompiler, filesToBuild);
 			}
 		}
-		CompilationUnitDeclaration[] units = batchCompiler
-				.getUnits(filesToBuild);
 
-		// here we build the model
-		JDTTreeBuilder builder = new JDTTreeBuilder(factory);
-		for (CompilationUnitDeclaration unit : units) {
-			unit.traverse(builder, unit.scope);
+		if (lazyBodyUnits != null) {
+			// the bodies are built from the sources of their own file, and the
+			// other types are resolved from the source folders
+			Set<String> sourcePath = new HashSet<String>();
+			for (spoon.reflect.cu.CompilationUnit cu : lazyBodyUnits.keySet()) {
+				File root = getSourceRoot(cu);
+				if (root != null) {
+					sourcePath.add(root.getPath());
+				}
+			}
+			if (!sourcePath.isEmpty()) {
+				StringBuilder path = new StringBuilder();
+				for (String root : sourcePath) {
+					if (path.length() > 0) {
+						path.append(File.pathSeparator);
+					}
+					path.append(root);
+				}
+				lazyBodyArgs.add("-sourcepath");
+				lazyBodyArgs.add(path.toString());
+			}
+			String[] arguments = lazyBodyArgs.toArray(new String[0]);
+			for (JDTLazyBody lazyBody : lazyBodyUnits.values()) {
+				lazyBody.arguments = arguments;
+			}
+			lazyBodyUnits = null;
+		}
+
+		if (state != null && hashes != null) {
+			boolean modified = !filesToBuild.isEmpty();
+			for (String path : new ArrayList<String>(state.getPaths())) {
+				if (!hashes.containsKey(path)) {
+					state.remove(path);
+					modified = true;
+				}
+			}
+			Map<String, List<String>> unresolvedTypes = getUnresolvedTypes();
+			for (SpoonFile sf : filesToBuild) {
+				String statePath = IncrementalBuildState.getPath(sf);
+				List<String> unresolved = unresolvedTypes.get(sf.toString());
+				state.update(statePath, hashes.get(statePath), factory
+						.CompilationUnit().getMap().get(sf.toString()),
+						unresolved == null ? new ArrayList<String>()
+								: unresolved);
+			}
+			if (cache != null) {
+				if (!incremental) {
+					factory.getEnvironment().reportModelCacheUsage(0,
+							filesToBuild.size());
+				}
+				if (modified) {
+					Map<String, spoon.reflect.cu.CompilationUnit> units = new HashMap<String, spoon.reflect.cu.CompilationUnit>();
+					for (SpoonFile sf : sources.getAllJavaFiles()) {
+						units.put(IncrementalBuildState.getPath(sf), factory.CompilationUnit()
+								.getMap().get(sf.toString()));
+					}
+					cache.save(state, units);
+				}
+			}
+			if (stateFile != null) {
+				state.save(stateFile);
+			}
 		}
 
 		return probs.size() == 0;
 	}
 
+	/**
+	 * Gets the source folder of the given compilation unit, deduced from the
+	 * package of its types, or null if its file is not stored in the folder of
+	 * its package.
+	 */
+	private File getSourceRoot(spoon.reflect.cu.CompilationUnit cu) {
+		File folder = cu.getFile().getParentFile();
+		if (cu.getDeclaredTypes().isEmpty()) {
+			return null;
+		}
+		CtPackage pack = cu.getDeclaredTypes().get(0).getPackage();
+		if (pack != null
+				&& !CtPackage.TOP_LEVEL_PACKAGE_NAME.equals(pack
+						.getQualifiedName())) {
+			String[] names = pack.getQualifiedName().split("\\.");
+			for (int i = names.length - 1; i >= 0; i--) {
+				if (folder == null || !folder.getName().equals(names[i])) {
+					return null;
+				}
+				folder = folder.getParentFile();
+			}
+		}
+		return folder;
+	}
+
+	/**
+	 * Gets the lazily built bodies of the given compilation unit, or null if
+	 * the bodies of the unit cannot be built lazily.
+	 */
+	synchronized JDTLazyBody getLazyBody(spoon.reflect.cu.CompilationUnit cu) {
+		if (lazyBodyUnits == null || cu == null || cu.getFile() == null
+				|| !cu.getFile().isFile()) {
+			return null;
+		}
+		JDTLazyBody lazyBody = lazyBodyUnits.get(cu);
+		if (lazyBody == null) {
+			lazyBody = new JDTLazyBody(this, cu);
+			lazyBodyUnits.put(cu, lazyBody);
+		}
+		return lazyBody;
+	}
+
+	/**
+	 * Builds the bodies of the given executables of the given compilation
+	 * unit, by compiling its file again with the given arguments.
+	 *
+	 * @return the executables whose body has not been built
+	 */
+	synchronized List<CtExecutable<?>> buildLazyBodies(String[] arguments,
+			spoon.reflect.cu.CompilationUnit cu,
+			List<CtExecutable<?>> executables) {
+		String path;
+		try {
+			path = cu.getFile().getCanonicalPath();
+		} catch (IOException e) {
+			throw new SpoonException(e);
+		}
+		List<String> args = new ArrayList<String>(Arrays.asList(arguments));
+		args.add(path);
+		JDTBatchCompiler batchCompiler = createBatchCompiler();
+		batchCompiler.configure(args.toArray(new String[0]));
+
+		int problemCount = probs.size();
+		CompilationUnitDeclaration unit = null;
+		for (CompilationUnitDeclaration u : batchCompiler.getUnits(Collections
+				.<SpoonFile> singletonList(new FileSystemFile(new File(path))))) {
+			if (u != null && path.equals(new String(u.getFileName()))) {
+				unit = u;
+			}
+		}
+		// the problems of the unit have already been reported by the build
+		probs.subList(problemCount, probs.size()).clear();
+		if (unit == null) {
+			return executables;
+		}
+		return new JDTTreeBuilder(factory).buildBodies(unit, cu, executables);
+	}
+
+	/**
+	 * Builds the model of the given files, which have been given to the batch
+	 * compiler.
+	 */
+	protected void buildUnits(JDTBatchCompiler batchCompiler,
+			List<SpoonFile> filesToBuild) {
+		if (streamingBuild && buildThreadCount <= 1) {
+			// here we build the model of each unit as soon as it is resolved
+			batchCompiler.getUnits(filesToBuild, createTreeBuilder());
+		} else {
+			CompilationUnitDeclaration[] units = batchCompiler
+					.getUnits(filesToBuild);
+
+			// here we build the model
+			traverseUnits(units);
+		}
+	}
+
+	/**
+	 * Builds the Spoon model of the given resolved compilation units, either
+	 * on the calling thread or on {@link #getBuildThreadCount()} threads.
+	 */
+	protected void traverseUnits(CompilationUnitDeclaration[] units) {
+		int threadCount = Math.min(buildThreadCount, units.length);
+		if (threadCount <= 1) {
+			JDTTreeBuilder builder = createTreeBuilder();
+			for (CompilationUnitDeclaration unit : units) {
+				unit.traverse(builder, unit.scope);
+			}
+			return;
+		}
+
+		// the sub-factories are lazily created: make sure that all the
+		// builders share the same instances
+		factory.Core();
+		factory.Package();
+		factory.CompilationUnit();
+		factory.Type();
+
+		final CompilationUnitDeclaration[] toBuild = units;
+		final AtomicInteger next = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int i = 0; i < threadCount; i++) {
+				results.add(executor.submit(new Runnable() {
+					public void run() {
+						// each thread has its own builder (and context), and the
+						// bindings are lazily resolved under the factory monitor
+						// (see JDTTreeBuilder.ReferenceBuilder#getEnclosingType)
+						JDTTreeBuilder builder = createTreeBuilder();
+						int index;
+						while ((index = next.getAndIncrement()) < toBuild.length) {
+							toBuild[index].traverse(builder, toBuild[index].scope);
+						}
+					}
+				}));
+			}
+			for (Future<?> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpoonException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new SpoonException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	private Collection<? extends String> toStringList(
 			List<SpoonFile> files) {
 		List<String> res = new ArrayList<String>();
@@ -754,6 +1185,9 @@ public class JDTBasedSpoonCompiler implements SpoonCompiler {
 					"Generating source for compilation unit: " + cu.getFile());
 
 			CtType<?> element = cu.getMainType();
+			if (factory.Type().isStub(element)) {
+				continue;
+			}
 
 			CtPackage pack = element.getPackage();
 
@@ -934,6 +1368,102 @@ public class JDTBasedSpoonCompiler implements SpoonCompiler {
 
 	List<SpoonResource> forceBuildList = new ArrayList<SpoonResource>();
 
+	int buildThreadCount = 1;
+
+	@Override
+	public void setBuildThreadCount(int threadCount) {
+		this.buildThreadCount = threadCount;
+	}
+
+	@Override
+	public int getBuildThreadCount() {
+		return buildThreadCount;
+	}
+
+	/**
+	 * The name of the file where the build state is saved in the output
+	 * directory when only the outdated files are built.
+	 */
+	public static final String BUILD_STATE_FILE_NAME = ".spoon-build-state";
+
+	File buildStateFile;
+
+	@Override
+	public void setBuildStateFile(File buildStateFile) {
+		this.buildStateFile = buildStateFile;
+	}
+
+	@Override
+	public File getBuildStateFile() {
+		return buildStateFile;
+	}
+
+	File modelCacheDirectory;
+
+	@Override
+	public void setModelCacheDirectory(File modelCacheDirectory) {
+		this.modelCacheDirectory = modelCacheDirectory;
+	}
+
+	@Override
+	public File getModelCacheDirectory() {
+		return modelCacheDirectory;
+	}
+
+	boolean streamingBuild = false;
+
+	@Override
+	public void setStreamingBuild(boolean streamingBuild) {
+		this.streamingBuild = streamingBuild;
+	}
+
+	@Override
+	public boolean isStreamingBuild() {
+		return streamingBuild;
+	}
+
+	boolean lazyBodies = false;
+
+	boolean releaseLazyBodies = false;
+
+	/**
+	 * The lazily built bodies of the compilation units of the running build,
+	 * or null if the bodies are built with the rest of the model.
+	 */
+	Map<spoon.reflect.cu.CompilationUnit, JDTLazyBody> lazyBodyUnits;
+
+	@Override
+	public void setLazyBodies(boolean lazyBodies) {
+		this.lazyBodies = lazyBodies;
+	}
+
+	@Override
+	public boolean isLazyBodies() {
+		return lazyBodies;
+	}
+
+	@Override
+	public void setReleaseLazyBodies(boolean releaseLazyBodies) {
+		this.releaseLazyBodies = releaseLazyBodies;
+	}
+
+	@Override
+	public boolean isReleaseLazyBodies() {
+		return releaseLazyBodies;
+	}
+
+	Filter<CtType<?>> buildFilter;
+
+	@Override
+	public void setBuildFilter(Filter<CtType<?>> buildFilter) {
+		this.buildFilter = buildFilter;
+	}
+
+	@Override
+	public Filter<CtType<?>> getBuildFilter() {
+		return buildFilter;
+	}
+
 	@Override
 	public void forceBuild(SpoonResource source) {
 		forceBuildList.add(source);
@@ -106,6 +106,16 @@ class JDTBatchCompiler extends org.eclipse.jdt.internal.compiler.batch.Main {
 	}
 
 	public CompilationUnitDeclaration[] getUnits(List<SpoonFile> files) {
+		return getUnits(files, null);
+	}
+
+	/**
+	 * Gets the resolved compilation units of the given files. If a tree
+	 * builder is given, the model of each unit is built as soon as it is
+	 * resolved (see {@link TreeBuilderCompiler#buildUnits(CompilationUnit[], JDTTreeBuilder)}).
+	 */
+	public CompilationUnitDeclaration[] getUnits(List<SpoonFile> files,
+			JDTTreeBuilder builder) {
 		startTime = System.currentTimeMillis();
 		INameEnvironment environment = this.jdtCompiler.environment;
 		if (environment == null) {
@@ -118,7 +128,7 @@ class JDTBatchCompiler extends org.eclipse.jdt.internal.compiler.batch.Main {
 				this.jdtCompiler.requestor, getProblemFactory(), this.out,
 				null);
 		CompilationUnitDeclaration[] units = treeBuilderCompiler
-				.buildUnits(getCompilationUnits(files));
+				.buildUnits(getCompilationUnits(files), builder);
 		return units;
 	}
 
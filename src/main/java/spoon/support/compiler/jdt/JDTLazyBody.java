@@ -0,0 +1,131 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.compiler.jdt;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+import spoon.support.reflect.declaration.LazyBody;
+
+/**
+ * The bodies of the executables of a compilation unit whose model has been
+ * built without them (see {@link JDTBasedSpoonCompiler#setLazyBodies(boolean)}).
+ * The first time the body of one of them is accessed, the source file is
+ * compiled again and the bodies of all the executables of the unit are built.
+ */
+class JDTLazyBody implements LazyBody {
+
+	private final JDTBasedSpoonCompiler compiler;
+
+	private final CompilationUnit compilationUnit;
+
+	/**
+	 * The arguments of the batch compiler that compiles the unit again.
+	 */
+	String[] arguments;
+
+	/**
+	 * The executables of the unit whose bodies have not been built yet.
+	 */
+	private final List<CtExecutable<?>> executables = new ArrayList<CtExecutable<?>>();
+
+	/**
+	 * The bodies that have been built but not accessed yet, if they can be
+	 * released (see {@link JDTBasedSpoonCompiler#setReleaseLazyBodies(boolean)}).
+	 */
+	private SoftReference<Map<CtExecutable<?>, CtBlock<?>>> bodies;
+
+	JDTLazyBody(JDTBasedSpoonCompiler compiler, CompilationUnit compilationUnit) {
+		this.compiler = compiler;
+		this.compilationUnit = compilationUnit;
+	}
+
+	/**
+	 * Registers an executable whose body has to be built lazily.
+	 */
+	synchronized void add(CtExecutableImpl<?> executable) {
+		executables.add(executable);
+		executable.setLazyBody(this);
+	}
+
+	public synchronized CtBlock<?> getBody(CtExecutable<?> executable) {
+		Map<CtExecutable<?>, CtBlock<?>> built = bodies == null ? null
+				: bodies.get();
+		if (built != null && built.containsKey(executable)) {
+			return pin(executable, built.remove(executable));
+		}
+
+		// the bodies that have been set in the meantime are kept, and the
+		// executable may be a clone of a registered one
+		List<CtExecutable<?>> toBuild = new ArrayList<CtExecutable<?>>();
+		boolean registered = false;
+		for (CtExecutable<?> e : executables) {
+			if (((CtExecutableImpl<?>) e).getLazyBody() == this) {
+				toBuild.add(e);
+			}
+			registered |= e == executable;
+		}
+		if (!registered) {
+			toBuild.add(executable);
+		}
+		for (CtExecutable<?> e : compiler.buildLazyBodies(arguments,
+				compilationUnit, toBuild)) {
+			Launcher.logger.warn("cannot build the body of "
+					+ e.getSignature() + " in " + compilationUnit.getFile());
+			((CtExecutableImpl<?>) e).setLazyBody(null);
+		}
+
+		if (!compiler.isReleaseLazyBodies()) {
+			executables.clear();
+			return executable.getBody();
+		}
+		// the bodies are set by the builder, and the ones that are not
+		// accessed are kept here only as long as there is enough memory
+		built = new IdentityHashMap<CtExecutable<?>, CtBlock<?>>();
+		for (CtExecutable<?> e : toBuild) {
+			CtExecutableImpl<?> impl = (CtExecutableImpl<?>) e;
+			if (e != executable && impl.getLazyBody() == null
+					&& impl.getBody() != null) {
+				built.put(e, e.getBody());
+				impl.setBody(null);
+				impl.setLazyBody(this);
+			}
+		}
+		bodies = new SoftReference<Map<CtExecutable<?>, CtBlock<?>>>(built);
+		return executable.getBody();
+	}
+
+	/**
+	 * Sets a body that is handed out to its executable, so that the changes
+	 * made to it are not lost when the other bodies are released.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private CtBlock<?> pin(CtExecutable<?> executable, CtBlock<?> body) {
+		((CtExecutableImpl<?>) executable).setBody((CtBlock) body);
+		return body;
+	}
+
+}
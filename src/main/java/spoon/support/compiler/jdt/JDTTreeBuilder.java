@@ -136,6 +136,7 @@ import org.eclipse.jdt.internal.compiler.lookup.PackageBinding;
 import org.eclipse.jdt.internal.compiler.lookup.ParameterizedTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.ProblemReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.RawTypeBinding;
+import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.SourceTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeVariableBinding;
@@ -184,12 +185,14 @@ import spoon.reflect.code.CtVariableAccess;
 import spoon.reflect.code.CtWhile;
 import spoon.reflect.code.UnaryOperatorKind;
 import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtAnonymousExecutable;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtConstructor;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtExecutable;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtInterface;
 import spoon.reflect.declaration.CtMethod;
@@ -198,7 +201,6 @@ import spoon.reflect.declaration.CtParameter;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtTypedElement;
 import spoon.reflect.declaration.ModifierKind;
-import spoon.reflect.factory.CoreFactory;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtArrayTypeReference;
 import spoon.reflect.reference.CtCatchVariableReference;
@@ -210,8 +212,12 @@ import spoon.reflect.reference.CtParameterReference;
 import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.reference.CtVariableReference;
+import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.QualifiedNameFilter;
 import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+import spoon.support.reflect.reference.CtReferenceImpl;
 import spoon.support.reflect.reference.CtUnboundVariableReferenceImpl;
 
 /**
@@ -248,6 +254,12 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 		CompilationUnitDeclaration compilationunitdeclaration;
 
+		/**
+		 * The compilation unit of {@link #compilationunitdeclaration}, which is
+		 * resolved once for all the elements of the unit.
+		 */
+		CompilationUnit compilationUnitSpoon;
+
 		List<CtType<?>> createdTypes = new ArrayList<CtType<?>>();
 
 		Stack<CtTry> finallyzer = new Stack<CtTry>();
@@ -271,12 +283,33 @@ public class JDTTreeBuilder extends ASTVisitor {
 			createdTypes.add(type);
 		}
 
+		void setCompilationUnitDeclaration(
+				CompilationUnitDeclaration compilationunitdeclaration) {
+			if (compilationunitdeclaration == null) {
+				compilationUnitSpoon = null;
+			} else if (this.compilationunitdeclaration != compilationunitdeclaration) {
+				compilationUnitSpoon = factory.CompilationUnit().create(
+						new String(compilationunitdeclaration.getFileName()));
+				compilationUnitSpoon
+						.setLineSeparatorPositions(compilationunitdeclaration.compilationResult.lineSeparatorPositions);
+			}
+			this.compilationunitdeclaration = compilationunitdeclaration;
+		}
+
+		SourcePosition createSourcePosition(int sourceStart, int sourceEnd) {
+			return factory.Core()
+					.createSourcePosition(
+							compilationUnitSpoon,
+							sourceStart,
+							sourceEnd,
+							compilationunitdeclaration.compilationResult.lineSeparatorPositions);
+		}
+
 		@SuppressWarnings("unchecked")
 		void enter(CtElement e, ASTNode node) {
 			stack.push(new ASTPair(e, node));
 			// aststack.push(node);
 			if (compilationunitdeclaration != null) {
-				CoreFactory cf = factory.Core();
 				int sourceStart = node.sourceStart;
 				int sourceEnd = node.sourceEnd;
 				if ((e instanceof CtBlock)
@@ -284,14 +317,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 					sourceStart = ((MethodDeclaration) node).bodyStart;
 					sourceEnd = ((MethodDeclaration) node).bodyEnd;
 				}
-				CompilationUnit cu = factory.CompilationUnit().create(
-						new String(compilationunitdeclaration.getFileName()));
-				e.setPosition(cf
-						.createSourcePosition(
-								cu,
-								sourceStart,
-								sourceEnd,
-								compilationunitdeclaration.compilationResult.lineSeparatorPositions));
+				e.setPosition(createSourcePosition(sourceStart, sourceEnd));
 			}
 			ASTPair pair = stack.peek();
 			CtElement current = pair.element;
@@ -319,9 +345,19 @@ public class JDTTreeBuilder extends ASTVisitor {
 				throw new RuntimeException("Inconsistent Stack " + node+"\n"+pair.node);
 			CtElement current = pair.element;
 			if (!stack.isEmpty()) {
-				current.setParent(stack.peek().element);
-				exiter.child = current;
-				exiter.scan(stack.peek().element);
+				CtElement parent = stack.peek().element;
+				if (parent instanceof CtPackage) {
+					// packages are shared by the builders of a parallel build
+					synchronized (parent) {
+						current.setParent(parent);
+						exiter.child = current;
+						exiter.scan(parent);
+					}
+				} else {
+					current.setParent(parent);
+					exiter.child = current;
+					exiter.scan(parent);
+				}
 			}
 		}
 
@@ -356,6 +392,18 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 		Map<String, CtTypeReference<?>> basestypes = new TreeMap<String, CtTypeReference<?>>();
 
+		/**
+		 * The references to the types that are neither parameterized, local
+		 * nor annotated, which are shared by all the elements built by this
+		 * builder, as the references to the primitive types (see
+		 * {@link CtReferenceImpl#isShared()}). Use
+		 * {@link #getUnsharedTypeReference(TypeBinding)} to get a reference to
+		 * modify.
+		 */
+		Map<TypeBinding, CtTypeReference<?>> bindingCache = new HashMap<TypeBinding, CtTypeReference<?>>();
+
+		Map<PackageBinding, CtPackageReference> packageCache = new HashMap<PackageBinding, CtPackageReference>();
+
 		Set<String> typevars = new TreeSet<String>();
 
 		boolean bounds = false;
@@ -402,16 +450,40 @@ public class JDTTreeBuilder extends ASTVisitor {
 		}
 
 		public CtPackageReference getPackageReference(PackageBinding reference) {
+			CtPackageReference ref = packageCache.get(reference);
+			if (ref != null || packageCache.containsKey(reference)) {
+				return ref;
+			}
 			String name = new String(reference.shortReadableName());
-			if (name.length() == 0)
-				return null;
-			CtPackageReference ref = factory.Core().createPackageReference();
-			ref.setSimpleName(name);
+			if (name.length() > 0) {
+				ref = factory.Core().createPackageReference();
+				ref.setSimpleName(name);
+				((CtReferenceImpl) ref).setShared();
+			}
+			packageCache.put(reference, ref);
 			return ref;
 		}
 
-		// Map<TypeBinding, CtTypeReference<?>> bindingCache = new
-		// HashMap<TypeBinding, CtTypeReference<?>>();
+		/**
+		 * Tells if the reference to the given type can be shared.
+		 */
+		private boolean isShareable(TypeBinding binding) {
+			return !binding.hasTypeAnnotations()
+					&& (binding instanceof BinaryTypeBinding || (binding instanceof SourceTypeBinding && !(binding instanceof LocalTypeBinding)));
+		}
+
+		/**
+		 * Gets a reference to the given type that is not shared with other
+		 * elements, so that it can be modified.
+		 */
+		public <T> CtTypeReference<T> getUnsharedTypeReference(
+				TypeBinding binding) {
+			CtTypeReference<T> ref = getTypeReference(binding);
+			if (ref != null && ((CtReferenceImpl) ref).isShared()) {
+				ref = factory.Core().clone(ref);
+			}
+			return ref;
+		}
 
 		public <T> CtTypeReference<T> getTypeReference(TypeBinding binding, TypeReference ref) {
 			CtTypeReference<T> ctRef = getTypeReference(binding);
@@ -423,15 +495,56 @@ public class JDTTreeBuilder extends ASTVisitor {
 			return ctRef;
 		}
 		
+		/**
+		 * Gets the enclosing type of a binary binding, which it lazily
+		 * resolves through the JDT lookup environment. The environment is not
+		 * thread-safe: the calls that reach it are guarded by the factory,
+		 * which is shared by the builders of a parallel build (see
+		 * {@link JDTBasedSpoonCompiler#traverseUnits}), and the references are
+		 * built outside of this lock.
+		 */
+		private ReferenceBinding getEnclosingType(BinaryTypeBinding binding) {
+			synchronized (factory) {
+				return binding.enclosingType();
+			}
+		}
+
+		/**
+		 * Gets the generic type of a parameterized binding, which it lazily
+		 * resolves (see {@link #getEnclosingType(BinaryTypeBinding)}).
+		 */
+		public ReferenceBinding getGenericType(ParameterizedTypeBinding binding) {
+			synchronized (factory) {
+				return binding.genericType();
+			}
+		}
+
+		/**
+		 * Gets the type of an annotation binding, which it lazily resolves
+		 * (see {@link #getEnclosingType(BinaryTypeBinding)}).
+		 */
+		public ReferenceBinding getAnnotationType(AnnotationBinding binding) {
+			synchronized (factory) {
+				return binding.getAnnotationType();
+			}
+		}
+
 		@SuppressWarnings("unchecked")
 		public <T> CtTypeReference<T> getTypeReference(TypeBinding binding) {
 			if (binding == null)
 				return null;
 
-			CtTypeReference<?> ref = null;
+			CtTypeReference<?> ref = bindingCache.get(binding);
+			if (ref != null) {
+				return (CtTypeReference<T>) ref;
+			}
 
 			if (binding instanceof RawTypeBinding) {
-				ref = getTypeReference(((ParameterizedTypeBinding) binding).genericType());
+				if (binding.hasTypeAnnotations()) {
+					ref = getUnsharedTypeReference(getGenericType((ParameterizedTypeBinding) binding));
+				} else {
+					ref = getTypeReference(getGenericType((ParameterizedTypeBinding) binding));
+				}
 			} else if (binding instanceof ParameterizedTypeBinding) {
 				ref = factory.Core().createTypeReference();
 				if (binding.isAnonymousType()) {
@@ -445,7 +558,6 @@ public class JDTTreeBuilder extends ASTVisitor {
 					}
 				}
 
-				// bindingCache.put(binding, ref);
 				if (((ParameterizedTypeBinding) binding).arguments != null) {
 					for (TypeBinding b : ((ParameterizedTypeBinding) binding).arguments) {
 						ref.addActualTypeArgument(getTypeReference(b));
@@ -453,9 +565,9 @@ public class JDTTreeBuilder extends ASTVisitor {
 				}
 			} else if (binding instanceof BinaryTypeBinding) {
 				ref = factory.Core().createTypeReference();
-				if (binding.enclosingType() != null) {
-					ref.setDeclaringType(getTypeReference(binding
-							.enclosingType()));
+				ReferenceBinding enclosingType = getEnclosingType((BinaryTypeBinding) binding);
+				if (enclosingType != null) {
+					ref.setDeclaringType(getTypeReference(enclosingType));
 				} else {
 					ref.setPackage(getPackageReference(binding.getPackage()));
 				}
@@ -487,7 +599,6 @@ public class JDTTreeBuilder extends ASTVisitor {
 				if (bounds && b.superInterfaces != null
 						&& b.superInterfaces != Binding.NO_SUPERINTERFACES) {
 					bounds = false;
-					// bindingCache.put(binding, ref);
 					for (int i = 0, length = b.superInterfaces.length; i < length; i++) {
 						TypeBinding tb = b.superInterfaces[i];
 						((CtTypeParameterReference) ref)
@@ -499,11 +610,14 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 			} else if (binding instanceof BaseTypeBinding) {
 				String name = new String(binding.sourceName());
-				ref = basestypes.get(name);
+				ref = binding.hasTypeAnnotations() ? null : basestypes.get(name);
 				if (ref == null) {
 					ref = factory.Core().createTypeReference();
 					ref.setSimpleName(name);
-					basestypes.put(name, ref);
+					if (!binding.hasTypeAnnotations()) {
+						((CtReferenceImpl) ref).setShared();
+						basestypes.put(name, ref);
+					}
 				}
 			} else if (binding instanceof WildcardBinding) {
 				CtTypeParameterReference reference = factory.Core().createTypeParameterReference();
@@ -569,8 +683,11 @@ public class JDTTreeBuilder extends ASTVisitor {
 				throw new RuntimeException("Unknown TypeBinding: "
 						+ binding.getClass() + " " + binding);
 			}
-			// bindingCache.remove(binding);
 			addTypeAnnotationFromBindingToReference(binding, ref);
+			if (isShareable(binding)) {
+				((CtReferenceImpl) ref).setShared();
+				bindingCache.put(binding, ref);
+			}
 			return (CtTypeReference<T>) ref;
 		}
 
@@ -585,10 +702,15 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 		public <A extends java.lang.annotation.Annotation> CtAnnotation<A> getTypeCtAnnotation(AnnotationBinding annotationBinding) {
 			CtAnnotation<A> a = factory.Core().createAnnotation();
-			CtTypeReference<A> t = references.getTypeReference(annotationBinding.getAnnotationType());
+			CtTypeReference<A> t = references.getTypeReference(getAnnotationType(annotationBinding));
 			a.setAnnotationType(t);
 			final Map<String, Object> valuePairs = new HashMap<String, Object>();
-			for (ElementValuePair valuePair : annotationBinding.getElementValuePairs()) {
+			ElementValuePair[] pairs;
+			synchronized (factory) {
+				// lazily resolved (see getEnclosingType)
+				pairs = annotationBinding.getElementValuePairs();
+			}
+			for (ElementValuePair valuePair : pairs) {
 				valuePairs.put(String.valueOf(valuePair.getName()), buildValuePairAnnotation(valuePair.getValue()));
 			}
 			a.setElementValues(valuePairs);
@@ -796,11 +918,128 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 	public boolean template = false;
 
+	/**
+	 * The compiler that builds the bodies of the executables when they are
+	 * first accessed, or null if the bodies are built with the rest of the
+	 * model.
+	 */
+	JDTBasedSpoonCompiler lazyBodyCompiler;
+
+	/**
+	 * The filter of the top-level types that are fully built, or null if all
+	 * the types are fully built. The other types are built as shallow stubs.
+	 */
+	Filter<CtType<?>> buildFilter;
+
+	/**
+	 * Tells if the current top-level type is built as a shallow stub.
+	 */
+	boolean shallow = false;
+
+	/**
+	 * Tells if the stub of the current top-level type has to be given to the
+	 * build filter, which cannot tell from the name of the type whether it
+	 * matches.
+	 */
+	private boolean matchStub = false;
+
+	/**
+	 * The declaration of the top-level type that is built again because its
+	 * stub matches the build filter.
+	 */
+	private TypeDeclaration matchedTypeDeclaration;
+
 	public JDTTreeBuilder(Factory factory) {
 		super();
 		this.factory = factory;
 	}
 
+	/**
+	 * Tells if the body of the given executable is not built now: either the
+	 * current type is a stub, or the building of the body is deferred because
+	 * lazy bodies are enabled and the current compilation unit can be
+	 * compiled again.
+	 */
+	private boolean skipBody(CtExecutable<?> e) {
+		if (shallow) {
+			return true;
+		}
+		if (lazyBodyCompiler == null || !(e instanceof CtExecutableImpl)) {
+			return false;
+		}
+		JDTLazyBody lazyBody = lazyBodyCompiler
+				.getLazyBody(context.compilationUnitSpoon);
+		if (lazyBody == null) {
+			return false;
+		}
+		lazyBody.add((CtExecutableImpl<?>) e);
+		return true;
+	}
+
+	/**
+	 * Builds the bodies of the given executables, which have been built
+	 * without them from another compilation of the given unit (see
+	 * {@link JDTLazyBody}). The declaration of each executable is found from
+	 * its position.
+	 *
+	 * @return the executables whose declaration has not been found
+	 */
+	List<CtExecutable<?>> buildBodies(CompilationUnitDeclaration unit,
+			CompilationUnit cu, List<CtExecutable<?>> executables) {
+		final Map<Integer, AbstractMethodDeclaration> declarations = new HashMap<Integer, AbstractMethodDeclaration>();
+		unit.traverse(new ASTVisitor() {
+			@Override
+			public boolean visit(MethodDeclaration methodDeclaration,
+					ClassScope scope) {
+				declarations.put(methodDeclaration.sourceStart,
+						methodDeclaration);
+				return true;
+			}
+
+			@Override
+			public boolean visit(ConstructorDeclaration constructorDeclaration,
+					ClassScope scope) {
+				declarations.put(constructorDeclaration.sourceStart,
+						constructorDeclaration);
+				return true;
+			}
+		}, unit.scope);
+
+		List<CtExecutable<?>> notFound = new ArrayList<CtExecutable<?>>();
+		context.compilationunitdeclaration = unit;
+		context.compilationUnitSpoon = cu;
+		for (CtExecutable<?> e : executables) {
+			AbstractMethodDeclaration declaration = null;
+			if (e.getPosition() != null) {
+				declaration = declarations.get(e.getPosition()
+						.getSourceStart());
+			}
+			if (declaration == null
+					|| (declaration instanceof ConstructorDeclaration) != (e instanceof CtConstructor)
+					|| (e instanceof CtMethod && !e.getSimpleName().equals(
+							new String(declaration.selector)))) {
+				notFound.add(e);
+				continue;
+			}
+			context.stack.push(new ASTPair(e, declaration));
+			context.enter(factory.Core().createBlock(), declaration);
+			if (declaration instanceof ConstructorDeclaration
+					&& ((ConstructorDeclaration) declaration).constructorCall != null) {
+				((ConstructorDeclaration) declaration).constructorCall
+						.traverse(this, declaration.scope);
+			}
+			if (declaration.statements != null) {
+				for (Statement s : declaration.statements)
+					s.traverse(this, declaration.scope);
+			}
+			context.exit(declaration);
+			context.stack.pop();
+		}
+		context.compilationunitdeclaration = null;
+		context.compilationUnitSpoon = null;
+		return notFound;
+	}
+
 	private void createExpression(StringLiteralConcatenation literal,
 			BlockScope scope, List<Expression> rst) {
 		if (rst.isEmpty())
@@ -1073,7 +1312,8 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 	@Override
 	public void endVisit(Initializer initializer, MethodScope scope) {
-		context.exit(initializer);
+		if (!shallow)
+			context.exit(initializer);
 	}
 
 	@Override
@@ -1317,11 +1557,40 @@ public class JDTTreeBuilder extends ASTVisitor {
 	@Override
 	public void endVisit(TypeDeclaration typeDeclaration,
 			CompilationUnitScope scope) {
+		CtType<?> type = null;
 		while (!context.stack.isEmpty()
 				&& context.stack.peek().node == typeDeclaration) {
+			if (context.stack.peek().element instanceof CtType) {
+				type = (CtType<?>) context.stack.peek().element;
+			}
 			context.exit(typeDeclaration);
 		}
-		context.compilationunitdeclaration = null;
+		context.setCompilationUnitDeclaration(null);
+		if (shallow) {
+			shallow = false;
+			if (matchStub && buildFilter.matches(type)) {
+				// the stub is replaced by the full model of the type
+				removeType(type);
+				matchedTypeDeclaration = typeDeclaration;
+				typeDeclaration.traverse(this, scope);
+				matchedTypeDeclaration = null;
+			} else {
+				factory.Type().setStub(type, true);
+			}
+		}
+	}
+
+	private void removeType(CtType<?> type) {
+		CtPackage pack = type.getPackage();
+		synchronized (pack) {
+			pack.removeType(type);
+		}
+		context.createdTypes.remove(type);
+		if (type.getPosition() != null
+				&& type.getPosition().getCompilationUnit() != null) {
+			type.getPosition().getCompilationUnit().getDeclaredTypes()
+					.remove(type);
+		}
 	}
 
 	@Override
@@ -1416,7 +1685,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 		for (CtElement element : reversedElements) {
 			// TODO check if the variable is visible from here
 
-			List<CtLocalVariable<T>> var = Query.getElements(element,
+			CtLocalVariable<T> var = Query.getFirstElement(element,
 					new TypeFilter<CtLocalVariable<T>>(CtLocalVariable.class) {
 						@Override
 						public boolean matches(CtLocalVariable<T> element) {
@@ -1425,8 +1694,8 @@ public class JDTTreeBuilder extends ASTVisitor {
 						}
 					});
 
-			if (var.size() > 0) {
-				return var.get(0);
+			if (var != null) {
+				return var;
 			}
 		}
 		// note: this happens when using the new try(vardelc) structure
@@ -1444,7 +1713,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 		}
 
 		for (CtElement element : reversedElements) {
-			List<CtCatchVariable<T>> var = Query.getElements(element,
+			CtCatchVariable<T> var = Query.getFirstElement(element,
 					new TypeFilter<CtCatchVariable<T>>(CtCatchVariable.class) {
 						@Override
 						public boolean matches(CtCatchVariable<T> element) {
@@ -1453,8 +1722,8 @@ public class JDTTreeBuilder extends ASTVisitor {
 						}
 					});
 
-			if (var.size() > 0) {
-				return var.get(0);
+			if (var != null) {
+				return var;
 			}
 		}
 		// note: this happens when using the new try(vardelc) structure
@@ -1541,7 +1810,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 	private <T extends CtConstructorCall<Object>> T buildCommonPartForCtNewClassAndCtConstructorCall(AllocationExpression allocationExpression, BlockScope scope, T constructorCall) {
 		if (allocationExpression.type != null) {
 			if (allocationExpression.type.resolvedType instanceof ParameterizedTypeBinding) {
-				CtTypeReference<Object> res = references.getTypeReference(((ParameterizedTypeBinding) allocationExpression.type.resolvedType).genericType());
+				CtTypeReference<Object> res = references.getUnsharedTypeReference(references.getGenericType((ParameterizedTypeBinding) allocationExpression.type.resolvedType));
 				ParameterizedTypeBinding paramType = ((ParameterizedTypeBinding) allocationExpression.type.resolvedType);
 				if (paramType.arguments != null && paramType.isBoundParameterizedType()) {
 					for (TypeBinding b : ((ParameterizedTypeBinding) allocationExpression.type.resolvedType).arguments) {
@@ -1836,6 +2105,9 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 		// Create block
 		if (!constructorDeclaration.isAbstract()) {
+			if (skipBody(c)) {
+				return false;
+			}
 			CtBlock<?> b = factory.Core().createBlock();
 			context.enter(b, constructorDeclaration);
 		}
@@ -1958,7 +2230,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 				fieldDeclaration.annotations[i].traverse(this, scope);
 		}
 
-		if (fieldDeclaration.initialization != null)
+		if (fieldDeclaration.initialization != null && !shallow)
 			fieldDeclaration.initialization.traverse(this, scope);
 		return false;
 	}
@@ -2047,6 +2319,10 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 	@Override
 	public boolean visit(Initializer initializer, MethodScope scope) {
+		if (shallow) {
+			// the stubs have no initializer blocks
+			return false;
+		}
 		CtAnonymousExecutable b = factory.Core().createAnonymousExecutable();
 		if (initializer.isStatic())
 			b.addModifier(ModifierKind.STATIC);
@@ -2241,6 +2517,9 @@ public class JDTTreeBuilder extends ASTVisitor {
 		// Create block
 		if (!methodDeclaration.isAbstract()
 				&& (methodDeclaration.modifiers & ClassFileConstants.AccNative) == 0) {
+			if (skipBody(m)) {
+				return false;
+			}
 			CtBlock<?> b = factory.Core().createBlock();
 			context.enter(b, methodDeclaration);
 		}
@@ -2258,7 +2537,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 
 	private boolean containsInTypeAnnotation(Annotation a, AnnotationBinding[] typeAnnotations) {
 		for (AnnotationBinding typeAnnotation : typeAnnotations) {
-			if (typeAnnotation.getAnnotationType().equals(a.resolvedType)) {
+			if (references.getAnnotationType(typeAnnotation).equals(a.resolvedType)) {
 				return true;
 			}
 		}
@@ -2401,15 +2680,8 @@ public class JDTTreeBuilder extends ASTVisitor {
 						other.setTarget(fa);
 						fa.setParent(other);
 						//set source position of fa;
-						CompilationUnit cu = factory.CompilationUnit().create(
-								new String(context.compilationunitdeclaration.getFileName()));
 						int sourceEnd = (int)(positions[i]);
-						fa.setPosition(factory.Core()
-								.createSourcePosition(
-										cu,
-										sourceStart,
-										sourceEnd,
-										context.compilationunitdeclaration.compilationResult.lineSeparatorPositions));
+						fa.setPosition(context.createSourcePosition(sourceStart, sourceEnd));
 						
 						fa = other;
 						i++;
@@ -2446,15 +2718,8 @@ public class JDTTreeBuilder extends ASTVisitor {
 					}
 					va.setParent(fa);
 					//set source position of va;
-					CompilationUnit cu = factory.CompilationUnit().create(
-							new String(context.compilationunitdeclaration.getFileName()));
 					int sourceEnd = (int)(positions[i]);
-					va.setPosition(factory.Core()
-							.createSourcePosition(
-									cu,
-									sourceStart,
-									sourceEnd,
-									context.compilationunitdeclaration.compilationResult.lineSeparatorPositions));
+					va.setPosition(context.createSourcePosition(sourceStart, sourceEnd));
 					va = fa;
 					i++;
 				}
@@ -2544,7 +2809,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 		}
 		CtLiteral<CtTypeReference<?>> l = factory.Core().createLiteral();
 		CtTypeReference<?> withoutSuper = references
-				.getTypeReference(qualifiedSuperReference.qualification.resolvedType);
+				.getUnsharedTypeReference(qualifiedSuperReference.qualification.resolvedType);
 		withoutSuper.setSuperReference(true);
 		l.setValue(withoutSuper);
 		context.enter(l, qualifiedSuperReference);
@@ -2827,11 +3092,21 @@ public class JDTTreeBuilder extends ASTVisitor {
 									.readableName()));
 			pack.setDocComment(this.getJavaDoc(typeDeclaration.javadoc, scope.referenceContext));
 
-			context.compilationunitdeclaration = scope.referenceContext;
+			context.setCompilationUnitDeclaration(scope.referenceContext);
 			context.enter(pack, typeDeclaration);
 
 			return true;
 		} else {
+			matchStub = false;
+			if (buildFilter instanceof QualifiedNameFilter) {
+				// the type is built once, either as a stub or fully
+				shallow = !((QualifiedNameFilter) buildFilter).matches(new String(
+						typeDeclaration.binding.readableName()));
+			} else {
+				matchStub = buildFilter != null
+						&& typeDeclaration != matchedTypeDeclaration;
+				shallow = matchStub;
+			}
 			CtType<?> type = createType(typeDeclaration);
 
 			type.setDocComment(getJavaDoc(typeDeclaration.javadoc,
@@ -2848,7 +3123,7 @@ public class JDTTreeBuilder extends ASTVisitor {
 						CtPackage.TOP_LEVEL_PACKAGE_NAME);
 			}
 			context.enter(pack, typeDeclaration);
-			context.compilationunitdeclaration = scope.referenceContext;
+			context.setCompilationUnitDeclaration(scope.referenceContext);
 			context.enter(type, typeDeclaration);
 
 			// AST bug HACK
@@ -25,6 +25,18 @@ class TreeBuilderCompiler extends
 
 	public CompilationUnitDeclaration[] buildUnits(
 			CompilationUnit[] sourceUnits) {
+		return buildUnits(sourceUnits, null);
+	}
+
+	/**
+	 * Resolves and analyses the given source units. If a tree builder is
+	 * given, the Spoon model of each unit is built as soon as the unit is
+	 * resolved, and the JDT unit is then cleaned up and released, so that the
+	 * JDT ASTs do not all stay in memory together with the Spoon model. In
+	 * that case, the returned array is empty.
+	 */
+	public CompilationUnitDeclaration[] buildUnits(
+			CompilationUnit[] sourceUnits, JDTTreeBuilder builder) {
 
 		// //////////////////////////////////////////////////////////////////////////
 		// This code is largely inspired from JDT's
@@ -58,8 +70,18 @@ class TreeBuilderCompiler extends
 
 			unit.ignoreFurtherInvestigation = false;
 			requestor.acceptResult(unit.compilationResult);
+
+			if (builder != null) {
+				unit.traverse(builder, unit.scope);
+				unit.cleanUp();
+				// release the reference to the processed unit declaration
+				this.unitsToProcess[i] = null;
+			}
 		}
 
+		if (builder != null) {
+			return new CompilationUnitDeclaration[0];
+		}
 		return this.unitsToProcess;
 	}
 }
\ No newline at end of file
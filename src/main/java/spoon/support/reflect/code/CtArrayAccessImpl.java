@@ -32,6 +32,7 @@ public class CtArrayAccessImpl<T, V extends CtExpression<?>> extends
 	}
 
 	public void setIndexExpression(CtExpression<Integer> expression) {
+		childrenChanged();
 		this.expression = expression;
 	}
 
@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtAssignment;
@@ -27,6 +26,7 @@ import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtAssignmentImpl<T, A extends T> extends CtStatementImpl implements
 		CtAssignment<T, A> {
@@ -69,26 +69,31 @@ public class CtAssignmentImpl<T, A extends T> extends CtStatementImpl implements
 	}
 
 	public void setAssigned(CtExpression<T> assigned) {
+		childrenChanged();
 		this.assigned = assigned;
 	}
 
 	public void setAssignment(CtExpression<A> assignment) {
+		childrenChanged();
 		this.assignment = assignment;
 		this.assignment.setParent(this);
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
 	}
 
 	public void setTypeCasts(List<CtTypeReference<?>> casts) {
-		this.typeCasts = casts;
+		childrenChanged();
+		this.typeCasts = ChildList.adopt(this, casts);
 	}
 
 	@Override
 	public void addTypeCast(CtTypeReference<?> type) {
+		childrenChanged();
 		if (typeCasts == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
-			typeCasts = new ArrayList<CtTypeReference<?>>();
+			typeCasts = new ChildList<CtTypeReference<?>>(this);
 		}
 		typeCasts.add(type);
 	}
@@ -39,11 +39,13 @@ public class CtBinaryOperatorImpl<T> extends CtExpressionImpl<T> implements
 	}
 
 	public void setLeftHandOperand(CtExpression<?> expression) {
+		childrenChanged();
 		leftHandOperand = expression;
 
 	}
 
 	public void setRightHandOperand(CtExpression<?> expression) {
+		childrenChanged();
 		rightHandOperand = expression;
 	}
 
@@ -51,6 +53,7 @@ public class CtBinaryOperatorImpl<T> extends CtExpressionImpl<T> implements
 
 	public void setKind(BinaryOperatorKind kind) {
 		this.kind = kind;
+		valueChanged();
 	}
 
 	public BinaryOperatorKind getKind() {
@@ -33,6 +33,7 @@ import spoon.reflect.visitor.CtVisitor;
 import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.Query;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 	private static final long serialVersionUID = 1L;
@@ -45,7 +46,7 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 
 	public List<CtStatement> getStatements() {
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		return this.statements;
 	}
@@ -66,6 +67,7 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 	}
 
 	public void insertBegin(CtStatementList statements) {
+		childrenChanged();
 		if (getParentNoExceptions() != null
 				&& getParentNoExceptions() instanceof CtConstructor
 				&& getStatements().size() > 0) {
@@ -78,12 +80,13 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 			}
 		}
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.addAll(0, statements.getStatements());
 	}
 
 	public void insertBegin(CtStatement statement) {
+		childrenChanged();
 		if (getParentNoExceptions() != null
 				&& getParentNoExceptions() instanceof CtConstructor
 				&& getStatements().size() > 0) {
@@ -96,19 +99,21 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 			}
 		}
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.add(0, statement);
 	}
 
 	public void insertEnd(CtStatement statement) {
+		childrenChanged();
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		addStatement(statement);
 	}
 
 	public void insertEnd(CtStatementList statements) {
+		childrenChanged();
 		for (CtStatement s : statements.getStatements()) {
 			insertEnd(s);
 		}
@@ -143,7 +148,8 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 	}
 
 	public void setStatements(List<CtStatement> statements) {
-		this.statements = statements;
+		childrenChanged();
+		this.statements = ChildList.adopt(this, statements);
 	}
 
 	public R S() {
@@ -160,16 +166,18 @@ public class CtBlockImpl<R> extends CtStatementImpl implements CtBlock<R> {
 
 	@Override
 	public void addStatement(CtStatement statement) {
+		childrenChanged();
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.add(statement);
 	}
 
 	@Override
 	public void removeStatement(CtStatement statement) {
+		childrenChanged();
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.remove(statement);
 	}
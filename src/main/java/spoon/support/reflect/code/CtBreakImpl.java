@@ -35,6 +35,7 @@ public class CtBreakImpl extends CtStatementImpl implements CtBreak {
 
 	public void setTargetLabel(String targetLabel) {
 		this.targetLabel = targetLabel;
+		valueChanged();
 	}
 
 }
@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -26,6 +25,7 @@ import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtCaseImpl<E> extends CtStatementImpl implements CtCase<E> {
 	private static final long serialVersionUID = 1L;
@@ -47,23 +47,27 @@ public class CtCaseImpl<E> extends CtStatementImpl implements CtCase<E> {
 	}
 
 	public void setCaseExpression(CtExpression<E> caseExpression) {
+		childrenChanged();
 		this.caseExpression = caseExpression;
 	}
 
 	public void setStatements(List<CtStatement> statements) {
-		this.statements = statements;
+		childrenChanged();
+		this.statements = ChildList.adopt(this, statements);
 	}
 
 	@Override
 	public void addStatement(CtStatement statement) {
+		childrenChanged();
 		if (statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			statements = new ArrayList<CtStatement>();
+			statements = new ChildList<CtStatement>(this);
 		}
 		statements.add(statement);
 	}
 
 	@Override
 	public void removeStatement(CtStatement statement) {
+		childrenChanged();
 		if (statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
 			return;
 		}
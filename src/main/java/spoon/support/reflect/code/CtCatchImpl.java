@@ -42,10 +42,12 @@ public class CtCatchImpl extends CtCodeElementImpl implements CtCatch {
 	}
 
 	public void setBody(CtBlock<?> body) {
+		childrenChanged();
 		this.body = body;
 	}
 
 	public void setParameter(CtCatchVariable<? extends Throwable> parameter) {
+		childrenChanged();
 		this.parameter = parameter;
 	}
 
@@ -7,8 +7,8 @@ import spoon.reflect.reference.CtCatchVariableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -47,28 +47,33 @@ public class CtCatchVariableImpl<T> extends CtCodeElementImpl implements CtCatch
 	}
 
 	public void setDefaultExpression(CtExpression<T> defaultExpression) {
+		childrenChanged();
 		this.defaultExpression = defaultExpression;
 		this.defaultExpression.setParent(this);
 	}
 
 	public void setSimpleName(String simpleName) {
 		this.name = simpleName;
+		valueChanged();
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
 	}
 
 	@Override
 	public boolean addMultiType(CtTypeReference<?> ref) {
+		childrenChanged();
 		if (types == CtElementImpl.<CtTypeReference<?>>EMPTY_LIST()) {
-			types = new ArrayList<CtTypeReference<?>>();
+			types = new ChildList<CtTypeReference<?>>(this);
 		}
 		return types.add(ref);
 	}
 
 	@Override
 	public boolean removeMultiType(CtTypeReference<?> ref) {
+		childrenChanged();
 		return types.remove(ref);
 	}
 
@@ -90,6 +95,7 @@ public class CtCatchVariableImpl<T> extends CtCodeElementImpl implements CtCatch
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -97,12 +103,16 @@ public class CtCatchVariableImpl<T> extends CtCodeElementImpl implements CtCatch
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -114,6 +124,7 @@ public class CtCatchVariableImpl<T> extends CtCodeElementImpl implements CtCatch
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
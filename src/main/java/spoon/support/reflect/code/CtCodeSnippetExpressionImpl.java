@@ -23,6 +23,7 @@ public class CtCodeSnippetExpressionImpl<T> extends CtExpressionImpl<T> implemen
 
 	public void setValue(String value) {
 		this.value = value;
+		valueChanged();
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -23,6 +23,7 @@ public class CtCodeSnippetStatementImpl extends CtStatementImpl implements
 
 	public void setValue(String value) {
 		this.value = value;
+		valueChanged();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -49,14 +49,17 @@ public class CtConditionalImpl<T> extends CtExpressionImpl<T> implements
 	}
 
 	public void setElseExpression(CtExpression<T> elseExpression) {
+		childrenChanged();
 		this.elseExpression = elseExpression;
 	}
 
 	public void setCondition(CtExpression<Boolean> condition) {
+		childrenChanged();
 		this.condition = condition;
 	}
 
 	public void setThenExpression(CtExpression<T> thenExpression) {
+		childrenChanged();
 		this.thenExpression = thenExpression;
 	}
 
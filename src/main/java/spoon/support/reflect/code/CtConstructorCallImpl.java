@@ -9,8 +9,8 @@ import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
 
-import java.util.ArrayList;
 import java.util.List;
+import spoon.support.util.ChildList;
 
 public class CtConstructorCallImpl<T> extends CtTargetedExpressionImpl<T, CtExpression<?>> implements CtConstructorCall<T> {
 	private static final long serialVersionUID = 1L;
@@ -40,21 +40,25 @@ public class CtConstructorCallImpl<T> extends CtTargetedExpressionImpl<T, CtExpr
 
 	@Override
 	public void insertAfter(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statement);
 	}
 
 	@Override
 	public void insertBefore(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statement);
 	}
 
 	@Override
 	public void insertAfter(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statements);
 	}
 
 	@Override
 	public void insertBefore(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statements);
 	}
 
@@ -69,32 +73,37 @@ public class CtConstructorCallImpl<T> extends CtTargetedExpressionImpl<T, CtExpr
 
 	@Override
 	public void setArguments(List<CtExpression<?>> arguments) {
-		this.arguments = arguments;
+		childrenChanged();
+		this.arguments = ChildList.adopt(this, arguments);
 	}
 
 	@Override
 	public void addArgument(CtExpression<?> argument) {
+		childrenChanged();
 		if (arguments == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
-			arguments = new ArrayList<CtExpression<?>>();
+			arguments = new ChildList<CtExpression<?>>(this);
 		}
 		arguments.add(argument);
 	}
 
 	@Override
 	public void removeArgument(CtExpression<?> argument) {
+		childrenChanged();
 		if (arguments == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
-			arguments = new ArrayList<CtExpression<?>>();
+			arguments = new ChildList<CtExpression<?>>(this);
 		}
 		arguments.remove(argument);
 	}
 
 	@Override
 	public void setExecutable(CtExecutableReference<T> executable) {
+		childrenChanged();
 		this.executable = executable;
 	}
 
 	@Override
 	public void setLabel(String label) {
 		this.label = label;
+		valueChanged();
 	}
 }
@@ -37,6 +37,7 @@ public class CtContinueImpl extends CtStatementImpl implements CtContinue {
 	}
 
 	public void setLabelledStatement(CtStatement labelledStatement) {
+		childrenChanged();
 		this.labelledStatement = labelledStatement;
 	}
 	
@@ -46,6 +47,7 @@ public class CtContinueImpl extends CtStatementImpl implements CtContinue {
 
 	public void setTargetLabel(String targetLabel) {
 		this.targetLabel = targetLabel;
+		valueChanged();
 	}
 
 }
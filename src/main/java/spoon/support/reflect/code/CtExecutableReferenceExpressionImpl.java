@@ -21,6 +21,7 @@ public class CtExecutableReferenceExpressionImpl<T, E extends CtExpression<?>>
 
 	@Override
 	public void setExecutable(CtExecutableReference<T> executable) {
+		childrenChanged();
 		this.executable = executable;
 	}
 }
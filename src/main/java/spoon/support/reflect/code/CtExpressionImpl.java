@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtCodeElement;
@@ -25,6 +24,7 @@ import spoon.reflect.code.CtExpression;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public abstract class CtExpressionImpl<T> extends CtCodeElementImpl implements
 		CtExpression<T> {
@@ -50,17 +50,20 @@ public abstract class CtExpressionImpl<T> extends CtCodeElementImpl implements
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
 	}
 
 	public void setTypeCasts(List<CtTypeReference<?>> casts) {
-		this.typeCasts = casts;
+		childrenChanged();
+		this.typeCasts = ChildList.adopt(this, casts);
 	}
 
 	@Override
 	public void addTypeCast(CtTypeReference<?> type) {
+		childrenChanged();
 		if (typeCasts == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
-			typeCasts = new ArrayList<CtTypeReference<?>>();
+			typeCasts = new ChildList<CtTypeReference<?>>(this);
 		}
 		typeCasts.add(type);
 	}
@@ -42,10 +42,12 @@ public class CtForEachImpl extends CtLoopImpl implements CtForEach {
 	}
 
 	public void setExpression(CtExpression<?> expression) {
+		childrenChanged();
 		this.expression = expression;
 	}
 
 	public void setVariable(CtLocalVariable<?> variable) {
+		childrenChanged();
 		this.variable = variable;
 	}
 
@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtExpression;
@@ -25,6 +24,7 @@ import spoon.reflect.code.CtFor;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtForImpl extends CtLoopImpl implements CtFor {
 	private static final long serialVersionUID = 1L;
@@ -52,45 +52,52 @@ public class CtForImpl extends CtLoopImpl implements CtFor {
 	}
 
 	public void setExpression(CtExpression<Boolean> expression) {
+		childrenChanged();
 		this.expression = expression;
 	}
 
 	public void setForInit(List<CtStatement> forInit) {
-		this.forInit = forInit;
+		childrenChanged();
+		this.forInit = ChildList.adopt(this, forInit);
 	}
 
 	public void setForUpdate(List<CtStatement> forUpdate) {
-		this.forUpdate = forUpdate;
+		childrenChanged();
+		this.forUpdate = ChildList.adopt(this, forUpdate);
 	}
 
 	@Override
 	public boolean addForInit(CtStatement statement) {
+		childrenChanged();
 		if (forInit == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			forInit = new ArrayList<CtStatement>();
+			forInit = new ChildList<CtStatement>(this);
 		}
 		return forInit.add(statement);
 	}
 
 	@Override
 	public boolean removeForInit(CtStatement statement) {
+		childrenChanged();
 		if (forInit == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			forInit = new ArrayList<CtStatement>();
+			forInit = new ChildList<CtStatement>(this);
 		}
 		return forInit.remove(statement);
 	}
 
 	@Override
 	public boolean addForUpdate(CtStatement statement) {
+		childrenChanged();
 		if (forUpdate == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			forUpdate = new ArrayList<CtStatement>();
+			forUpdate = new ChildList<CtStatement>(this);
 		}
 		return forUpdate.add(statement);
 	}
 
 	@Override
 	public boolean removeForUpdate(CtStatement statement) {
+		childrenChanged();
 		if (forUpdate == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			forUpdate = new ArrayList<CtStatement>();
+			forUpdate = new ChildList<CtStatement>(this);
 		}
 		return forUpdate.remove(statement);
 	}
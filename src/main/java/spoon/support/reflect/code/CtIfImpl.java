@@ -60,14 +60,17 @@ public class CtIfImpl extends CtStatementImpl implements CtIf {
 	}
 
 	public void setCondition(CtExpression<Boolean> condition) {
+		childrenChanged();
 		this.condition = condition;
 	}
 
 	public void setElseStatement(CtStatement elseStatement) {
+		childrenChanged();
 		this.elseStatement = elseStatement;
 	}
 
 	public void setThenStatement(CtStatement thenStatement) {
+		childrenChanged();
 		this.thenStatement = thenStatement;
 	}
 
@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtBlock;
@@ -30,6 +29,7 @@ import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtInvocationImpl<T> extends
 		CtTargetedExpressionImpl<T, CtExpression<?>> implements CtInvocation<T> {
@@ -50,7 +50,8 @@ public class CtInvocationImpl<T> extends
 	}
 
 	public void setGenericTypes(List<CtTypeReference<?>> genericTypes) {
-		this.genericTypes = genericTypes;
+		childrenChanged();
+		this.genericTypes = ChildList.adopt(this, genericTypes);
 	}
 
 	public List<CtTypeReference<?>> getGenericTypes() {
@@ -59,6 +60,7 @@ public class CtInvocationImpl<T> extends
 
 	@Override
 	public void setTarget(CtExpression<?> target) {
+		childrenChanged();
 		super.setTarget(target);
 	}
 
@@ -68,16 +70,18 @@ public class CtInvocationImpl<T> extends
 
 	@Override
 	public void addArgument(CtExpression<?> argument) {
+		childrenChanged();
 		if (arguments == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
-			arguments = new ArrayList<CtExpression<?>>();
+			arguments = new ChildList<CtExpression<?>>(this);
 		}
 		arguments.add(argument);
 	}
 
 	@Override
 	public void removeArgument(CtExpression<?> argument) {
+		childrenChanged();
 		if (arguments == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
-			arguments = new ArrayList<CtExpression<?>>();
+			arguments = new ChildList<CtExpression<?>>(this);
 		}
 		arguments.remove(argument);
 	}
@@ -91,18 +95,22 @@ public class CtInvocationImpl<T> extends
 	}
 
 	public void insertAfter(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statement);
 	}
 
 	public void insertBefore(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statement);
 	}
 
 	public void insertAfter(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statements);
 	}
 
 	public void insertBefore(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statements);
 	}
 
@@ -120,15 +128,18 @@ public class CtInvocationImpl<T> extends
 	};
 
 	public void setArguments(List<CtExpression<?>> arguments) {
-		this.arguments = arguments;
+		childrenChanged();
+		this.arguments = ChildList.adopt(this, arguments);
 	}
 
 	public void setExecutable(CtExecutableReference<T> executable) {
+		childrenChanged();
 		this.executable = executable;
 	}
 
 	public void setIndexExpressions(List<CtExpression<Integer>> indexExpressions) {
-		this.indexExpressions = indexExpressions;
+		childrenChanged();
+		this.indexExpressions = ChildList.adopt(this, indexExpressions);
 	}
 
 	String label;
@@ -139,6 +150,7 @@ public class CtInvocationImpl<T> extends
 
 	public void setLabel(String label) {
 		this.label = label;
+		valueChanged();
 	}
 
 }
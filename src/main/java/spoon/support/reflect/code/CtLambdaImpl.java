@@ -10,10 +10,10 @@ import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import spoon.support.util.ChildList;
+import spoon.support.util.ChildSet;
 
 public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T> {
 	String simpleName;
@@ -35,6 +35,7 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 	@Override
 	public void setSimpleName(String simpleName) {
 		this.simpleName = simpleName;
+		valueChanged();
 	}
 
 	@Override
@@ -45,6 +46,7 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 
 	@Override
 	public <B extends T> void setBody(CtBlock<B> body) {
+		childrenChanged();
 		if (expression != null) {
 			throw new SpoonException("A lambda can't have two bodys.");
 		}
@@ -58,19 +60,22 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 
 	@Override
 	public void setParameters(List<CtParameter<?>> parameters) {
-		this.parameters = parameters;
+		childrenChanged();
+		this.parameters = ChildList.adopt(this, parameters);
 	}
 
 	@Override
 	public boolean addParameter(CtParameter<?> parameter) {
+		childrenChanged();
 		if (parameters == CtElementImpl.<CtParameter<?>>EMPTY_LIST()) {
-			parameters = new ArrayList<CtParameter<?>>();
+			parameters = new ChildList<CtParameter<?>>(this);
 		}
 		return parameters.add(parameter);
 	}
 
 	@Override
 	public boolean removeParameter(CtParameter<?> parameter) {
+		childrenChanged();
 		return parameters.remove(parameter);
 	}
 
@@ -81,19 +86,22 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 
 	@Override
 	public void setThrownTypes(Set<CtTypeReference<? extends Throwable>> thrownTypes) {
-		this.thrownTypes = thrownTypes;
+		childrenChanged();
+		this.thrownTypes = ChildSet.adopt(this, thrownTypes);
 	}
 
 	@Override
 	public boolean addThrownType(CtTypeReference<? extends Throwable> throwType) {
+		childrenChanged();
 		if (thrownTypes == CtElementImpl.<CtTypeReference<? extends Throwable>>EMPTY_SET()) {
-			thrownTypes = new TreeSet<CtTypeReference<? extends Throwable>>();
+			thrownTypes = new ChildSet<CtTypeReference<? extends Throwable>>(this);
 		}
 		return thrownTypes.add(throwType);
 	}
 
 	@Override
 	public boolean removeThrownType(CtTypeReference<? extends Throwable> throwType) {
+		childrenChanged();
 		return thrownTypes.remove(throwType);
 	}
 
@@ -109,6 +117,7 @@ public class CtLambdaImpl<T> extends CtExpressionImpl<T> implements CtLambda<T>
 
 	@Override
 	public void setExpression(CtExpression<T> expression) {
+		childrenChanged();
 		if (body != null) {
 			throw new SpoonException("A lambda can't have two bodys.");
 		}
@@ -36,6 +36,7 @@ public class CtLiteralImpl<T extends Object> extends CtExpressionImpl<T>
 
 	public void setValue(T value) {
 		this.value = value;
+		valueChanged();
 	}
 
 }
@@ -60,15 +60,18 @@ public class CtLocalVariableImpl<T> extends CtStatementImpl implements CtLocalVa
 	}
 
 	public void setDefaultExpression(CtExpression<T> defaultExpression) {
+		childrenChanged();
 		this.defaultExpression = defaultExpression;
 		this.defaultExpression.setParent(this);
 	}
 
 	public void setSimpleName(String simpleName) {
 		this.name = simpleName;
+		valueChanged();
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
 	}
 
@@ -85,6 +88,7 @@ public class CtLocalVariableImpl<T> extends CtStatementImpl implements CtLocalVa
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -92,12 +96,16 @@ public class CtLocalVariableImpl<T> extends CtStatementImpl implements CtLocalVa
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -109,6 +117,7 @@ public class CtLocalVariableImpl<T> extends CtStatementImpl implements CtLocalVa
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
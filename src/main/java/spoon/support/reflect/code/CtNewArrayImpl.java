@@ -17,13 +17,13 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtNewArray;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtNewArrayImpl<T> extends CtExpressionImpl<T> implements
 		CtNewArray<T> {
@@ -47,41 +47,47 @@ public class CtNewArrayImpl<T> extends CtExpressionImpl<T> implements
 
 	public void setDimensionExpressions(
 			List<CtExpression<Integer>> dimensionExpressions) {
-		this.dimensionExpressions = dimensionExpressions;
+		childrenChanged();
+		this.dimensionExpressions = ChildList.adopt(this, dimensionExpressions);
 	}
 
 	@Override
 	public boolean addDimensionExpression(CtExpression<Integer> dimension) {
+		childrenChanged();
 		if (dimensionExpressions == CtElementImpl
 				.<CtExpression<Integer>> EMPTY_LIST()) {
-			dimensionExpressions = new ArrayList<CtExpression<Integer>>();
+			dimensionExpressions = new ChildList<CtExpression<Integer>>(this);
 		}
 		return dimensionExpressions.add(dimension);
 	}
 
 	@Override
 	public boolean removeDimensionExpression(CtExpression<Integer> dimension) {
+		childrenChanged();
 		if (dimensionExpressions == CtElementImpl
 				.<CtExpression<Integer>> EMPTY_LIST()) {
-			dimensionExpressions = new ArrayList<CtExpression<Integer>>();
+			dimensionExpressions = new ChildList<CtExpression<Integer>>(this);
 		}
 		return dimensionExpressions.remove(dimension);
 	}
 
 	public void setElements(List<CtExpression<?>> expression) {
-		this.expressions = expression;
+		childrenChanged();
+		this.expressions = ChildList.adopt(this, expression);
 	}
 
 	@Override
 	public boolean addElement(CtExpression<?> expression) {
+		childrenChanged();
 		if (expressions == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
-			this.expressions = new ArrayList<CtExpression<?>>();
+			this.expressions = new ChildList<CtExpression<?>>(this);
 		}
 		return expressions.add(expression);
 	}
 
 	@Override
 	public boolean removeElement(CtExpression<?> expression) {
+		childrenChanged();
 		if (expressions == CtElementImpl.<CtExpression<?>> EMPTY_LIST()) {
 			return false;
 		}
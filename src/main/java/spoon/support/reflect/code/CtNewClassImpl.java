@@ -38,6 +38,7 @@ public class CtNewClassImpl<T> extends CtConstructorCallImpl<T> implements CtNew
 
 	@Override
 	public void setAnonymousClass(CtClass<?> anonymousClass) {
+		childrenChanged();
 		this.anonymousClass = anonymousClass;
 	}
 }
@@ -38,6 +38,7 @@ public class CtOperatorAssignmentImpl<T, A extends T> extends
 
 	public void setKind(BinaryOperatorKind kind) {
 		this.kind = kind;
+		valueChanged();
 	}
 
 }
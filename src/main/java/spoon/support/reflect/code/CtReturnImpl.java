@@ -33,6 +33,7 @@ public class CtReturnImpl<R> extends CtStatementImpl implements CtReturn<R> {
 	}
 
 	public void setReturnedExpression(CtExpression<R> expression) {
+		childrenChanged();
 		this.returnedExpression = expression;
 	}
 
@@ -27,6 +27,7 @@ import spoon.reflect.code.CtSwitch;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtExecutable;
 import spoon.reflect.declaration.ParentNotInitializedException;
+import spoon.support.util.ModelChanges;
 
 public abstract class CtStatementImpl extends CtCodeElementImpl implements
 		CtStatement {
@@ -51,6 +52,7 @@ public abstract class CtStatementImpl extends CtCodeElementImpl implements
 	public static void insertAfter(CtStatement target,
 			CtStatementList statements) throws ParentNotInitializedException {
 		CtElement e = target.getParent();
+		ModelChanges.of(target.getFactory()).childrenChanged(e);
 		if (e instanceof CtExecutable) {
 			throw new RuntimeException(
 					"cannot insert in this context (use insertEnd?)");
@@ -80,6 +82,7 @@ public abstract class CtStatementImpl extends CtCodeElementImpl implements
 	public static void insertBefore(CtStatement target,
 			CtStatementList statementsToBeInserted) throws ParentNotInitializedException {
 		CtElement targetParent = target.getParent();
+		ModelChanges.of(target.getFactory()).childrenChanged(targetParent);
 		if (targetParent instanceof CtExecutable) {
 			throw new RuntimeException(
 					"cannot insert in this context (use insertEnd?)");
@@ -209,6 +212,7 @@ public abstract class CtStatementImpl extends CtCodeElementImpl implements
 
 	public void setLabel(String label) {
 		this.label = label;
+		valueChanged();
 	}
 
 }
@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -27,6 +26,7 @@ import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtStatementListImpl<R> extends CtCodeElementImpl implements
 		CtStatementList {
@@ -43,7 +43,8 @@ public class CtStatementListImpl<R> extends CtCodeElementImpl implements
 	}
 
 	public void setStatements(List<CtStatement> statements) {
-		this.statements = statements;
+		childrenChanged();
+		this.statements = ChildList.adopt(this, statements);
 	}
 
 	public R S() {
@@ -63,16 +64,18 @@ public class CtStatementListImpl<R> extends CtCodeElementImpl implements
 
 	@Override
 	public void addStatement(CtStatement statement) {
+		childrenChanged();
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.add(statement);
 	}
 
 	@Override
 	public void removeStatement(CtStatement statement) {
+		childrenChanged();
 		if (this.statements == CtElementImpl.<CtStatement> EMPTY_LIST()) {
-			this.statements = new ArrayList<CtStatement>();
+			this.statements = new ChildList<CtStatement>(this);
 		}
 		this.statements.remove(statement);
 	}
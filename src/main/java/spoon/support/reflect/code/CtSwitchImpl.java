@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtCase;
@@ -25,6 +24,7 @@ import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtSwitch;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtSwitchImpl<S> extends CtStatementImpl implements CtSwitch<S> {
 	private static final long serialVersionUID = 1L;
@@ -46,23 +46,27 @@ public class CtSwitchImpl<S> extends CtStatementImpl implements CtSwitch<S> {
 	}
 
 	public void setCases(List<CtCase<? super S>> cases) {
-		this.cases = cases;
+		childrenChanged();
+		this.cases = ChildList.adopt(this, cases);
 	}
 
 	public void setSelector(CtExpression<S> selector) {
+		childrenChanged();
 		this.expression = selector;
 	}
 
 	@Override
 	public boolean addCase(CtCase<? super S> c) {
+		childrenChanged();
 		if (cases == CtElementImpl.<CtCase<? super S>> EMPTY_LIST()) {
-			cases = new ArrayList<CtCase<? super S>>();
+			cases = new ChildList<CtCase<? super S>>(this);
 		}
 		return cases.add(c);
 	}
 
 	@Override
 	public boolean removeCase(CtCase<? super S> c) {
+		childrenChanged();
 		if (cases == CtElementImpl.<CtCase<? super S>> EMPTY_LIST()) {
 			return false;
 		}
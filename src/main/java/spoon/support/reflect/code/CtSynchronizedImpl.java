@@ -43,10 +43,12 @@ public class CtSynchronizedImpl extends CtStatementImpl implements
 	}
 
 	public void setBlock(CtBlock<?> block) {
+		childrenChanged();
 		this.block = block;
 	}
 
 	public void setExpression(CtExpression<?> expression) {
+		childrenChanged();
 		this.expression = expression;
 	}
 
@@ -39,10 +39,12 @@ public abstract class CtTargetedAccessImpl<T> extends CtVariableAccessImpl<T> im
 
 	@Override
 	public void setVariable(CtVariableReference<T> variable) {
+		childrenChanged();
 		super.setVariable(variable);
 	}
 
 	public void setTarget(CtExpression<?> target) {
+		childrenChanged();
 		this.target = target;
 	}
 
@@ -31,6 +31,7 @@ public abstract class CtTargetedExpressionImpl<E, T extends CtExpression<?>>
 	}
 
 	public void setTarget(T target) {
+		childrenChanged();
 		this.target = target;
 	}
 
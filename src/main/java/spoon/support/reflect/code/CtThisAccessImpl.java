@@ -35,6 +35,7 @@ public class CtThisAccessImpl<T> extends CtExpressionImpl<T> implements
 	@Override
 	public void setQualified(boolean qualified) {
 		this.qualified = qualified;
+		valueChanged();
 	}
 
 	public void accept(CtVisitor visitor) {
@@ -33,6 +33,7 @@ public class CtThrowImpl extends CtStatementImpl implements CtThrow {
 	}
 
 	public void setThrownExpression(CtExpression<? extends Throwable> expression) {
+		childrenChanged();
 		this.throwExpression = expression;
 		throwExpression.setParent(this);
 	}
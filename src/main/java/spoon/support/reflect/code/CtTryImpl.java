@@ -17,7 +17,6 @@
 
 package spoon.support.reflect.code;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.code.CtBlock;
@@ -27,6 +26,7 @@ import spoon.reflect.code.CtTry;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtTryImpl extends CtStatementImpl implements CtTry {
 	private static final long serialVersionUID = 1L;
@@ -38,21 +38,24 @@ public class CtTryImpl extends CtStatementImpl implements CtTry {
 	}
 
 	public void setCatchers(List<CtCatch> catchers) {
-		this.catchers = catchers;
+		childrenChanged();
+		this.catchers = ChildList.adopt(this, catchers);
 	}
 
 	@Override
 	public boolean addCatcher(CtCatch catcher) {
+		childrenChanged();
 		if (catchers == CtElementImpl.<CtCatch> EMPTY_LIST()) {
-			catchers = new ArrayList<CtCatch>();
+			catchers = new ChildList<CtCatch>(this);
 		}
 		return catchers.add(catcher);
 	}
 
 	@Override
 	public boolean removeCatcher(CtCatch catcher) {
+		childrenChanged();
 		if (catchers == CtElementImpl.<CtCatch> EMPTY_LIST()) {
-			catchers = new ArrayList<CtCatch>();
+			catchers = new ChildList<CtCatch>(this);
 		}
 		return catchers.remove(catcher);
 	}
@@ -68,6 +71,7 @@ public class CtTryImpl extends CtStatementImpl implements CtTry {
 	}
 
 	public void setFinalizer(CtBlock<?> finalizer) {
+		childrenChanged();
 		this.finalizer = finalizer;
 	}
 
@@ -78,6 +82,7 @@ public class CtTryImpl extends CtStatementImpl implements CtTry {
 	}
 
 	public void setBody(CtBlock<?> body) {
+		childrenChanged();
 		this.body = body;
 	}
 
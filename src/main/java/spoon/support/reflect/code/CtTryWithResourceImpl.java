@@ -5,8 +5,8 @@ import spoon.reflect.code.CtTryWithResource;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
 
-import java.util.ArrayList;
 import java.util.List;
+import spoon.support.util.ChildList;
 
 public class CtTryWithResourceImpl extends CtTryImpl
 		implements CtTryWithResource {
@@ -26,21 +26,24 @@ public class CtTryWithResourceImpl extends CtTryImpl
 
 	@Override
 	public void setResources(List<CtLocalVariable<?>> resources) {
-		this.resources = resources;
+		childrenChanged();
+		this.resources = ChildList.adopt(this, resources);
 	}
 
 	@Override
 	public boolean addResource(CtLocalVariable<?> resource) {
+		childrenChanged();
 		if (resources == CtElementImpl.<CtLocalVariable<?>>EMPTY_LIST()) {
-			resources = new ArrayList<CtLocalVariable<?>>();
+			resources = new ChildList<CtLocalVariable<?>>(this);
 		}
 		return resources.add(resource);
 	}
 
 	@Override
 	public boolean removeResource(CtLocalVariable<?> resource) {
+		childrenChanged();
 		if (resources == CtElementImpl.<CtLocalVariable<?>>EMPTY_LIST()) {
-			resources = new ArrayList<CtLocalVariable<?>>();
+			resources = new ChildList<CtLocalVariable<?>>(this);
 		}
 		return resources.remove(resource);
 	}
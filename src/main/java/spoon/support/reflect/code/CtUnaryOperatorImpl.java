@@ -52,18 +52,22 @@ public class CtUnaryOperatorImpl<T> extends CtExpressionImpl<T> implements
 	}
 
 	public void insertAfter(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statement);
 	}
 
 	public void insertBefore(CtStatement statement) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statement);
 	}
 
 	public void insertAfter(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertAfter(this, statements);
 	}
 
 	public void insertBefore(CtStatementList statements) {
+		childrenChanged();
 		CtStatementImpl.insertBefore(this, statements);
 	}
 
@@ -76,15 +80,18 @@ public class CtUnaryOperatorImpl<T> extends CtExpressionImpl<T> implements
 	}
 
 	public void setOperand(CtExpression<T> expression) {
+		childrenChanged();
 		this.operand = expression;
 	}
 
 	public void setKind(UnaryOperatorKind kind) {
 		this.kind = kind;
+		valueChanged();
 	}
 
 	public void setLabel(String label) {
 		this.label = label;
+		valueChanged();
 	}
 
 }
@@ -57,10 +57,12 @@ public class CtVariableAccessImpl<T> extends CtExpressionImpl<T> implements
 
 	@Override
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
 	}
 
 	public void setVariable(CtVariableReference<T> variable) {
+		childrenChanged();
 		this.variable = variable;
 	}
 
@@ -35,6 +35,7 @@ public class CtWhileImpl extends CtLoopImpl implements CtWhile {
 	}
 
 	public void setLoopingExpression(CtExpression<Boolean> expression) {
+		childrenChanged();
 		this.expression = expression;
 	}
 
@@ -102,6 +102,16 @@ public class CompilationUnitImpl implements CompilationUnit, FactoryAccessor {
 		return tabCount;
 	}
 
+	int[] lineSeparatorPositions;
+
+	public int[] getLineSeparatorPositions() {
+		return lineSeparatorPositions;
+	}
+
+	public void setLineSeparatorPositions(int[] lineSeparatorPositions) {
+		this.lineSeparatorPositions = lineSeparatorPositions;
+	}
+
 	public Factory getFactory() {
 		return factory;
 	}
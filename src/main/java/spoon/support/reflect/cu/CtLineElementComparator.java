@@ -19,6 +19,7 @@ package spoon.support.reflect.cu;
 
 import java.util.Comparator;
 
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtElement;
 
 /**
@@ -31,16 +32,20 @@ public class CtLineElementComparator implements Comparator<CtElement> {
 	 * Compares two program elements.
 	 */
 	public int compare(CtElement o1, CtElement o2) {
-		if (o1.getPosition() == null)
+		SourcePosition p1 = o1.getPosition();
+		SourcePosition p2 = o2.getPosition();
+		if (p1 == null)
 			return 1;
-		if (o2.getPosition() == null)
+		if (p2 == null)
 			return -1;
-		if (o1.getPosition().getLine() == o2.getPosition().getLine()) {
-			return ((Integer) o1.getPosition().getColumn()).compareTo(o2
-					.getPosition().getColumn());
+		int line1 = p1.getLine();
+		int line2 = p2.getLine();
+		if (line1 == line2) {
+			int column1 = p1.getColumn();
+			int column2 = p2.getColumn();
+			return column1 < column2 ? -1 : (column1 == column2 ? 0 : 1);
 		}
-		return ((Integer) o1.getPosition().getLine()).compareTo(o2
-				.getPosition().getLine());
+		return line1 < line2 ? -1 : 1;
 	}
 
 }
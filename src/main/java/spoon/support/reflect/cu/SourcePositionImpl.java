@@ -25,17 +25,37 @@ import spoon.reflect.cu.SourcePosition;
 
 /**
  * This class represents the position of a Java program element in a source
- * file.
+ * file. The lines and columns of the start and of the end of the position are
+ * computed once, when the position is created, and are packed in a single
+ * long. The indexes in the source file are computed back from them with the
+ * line separators of the compilation unit, or with the ones given to the
+ * position if it has no compilation unit or if they differ from the ones of
+ * its compilation unit.
  */
 
 public class SourcePositionImpl implements SourcePosition, Serializable {
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * The number of bits used to store the column of a packed position.
+	 */
+	private static final int COLUMN_BITS = 12;
+
+	private static final int MAX_COLUMN = (1 << COLUMN_BITS) - 1;
+
+	private static final int MAX_LINE = (1 << (31 - COLUMN_BITS)) - 1;
+
+	/**
+	 * The smallest packed position (line 1, column 0): the smaller values are
+	 * the complement of an index that could not be packed.
+	 */
+	private static final int MIN_PACKED = 1 << COLUMN_BITS;
+
 	/**
 	 * Search the line number corresponding to a specific position
 	 */
-	private int searchLineNumber(int[] startLineIndexes, int position) {
+	static int searchLineNumber(int[] startLineIndexes, int position) {
 		if (startLineIndexes == null)
 			return 1;
 		int length = startLineIndexes.length;
@@ -60,55 +80,112 @@ public class SourcePositionImpl implements SourcePosition, Serializable {
 	}
 
 	/**
-	 * Search the column number
+	 * Gets the index that precedes the first character of the given line.
 	 */
-	private int searchColumnNumber(int[] startLineIndexes, int position) {
-		if (startLineIndexes == null)
-			return 1;
-		int length = startLineIndexes.length;
-		if (length == 0)
-			return 1;
-		int i = 0;
-		for (i = 0; i < startLineIndexes.length - 1; i++) {
-			if (startLineIndexes[i] < position
-					&& (startLineIndexes[i + 1] > position))
-				return position - startLineIndexes[i];
+	static int lineOffset(int[] startLineIndexes, int line) {
+		if (line <= 1 || startLineIndexes == null)
+			return -1;
+		return startLineIndexes[line - 2];
+	}
+
+	/**
+	 * Packs the line and column of the given index, or returns its complement
+	 * if they do not fit.
+	 */
+	private static int pack(int[] startLineIndexes, int position) {
+		int line = searchLineNumber(startLineIndexes, position);
+		int column = position - lineOffset(startLineIndexes, line);
+		if (startLineIndexes == null || position < 0 || column > MAX_COLUMN
+				|| line > MAX_LINE) {
+			// JDT does not use indexes lower than -1
+			return ~Math.max(position, -MIN_PACKED);
 		}
-		int tabCount = 0;
-		int tabSize = 0;
-		if (getCompilationUnit() != null) {
-			tabSize = getCompilationUnit().getFactory().getEnvironment()
-					.getTabulationSize();
-			String source = getCompilationUnit().getOriginalSourceCode();
-			for (int j = startLineIndexes[i]; j < position; j++) {
-				if (source.charAt(j) == '\t') {
-					tabCount++;
-				}
-			}
+		return (line << COLUMN_BITS) | column;
+	}
+
+	private static int unpack(int[] startLineIndexes, int packed) {
+		if (packed < MIN_PACKED) {
+			return ~packed;
 		}
-		return (position - startLineIndexes[i]) - tabCount
-				+ (tabCount * tabSize);
+		return lineOffset(startLineIndexes, packed >>> COLUMN_BITS)
+				+ (packed & MAX_COLUMN);
 	}
 
-	int[] lineSeparatorPositions;
+	/**
+	 * The packed start (in the high-order bits) and end (in the low-order
+	 * bits) of this position.
+	 */
+	private long packed;
 
-	private int sourceStart, sourceEnd;
+	/**
+	 * The line separators of this position, if they are not the ones of its
+	 * compilation unit (which are shared by all its positions).
+	 */
+	private int[] lineSeparatorPositions;
 
 	public SourcePositionImpl(CompilationUnit compilationUnit, int sourceStart,
 			int sourceEnd, int[] lineSeparatorPositions) {
 		super();
 		this.compilationUnit = compilationUnit;
-		this.sourceStart = sourceStart;
-		this.sourceEnd = sourceEnd;
-		this.lineSeparatorPositions = lineSeparatorPositions;
+		if (compilationUnit != null
+				&& compilationUnit.getLineSeparatorPositions() == null) {
+			compilationUnit.setLineSeparatorPositions(lineSeparatorPositions);
+		}
+		if (compilationUnit == null
+				|| compilationUnit.getLineSeparatorPositions() != lineSeparatorPositions) {
+			this.lineSeparatorPositions = lineSeparatorPositions;
+		}
+		pack(sourceStart, sourceEnd);
+	}
+
+	private void pack(int sourceStart, int sourceEnd) {
+		int[] separators = getLineSeparators();
+		packed = ((long) pack(separators, sourceStart) << 32)
+				| (pack(separators, sourceEnd) & 0xffffffffL);
+	}
+
+	private int getStart() {
+		return (int) (packed >>> 32);
+	}
+
+	private int getEnd() {
+		return (int) packed;
+	}
+
+	/**
+	 * Gets the line separators of this position, which are needed to compute
+	 * the indexes of the packed positions.
+	 */
+	private int[] getLineSeparators() {
+		if (lineSeparatorPositions != null || compilationUnit == null) {
+			return lineSeparatorPositions;
+		}
+		return compilationUnit.getLineSeparatorPositions();
+	}
+
+	private int getLine(int packed, int position) {
+		if (packed < MIN_PACKED) {
+			return searchLineNumber(getLineSeparators(), position);
+		}
+		return packed >>> COLUMN_BITS;
+	}
+
+	private int getColumn(int packed, int position) {
+		if (packed < MIN_PACKED) {
+			int[] separators = getLineSeparators();
+			return position
+					- lineOffset(separators,
+							searchLineNumber(separators, position));
+		}
+		return packed & MAX_COLUMN;
 	}
 
 	public int getColumn() {
-		return searchColumnNumber(lineSeparatorPositions, sourceStart);
+		return getColumn(getStart(), getSourceStart());
 	}
 
 	public int getEndColumn() {
-		return searchColumnNumber(lineSeparatorPositions, sourceEnd);
+		return getColumn(getEnd(), getSourceEnd());
 	}
 
 	public File getFile() {
@@ -118,19 +195,19 @@ public class SourcePositionImpl implements SourcePosition, Serializable {
 	}
 
 	public int getLine() {
-		return searchLineNumber(lineSeparatorPositions, sourceStart);
+		return getLine(getStart(), getSourceStart());
 	}
 
 	public int getEndLine() {
-		return searchLineNumber(lineSeparatorPositions, sourceEnd);
+		return getLine(getEnd(), getSourceEnd());
 	}
 
 	public int getSourceEnd() {
-		return sourceEnd;
+		return unpack(getLineSeparators(), getEnd());
 	}
 
 	public int getSourceStart() {
-		return sourceStart;
+		return unpack(getLineSeparators(), getStart());
 	}
 
 	/**
@@ -175,7 +252,10 @@ public class SourcePositionImpl implements SourcePosition, Serializable {
 	}
 
 	public void setCompilationUnit(CompilationUnit compilationUnit) {
+		int sourceStart = getSourceStart();
+		int sourceEnd = getSourceEnd();
 		this.compilationUnit = compilationUnit;
+		pack(sourceStart, sourceEnd);
 	}
 
 }
@@ -52,6 +52,7 @@ import spoon.reflect.reference.CtFieldReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.code.CtExpressionImpl;
+import spoon.support.util.ChildContainer;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtAnnotation}.
@@ -90,16 +91,33 @@ public class CtAnnotationImpl<A extends Annotation> extends CtExpressionImpl<A>
 		}
 	}
 
-	private static final long serialVersionUID = 1L;
+	/**
+	 * The values of the elements of an annotation, which are converted to
+	 * type references if they are classes. The changes of the values are
+	 * signaled to the annotation (see {@link ChildContainer}).
+	 */
+	static class ElementValues extends TreeMap<String, Object> implements
+			ChildContainer {
 
-	CtTypeReference<A> annotationType;
+		private static final long serialVersionUID = 3501647177461995350L;
 
-	Map<String, Object> elementValues = new TreeMap<String, Object>() {
+		private final CtAnnotationImpl<?> annotation;
 
-		private static final long serialVersionUID = 3501647177461995350L;
+		ElementValues(CtAnnotationImpl<?> annotation) {
+			this.annotation = annotation;
+		}
+
+		public Object getOwner() {
+			return annotation;
+		}
+
+		public ChildContainer newContainer(Object owner) {
+			return new ElementValues((CtAnnotationImpl<?>) owner);
+		}
 
 		@Override
 		public Object put(String key, Object value) {
+			annotation.childrenChanged();
 			if (value instanceof Class[]) {
 				Class<?>[] valsNew = (Class<?>[]) value;
 				ArrayList<CtTypeReference<?>> ret = new ArrayList<CtTypeReference<?>>(
@@ -107,19 +125,45 @@ public class CtAnnotationImpl<A extends Annotation> extends CtExpressionImpl<A>
 
 				for (int i = 0; i < valsNew.length; i++) {
 					Class<?> class1 = valsNew[i];
-					ret.add(i, getFactory().Type().createReference(class1));
+					ret.add(i, annotation.getFactory().Type()
+							.createReference(class1));
 				}
 				return super.put(key, ret);
 			}
 			if (value instanceof Class) {
-				return super.put(key,
-						getFactory().Type().createReference((Class<?>) value));
+				return super.put(key, annotation.getFactory().Type()
+						.createReference((Class<?>) value));
 			}
 			return super.put(key, value);
 
 		}
 
-	};
+		@Override
+		public void putAll(Map<? extends String, ? extends Object> map) {
+			for (Entry<? extends String, ? extends Object> e : map.entrySet()) {
+				put(e.getKey(), e.getValue());
+			}
+		}
+
+		@Override
+		public Object remove(Object key) {
+			annotation.childrenChanged();
+			return super.remove(key);
+		}
+
+		@Override
+		public void clear() {
+			annotation.childrenChanged();
+			super.clear();
+		}
+
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	CtTypeReference<A> annotationType;
+
+	Map<String, Object> elementValues = new ElementValues(this);
 
 	public CtAnnotationImpl() {
 		super();
@@ -130,6 +174,7 @@ public class CtAnnotationImpl<A extends Annotation> extends CtExpressionImpl<A>
 	}
 
 	protected void appendValues(String elementName, Object... values) {
+		childrenChanged();
 		if (!elementValues.containsKey(elementName)) {
 			elementValues.put(elementName, values);
 		} else {
@@ -327,10 +372,12 @@ public class CtAnnotationImpl<A extends Annotation> extends CtExpressionImpl<A>
 	@SuppressWarnings("unchecked")
 	public void setAnnotationType(
 			CtTypeReference<? extends Annotation> annotationType) {
+		childrenChanged();
 		this.annotationType = (CtTypeReference<A>) annotationType;
 	}
 
 	public void setElementValues(Map<String, Object> values) {
+		childrenChanged();
 		for (Entry<String, Object> e : values.entrySet()) {
 			this.elementValues.put(e.getKey(), e.getValue());
 		}
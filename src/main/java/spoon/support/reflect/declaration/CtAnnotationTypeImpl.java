@@ -48,6 +48,7 @@ public class CtAnnotationTypeImpl<T extends Annotation> extends CtTypeImpl<T> im
 
 	@Override
 	public void setSuperInterfaces(Set<CtTypeReference<?>> interfaces) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have super interfaces in an annotation.");
 	}
 
@@ -68,31 +69,37 @@ public class CtAnnotationTypeImpl<T extends Annotation> extends CtTypeImpl<T> im
 
 	@Override
 	public void setMethods(Set<CtMethod<?>> methods) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have methods in an annotation.");
 	}
 
 	@Override
 	public <M> boolean addMethod(CtMethod<M> method) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have methods in an annotation.");
 	}
 
 	@Override
 	public <M> boolean removeMethod(CtMethod<M> method) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have methods in an annotation.");
 	}
 
 	@Override
 	public void setFormalTypeParameters(List<CtTypeReference<?>> formalTypeParameters) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have generics in an annotation.");
 	}
 
 	@Override
 	public boolean addFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have generics in an annotation.");
 	}
 
 	@Override
 	public boolean removeFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		throw new UnsupportedOperationException("You can't have generics in an annotation.");
 	}
 }
@@ -42,14 +42,18 @@ public class CtAnonymousExecutableImpl extends CtElementImpl implements
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	public boolean removeModifier(ModifierKind modifier) {
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	public CtBlock<?> getBody() {
@@ -80,11 +84,13 @@ public class CtAnonymousExecutableImpl extends CtElementImpl implements
 	}
 
 	public void setBody(CtBlock<?> block) {
+		childrenChanged();
 		body = block;
 	}
 
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	public void setVisibility(ModifierKind visibility) {
@@ -95,6 +101,7 @@ public class CtAnonymousExecutableImpl extends CtElementImpl implements
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 }
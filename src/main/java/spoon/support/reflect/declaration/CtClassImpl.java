@@ -37,6 +37,8 @@ import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.eval.VisitorPartialEvaluator;
+import spoon.support.util.ChildList;
+import spoon.support.util.ChildSet;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtClass}.
@@ -96,17 +98,19 @@ public class CtClassImpl<T extends Object> extends CtTypeImpl<T> implements
 	}
 
 	public boolean addAnonymousExecutable(CtAnonymousExecutable e) {
+		childrenChanged();
 		if (anonymousExecutables == CtElementImpl
 				.<CtAnonymousExecutable> EMPTY_LIST()) {
-			anonymousExecutables = new ArrayList<CtAnonymousExecutable>();
+			anonymousExecutables = new ChildList<CtAnonymousExecutable>(this);
 		}
 		return anonymousExecutables.add(e);
 	}
 
 	public boolean removeAnonymousExecutable(CtAnonymousExecutable e) {
+		childrenChanged();
 		if (anonymousExecutables == CtElementImpl
 				.<CtAnonymousExecutable> EMPTY_LIST()) {
-			anonymousExecutables = new ArrayList<CtAnonymousExecutable>();
+			anonymousExecutables = new ChildList<CtAnonymousExecutable>(this);
 		}
 		return anonymousExecutables.remove(e);
 	}
@@ -117,17 +121,30 @@ public class CtClassImpl<T extends Object> extends CtTypeImpl<T> implements
 	}
 
 	public void setAnonymousExecutables(List<CtAnonymousExecutable> e) {
-		anonymousExecutables = e;
+		childrenChanged();
+		anonymousExecutables = ChildList.adopt(this, e);
+	}
+
+	@Override
+	void invalidateNestedSignatures() {
+		super.invalidateNestedSignatures();
+		if (constructors != null) {
+			for (CtConstructor<T> constructor : constructors) {
+				((CtConstructorImpl<T>) constructor).invalidateSignature();
+			}
+		}
 	}
 
 	public void setConstructors(Set<CtConstructor<T>> constructors) {
-		this.constructors = constructors;
+		childrenChanged();
+		this.constructors = ChildSet.adopt(this, constructors);
 	}
 
 	@Override
 	public void addConstructor(CtConstructor<T> constructor) {
+		childrenChanged();
 		if (constructors == CtElementImpl.<CtConstructor<T>> EMPTY_SET()) {
-			constructors = new TreeSet<CtConstructor<T>>();
+			constructors = new ChildSet<CtConstructor<T>>(this);
 		}
 		// this needs to be done because of the set that needs the constructor's
 		// signature : we should use lists!!!
@@ -138,14 +155,17 @@ public class CtClassImpl<T extends Object> extends CtTypeImpl<T> implements
 
 	@Override
 	public void removeConstructor(CtConstructor<T> constructor) {
+		childrenChanged();
 		if (constructors == CtElementImpl.<CtConstructor<T>> EMPTY_SET()) {
-			constructors = new TreeSet<CtConstructor<T>>();
+			constructors = new ChildSet<CtConstructor<T>>(this);
 		}
 		constructors.remove(constructor);
 	}
 
 	public void setSuperclass(CtTypeReference<?> superClass) {
+		childrenChanged();
 		this.superClass = superClass;
+		supertypesChanged();
 	}
 
 	@Override
@@ -172,20 +192,24 @@ public class CtClassImpl<T extends Object> extends CtTypeImpl<T> implements
 	}
 
 	public void insertAfter(CtStatement statement) {
+		childrenChanged();
 		spoon.support.reflect.code.CtStatementImpl.insertAfter(this, statement);
 	}
 
 	public void insertAfter(CtStatementList statements) {
+		childrenChanged();
 		spoon.support.reflect.code.CtStatementImpl
 				.insertAfter(this, statements);
 	}
 
 	public void insertBefore(CtStatement statement) {
+		childrenChanged();
 		spoon.support.reflect.code.CtStatementImpl
 				.insertBefore(this, statement);
 	}
 
 	public void insertBefore(CtStatementList statements) {
+		childrenChanged();
 		spoon.support.reflect.code.CtStatementImpl.insertBefore(this,
 				statements);
 	}
@@ -23,10 +23,10 @@ import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import spoon.support.util.ChildList;
 
 public class CtConstructorImpl<T> extends CtExecutableImpl<T> implements CtConstructor<T> {
 	private static final long serialVersionUID = 1L;
@@ -61,6 +61,7 @@ public class CtConstructorImpl<T> extends CtExecutableImpl<T> implements CtConst
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 	}
 
 	@Override
@@ -70,23 +71,32 @@ public class CtConstructorImpl<T> extends CtExecutableImpl<T> implements CtConst
 
 	@Override
 	public boolean addFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		if (formalTypeParameter == null) {
 			return false;
 		}
 		if (formalTypeParameters == CtElementImpl.<CtTypeReference<?>>EMPTY_LIST()) {
-			formalTypeParameters = new ArrayList<CtTypeReference<?>>();
+			formalTypeParameters = new ChildList<CtTypeReference<?>>(this);
 		}
+		invalidateSignature();
 		return formalTypeParameters.add(formalTypeParameter);
 	}
 
 	@Override
 	public void setFormalTypeParameters(List<CtTypeReference<?>> formalTypeParameters) {
-		this.formalTypeParameters = formalTypeParameters;
+		childrenChanged();
+		this.formalTypeParameters = ChildList.adopt(this, formalTypeParameters);
+		invalidateSignature();
 	}
 
 	@Override
 	public boolean removeFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
-		return formalTypeParameter != null && formalTypeParameters.remove(formalTypeParameter);
+		childrenChanged();
+		if (formalTypeParameter == null || !formalTypeParameters.remove(formalTypeParameter)) {
+			return false;
+		}
+		invalidateSignature();
+		return true;
 	}
 
 	@Override
@@ -19,22 +19,30 @@ package spoon.support.reflect.declaration;
 
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
 import spoon.Launcher;
+import spoon.SpoonException;
 import spoon.processing.FactoryAccessor;
 import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtAnnotation;
+import spoon.reflect.declaration.CtConstructor;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeParameter;
 import spoon.reflect.declaration.ParentNotInitializedException;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtReference;
@@ -46,7 +54,11 @@ import spoon.reflect.visitor.ModelConsistencyChecker;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.ReferenceFilter;
 import spoon.reflect.visitor.filter.AnnotationFilter;
-import spoon.support.util.RtHelper;
+import spoon.support.util.ChildList;
+import spoon.support.util.ModelChanges;
+import spoon.support.util.RoleTable;
+import spoon.support.util.RoleTable.Role;
+import spoon.support.visitor.SignatureHasher;
 import spoon.support.visitor.SignaturePrinter;
 import spoon.support.visitor.TypeReferenceScanner;
 
@@ -55,7 +67,7 @@ import spoon.support.visitor.TypeReferenceScanner;
  * 
  * Implements Comparable for being used in TreeSet
  */
-public abstract class CtElementImpl implements CtElement, Serializable , Comparable<CtElement>{
+public abstract class CtElementImpl implements CtElement, Serializable , Comparable<CtElement>, Cloneable {
 
 	protected static final Logger logger = Logger
 			.getLogger(CtElementImpl.class);
@@ -98,10 +110,132 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 
 	transient Factory factory;
 
+	/**
+	 * A signature, and the number of changes of the references and of the
+	 * names when it was computed (see {@link #getSignatureStamp()}).
+	 */
+	private static final class CachedSignature {
+		final String signature;
+
+		final int stamp;
+
+		CachedSignature(String signature, int stamp) {
+			this.signature = signature;
+			this.stamp = stamp;
+		}
+	}
+
+	/**
+	 * The cached signature of this element, for the declarations whose
+	 * signature does not depend on code (see {@link #isSignatureCached()}).
+	 */
+	private transient volatile CachedSignature signature;
+
+	/**
+	 * Gets a number that changes whenever a declaration is added, removed,
+	 * renamed or changes its signature, which tells if a reference of the
+	 * model of the given factory may resolve to another declaration than
+	 * before.
+	 */
+	public static int getDeclarationChanges(Factory factory) {
+		ModelChanges changes = ModelChanges.of(factory);
+		return changes.getDeclarationChanges() + changes.getRenamings();
+	}
+
+	/**
+	 * Gets a number that changes whenever an element is attached to a parent
+	 * (see {@link #setParent(CtElement)}), whenever children are set, added
+	 * or removed with the setters and the <code>add</code>,
+	 * <code>insert</code> and <code>remove</code> methods of the model, and
+	 * whenever {@link #getDeclarationChanges(Factory)} changes, which tells if
+	 * the indexes built by scanning the model of the given factory may be out
+	 * of date.
+	 */
+	public static int getModelChanges(Factory factory) {
+		return ModelChanges.of(factory).getStructureChanges()
+				+ getDeclarationChanges(factory);
+	}
+
+	/**
+	 * Signals that children of this element have been set, added or removed.
+	 */
+	protected void childrenChanged() {
+		ModelChanges.of(factory).childrenChanged(this);
+	}
+
+	/**
+	 * Signals that a value of this element that is not a child has been set
+	 * (see {@link ModelChanges#valueChanged(CtElement)}).
+	 */
+	protected void valueChanged() {
+		ModelChanges.of(factory).valueChanged(this);
+	}
+
+	/**
+	 * Signals that children of the given element or reference have been
+	 * set, added or removed.
+	 */
+	private void childrenChanged(Object parent) {
+		if (parent instanceof CtElementImpl) {
+			((CtElementImpl) parent).childrenChanged();
+		} else {
+			ModelChanges.of(factory).referenceChanged();
+		}
+	}
+
 	public String getSignature() {
+		CachedSignature c = signature;
+		int stamp = getSignatureStamp();
+		if (c != null && c.stamp == stamp) {
+			return c.signature;
+		}
 		SignaturePrinter pr = new SignaturePrinter();
 		pr.scan(this);
-		return pr.getSignature();
+		String s = pr.getSignature();
+		if (isSignatureCached()) {
+			signature = new CachedSignature(s, stamp);
+		}
+		return s;
+	}
+
+	/**
+	 * Gets a number that changes whenever a reference or an element of the
+	 * model of this element is renamed or changed in place, which makes the
+	 * cached signatures that print the qualified names of references or of
+	 * enclosing elements out of date.
+	 */
+	private int getSignatureStamp() {
+		ModelChanges changes = ModelChanges.of(factory);
+		return changes.getReferenceChanges() + changes.getRenamings();
+	}
+
+	/**
+	 * Tells if the signature of this element is cached. It is the case for
+	 * the types, packages, executables, fields and parameters, whose
+	 * signatures do not print code. The cached signature is cleared by the
+	 * setters that change it (see {@link #invalidateSignature()}), and is
+	 * computed again after a change of a reference or a renaming.
+	 */
+	protected boolean isSignatureCached() {
+		return this instanceof CtType || this instanceof CtPackage
+				|| this instanceof CtMethod || this instanceof CtConstructor
+				|| this instanceof CtField || this instanceof CtParameter
+				|| this instanceof CtTypeParameter;
+	}
+
+	/**
+	 * Clears the cached signatures of this element and of its parents, which
+	 * must be called when the signature of this element changes.
+	 */
+	protected void invalidateSignature() {
+		if (isSignatureCached()) {
+			ModelChanges.of(factory).declarationsChanged();
+		}
+		CtElement e = this;
+		while (e instanceof CtElementImpl && !(e instanceof RootElement)) {
+			((CtElementImpl) e).signature = null;
+			e = ((CtElementImpl) e).parent;
+		}
 	}
 
 	public Factory getFactory() {
@@ -126,6 +260,9 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 	}
 
 	public int compareTo(CtElement o) {
+		if (o == this) {
+			return 0;
+		}
 		String current = getSignature();
 		String other = o.getSignature();
 		if (current.length() <= 0 || other.length() <= 0)
@@ -135,6 +272,9 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 
 	@Override
 	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
 		if (!(o instanceof CtElement))
 			return false;
 		String current = getSignature();
@@ -246,7 +386,12 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 
 	@Override
 	public int hashCode() {
-		return getSignature().hashCode();
+		if (isSignatureCached()) {
+			return getSignature().hashCode();
+		}
+		SignatureHasher hasher = new SignatureHasher();
+		hasher.scan(this);
+		return hasher.getHash();
 	}
 
 	public void replace(CtElement element) {
@@ -263,39 +408,64 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 		}
 	}
 
+	/**
+	 * Replaces the given element in the first child slot of the parent that
+	 * holds it, looking only at the child roles of the parent.
+	 */
 	private <T extends FactoryAccessor> void replaceIn(Object toReplace,
-			T replacement, Object parent) throws IllegalArgumentException,
-			IllegalAccessException {
-
-		for (Field f : RtHelper.getAllFields(parent.getClass())) {
-			f.setAccessible(true);
-			Object tmp = f.get(parent);
+			T replacement, Object parent) {
 
-			if (tmp != null) {
-				if (tmp instanceof List) {
-					@SuppressWarnings("unchecked")
-					List<T> lst = (List<T>) tmp;
-
-					for (int i = 0; i < lst.size(); i++) {
-						if (lst.get(i) != null
-								&& compare(lst.get(i), toReplace)) {
+		for (Role role : RoleTable.get(parent.getClass()).getChildRoles()) {
+			Object tmp = role.get(parent);
+			if (tmp == null) {
+				continue;
+			}
+			switch (role.getKind()) {
+			case LIST:
+				@SuppressWarnings("unchecked")
+				List<T> lst = (List<T>) tmp;
+				for (int i = 0; i < lst.size(); i++) {
+					if (compare(lst.get(i), toReplace)) {
+						if (replacement == null) {
 							lst.remove(i);
-							if (replacement != null)
-								lst.add(i, getReplacement(replacement, parent));
+						} else {
+							lst.set(i, getReplacement(replacement, parent));
 						}
+						childrenChanged(parent);
+						return;
 					}
-				} else if (tmp instanceof Collection) {
-					@SuppressWarnings("unchecked")
-					Collection<T> collect = (Collection<T>) tmp;
-					Object[] array = collect.toArray();
-					for (Object obj : array) {
-						if (compare(obj, toReplace)) {
-							collect.remove(obj);
+				}
+				break;
+			case SET:
+				@SuppressWarnings("unchecked")
+				Collection<T> collect = (Collection<T>) tmp;
+				for (T obj : collect) {
+					if (compare(obj, toReplace)) {
+						collect.remove(obj);
+						if (replacement != null) {
 							collect.add(getReplacement(replacement, parent));
 						}
+						childrenChanged(parent);
+						return;
+					}
+				}
+				break;
+			case MAP:
+				@SuppressWarnings("unchecked")
+				Map<Object, Object> map = (Map<Object, Object>) tmp;
+				for (Map.Entry<Object, Object> entry : map.entrySet()) {
+					if (compare(entry.getValue(), toReplace)) {
+						entry.setValue(getReplacement(replacement, parent));
+						childrenChanged(parent);
+						return;
 					}
-				} else if (compare(tmp, toReplace)) {
-					f.set(parent, getReplacement(replacement, parent));
+				}
+				break;
+			default:
+				if (compare(tmp, toReplace)) {
+					role.set(parent, getReplacement(replacement, parent));
+					childrenChanged(parent);
+					return;
 				}
 			}
 		}
@@ -325,27 +495,51 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 
 	public void setAnnotations(
 			List<CtAnnotation<? extends Annotation>> annotations) {
-		this.annotations = annotations;
+		childrenChanged();
+		this.annotations = ChildList.adopt(this, annotations);
 	}
 
 	public boolean addAnnotation(CtAnnotation<? extends Annotation> annotation) {
+		childrenChanged();
 		if ((List<?>) this.annotations == (List<?>) EMPTY_LIST()) {
-			this.annotations = new ArrayList<CtAnnotation<? extends Annotation>>();
+			this.annotations = new ChildList<CtAnnotation<? extends Annotation>>(this);
 		}
 		return this.annotations.add(annotation);
 	}
 
 	public boolean removeAnnotation(
 			CtAnnotation<? extends Annotation> annotation) {
+		childrenChanged();
 		return this.annotations.remove(annotation);
 	}
 
 	public void setDocComment(String docComment) {
 		this.docComment = docComment;
+		valueChanged();
 	}
 
 	public void setParent(CtElement parentElement) {
 		this.parent = parentElement;
+		if (parentElement != RootElement.ROOT) {
+			// the element is attached to its new parent
+			ModelChanges.of(factory).childrenChanged(
+					parentElement == null ? this : parentElement);
+		}
+		invalidateSignature();
+	}
+
+	/**
+	 * Creates a shallow copy of this element, which shares the values of all
+	 * its fields with this element. The deep copies of the elements (see
+	 * {@link spoon.support.util.ElementCloner}) start from a shallow copy and
+	 * replace its children and collections.
+	 */
+	public CtElementImpl shallowCopy() {
+		try {
+			return (CtElementImpl) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new SpoonException(e);
+		}
 	}
 
 	public void setPosition(SourcePosition position) {
@@ -385,6 +579,7 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 
 	public void setImplicit(boolean implicit) {
 		this.implicit = implicit;
+		valueChanged();
 	}
 
 	public Set<CtTypeReference<?>> getReferencedTypes() {
@@ -397,6 +592,19 @@ public abstract class CtElementImpl implements CtElement, Serializable , Compara
 		return Query.getElements(this, filter);
 	}
 
+	public <E extends CtElement> E getFirstElement(Filter<E> filter) {
+		return Query.getFirstElement(this, filter);
+	}
+
+	public <E extends CtElement> List<E> getElements(Filter<E> filter,
+			int limit) {
+		return Query.getElements(this, filter, limit);
+	}
+
+	public <E extends CtElement> boolean hasElement(Filter<E> filter) {
+		return Query.hasElement(this, filter);
+	}
+
 	public <T extends CtReference> List<T> getReferences(
 			ReferenceFilter<T> filter) {
 		return Query.getReferences(this, filter);
@@ -18,15 +18,20 @@
 package spoon.support.reflect.declaration;
 
 import spoon.reflect.code.CtBlock;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtParameter;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import spoon.support.util.ChildList;
+import spoon.support.util.ChildSet;
+import spoon.support.util.ModelChanges;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtExecutable}.
@@ -38,6 +43,18 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 
 	CtBlock<?> body;
 
+	/**
+	 * Builds the body of this executable when it is first accessed, if the
+	 * model has been built without it.
+	 */
+	transient LazyBody lazyBody;
+
+	/**
+	 * The number of changes of the body, counted once it is shared with lazy
+	 * clones (see {@link ModelChanges#bodiesShared()}).
+	 */
+	private transient int bodyChanges;
+
 	List<CtParameter<?>> parameters = EMPTY_LIST();
 
 	Set<CtTypeReference<? extends Throwable>> thrownTypes = EMPTY_SET();
@@ -49,12 +66,59 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 	@Override
 	@SuppressWarnings("unchecked")
 	public <B extends R> CtBlock<B> getBody() {
+		// the body may be built by another thread in the meantime
+		LazyBody l = lazyBody;
+		if (body == null && l != null) {
+			return (CtBlock<B>) l.getBody(this);
+		}
 		return (CtBlock<B>) body;
 	}
 
 	@Override
 	public <B extends R> void setBody(CtBlock<B> body) {
+		childrenChanged();
 		this.body = body;
+		this.lazyBody = null;
+	}
+
+	/**
+	 * Gets the number of changes of the body of this executable since the
+	 * bodies of its model are shared with lazy clones.
+	 */
+	public int getBodyChanges() {
+		return bodyChanges;
+	}
+
+	/**
+	 * Counts a change of the given element in the bodies of the executables
+	 * that contain it (see {@link #getBodyChanges()}).
+	 */
+	public static void bodyChanged(CtElement element) {
+		CtElement e = element;
+		while (!(e instanceof CtPackage) && e.isParentInitialized()) {
+			CtElement parent = e.getParent();
+			if (parent instanceof CtExecutableImpl
+					&& ((CtExecutableImpl<?>) parent).body == e) {
+				((CtExecutableImpl<?>) parent).bodyChanges++;
+			}
+			e = parent;
+		}
+	}
+
+	/**
+	 * Gets the builder of the body of this executable, if it has not been
+	 * built yet.
+	 */
+	public LazyBody getLazyBody() {
+		return lazyBody;
+	}
+
+	/**
+	 * Sets the builder of the body of this executable, which is called the
+	 * first time the body is accessed.
+	 */
+	public void setLazyBody(LazyBody lazyBody) {
+		this.lazyBody = lazyBody;
 	}
 
 	@Override
@@ -64,19 +128,25 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 
 	@Override
 	public void setParameters(List<CtParameter<?>> parameters) {
-		this.parameters = parameters;
+		childrenChanged();
+		this.parameters = ChildList.adopt(this, parameters);
+		invalidateSignature();
 	}
 
 	@Override
 	public boolean addParameter(CtParameter<?> parameter) {
+		childrenChanged();
 		if (parameters == CtElementImpl.<CtParameter<?>>EMPTY_LIST()) {
-			parameters = new ArrayList<CtParameter<?>>();
+			parameters = new ChildList<CtParameter<?>>(this);
 		}
+		invalidateSignature();
 		return parameters.add(parameter);
 	}
 
 	@Override
 	public boolean removeParameter(CtParameter<?> parameter) {
+		childrenChanged();
+		invalidateSignature();
 		return parameters.remove(parameter);
 	}
 
@@ -87,19 +157,22 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 
 	@Override
 	public void setThrownTypes(Set<CtTypeReference<? extends Throwable>> thrownTypes) {
-		this.thrownTypes = thrownTypes;
+		childrenChanged();
+		this.thrownTypes = ChildSet.adopt(this, thrownTypes);
 	}
 
 	@Override
 	public boolean addThrownType(CtTypeReference<? extends Throwable> throwType) {
+		childrenChanged();
 		if (thrownTypes == CtElementImpl.<CtTypeReference<? extends Throwable>>EMPTY_SET()) {
-			thrownTypes = new TreeSet<CtTypeReference<? extends Throwable>>();
+			thrownTypes = new ChildSet<CtTypeReference<? extends Throwable>>(this);
 		}
 		return thrownTypes.add(throwType);
 	}
 
 	@Override
 	public boolean removeThrownType(CtTypeReference<? extends Throwable> throwType) {
+		childrenChanged();
 		return thrownTypes.remove(throwType);
 	}
 
@@ -107,4 +180,13 @@ public abstract class CtExecutableImpl<R> extends CtNamedElementImpl implements
 	public CtExecutableReference<R> getReference() {
 		return getFactory().Executable().createReference(this);
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// the body builder is not serialized
+		if (body == null && lazyBody != null) {
+			body = lazyBody.getBody(this);
+			lazyBody = null;
+		}
+		out.defaultWriteObject();
+	}
 }
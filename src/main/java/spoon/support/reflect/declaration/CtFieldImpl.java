@@ -69,11 +69,14 @@ public class CtFieldImpl<T> extends CtNamedElementImpl implements CtField<T> {
 	}
 
 	public void setDefaultExpression(CtExpression<T> defaultExpression) {
+		childrenChanged();
 		this.defaultExpression = defaultExpression;
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
+		invalidateSignature();
 	}
 
 	@Override
@@ -89,6 +92,7 @@ public class CtFieldImpl<T> extends CtNamedElementImpl implements CtField<T> {
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -96,12 +100,16 @@ public class CtFieldImpl<T> extends CtNamedElementImpl implements CtField<T> {
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -113,6 +121,7 @@ public class CtFieldImpl<T> extends CtNamedElementImpl implements CtField<T> {
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
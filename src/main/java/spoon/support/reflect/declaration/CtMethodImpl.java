@@ -23,10 +23,10 @@ import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import spoon.support.util.ChildList;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtMethod}.
@@ -57,7 +57,9 @@ public class CtMethodImpl<T> extends CtExecutableImpl<T> implements CtMethod<T>
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.returnType = type;
+		invalidateSignature();
 	}
 
 	@Override
@@ -82,23 +84,32 @@ public class CtMethodImpl<T> extends CtExecutableImpl<T> implements CtMethod<T>
 
 	@Override
 	public boolean addFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		if (formalTypeParameter == null) {
 			return false;
 		}
 		if (formalTypeParameters == CtElementImpl.<CtTypeReference<?>>EMPTY_LIST()) {
-			formalTypeParameters = new ArrayList<CtTypeReference<?>>();
+			formalTypeParameters = new ChildList<CtTypeReference<?>>(this);
 		}
+		invalidateSignature();
 		return formalTypeParameters.add(formalTypeParameter);
 	}
 
 	@Override
 	public void setFormalTypeParameters(List<CtTypeReference<?>> formalTypeParameters) {
-		this.formalTypeParameters = formalTypeParameters;
+		childrenChanged();
+		this.formalTypeParameters = ChildList.adopt(this, formalTypeParameters);
+		invalidateSignature();
 	}
 
 	@Override
 	public boolean removeFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
-		return formalTypeParameter != null && formalTypeParameters.remove(formalTypeParameter);
+		childrenChanged();
+		if (formalTypeParameter == null || !formalTypeParameters.remove(formalTypeParameter)) {
+			return false;
+		}
+		invalidateSignature();
+		return true;
 	}
 
 	@Override
@@ -114,6 +125,7 @@ public class CtMethodImpl<T> extends CtExecutableImpl<T> implements CtMethod<T>
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -121,12 +133,16 @@ public class CtMethodImpl<T> extends CtExecutableImpl<T> implements CtMethod<T>
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -138,6 +154,7 @@ public class CtMethodImpl<T> extends CtExecutableImpl<T> implements CtMethod<T>
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
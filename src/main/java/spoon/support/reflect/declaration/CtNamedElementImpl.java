@@ -19,6 +19,7 @@ package spoon.support.reflect.declaration;
 
 import spoon.reflect.declaration.CtNamedElement;
 import spoon.reflect.reference.CtReference;
+import spoon.support.util.ModelChanges;
 
 public abstract class CtNamedElementImpl extends CtElementImpl implements CtNamedElement {
 
@@ -35,6 +36,11 @@ public abstract class CtNamedElementImpl extends CtElementImpl implements CtName
 	}
 
 	public void setSimpleName(String simpleName) {
+		if (this.simpleName != null && !this.simpleName.equals(simpleName)) {
+			ModelChanges.of(factory).elementRenamed();
+		}
 		this.simpleName = simpleName;
+		invalidateSignature();
+		valueChanged();
 	}
 }
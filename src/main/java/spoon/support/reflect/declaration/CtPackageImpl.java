@@ -21,10 +21,13 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtPackageReference;
 import spoon.reflect.visitor.CtVisitor;
+import spoon.support.util.ModelChanges;
+import spoon.support.util.NamedElementSet;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtPackage}.
@@ -34,19 +37,55 @@ import spoon.reflect.visitor.CtVisitor;
 public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 	private static final long serialVersionUID = 1L;
 
-	Set<CtPackage> packs = new TreeSet<CtPackage>();
+	Set<CtPackage> packs = new NamedElementSet<CtPackage>(this);
 
-	Set<CtType<?>> types = new TreeSet<CtType<?>>();
+	Set<CtType<?>> types = new NamedElementSet<CtType<?>>(this);
 
 	public CtPackageImpl() {
 		super();
 	}
 
+	@Override
+	public void setSimpleName(String simpleName) {
+		super.setSimpleName(simpleName);
+		invalidateNestedSignatures();
+		ModelChanges.packageTreeChanged(this);
+	}
+
+	@Override
+	public void setParent(CtElement parentElement) {
+		super.setParent(parentElement);
+		invalidateNestedSignatures();
+		if (parentElement instanceof CtPackage) {
+			ModelChanges.packageTreeChanged(this);
+		}
+	}
+
+	/**
+	 * Clears the cached signatures of the packages and types, which print the
+	 * qualified name of this package.
+	 */
+	void invalidateNestedSignatures() {
+		// null when called by the constructor of the superclass
+		if (packs != null) {
+			for (CtPackage pack : packs) {
+				((CtPackageImpl) pack).invalidateSignature();
+				((CtPackageImpl) pack).invalidateNestedSignatures();
+			}
+			for (CtType<?> type : types) {
+				((CtTypeImpl<?>) type).invalidateSignature();
+				((CtTypeImpl<?>) type).invalidateNestedSignatures();
+			}
+		}
+	}
+
 	public boolean addPackage(CtPackage pack) {
+		childrenChanged();
 		return packs.add(pack);
 	}
 
 	public boolean removePackage(CtPackage pack) {
+		childrenChanged();
 		return packs.remove(pack);
 	}
 
@@ -62,6 +101,9 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 	}
 	
 	public CtPackage getPackage(String name) {
+		if (packs instanceof NamedElementSet) {
+			return ((NamedElementSet<CtPackage>) packs).getFirst(name);
+		}
 		for (CtPackage p : packs) {
 			if (p.getSimpleName().equals(name))
 				return p;
@@ -81,6 +123,9 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@SuppressWarnings("unchecked")
 	public <T extends CtType<?>> T getType(String simpleName) {
+		if (types instanceof NamedElementSet) {
+			return (T) ((NamedElementSet<CtType<?>>) types).getFirst(simpleName);
+		}
 		for (CtType<?> t : types) {
 			if (t.getSimpleName().equals(simpleName)) {
 				return (T) t;
@@ -94,11 +139,23 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 	}
 
 	public void setPackages(Set<CtPackage> packs) {
-		this.packs = packs;
+		childrenChanged();
+		this.packs = NamedElementSet.adopt(this, packs);
+		ModelChanges.of(factory).declarationsChanged();
+		ModelChanges.packageTreeChanged(this);
+		for (CtPackage pack : packs) {
+			ModelChanges.packageTreeChanged(pack);
+		}
 	}
 
 	public void setTypes(Set<CtType<?>> types) {
-		this.types = types;
+		childrenChanged();
+		this.types = NamedElementSet.adopt(this, types);
+		ModelChanges.of(factory).declarationsChanged();
+		ModelChanges.packageTreeChanged(this);
+		for (CtType<?> type : types) {
+			ModelChanges.packageTreeChanged(type);
+		}
 	}
 
 	@Override
@@ -108,12 +165,14 @@ public class CtPackageImpl extends CtNamedElementImpl implements CtPackage {
 
 	@Override
 	public void addType(CtType<?> type) {
+		childrenChanged();
 		types.add(type);
 		type.setParent(this);
 	}
 
 	@Override
 	public void removeType(CtType<?> type) {
+		childrenChanged();
 		types.remove(type);
 	}
 
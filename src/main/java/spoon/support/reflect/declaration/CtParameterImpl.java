@@ -72,11 +72,14 @@ public class CtParameterImpl<T> extends CtNamedElementImpl implements CtParamete
 	}
 
 	public void setDefaultExpression(CtExpression<T> defaultExpression) {
+		childrenChanged();
 		this.defaultExpression = defaultExpression;
 	}
 
 	public void setType(CtTypeReference<T> type) {
+		childrenChanged();
 		this.type = type;
+		invalidateSignature();
 	}
 
 	public boolean isVarArgs() {
@@ -100,6 +103,7 @@ public class CtParameterImpl<T> extends CtNamedElementImpl implements CtParamete
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -107,12 +111,16 @@ public class CtParameterImpl<T> extends CtNamedElementImpl implements CtParamete
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -124,6 +132,7 @@ public class CtParameterImpl<T> extends CtNamedElementImpl implements CtParamete
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
@@ -45,6 +45,11 @@ import spoon.reflect.visitor.CtScanner;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.ReferenceTypeFilter;
 import spoon.support.compiler.SnippetCompilationHelper;
+import spoon.support.util.ChildList;
+import spoon.support.util.ChildSet;
+import spoon.support.util.ModelChanges;
+import spoon.support.util.NamedElementList;
+import spoon.support.util.NamedElementSet;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtType}.
@@ -60,9 +65,9 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 	Set<CtMethod<?>> methods = EMPTY_SET();
 
-	private List<CtField<?>> fields = new ArrayList<CtField<?>>();
+	private List<CtField<?>> fields = new NamedElementList<CtField<?>>(this);
 
-	Set<CtType<?>> nestedTypes = new TreeSet<CtType<?>>();
+	Set<CtType<?>> nestedTypes = new NamedElementSet<CtType<?>>(this);
 
 	
 	Set<ModifierKind> modifiers = CtElementImpl.EMPTY_SET();
@@ -73,6 +78,17 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 
 	public <F> boolean addField(CtField<F> field) {
+		childrenChanged();
+		if (this.fields instanceof NamedElementList) {
+			for (CtField<?> f : ((NamedElementList<CtField<?>>) this.fields)
+					.get(field.getSimpleName())) {
+				if (f.equals(field)) {
+					// field already exists
+					return false;
+				}
+			}
+			return this.fields.add(field);
+		}
 		if (!this.fields.contains(field)) {
 			return this.fields.add(field);
 		}
@@ -82,10 +98,14 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	}
 
 	public <F> boolean removeField(CtField<F> field) {
+		childrenChanged();
 		return this.fields.remove(field);
 	}
 
 	public CtField<?> getField(String name) {
+		if (fields instanceof NamedElementList) {
+			return ((NamedElementList<CtField<?>>) fields).getFirst(name);
+		}
 		for (CtField<?> f : fields) {
 			if (f.getSimpleName().equals(name)) {
 				return f;
@@ -100,10 +120,12 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 
 	public <N> boolean addNestedType(CtType<N> nestedType) {
+		childrenChanged();
 		return this.nestedTypes.add(nestedType);
 	}
 
 	public <N> boolean removeNestedType(CtType<N> nestedType) {
+		childrenChanged();
 		return this.nestedTypes.remove(nestedType);
 	}
 
@@ -140,6 +162,14 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 	@SuppressWarnings("unchecked")
 	public <N extends CtType<?>> N getNestedType(final String name) {
+		if (nestedTypes instanceof NamedElementSet) {
+			CtType<?> type = ((NamedElementSet<CtType<?>>) nestedTypes)
+					.getFirst(name);
+			if (type != null) {
+				return (N) type;
+			}
+		}
+		// looks for the local types
 		class NestedTypeScanner extends CtScanner {
 			CtType<?> type;
 
@@ -225,9 +255,34 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 		SnippetCompilationHelper.compileAndReplaceSnippetsIn(this);
 	}
 
+	@Override
+	public void setSimpleName(String simpleName) {
+		super.setSimpleName(simpleName);
+		invalidateNestedSignatures();
+		ModelChanges.packageTreeChanged(this);
+	}
+
+	/**
+	 * Clears the cached signatures of the declarations that print the
+	 * qualified name of this type: the nested types and the constructors.
+	 */
+	void invalidateNestedSignatures() {
+		// null when called by the constructor of the superclass
+		if (nestedTypes != null) {
+			for (CtType<?> nestedType : nestedTypes) {
+				((CtTypeImpl<?>) nestedType).invalidateSignature();
+				((CtTypeImpl<?>) nestedType).invalidateNestedSignatures();
+			}
+		}
+	}
+
 	@Override
 	public void setParent(CtElement parentElement) {
 		super.setParent(parentElement);
+		invalidateNestedSignatures();
+		if (parentElement instanceof CtType) {
+			ModelChanges.packageTreeChanged(this);
+		}
 		if (parentElement instanceof CtPackage) {
 			CtPackage pack = (CtPackage) parentElement;
 			Set<CtType<?>> types = pack.getTypes();
@@ -250,6 +305,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	@Override
 	public void setModifiers(Set<ModifierKind> modifiers) {
 		this.modifiers = modifiers;
+		valueChanged();
 	}
 
 	@Override
@@ -257,12 +313,16 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 		if (modifiers == CtElementImpl.<ModifierKind> EMPTY_SET()) {
 			this.modifiers = new TreeSet<ModifierKind>();
 		}
-		return modifiers.add(modifier);
+		boolean added = modifiers.add(modifier);
+		valueChanged();
+		return added;
 	}
 
 	@Override
 	public boolean removeModifier(ModifierKind modifier) {
-		return modifiers.remove(modifier);
+		boolean removed = modifiers.remove(modifier);
+		valueChanged();
+		return removed;
 	}
 
 	@Override
@@ -274,6 +334,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 		getModifiers().remove(ModifierKind.PROTECTED);
 		getModifiers().remove(ModifierKind.PRIVATE);
 		getModifiers().add(visibility);
+		valueChanged();
 	}
 
 	@Override
@@ -348,20 +409,25 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 
 	public <M> boolean addMethod(CtMethod<M> method) {
+		childrenChanged();
 		if (methods == CtElementImpl.<CtMethod<?>> EMPTY_SET()) {
-			methods = new TreeSet<CtMethod<?>>();
+			methods = new NamedElementSet<CtMethod<?>>(this);
 		}
 		return methods.add(method);
 	}
 
 	public <S> boolean addSuperInterface(CtTypeReference<S> interfac) {
+		childrenChanged();
 		if (interfaces == CtElementImpl.<CtTypeReference<?>> EMPTY_SET()) {
-			interfaces = new TreeSet<CtTypeReference<?>>();
+			interfaces = new ChildSet<CtTypeReference<?>>(this);
 		}
-		return interfaces.add(interfac);
+		boolean added = interfaces.add(interfac);
+		supertypesChanged();
+		return added;
 	}
 
 	public <M> boolean removeMethod(CtMethod<M> method) {
+		childrenChanged();
 		if (methods.contains(method)) {
 			return methods.remove(method);
 		} else {
@@ -370,23 +436,28 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	}
 
 	public <S> boolean removeSuperInterface(CtTypeReference<S> interfac) {
+		childrenChanged();
 		if (interfaces.contains(interfac)) {
-			return interfaces.remove(interfac);
+			boolean removed = interfaces.remove(interfac);
+			supertypesChanged();
+			return removed;
 		} else {
 			return false;
 		}
 	}
 
 	public boolean addFormalTypeParameter(CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		if (formalTypeParameters == CtElementImpl
 				.<CtTypeReference<?>> EMPTY_LIST()) {
-			formalTypeParameters = new ArrayList<CtTypeReference<?>>();
+			formalTypeParameters = new ChildList<CtTypeReference<?>>(this);
 		}
 		return formalTypeParameters.add(formalTypeParameter);
 	}
 
 	public boolean removeFormalTypeParameter(
 			CtTypeReference<?> formalTypeParameter) {
+		childrenChanged();
 		if (formalTypeParameters.contains(formalTypeParameter)) {
 			return formalTypeParameters.remove(formalTypeParameter);
 		} else {
@@ -401,7 +472,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	@SuppressWarnings("unchecked")
 	public <R> CtMethod<R> getMethod(CtTypeReference<R> returnType,
 			String name, CtTypeReference<?>... parameterTypes) {
-		for (CtMethod<?> mm : methods) {
+		for (CtMethod<?> mm : getMethodsNamed(name)) {
 			CtMethod<R> m = (CtMethod<R>) mm;
 			if (m.getSimpleName().equals(name)) {
 				if (!m.getType().equals(returnType)) {
@@ -426,7 +497,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	@SuppressWarnings("unchecked")
 	public <R> CtMethod<R> getMethod(String name,
 			CtTypeReference<?>... parameterTypes) {
-		for (CtMethod<?> m : methods) {
+		for (CtMethod<?> m : getMethodsNamed(name)) {
 			if (m.getSimpleName().equals(name)) {
 				boolean cont = m.getParameters().size() == parameterTypes.length;
 				for (int i = 0; cont && (i < m.getParameters().size())
@@ -469,7 +540,7 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 	@Override
 	public List<CtMethod<?>> getMethodsByName(String name) {
 		List<CtMethod<?>> result = new ArrayList<CtMethod<?>>();
-		for (CtMethod<?> m : methods) {
+		for (CtMethod<?> m : getMethodsNamed(name)) {
 			if (name.equals(m.getSimpleName())) {
 				result.add(m);
 			}
@@ -477,6 +548,17 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 		return result;
 	}
 
+	/**
+	 * Gets the methods that may have the given name: the ones of that name if
+	 * the methods are indexed by name, or else all the methods.
+	 */
+	private Collection<CtMethod<?>> getMethodsNamed(String name) {
+		if (methods instanceof NamedElementSet) {
+			return ((NamedElementSet<CtMethod<?>>) methods).get(name);
+		}
+		return methods;
+	}
+
 	@Override
 	public String getQualifiedName() {
 		if (isTopLevel()) {
@@ -500,15 +582,29 @@ public abstract class CtTypeImpl<T> extends CtNamedElementImpl  implements
 
 	public void setFormalTypeParameters(
 			List<CtTypeReference<?>> formalTypeParameters) {
-		this.formalTypeParameters = formalTypeParameters;
+		childrenChanged();
+		this.formalTypeParameters = ChildList.adopt(this, formalTypeParameters);
 	}
 
 	public void setMethods(Set<CtMethod<?>> methods) {
-		this.methods = methods;
+		childrenChanged();
+		this.methods = NamedElementSet.adopt(this, methods);
 	}
 
 	public void setSuperInterfaces(Set<CtTypeReference<?>> interfaces) {
-		this.interfaces = interfaces;
+		childrenChanged();
+		this.interfaces = ChildSet.adopt(this, interfaces);
+		supertypesChanged();
+	}
+
+	/**
+	 * Updates the type hierarchy after a change of the supertypes of this
+	 * type.
+	 */
+	void supertypesChanged() {
+		if (factory != null) {
+			factory.Type().supertypesChanged(this);
+		}
 	}
 
 	/**
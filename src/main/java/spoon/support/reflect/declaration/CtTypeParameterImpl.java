@@ -17,12 +17,12 @@
 
 package spoon.support.reflect.declaration;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.declaration.CtTypeParameter;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
+import spoon.support.util.ChildList;
 
 /**
  * The implementation for {@link spoon.reflect.declaration.CtTypeParameter}.
@@ -42,14 +42,16 @@ public class CtTypeParameterImpl extends CtElementImpl implements
 	}
 
 	public boolean addBound(CtTypeReference<?> bound) {
+		childrenChanged();
 		if (bounds == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
-			bounds = new ArrayList<CtTypeReference<?>>();
+			bounds = new ChildList<CtTypeReference<?>>(this);
 		}
 		return this.bounds.add(bound);
 	}
 	public boolean removeBound(CtTypeReference<?> bound) {
+		childrenChanged();
 		if (bounds == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
-			bounds = new ArrayList<CtTypeReference<?>>();
+			bounds = new ChildList<CtTypeReference<?>>(this);
 		}
 		return this.bounds.remove(bound);
 	}
@@ -67,11 +69,13 @@ public class CtTypeParameterImpl extends CtElementImpl implements
 	}
 
 	public void setBounds(List<CtTypeReference<?>> bounds) {
-		this.bounds = bounds;
+		childrenChanged();
+		this.bounds = ChildList.adopt(this, bounds);
 	}
 
 	public void setName(String name) {
 		this.name = name;
+		invalidateSignature();
 	}
 
 }
@@ -38,6 +38,7 @@ public class CtArrayTypeReferenceImpl<T> extends CtTypeReferenceImpl<T>
 	}
 
 	public void setComponentType(CtTypeReference<?> componentType) {
+		invalidateDeclaration(this.componentType, componentType);
 		this.componentType = componentType;
 	}
 
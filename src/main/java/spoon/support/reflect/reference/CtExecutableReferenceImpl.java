@@ -39,6 +39,7 @@ import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 import spoon.support.util.RtHelper;
 
 public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
@@ -133,9 +134,12 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 
 	@SuppressWarnings("unchecked")
 	public CtExecutable<T> getDeclaration() {
+		if (isDeclarationLinked()) {
+			return (CtExecutable<T>) getLinkedDeclaration();
+		}
 		CtType<?> typeDecl = (CtType<?>) getDeclaringType().getDeclaration();
 		if (typeDecl == null) {
-			return null;
+			return linkDeclaration(null);
 		}
 
 		CtExecutable<T> method = typeDecl
@@ -144,14 +148,14 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 		if ((method == null) && (typeDecl instanceof CtClass)
 				&& (getSimpleName().equals("<init>"))) {
 			try {
-				return (CtExecutable<T>) ((CtClass<?>) typeDecl)
+				return linkDeclaration((CtExecutable<T>) ((CtClass<?>) typeDecl)
 						.getConstructor(parameters.toArray(
-								new CtTypeReferenceImpl<?>[parameters.size()]));
+								new CtTypeReferenceImpl<?>[parameters.size()])));
 			} catch (ClassCastException e) {
 				Launcher.logger.error(e.getMessage(), e);
 			}
 		}
-		return method;
+		return linkDeclaration(method);
 	}
 
 	public CtTypeReference<?> getDeclaringType() {
@@ -172,6 +176,7 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 		if (this.parameters == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
 			this.parameters = new ArrayList<CtTypeReference<?>>();
 			this.parameters.addAll(parameters);
+			invalidateDeclaration(null, parameters);
 		}
 	}
 
@@ -189,9 +194,12 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 			return null;
 		}
 		CtClass<?> c = (CtClass<?>) t;
-		for (CtMethod<?> m : c.getMethods()) {
-			if (m.getReference().isOverriding(this)) {
-				return (CtExecutableReference<S>) m.getReference();
+		// the methods of a class override this executable if they have its
+		// name and if the class is a subtype of its declaring type
+		if (c.getReference().isSubtypeOf(getDeclaringType())) {
+			List<CtMethod<?>> methods = c.getMethodsByName(getSimpleName());
+			if (!methods.isEmpty()) {
+				return (CtExecutableReference<S>) methods.get(0).getReference();
 			}
 		}
 		return getOverridingExecutable(c.getSuperclass());
@@ -209,10 +217,12 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 
 	public void setActualTypeArguments(
 			List<CtTypeReference<?>> actualTypeArguments) {
-		this.actualTypeArguments = actualTypeArguments;
+		this.actualTypeArguments = ChildList.adopt(this, actualTypeArguments);
+		childrenChanged();
 	}
 
 	public void setDeclaringType(CtTypeReference<?> declaringType) {
+		invalidateDeclaration(this.declaringType, declaringType);
 		this.declaringType = declaringType;
 	}
 
@@ -391,7 +401,7 @@ public class CtExecutableReferenceImpl<T> extends CtReferenceImpl implements
 	public boolean addActualTypeArgument(CtTypeReference<?> actualTypeArgument) {
 		if (actualTypeArguments == CtElementImpl
 				.<CtTypeReference<?>> EMPTY_LIST()) {
-			actualTypeArguments = new ArrayList<CtTypeReference<?>>();
+			actualTypeArguments = new ChildList<CtTypeReference<?>>(this);
 		}
 		return actualTypeArguments.add(actualTypeArgument);
 	}
@@ -128,11 +128,14 @@ public class CtFieldReferenceImpl<T> extends CtVariableReferenceImpl<T>
 	@Override
 	@SuppressWarnings("unchecked")
 	public CtField<T> getDeclaration() {
+		if (isDeclarationLinked()) {
+			return (CtField<T>) getLinkedDeclaration();
+		}
 		CtType<?> type = (CtType<?>) declaringType.getDeclaration();
 		if ((declaringType != null) && (type != null)) {
-			return (CtField<T>) type.getField(getSimpleName());
+			return linkDeclaration((CtField<T>) type.getField(getSimpleName()));
 		}
-		return null;
+		return linkDeclaration(null);
 	}
 
 	public CtTypeReference<?> getDeclaringType() {
@@ -155,6 +158,7 @@ public class CtFieldReferenceImpl<T> extends CtVariableReferenceImpl<T>
 	}
 
 	public void setDeclaringType(CtTypeReference<?> declaringType) {
+		invalidateDeclaration(this.declaringType, declaringType);
 		this.declaringType = declaringType;
 	}
 
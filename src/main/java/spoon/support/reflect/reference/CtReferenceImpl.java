@@ -27,15 +27,19 @@ import java.util.List;
 import java.util.Map;
 
 import spoon.Launcher;
+import spoon.SpoonException;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ModelChanges;
+import spoon.support.visitor.SignatureHasher;
 import spoon.support.visitor.SignaturePrinter;
 
-public abstract class CtReferenceImpl implements CtReference, Serializable, Comparable<CtReference> {
+public abstract class CtReferenceImpl implements CtReference, Serializable, Comparable<CtReference>, Cloneable {
 
 	private static final long serialVersionUID = 1L;
 
@@ -43,11 +47,38 @@ public abstract class CtReferenceImpl implements CtReference, Serializable, Comp
 
 	transient Factory factory;
 
+	/**
+	 * Whether this reference is shared by several elements (see
+	 * {@link #isShared()}).
+	 */
+	private boolean shared;
+
+	/**
+	 * The declaration that this reference resolves to, valid as long as
+	 * neither the references nor the declarations change (see
+	 * {@link #isDeclarationLinked()}).
+	 */
+	private transient CtElement declaration;
+
+	/**
+	 * The number of changes when the declaration was linked, or -1.
+	 */
+	private transient volatile int linkedChanges = -1;
+
+	/**
+	 * Whether this reference has been resolved or indexed, after which the
+	 * parts that are set are changes (see {@link #invalidateDeclaration}).
+	 */
+	private transient volatile boolean observed;
+
 	public CtReferenceImpl() {
 		super();
 	}
 
 	public int compareTo(CtReference o) {
+		if (o == this) {
+			return 0;
+		}
 		SignaturePrinter pr = new SignaturePrinter();
 		pr.scan(this);
 		String current = pr.getSignature();
@@ -58,11 +89,15 @@ public abstract class CtReferenceImpl implements CtReference, Serializable, Comp
 
 	@Override
 	public int hashCode() {
-		return toString().hashCode();
+		SignatureHasher hasher = new SignatureHasher();
+		hasher.scan(this);
+		return hasher.getHash();
 	}
 
 	@Override
 	public boolean equals(Object object) {
+		if (object == this)
+			return true;
 		if (object instanceof CtReference)
 			return compareTo((CtReference) object) == 0;
 		return false;
@@ -132,11 +167,109 @@ public abstract class CtReferenceImpl implements CtReference, Serializable, Comp
 	}
 
 	public void setSimpleName(String simplename) {
+		checkModifiable();
+		rename(simplename);
+	}
+
+	/**
+	 * Sets the simple name of this reference, even if it is shared: a shared
+	 * reference refers to the same declaration for all the elements that
+	 * hold it, which are all concerned by the renaming of this declaration
+	 * (see {@link spoon.refactoring.Refactoring#changeTypeName}).
+	 */
+	public void rename(String simplename) {
 		if (simplename.contains("?"))
 			throw new RuntimeException("argl");
+		invalidateDeclaration(this.simplename, simplename);
 		this.simplename = simplename;
 	}
 
+	/**
+	 * Gets a number that changes whenever a reference or a declaration
+	 * changes, which tells if a reference of the model of the given factory
+	 * may resolve to another declaration than before.
+	 */
+	static int getChanges(Factory factory) {
+		return ModelChanges.of(factory).getReferenceChanges()
+				+ CtElementImpl.getDeclarationChanges(factory);
+	}
+
+	/**
+	 * Signals that this reference may resolve to another declaration, which
+	 * must be called by the setters of the parts of a reference that are
+	 * used to find its declaration, with the former and the new values of
+	 * the part. Setting a part that was not set yet, as done when a reference
+	 * is created, is not a change unless the reference has already been
+	 * resolved or indexed (see {@link #observe()}).
+	 */
+	protected void invalidateDeclaration(Object oldValue, Object newValue) {
+		boolean changed;
+		if (oldValue == null) {
+			changed = observed;
+		} else if (oldValue instanceof String) {
+			changed = !oldValue.equals(newValue);
+		} else {
+			changed = oldValue != newValue;
+		}
+		if (changed) {
+			ModelChanges.of(factory).referenceChanged();
+		}
+	}
+
+	/**
+	 * Tells if this reference is linked to its declaration, which is then
+	 * returned by {@link #getLinkedDeclaration()}. A link is valid until a
+	 * reference or a declaration changes.
+	 */
+	protected boolean isDeclarationLinked() {
+		int c = linkedChanges;
+		return c != -1 && c == getChanges(factory);
+	}
+
+	/**
+	 * Gets the declaration linked to this reference, which can be null if
+	 * the declaration is not in the model.
+	 */
+	protected CtElement getLinkedDeclaration() {
+		return declaration;
+	}
+
+	/**
+	 * Links this reference to the given declaration, unless the links are
+	 * disabled (see {@link spoon.compiler.Environment#isLinkingDeclarations()}).
+	 * 
+	 * @return the given declaration
+	 */
+	protected <E extends CtElement> E linkDeclaration(E declaration) {
+		observed = true;
+		if (factory != null
+				&& factory.getEnvironment().isLinkingDeclarations()) {
+			int c = getChanges(factory);
+			this.declaration = declaration;
+			linkedChanges = c;
+		}
+		return declaration;
+	}
+
+	/**
+	 * Marks this reference as observed by an index, so that the later
+	 * changes of its parts are signaled even if it has not been resolved.
+	 */
+	void observe() {
+		observed = true;
+	}
+
+	/**
+	 * Signals that a list of children of this reference has been set or
+	 * changed (see {@link spoon.support.util.ChildContainer}), which is a
+	 * change of the reference if it has already been resolved or indexed.
+	 */
+	public void childrenChanged() {
+		if (observed) {
+			ModelChanges.of(factory).referenceChanged();
+		}
+	}
+
 	@Override
 	public String toString() {
 		DefaultJavaPrettyPrinter printer = new DefaultJavaPrettyPrinter(
@@ -153,4 +286,53 @@ public abstract class CtReferenceImpl implements CtReference, Serializable, Comp
 		this.factory = factory;
 	}
 
+	/**
+	 * Tells if this reference is shared by several elements of the model, as
+	 * the references that the Java compiler frontend builds for the same type.
+	 * A shared reference cannot be modified: the element whose reference is
+	 * to be changed must be given a clone of it.
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Marks this reference as shared by several elements, so that it cannot
+	 * be modified anymore (see {@link #isShared()}).
+	 */
+	public void setShared() {
+		shared = true;
+	}
+
+	/**
+	 * Checks that this reference can be modified, which must be called by
+	 * its setters.
+	 * 
+	 * @throws SpoonException
+	 *             if this reference is shared
+	 */
+	protected void checkModifiable() {
+		if (shared) {
+			throw new SpoonException("The reference " + simplename
+					+ " is shared and cannot be modified: set a clone of it");
+		}
+	}
+
+	/**
+	 * Creates a shallow copy of this reference, which shares the values of
+	 * all its fields with this reference (see
+	 * {@link CtElementImpl#shallowCopy()}). The copy is not shared, and is
+	 * not observed until it is resolved or indexed.
+	 */
+	public CtReferenceImpl shallowCopy() {
+		try {
+			CtReferenceImpl copy = (CtReferenceImpl) super.clone();
+			copy.shared = false;
+			copy.observed = false;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new SpoonException(e);
+		}
+	}
+
 }
@@ -19,13 +19,13 @@ package spoon.support.reflect.reference;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
-import java.util.ArrayList;
 import java.util.List;
 
 import spoon.reflect.reference.CtTypeParameterReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 
 public class CtTypeParameterReferenceImpl extends CtTypeReferenceImpl<Object>
 		implements CtTypeParameterReference {
@@ -58,7 +58,8 @@ public class CtTypeParameterReferenceImpl extends CtTypeReferenceImpl<Object>
 	}
 
 	public void setBounds(List<CtTypeReference<?>> bounds) {
-		this.bounds = bounds;
+		this.bounds = ChildList.adopt(this, bounds);
+		childrenChanged();
 	}
 
 	public void setUpper(boolean upper) {
@@ -82,6 +83,8 @@ public class CtTypeParameterReferenceImpl extends CtTypeReferenceImpl<Object>
 
 	@Override
 	public void setSimpleName(String simplename) {
+		checkModifiable();
+		invalidateDeclaration(this.simplename, simplename);
 		this.simplename = simplename;
 	}
 
@@ -101,7 +104,7 @@ public class CtTypeParameterReferenceImpl extends CtTypeReferenceImpl<Object>
 	public boolean addActualTypeArgument(CtTypeReference<?> actualTypeArgument) {
 		if (actualTypeArguments == CtElementImpl
 				.<CtTypeReference<?>> EMPTY_LIST()) {
-			actualTypeArguments = new ArrayList<CtTypeReference<?>>();
+			actualTypeArguments = new ChildList<CtTypeReference<?>>(this);
 		}
 		return actualTypeArguments.add(actualTypeArgument);
 	}
@@ -119,7 +122,7 @@ public class CtTypeParameterReferenceImpl extends CtTypeReferenceImpl<Object>
 	@Override
 	public boolean addBound(CtTypeReference<?> bound) {
 		if (bounds == CtElementImpl.<CtTypeReference<?>> EMPTY_LIST()) {
-			bounds = new ArrayList<CtTypeReference<?>>();
+			bounds = new ChildList<CtTypeReference<?>>(this);
 		}
 		return bounds.add(bound);
 	}
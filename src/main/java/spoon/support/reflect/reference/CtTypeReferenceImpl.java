@@ -50,6 +50,7 @@ import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.CtVisitor;
 import spoon.reflect.visitor.filter.AbstractFilter;
 import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.util.ChildList;
 import spoon.support.util.RtHelper;
 
 public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
@@ -151,6 +152,9 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public List<CtTypeReference<?>> getActualTypeArguments() {
+		if (isShared()) {
+			return Collections.unmodifiableList(actualTypeArguments);
+		}
 		return actualTypeArguments;
 	}
 
@@ -182,23 +186,34 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	@SuppressWarnings("unchecked")
 	public CtType<T> getDeclaration() {
+		if (isDeclarationLinked()) {
+			return (CtType<T>) getLinkedDeclaration();
+		}
 		if (!isPrimitive() && !isAnonymous()) {
-			return (CtType<T>) getFactory().Type()
-					.get(getQualifiedName());
+			return linkDeclaration((CtType<T>) getFactory().Type()
+					.get(getQualifiedName()));
 		}
 		if (!isPrimitive() && isAnonymous()) {
 			final CtType<?> rootType = getFactory().Type().get(getDeclaringType().getQualifiedName());
-			final CtNewClass elements = rootType.getElements(new AbstractFilter<CtNewClass>(CtNewClass.class) {
+			final CtNewClass elements = rootType.getFirstElement(new AbstractFilter<CtNewClass>(CtNewClass.class) {
 				@Override
 				public boolean matches(CtNewClass element) {
 					return getSimpleName().equals(element.getAnonymousClass().getSimpleName());
 				}
-			}).get(0);
-			return elements.getAnonymousClass();
+			});
+			return linkDeclaration((CtType<T>) elements.getAnonymousClass());
 		}
 		return null;
 	}
 
+	public CtType<T> getTypeDeclaration() {
+		CtType<T> t = getDeclaration();
+		if (t == null && !isPrimitive() && !isAnonymous()) {
+			return getFactory().Type().getShadowType(getQualifiedName());
+		}
+		return t;
+	}
+
 	public CtTypeReference<?> getDeclaringType() {
 		return declaringType;
 	}
@@ -254,8 +269,14 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 		if (isPrimitive() || type.isPrimitive()) {
 			return equals(type);
 		}
-		CtType<?> superTypeDecl = (CtType<?>) type.getDeclaration();
-		CtType<?> subTypeDecl = getDeclaration();
+		if (!(this instanceof CtArrayTypeReference)
+				&& !(type instanceof CtArrayTypeReference)
+				&& !(this instanceof CtTypeParameterReference)
+				&& getFactory() != null) {
+			return getFactory().Type().getHierarchy().isSubtypeOf(this, type);
+		}
+		CtType<?> superTypeDecl = type.getTypeDeclaration();
+		CtType<?> subTypeDecl = getTypeDeclaration();
 		if ((subTypeDecl == null) && (superTypeDecl == null)) {
 			try {
 				if (((this instanceof CtArrayTypeReference) && (type instanceof CtArrayTypeReference))) {
@@ -326,14 +347,20 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	public void setActualTypeArguments(
 			List<CtTypeReference<?>> actualTypeArguments) {
-		this.actualTypeArguments = actualTypeArguments;
+		checkModifiable();
+		this.actualTypeArguments = ChildList.adopt(this, actualTypeArguments);
+		childrenChanged();
 	}
 
 	public void setDeclaringType(CtTypeReference<?> declaringType) {
+		checkModifiable();
+		invalidateDeclaration(this.declaringType, declaringType);
 		this.declaringType = declaringType;
 	}
 
 	public void setPackage(CtPackageReference pack) {
+		checkModifiable();
+		invalidateDeclaration(this.pack, pack);
 		this.pack = pack;
 	}
 
@@ -373,7 +400,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	public Collection<CtFieldReference<?>> getDeclaredFields() {
 		Collection<CtFieldReference<?>> l = new ArrayList<CtFieldReference<?>>();
-		CtType<?> t = getDeclaration();
+		CtType<?> t = getTypeDeclaration();
 		if (t == null) {
 			for (Field f : getActualClass().getDeclaredFields()) {
 				l.add(getFactory().Field().createReference(f));
@@ -397,7 +424,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	
 	@Override
 	public Collection<CtExecutableReference<?>> getDeclaredExecutables() {
-		CtType<T> t = getDeclaration();
+		CtType<T> t = getTypeDeclaration();
 		if (t == null) {
 			return RtHelper.getAllExecutables(getActualClass(), getFactory());
 		} else {
@@ -406,7 +433,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public Collection<CtFieldReference<?>> getAllFields() {
-		CtType<?> t = getDeclaration();
+		CtType<?> t = getTypeDeclaration();
 		if (t == null) {
 			return RtHelper.getAllFields(getActualClass(), getFactory());
 		} else {
@@ -416,7 +443,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	public Collection<CtExecutableReference<?>> getAllExecutables() {
 		Collection<CtExecutableReference<?>> l = new ArrayList<CtExecutableReference<?>>();
-		CtType<T> t = getDeclaration();
+		CtType<T> t = getTypeDeclaration();
 		if (t == null) {
 			Class<?> c = getActualClass();
 			for (Method m : c.getDeclaredMethods()) {
@@ -437,7 +464,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public Set<ModifierKind> getModifiers() {
-		CtType<T> t = getDeclaration();
+		CtType<T> t = getTypeDeclaration();
 		if (t != null) {
 			return t.getModifiers();
 		}
@@ -446,9 +473,9 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public CtTypeReference<?> getSuperclass() {
-		CtType<T> t = getDeclaration();
+		CtType<T> t = getTypeDeclaration();
 		if (t != null) {
-			return ((CtClass<T>) t).getSuperclass();
+			return t.getSuperclass();
 		} else {
 			Class<T> c = getActualClass();
 			Class<?> sc = c.getSuperclass();
@@ -457,7 +484,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public Set<CtTypeReference<?>> getSuperInterfaces() {
-		CtType<?> t = getDeclaration();
+		CtType<?> t = getTypeDeclaration();
 		if (t != null) {
 			return t.getSuperInterfaces();
 		} else {
@@ -476,11 +503,16 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	@Override
 	public boolean isAnonymous() {
-		try {
-			Integer.parseInt(getSimpleName());
-		} catch (NumberFormatException e) {
+		// the anonymous types are numbered
+		String name = getSimpleName();
+		if (name == null || name.length() == 0) {
 			return false;
 		}
+		for (int i = 0; i < name.length(); i++) {
+			if (!Character.isDigit(name.charAt(i))) {
+				return false;
+			}
+		}
 		return true;
 	}
 
@@ -489,14 +521,16 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	}
 
 	public void setSuperReference(boolean b) {
+		checkModifiable();
 		isSuperReference = b;
 	}
 
 	@Override
 	public boolean addActualTypeArgument(CtTypeReference<?> actualTypeArgument) {
+		checkModifiable();
 		if (actualTypeArguments == CtElementImpl
 				.<CtTypeReference<?>>EMPTY_LIST()) {
-			actualTypeArguments = new ArrayList<CtTypeReference<?>>();
+			actualTypeArguments = new ChildList<CtTypeReference<?>>(this);
 		}
 		return actualTypeArguments.add(actualTypeArgument);
 	}
@@ -504,6 +538,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 	@Override
 	public boolean removeActualTypeArgument(
 			CtTypeReference<?> actualTypeArgument) {
+		checkModifiable();
 		if (actualTypeArguments == CtElementImpl
 				.<CtTypeReference<?>>EMPTY_LIST()) {
 			return false;
@@ -513,7 +548,7 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	@Override
 	public boolean isInterface() {
-		CtType<T> t = getDeclaration();
+		CtType<T> t = getTypeDeclaration();
 		if (t == null) {
 			return getActualClass().isInterface();
 		} else {
@@ -528,22 +563,26 @@ public class CtTypeReferenceImpl<T> extends CtReferenceImpl implements
 
 	@Override
 	public void setTypeAnnotations(List<CtAnnotation<? extends Annotation>> annotations) {
-		this.annotations = annotations;
+		checkModifiable();
+		this.annotations = ChildList.adopt(this, annotations);
+		childrenChanged();
 	}
 
 	@Override
 	public boolean addTypeAnnotation(CtAnnotation<? extends Annotation> annotation) {
+		checkModifiable();
 		if (annotation == null) {
 			return false;
 		}
 		if ((List<?>) this.annotations == (List<?>) CtElementImpl.EMPTY_LIST()) {
-			this.annotations = new ArrayList<CtAnnotation<? extends Annotation>>();
+			this.annotations = new ChildList<CtAnnotation<? extends Annotation>>(this);
 		}
 		return !this.annotations.contains(annotation) && this.annotations.add(annotation);
 	}
 
 	@Override
 	public boolean removeTypeAnnotation(CtAnnotation<? extends Annotation> annotation) {
+		checkModifiable();
 		if (annotation == null) {
 			return false;
 		}
@@ -55,6 +55,12 @@ public abstract class CtVariableReferenceImpl<T> extends CtReferenceImpl
 				&& simplename.equals(ref.getSimpleName());
 	}
 
+	@Override
+	public int hashCode() {
+		int hash = simplename == null ? 0 : simplename.hashCode();
+		return type == null ? hash : 31 * hash + type.hashCode();
+	}
+
 	public Set<ModifierKind> getModifiers() {
 		CtVariable<T> v = getDeclaration();
 		if (v != null) {
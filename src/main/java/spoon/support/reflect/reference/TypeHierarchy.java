@@ -0,0 +1,231 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.reflect.reference;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+
+/**
+ * An index of the subtype relations between the types of a model and of its
+ * class path. The types are numbered as they are met, and each type has the
+ * set of the numbers of all its supertypes, itself included, so that a
+ * subtype test is a bit test. The supertypes of a type are computed on the
+ * first test that involves it, from its declaration (see
+ * {@link CtTypeReference#getTypeDeclaration()}) or else from its runtime
+ * class.
+ * 
+ * <p>
+ * The sets of the types that inherit from a type are computed again after
+ * its supertypes are changed (see
+ * {@link spoon.reflect.factory.TypeFactory#supertypesChanged(CtType)}), and
+ * after it is added to the model, renamed, moved or removed, which changes
+ * the declaration of its former and of its new qualified name (see
+ * {@link #packageTreeChanged(CtNamedElement)}).
+ */
+public class TypeHierarchy {
+
+	/**
+	 * The supertypes of the types that are being computed, which breaks the
+	 * cycles of erroneous code.
+	 */
+	private static final BitSet COMPUTING = new BitSet();
+
+	private final Factory factory;
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	private final List<BitSet> supertypes = new ArrayList<BitSet>();
+
+	/**
+	 * The types of the model whose supertypes have been computed from their
+	 * declaration, by number.
+	 */
+	private final Map<CtType<?>, Integer> declarations = new IdentityHashMap<CtType<?>, Integer>();
+
+	/**
+	 * The number of supertype sets being computed, during which the shadow
+	 * types that are built are not changes of the model.
+	 */
+	private int computing;
+
+	public TypeHierarchy(Factory factory) {
+		this.factory = factory;
+	}
+
+	private int getId(String qualifiedName) {
+		Integer id = ids.get(qualifiedName);
+		if (id == null) {
+			id = supertypes.size();
+			ids.put(qualifiedName, id);
+			supertypes.add(null);
+		}
+		return id;
+	}
+
+	/**
+	 * Tells if the first type is a subtype of the second one, or the same
+	 * type. Both types must be classes, interfaces, enums or annotation
+	 * types, not primitive, array, anonymous or type parameter types.
+	 */
+	public synchronized boolean isSubtypeOf(CtTypeReference<?> subType,
+			CtTypeReference<?> superType) {
+		BitSet s = getSupertypes(getId(subType.getQualifiedName()),
+				subType.getQualifiedName());
+		return s.get(getId(superType.getQualifiedName()));
+	}
+
+	private BitSet getSupertypes(int id, String qualifiedName) {
+		BitSet s = supertypes.get(id);
+		if (s == null) {
+			supertypes.set(id, COMPUTING);
+			computing++;
+			try {
+				BitSet computed = new BitSet();
+				computed.set(id);
+				for (String name : getDirectSupertypes(id, qualifiedName)) {
+					computed.or(getSupertypes(getId(name), name));
+				}
+				s = computed;
+			} finally {
+				// not left computing if the class path fails to load a class
+				supertypes.set(id, s);
+				computing--;
+			}
+		}
+		return s;
+	}
+
+	private List<String> getDirectSupertypes(int id, String qualifiedName) {
+		List<String> names = new ArrayList<String>();
+		CtTypeReference<?> ref = factory.Type().createReference(qualifiedName);
+		CtType<?> type = ref.getTypeDeclaration();
+		if (type != null) {
+			declarations.put(type, id);
+			for (CtTypeReference<?> i : type.getSuperInterfaces()) {
+				names.add(i.getQualifiedName());
+			}
+			if (type instanceof CtClass) {
+				names.add(Object.class.getName());
+				CtTypeReference<?> superclass = ((CtClass<?>) type)
+						.getSuperclass();
+				if (superclass != null) {
+					names.add(superclass.getQualifiedName());
+				}
+			}
+		} else {
+			try {
+				Class<?> c = ref.getActualClass();
+				for (Class<?> i : c.getInterfaces()) {
+					names.add(i.getName());
+				}
+				if (c.getSuperclass() != null) {
+					names.add(c.getSuperclass().getName());
+				}
+			} catch (Exception e) {
+				// the type is unknown
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Drops the supertypes of the given type and of the types that inherit
+	 * from it, which must be called after a change of its supertypes.
+	 */
+	public synchronized void supertypesChanged(CtType<?> type) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		Integer id;
+		try {
+			id = ids.get(type.getQualifiedName());
+		} catch (RuntimeException e) {
+			// not in the model yet
+			return;
+		}
+		if (id == null) {
+			return;
+		}
+		drop(id);
+	}
+
+	/**
+	 * Drops the supertypes of the given type number and of the types that
+	 * inherit from it.
+	 */
+	private void drop(int id) {
+		for (int i = 0; i < supertypes.size(); i++) {
+			BitSet s = supertypes.get(i);
+			if (s != null && s != COMPUTING && s.get(id)) {
+				supertypes.set(i, null);
+			}
+		}
+	}
+
+	/**
+	 * Drops the supertypes of the types that the given package or type and
+	 * the types it contains were declared by, and of the ones that now have
+	 * their qualified names, which must be called after they are added to the
+	 * package tree, renamed, moved or removed (see
+	 * {@link spoon.reflect.factory.PackageFactory#packageTreeChanged(CtNamedElement)}).
+	 */
+	public synchronized void packageTreeChanged(CtNamedElement element) {
+		if (ids.isEmpty() || computing > 0) {
+			return;
+		}
+		if (element instanceof CtPackage) {
+			for (CtType<?> type : ((CtPackage) element).getTypes()) {
+				packageTreeChanged(type);
+			}
+			for (CtPackage pack : ((CtPackage) element).getPackages()) {
+				packageTreeChanged(pack);
+			}
+		} else if (element instanceof CtType) {
+			CtType<?> type = (CtType<?>) element;
+			Integer former = declarations.remove(type);
+			if (former != null) {
+				drop(former);
+			}
+			Integer id;
+			try {
+				id = ids.get(type.getQualifiedName());
+			} catch (RuntimeException e) {
+				// not in the model yet
+				id = null;
+			}
+			if (id != null) {
+				drop(id);
+			}
+			for (CtType<?> nested : type.getNestedTypes()) {
+				packageTreeChanged(nested);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.reflect.reference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeParameterReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtIterativeScanner;
+import spoon.support.visitor.PartitionedIndex;
+
+/**
+ * An index of the usages of the types, executables and fields of a model,
+ * which maps each declaration to the references that resolve to it (see
+ * {@link CtReference#getDeclaration()}) and to the elements that hold these
+ * references.
+ * 
+ * <p>
+ * The index is built by scanning the whole model on the first query. It has
+ * a part per top-level type (see {@link PartitionedIndex}), so that the
+ * elements that are attached, detached or replaced afterwards only make it
+ * scan the trees of the top-level types where they are again. A change of
+ * the references or of the declarations of the model (see
+ * {@link CtReferenceImpl#getChanges(Factory)}), which may make any reference
+ * resolve to another declaration, makes it scan the whole model again.
+ */
+public class UsageIndex extends PartitionedIndex<UsageIndex.Usages> {
+
+	private static final List<CtReference> NO_REFERENCES = Collections
+			.emptyList();
+
+	/**
+	 * The usages found in a tree: the references to each declaration and the
+	 * elements that hold them, at the same positions, in the order of the
+	 * model.
+	 */
+	protected static class Usages {
+		final Map<CtElement, List<CtReference>> references = new IdentityHashMap<CtElement, List<CtReference>>();
+
+		final Map<CtElement, List<CtElement>> elements = new IdentityHashMap<CtElement, List<CtElement>>();
+
+		/**
+		 * For the package tree, the number of top-level types that are
+		 * before each reference in the order of the model.
+		 */
+		final Map<CtElement, List<Integer>> positions = new IdentityHashMap<CtElement, List<Integer>>();
+	}
+
+	/**
+	 * The top-level types whose trees hold references to each declaration.
+	 */
+	private final Map<CtElement, Set<CtType<?>>> typesByDeclaration = new IdentityHashMap<CtElement, Set<CtType<?>>>();
+
+	/**
+	 * The position of each top-level type in the order of the model.
+	 */
+	private final Map<CtType<?>, Integer> positions = new IdentityHashMap<CtType<?>, Integer>();
+
+	private Usages packages;
+
+	public UsageIndex(Factory factory) {
+		super(factory);
+	}
+
+	@Override
+	protected int getGlobalChanges() {
+		return CtReferenceImpl.getChanges(factory);
+	}
+
+	@Override
+	protected Usages buildPart(CtType<?> type) {
+		UsageScanner scanner = new UsageScanner(false);
+		scanner.scan(type);
+		for (CtElement declaration : scanner.usages.references.keySet()) {
+			Set<CtType<?>> p = typesByDeclaration.get(declaration);
+			if (p == null) {
+				p = Collections.newSetFromMap(new IdentityHashMap<CtType<?>, Boolean>());
+				typesByDeclaration.put(declaration, p);
+			}
+			p.add(type);
+		}
+		return scanner.usages;
+	}
+
+	@Override
+	protected void partDropped(CtType<?> type, Usages part) {
+		for (CtElement declaration : part.references.keySet()) {
+			Set<CtType<?>> p = typesByDeclaration.get(declaration);
+			p.remove(type);
+			if (p.isEmpty()) {
+				typesByDeclaration.remove(declaration);
+			}
+		}
+	}
+
+	@Override
+	protected void buildPackages() {
+		positions.clear();
+		for (CtType<?> type : getTypes()) {
+			positions.put(type, positions.size());
+		}
+		UsageScanner scanner = new UsageScanner(true);
+		for (CtPackage p : factory.Package().getAllRoots()) {
+			scanner.scan(p);
+		}
+		packages = scanner.usages;
+	}
+
+	private class UsageScanner extends CtIterativeScanner {
+
+		final Usages usages = new Usages();
+
+		/**
+		 * True if the top-level types are not scanned.
+		 */
+		final boolean packageTree;
+
+		/**
+		 * The number of top-level types met by the scan of the package tree.
+		 */
+		int types;
+
+		private final List<CtElement> owners = new ArrayList<CtElement>();
+
+		UsageScanner(boolean packageTree) {
+			this.packageTree = packageTree;
+		}
+
+		@Override
+		protected boolean isToBeScanned(CtElement element) {
+			if (packageTree && isTopLevelType(element)) {
+				types++;
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		protected void enter(CtElement e) {
+			owners.add(e);
+		}
+
+		@Override
+		protected void exit(CtElement e) {
+			owners.remove(owners.size() - 1);
+		}
+
+		@Override
+		protected void enterReference(CtReference reference) {
+			if (reference instanceof CtReferenceImpl) {
+				// the changes of its parts are signaled from now on
+				((CtReferenceImpl) reference).observe();
+			}
+			CtElement declaration = resolve(reference);
+			if (declaration == null) {
+				return;
+			}
+			List<CtReference> r = usages.references.get(declaration);
+			if (r == null) {
+				r = new ArrayList<CtReference>();
+				usages.references.put(declaration, r);
+				usages.elements.put(declaration, new ArrayList<CtElement>());
+				if (packageTree) {
+					usages.positions.put(declaration, new ArrayList<Integer>());
+				}
+			}
+			r.add(reference);
+			usages.elements.get(declaration).add(
+					owners.isEmpty() ? null : owners.get(owners.size() - 1));
+			if (packageTree) {
+				usages.positions.get(declaration).add(types);
+			}
+		}
+
+		private CtElement resolve(CtReference reference) {
+			if (reference instanceof CtExecutableReference) {
+				if (((CtExecutableReference<?>) reference).getDeclaringType() == null) {
+					return null;
+				}
+				return reference.getDeclaration();
+			}
+			if (reference instanceof CtFieldReference) {
+				if (((CtFieldReference<?>) reference).getDeclaringType() == null) {
+					return null;
+				}
+				return reference.getDeclaration();
+			}
+			if (reference instanceof CtTypeReference
+					&& !(reference instanceof CtArrayTypeReference)
+					&& !(reference instanceof CtTypeParameterReference)) {
+				return reference.getDeclaration();
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the references to the given declaration and the elements that hold
+	 * them, in the order of the model, merging the parts of the top-level
+	 * types with the part of the package tree.
+	 */
+	private void getUsages(CtElement declaration, List<CtReference> references,
+			List<CtElement> elements) {
+		update();
+		List<CtType<?>> types = new ArrayList<CtType<?>>();
+		if (typesByDeclaration.containsKey(declaration)) {
+			types.addAll(typesByDeclaration.get(declaration));
+			Collections.sort(types, new Comparator<CtType<?>>() {
+				public int compare(CtType<?> t1, CtType<?> t2) {
+					return positions.get(t1) - positions.get(t2);
+				}
+			});
+		}
+		List<CtReference> r = packages.references.get(declaration);
+		List<Integer> p = packages.positions.get(declaration);
+		int i = 0;
+		for (CtType<?> type : types) {
+			int position = positions.get(type);
+			while (r != null && i < r.size() && p.get(i) <= position) {
+				references.add(r.get(i));
+				elements.add(packages.elements.get(declaration).get(i));
+				i++;
+			}
+			Usages part = getPart(type);
+			references.addAll(part.references.get(declaration));
+			elements.addAll(part.elements.get(declaration));
+		}
+		while (r != null && i < r.size()) {
+			references.add(r.get(i));
+			elements.add(packages.elements.get(declaration).get(i));
+			i++;
+		}
+	}
+
+	/**
+	 * Gets the references of the model that resolve to the given type,
+	 * executable or field.
+	 */
+	public synchronized List<CtReference> getReferences(CtElement declaration) {
+		List<CtReference> r = new ArrayList<CtReference>();
+		getUsages(declaration, r, new ArrayList<CtElement>());
+		return r.isEmpty() ? NO_REFERENCES : Collections.unmodifiableList(r);
+	}
+
+	/**
+	 * Gets the references of the model to the given type.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<CtTypeReference<T>> getReferencesTo(CtType<T> type) {
+		List<CtTypeReference<T>> result = new ArrayList<CtTypeReference<T>>();
+		for (CtReference r : getReferences(type)) {
+			result.add((CtTypeReference<T>) r);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the invocations of the given method or constructor, including the
+	 * constructor calls and the anonymous class creations.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> List<CtAbstractInvocation<T>> getInvocationsOf(
+			CtExecutable<T> executable) {
+		List<CtAbstractInvocation<T>> result = new ArrayList<CtAbstractInvocation<T>>();
+		List<CtReference> r = new ArrayList<CtReference>();
+		List<CtElement> e = new ArrayList<CtElement>();
+		getUsages(executable, r, e);
+		for (int i = 0; i < r.size(); i++) {
+			if (e.get(i) instanceof CtAbstractInvocation
+					&& ((CtAbstractInvocation<?>) e.get(i)).getExecutable() == r.get(i)) {
+				result.add((CtAbstractInvocation<T>) e.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the reads and writes of the given field.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> List<CtFieldAccess<T>> getAccessesOf(CtField<T> field) {
+		List<CtFieldAccess<T>> result = new ArrayList<CtFieldAccess<T>>();
+		List<CtReference> r = new ArrayList<CtReference>();
+		List<CtElement> e = new ArrayList<CtElement>();
+		getUsages(field, r, e);
+		for (int i = 0; i < r.size(); i++) {
+			if (e.get(i) instanceof CtFieldAccess
+					&& ((CtFieldAccess<?>) e.get(i)).getVariable() == r.get(i)) {
+				result.add((CtFieldAccess<T>) e.get(i));
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,39 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+/**
+ * A collection or a map that holds children of an element or of a reference
+ * and signals its changes to this node, so that the indexes of the model
+ * notice the changes made through the collections returned by the getters
+ * of the model (see {@link ModelChanges#childrenChanged(spoon.reflect.declaration.CtElement)}).
+ */
+public interface ChildContainer {
+
+	/**
+	 * Gets the element or the reference that holds the children.
+	 */
+	Object getOwner();
+
+	/**
+	 * Creates an empty container of the same kind for the given element or
+	 * reference, for instance for a copy of the owner of this container.
+	 */
+	ChildContainer newContainer(Object owner);
+
+}
@@ -0,0 +1,175 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import spoon.support.reflect.declaration.CtElementImpl;
+
+/**
+ * A list of children of an element or of a reference, which signals its
+ * changes to this node (see {@link ChildContainer}). The changes made
+ * through the sub lists are not signaled.
+ */
+public class ChildList<E> extends ArrayList<E> implements ChildContainer {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Object owner;
+
+	public ChildList() {
+		this(null);
+	}
+
+	public ChildList(Object owner) {
+		super();
+		this.owner = owner;
+	}
+
+	public ChildList(Object owner, Collection<? extends E> elements) {
+		super(elements);
+		this.owner = owner;
+	}
+
+	/**
+	 * Gets a list of children of the given node that holds the elements of
+	 * the given list, which is the list itself if it is already such a list
+	 * or if it is empty and unmodifiable (see
+	 * {@link CtElementImpl#EMPTY_LIST()}). This method is used by the setters
+	 * of the model, so that the lists they are given are copied.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> List<E> adopt(Object owner, List<E> list) {
+		if (list == null || list == CtElementImpl.<E> EMPTY_LIST()
+				|| (list instanceof ChildList
+						&& ((ChildList<E>) list).owner == owner)) {
+			return list;
+		}
+		return new ChildList<E>(owner, list);
+	}
+
+	public Object getOwner() {
+		return owner;
+	}
+
+	public ChildContainer newContainer(Object owner) {
+		return new ChildList<E>(owner);
+	}
+
+	/**
+	 * Signals a change of this list to its owner.
+	 */
+	private void changed() {
+		ModelChanges.containerChanged(owner);
+	}
+
+	@Override
+	public boolean add(E e) {
+		super.add(e);
+		changed();
+		return true;
+	}
+
+	@Override
+	public void add(int position, E element) {
+		super.add(position, element);
+		changed();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		boolean changed = super.addAll(c);
+		changed();
+		return changed;
+	}
+
+	@Override
+	public boolean addAll(int position, Collection<? extends E> c) {
+		boolean changed = super.addAll(position, c);
+		changed();
+		return changed;
+	}
+
+	@Override
+	public E remove(int position) {
+		E old = super.remove(position);
+		changed();
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean changed = super.remove(o);
+		if (changed) {
+			changed();
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		boolean changed = super.removeAll(c);
+		changed();
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		boolean changed = super.retainAll(c);
+		changed();
+		return changed;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		super.removeRange(fromIndex, toIndex);
+		changed();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		changed();
+	}
+
+	@Override
+	public E set(int position, E element) {
+		E old = super.set(position, element);
+		changed();
+		return old;
+	}
+
+	/**
+	 * Sorts the list, which is a change of the order of the children.
+	 */
+	@SuppressWarnings("unchecked")
+	public void sort(Comparator<? super E> c) {
+		Object[] elements = toArray();
+		Arrays.sort(elements, (Comparator<Object>) c);
+		for (int i = 0; i < elements.length; i++) {
+			super.set(i, (E) elements[i]);
+		}
+		modCount++;
+		changed();
+	}
+
+}
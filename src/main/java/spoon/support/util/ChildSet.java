@@ -0,0 +1,142 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+import spoon.support.reflect.declaration.CtElementImpl;
+
+/**
+ * A sorted set of children of an element, as a {@link TreeSet}, which signals
+ * its changes to this element (see {@link ChildContainer}). The changes made
+ * through the views of the set (its subsets and its descending set) are not
+ * signaled.
+ */
+public class ChildSet<E> extends TreeSet<E> implements ChildContainer {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Object owner;
+
+	public ChildSet() {
+		this(null);
+	}
+
+	public ChildSet(Object owner) {
+		super();
+		this.owner = owner;
+	}
+
+	/**
+	 * Gets a set of children of the given node that holds the elements of
+	 * the given set, which is the set itself if it is already such a set or
+	 * if it is empty and unmodifiable (see {@link CtElementImpl#EMPTY_SET()}).
+	 * This method is used by the setters of the model, so that the sets they
+	 * are given are copied.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Set<E> adopt(Object owner, Set<E> set) {
+		if (set == null || set == CtElementImpl.<E> EMPTY_SET()
+				|| (set instanceof ChildSet && ((ChildSet<E>) set).owner == owner)) {
+			return set;
+		}
+		ChildSet<E> children = new ChildSet<E>(owner);
+		children.addAll(set);
+		return children;
+	}
+
+	public Object getOwner() {
+		return owner;
+	}
+
+	public ChildContainer newContainer(Object owner) {
+		return new ChildSet<E>(owner);
+	}
+
+	private void changed() {
+		ModelChanges.containerChanged(owner);
+	}
+
+	@Override
+	public boolean add(E e) {
+		boolean changed = super.add(e);
+		if (changed) {
+			changed();
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		boolean changed = super.addAll(c);
+		changed();
+		return changed;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean changed = super.remove(o);
+		if (changed) {
+			changed();
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		changed();
+	}
+
+	@Override
+	public E pollFirst() {
+		E first = super.pollFirst();
+		changed();
+		return first;
+	}
+
+	@Override
+	public E pollLast() {
+		E last = super.pollLast();
+		changed();
+		return last;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> it = super.iterator();
+		return new Iterator<E>() {
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			public E next() {
+				return it.next();
+			}
+
+			public void remove() {
+				it.remove();
+				changed();
+			}
+		};
+	}
+
+}
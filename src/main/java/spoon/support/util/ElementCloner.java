@@ -0,0 +1,301 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import spoon.SpoonException;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+import spoon.support.reflect.declaration.LazyBody;
+import spoon.support.reflect.reference.CtReferenceImpl;
+import spoon.support.util.RoleTable.Kind;
+import spoon.support.util.RoleTable.Role;
+
+/**
+ * Deeply copies the nodes of the model (see
+ * {@link spoon.reflect.factory.CoreFactory#clone(Object)} and
+ * {@link spoon.reflect.factory.CoreFactory#lazyClone(Object)}), following
+ * the roles of their classes (see {@link RoleTable}).
+ *
+ * <p>
+ * A node is copied by a shallow copy (see {@link CtElementImpl#shallowCopy()}
+ * and {@link CtReferenceImpl#shallowCopy()}), in which only the roles that
+ * hold children or collections are replaced. The children are copied, and the
+ * parent of each copied element is set to the copy of its closest element
+ * ancestor. The other values, the links of the references to their
+ * declarations and the builders of the lazy bodies are shared with the
+ * original. The collections are copied into collections of the same class.
+ * </p>
+ */
+public class ElementCloner {
+
+	private final boolean copyOnWrite;
+
+	/**
+	 * Creates a cloner that copies all the children of the nodes.
+	 */
+	public ElementCloner() {
+		this(false);
+	}
+
+	/**
+	 * Creates a cloner.
+	 * 
+	 * @param copyOnWrite
+	 *            true if the bodies of the executables are shared with the
+	 *            original and copied only when they are first accessed
+	 *            through the copy (see {@link SharedBody})
+	 */
+	public ElementCloner(boolean copyOnWrite) {
+		this.copyOnWrite = copyOnWrite;
+	}
+
+	/**
+	 * Deeply copies the given element or reference. The copy has no parent.
+	 */
+	public <T> T clone(T node) {
+		T copy = clone(node, null);
+		if (copy instanceof CtElement) {
+			((CtElement) copy).setParent(null);
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T clone(T node, CtElement parent) {
+		RoleTable table = RoleTable.get(node.getClass());
+		Object copy;
+		boolean shallow = true;
+		if (node instanceof CtElementImpl) {
+			copy = ((CtElementImpl) node).shallowCopy();
+		} else if (node instanceof CtReferenceImpl) {
+			copy = ((CtReferenceImpl) node).shallowCopy();
+		} else {
+			copy = table.newInstance();
+			shallow = false;
+		}
+		if (copy instanceof CtElement) {
+			// the copy is not in the model yet, so that there is no index to
+			// update, and its cached signature is the one of the original;
+			// the parent is set first so that the changes of the copy are not
+			// seen as changes of the tree of the original
+			table.getParentRole().set(copy, parent);
+		}
+		CtElement element = copy instanceof CtElement ? (CtElement) copy
+				: parent;
+		for (Role role : table.getRoles()) {
+			if (shallow && role.getKind() == Kind.SINGLE && !role.isChild()) {
+				continue;
+			}
+			Object value = role.get(node);
+			// the initial value of a shallow copy is the one of the original
+			Object initial = shallow ? value : role.get(copy);
+			if (value != null) {
+				switch (role.getKind()) {
+				case SINGLE:
+					if (role.isChild() && RoleTable.isNode(value)) {
+						value = copyChild(role, value, node, element);
+					}
+					break;
+				case MAP:
+					value = copyMap(role, (Map<?, ?>) value, initial, copy,
+							element);
+					break;
+				default:
+					value = copyCollection(role, (Collection<?>) value,
+							initial, copy, element);
+				}
+			}
+			if (value != initial) {
+				role.set(copy, value);
+			}
+		}
+		return (T) copy;
+	}
+
+	/**
+	 * Copies a child of the given original node held by the given role.
+	 */
+	private Object copyChild(Role role, Object child, Object node,
+			CtElement parent) {
+		if (copyOnWrite && parent instanceof CtExecutableImpl
+				&& child instanceof CtBlock && role.getName().equals("body")) {
+			CtExecutableImpl<?> executable = (CtExecutableImpl<?>) node;
+			ModelChanges.of(executable.getFactory()).bodiesShared();
+			((CtExecutableImpl<?>) parent).setLazyBody(new SharedBody(
+					executable, (CtBlock<?>) child, this));
+			return null;
+		}
+		return clone(child, parent);
+	}
+
+	private Collection<Object> copyCollection(Role role,
+			Collection<?> collection, Object initial, Object owner,
+			CtElement parent) {
+		if (collection == CtElementImpl.EMPTY_COLLECTION()
+				|| collection == CtElementImpl.EMPTY_SET()) {
+			@SuppressWarnings("unchecked")
+			Collection<Object> empty = (Collection<Object>) collection;
+			return empty;
+		}
+		Collection<Object> copy = newCollection(collection, initial, owner);
+		for (Object o : collection) {
+			if (role.isChild() && RoleTable.isNode(o)) {
+				o = copyChild(role, o, null, parent);
+			}
+			copy.add(o);
+		}
+		return copy;
+	}
+
+	private Map<Object, Object> copyMap(Role role, Map<?, ?> map,
+			Object initial, Object owner, CtElement parent) {
+		Map<Object, Object> copy = newMap(map, initial, owner);
+		for (Entry<?, ?> e : map.entrySet()) {
+			Object o = e.getValue();
+			if (role.isChild() && RoleTable.isNode(o)) {
+				o = copyChild(role, o, null, parent);
+			}
+			copy.put(e.getKey(), o);
+		}
+		return copy;
+	}
+
+	/**
+	 * Creates an empty collection of the same class as the given one, which
+	 * is held by the given copy if it is a collection of children. The
+	 * initial value of the role in the copy is used if it is such a
+	 * collection.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Collection<Object> newCollection(Collection<?> collection,
+			Object initial, Object owner) {
+		Class<?> type = collection.getClass();
+		if (initial != null && initial != collection
+				&& initial.getClass() == type
+				&& ((Collection<?>) initial).isEmpty()) {
+			return (Collection<Object>) initial;
+		} else if (collection instanceof ChildContainer) {
+			return (Collection<Object>) ((ChildContainer) collection)
+					.newContainer(owner);
+		} else if (type == ArrayList.class) {
+			return new ArrayList<Object>(collection.size());
+		} else if (type == TreeSet.class) {
+			return new TreeSet<Object>(((TreeSet) collection).comparator());
+		} else if (type == HashSet.class) {
+			return new HashSet<Object>();
+		}
+		Collection<Object> copy = (Collection<Object>) copyOf(collection);
+		copy.clear();
+		return copy;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Map<Object, Object> newMap(Map<?, ?> map, Object initial,
+			Object owner) {
+		Class<?> type = map.getClass();
+		if (initial != null && initial != map && initial.getClass() == type
+				&& ((Map<?, ?>) initial).isEmpty()) {
+			return (Map<Object, Object>) initial;
+		} else if (map instanceof ChildContainer) {
+			return (Map<Object, Object>) ((ChildContainer) map)
+					.newContainer(owner);
+		} else if (type == TreeMap.class) {
+			return new TreeMap<Object, Object>(((TreeMap) map).comparator());
+		} else if (type == HashMap.class) {
+			return new HashMap<Object, Object>();
+		}
+		Map<Object, Object> copy = (Map<Object, Object>) copyOf(map);
+		copy.clear();
+		return copy;
+	}
+
+	/**
+	 * The body of an executable of a copy-on-write clone, which is shared
+	 * with the original executable until it is first accessed through the
+	 * clone. Since the body can only be changed once it has been accessed, the
+	 * clones only hold copies of the bodies that they may change. The shared
+	 * bodies are read from the original when they are copied, so that the
+	 * original must not be changed in the meantime: the changes of the
+	 * original body are counted (see {@link CtExecutableImpl#getBodyChanges()})
+	 * and accessing the body of the clone after such a change fails. The
+	 * changes made in place to the references of the original body, which
+	 * have no parent, are not detected.
+	 */
+	private static class SharedBody implements LazyBody {
+
+		private final CtExecutableImpl<?> owner;
+
+		private final CtBlock<?> original;
+
+		private final int changes;
+
+		private final ElementCloner cloner;
+
+		SharedBody(CtExecutableImpl<?> executable, CtBlock<?> original,
+				ElementCloner cloner) {
+			this.owner = executable;
+			this.original = original;
+			this.changes = executable.getBodyChanges();
+			this.cloner = cloner;
+		}
+
+		@SuppressWarnings("unchecked")
+		public synchronized CtBlock<?> getBody(CtExecutable<?> executable) {
+			CtExecutableImpl<Object> e = (CtExecutableImpl<Object>) executable;
+			if (e.getLazyBody() != this) {
+				// copied by another thread
+				return e.getBody();
+			}
+			if (owner.getBodyChanges() != changes
+					|| owner.getBody() != original) {
+				throw new SpoonException("the body of "
+						+ owner.getSignature()
+						+ " has been changed since it was lazily cloned");
+			}
+			CtBlock<Object> copy = (CtBlock<Object>) cloner.clone(original,
+					executable);
+			e.setBody(copy);
+			return copy;
+		}
+
+	}
+
+	/**
+	 * Copies a container of another class with its clone method.
+	 */
+	private static Object copyOf(Object container) {
+		try {
+			return container.getClass().getMethod("clone").invoke(container);
+		} catch (Exception e) {
+			throw new SpoonException("cannot copy " + container.getClass(), e);
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+import spoon.support.reflect.reference.CtReferenceImpl;
+
+/**
+ * Counts the changes of the model of a factory, which tell the indexes and
+ * the caches built from this model whether they may be out of date. The
+ * changes of the elements that have no factory are counted together (see
+ * {@link #of(Factory)}), and only the changes of their references and of
+ * their package trees are seen by the factories.
+ */
+public class ModelChanges {
+
+	private static final ModelChanges DETACHED = new ModelChanges();
+
+	/**
+	 * Gets the changes of the model of the given factory, or the ones of the
+	 * elements that have no factory if it is null.
+	 */
+	public static ModelChanges of(Factory factory) {
+		if (factory instanceof FactoryImpl) {
+			return ((FactoryImpl) factory).getModelChanges();
+		}
+		return DETACHED;
+	}
+
+	/**
+	 * Gets the changes of the model of the factory of the given element, or
+	 * the ones of the elements that have no factory if it is not an element.
+	 */
+	static ModelChanges ofElement(Object element) {
+		if (element instanceof CtElement) {
+			return of(((CtElement) element).getFactory());
+		}
+		return DETACHED;
+	}
+
+	/**
+	 * Counts the changes of the package trees of the elements that have no
+	 * factory.
+	 */
+	private static final AtomicInteger detachedPackageTreeChanges = new AtomicInteger();
+
+	/**
+	 * Signals that the given package or type may have been added to a package
+	 * tree, removed, moved or renamed, so that the index of the packages and types of
+	 * its factory by qualified name is kept up to date (see
+	 * {@link spoon.reflect.factory.PackageFactory#packageTreeChanged(CtNamedElement)}).
+	 */
+	public static void packageTreeChanged(CtNamedElement element) {
+		Factory factory = element.getFactory();
+		if (factory != null) {
+			factory.Package().packageTreeChanged(element);
+		} else if (element.isParentInitialized()
+				&& (element.getParent() instanceof CtPackage
+						|| element.getParent() instanceof CtType)) {
+			detachedPackageTreeChanges.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Gets the number of changes of the package trees of the elements that
+	 * have no factory, which makes the indexes of all the factories out of
+	 * date.
+	 */
+	public static int getDetachedPackageTreeChanges() {
+		return detachedPackageTreeChanges.get();
+	}
+
+	private final AtomicInteger renamings = new AtomicInteger();
+
+	/**
+	 * Signals that a named element has been renamed, which makes the indexes
+	 * by simple name of the collections that contain it out of date.
+	 */
+	public void elementRenamed() {
+		renamings.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of renamings of named elements.
+	 */
+	public int getRenamings() {
+		return renamings.get();
+	}
+
+	/**
+	 * Listens to the changes of the children of the elements of a model,
+	 * which lets an index update the trees where these changes occurred
+	 * only.
+	 */
+	public interface Listener {
+		/**
+		 * Called when children of the given element have been set, added
+		 * or removed, on the thread that changed them.
+		 */
+		void childrenChanged(CtElement owner);
+	}
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	/**
+	 * Adds a listener of the changes of the children of the elements of
+	 * this model.
+	 */
+	public void addListener(Listener listener) {
+		if (this != DETACHED) {
+			listeners.add(listener);
+		}
+	}
+
+	/**
+	 * Removes a listener of the changes of the children of the elements.
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	private final AtomicInteger structureChanges = new AtomicInteger();
+
+	/**
+	 * Signals that children of the given element have been set, added or
+	 * removed.
+	 */
+	public void childrenChanged(CtElement owner) {
+		structureChanges.incrementAndGet();
+		if (sharingBodies) {
+			CtExecutableImpl.bodyChanged(owner);
+		}
+		for (Listener listener : listeners) {
+			listener.childrenChanged(owner);
+		}
+	}
+
+	/**
+	 * Signals that a value of the given element that is not a child, e.g.
+	 * the value of a literal or the kind of an operator, has been set.
+	 */
+	public void valueChanged(CtElement element) {
+		if (sharingBodies) {
+			CtExecutableImpl.bodyChanged(element);
+		}
+	}
+
+	private volatile boolean sharingBodies;
+
+	/**
+	 * Signals that bodies of executables of this model are shared with lazy
+	 * clones (see {@link spoon.reflect.factory.CoreFactory#lazyClone(Object)}),
+	 * so that the changes of the bodies are counted from now on (see
+	 * {@link CtExecutableImpl#getBodyChanges()}).
+	 */
+	public void bodiesShared() {
+		sharingBodies = true;
+	}
+
+	/**
+	 * Signals that a collection of children of the given element or
+	 * reference has changed (see {@link ChildContainer}), which may be a
+	 * change of the reference if it is one (see
+	 * {@link CtReferenceImpl#childrenChanged()}).
+	 */
+	static void containerChanged(Object owner) {
+		if (owner instanceof CtElement) {
+			of(((CtElement) owner).getFactory()).childrenChanged(
+					(CtElement) owner);
+		} else if (owner instanceof CtReferenceImpl) {
+			((CtReferenceImpl) owner).childrenChanged();
+		}
+	}
+
+	/**
+	 * Gets the number of changes of the children of the elements.
+	 */
+	public int getStructureChanges() {
+		return structureChanges.get();
+	}
+
+	private final AtomicInteger declarationChanges = new AtomicInteger();
+
+	/**
+	 * Signals that a declaration has been added, removed or has changed its
+	 * signature, which may make the references resolve to other
+	 * declarations.
+	 */
+	public void declarationsChanged() {
+		declarationChanges.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of changes of the declarations.
+	 */
+	public int getDeclarationChanges() {
+		return declarationChanges.get();
+	}
+
+	private final AtomicInteger referenceChanges = new AtomicInteger();
+
+	/**
+	 * Signals that a reference has been changed in a way that may make it
+	 * resolve to another declaration or print another signature.
+	 */
+	public void referenceChanged() {
+		referenceChanges.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of changes of the references, including the ones of
+	 * the references that have no factory.
+	 */
+	public int getReferenceChanges() {
+		if (this == DETACHED) {
+			return referenceChanges.get();
+		}
+		return referenceChanges.get() + DETACHED.referenceChanges.get();
+	}
+
+}
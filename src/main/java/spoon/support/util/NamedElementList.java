@@ -0,0 +1,262 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.declaration.CtNamedElement;
+
+/**
+ * A list of named elements, which also indexes its elements by simple name.
+ * The index is built on the first lookup, kept up to date by the additions
+ * done through this list, and built again after any other change of the list
+ * or after the renaming of a named element of the factory of its elements
+ * (see {@link ModelChanges#elementRenamed()}). As a list of children, it
+ * signals its changes to its owner (see {@link ChildList}).
+ */
+public class NamedElementList<E extends CtNamedElement> extends ChildList<E> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static class Index<E> {
+		final Map<String, List<E>> elements = new HashMap<String, List<E>>();
+
+		/**
+		 * The changes of the factory of the indexed elements, or null if no
+		 * element is indexed.
+		 */
+		ModelChanges changes;
+
+		int renamings;
+
+		int modCount;
+
+		/**
+		 * Watches the renamings of the given element, which is possible if
+		 * it has the factory of the other indexed elements.
+		 */
+		boolean watch(CtNamedElement e) {
+			ModelChanges c = ModelChanges.of(e.getFactory());
+			if (changes == null) {
+				changes = c;
+				renamings = c.getRenamings();
+				return true;
+			}
+			return changes == c;
+		}
+
+		boolean isRenamed() {
+			return changes != null && renamings != changes.getRenamings();
+		}
+	}
+
+	private transient volatile Index<E> index;
+
+	public NamedElementList() {
+		super();
+	}
+
+	public NamedElementList(Object owner) {
+		super(owner);
+	}
+
+	public NamedElementList(Collection<? extends E> elements) {
+		super(null, elements);
+	}
+
+	@Override
+	public ChildContainer newContainer(Object owner) {
+		return new NamedElementList<E>(owner);
+	}
+
+	private Index<E> getIndex() {
+		Index<E> i = index;
+		if (i == null || i.modCount != modCount || i.isRenamed()) {
+			i = new Index<E>();
+			for (E e : this) {
+				if (e.getSimpleName() == null || !i.watch(e)) {
+					// a later naming would not be noticed
+					return null;
+				}
+				put(i, e);
+			}
+			i.modCount = modCount;
+			index = i;
+		}
+		return i;
+	}
+
+	private void put(Index<E> i, E e) {
+		List<E> l = i.elements.get(e.getSimpleName());
+		if (l == null) {
+			l = new ArrayList<E>(1);
+			i.elements.put(e.getSimpleName(), l);
+		}
+		l.add(e);
+	}
+
+	/**
+	 * Gets the elements of the given simple name, in the order of this list.
+	 */
+	public List<E> get(String name) {
+		Index<E> i = getIndex();
+		if (i == null) {
+			List<E> l = new ArrayList<E>();
+			for (E e : this) {
+				if (name.equals(e.getSimpleName())) {
+					l.add(e);
+				}
+			}
+			return l;
+		}
+		List<E> l = i.elements.get(name);
+		if (l == null) {
+			return new ArrayList<E>(0);
+		}
+		return new ArrayList<E>(l);
+	}
+
+	/**
+	 * Gets the first element of the given simple name, or null.
+	 */
+	public E getFirst(String name) {
+		Index<E> i = getIndex();
+		if (i == null) {
+			for (E e : this) {
+				if (name.equals(e.getSimpleName())) {
+					return e;
+				}
+			}
+			return null;
+		}
+		List<E> l = i.elements.get(name);
+		return l == null ? null : l.get(0);
+	}
+
+	@Override
+	public boolean add(E e) {
+		Index<E> i = index;
+		boolean upToDate = i != null && i.modCount == modCount
+				&& !i.isRenamed();
+		super.add(e);
+		if (upToDate && e.getSimpleName() != null && i.watch(e)) {
+			put(i, e);
+			i.modCount = modCount;
+		}
+		changed(e);
+		return true;
+	}
+
+	@Override
+	public void add(int position, E element) {
+		super.add(position, element);
+		changed(element);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		boolean changed = super.addAll(c);
+		changed(null);
+		return changed;
+	}
+
+	@Override
+	public boolean addAll(int position, Collection<? extends E> c) {
+		boolean changed = super.addAll(position, c);
+		changed(null);
+		return changed;
+	}
+
+	@Override
+	public E remove(int position) {
+		E old = super.remove(position);
+		changed(old);
+		return old;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean changed = super.remove(o);
+		if (changed) {
+			changed(o);
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		E first = isEmpty() ? null : get(0);
+		boolean changed = super.removeAll(c);
+		changed(first);
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		E first = isEmpty() ? null : get(0);
+		boolean changed = super.retainAll(c);
+		changed(first);
+		return changed;
+	}
+
+	@Override
+	protected void removeRange(int fromIndex, int toIndex) {
+		E first = fromIndex < toIndex ? get(fromIndex) : null;
+		super.removeRange(fromIndex, toIndex);
+		changed(first);
+	}
+
+	@Override
+	public void clear() {
+		E first = isEmpty() ? null : get(0);
+		super.clear();
+		changed(first);
+	}
+
+	@Override
+	public E set(int position, E element) {
+		E old = super.set(position, element);
+		// set does not count as a structural modification
+		index = null;
+		changed(element);
+		return old;
+	}
+
+	/**
+	 * Signals a change of the declarations to the factory of the given
+	 * element, or of the first element of this list if it is null.
+	 */
+	private void changed(Object element) {
+		if (element == null && !isEmpty()) {
+			element = get(0);
+		}
+		ModelChanges.ofElement(element).declarationsChanged();
+	}
+
+	@Override
+	public Object clone() {
+		NamedElementList<?> clone = (NamedElementList<?>) super.clone();
+		clone.index = null;
+		return clone;
+	}
+
+}
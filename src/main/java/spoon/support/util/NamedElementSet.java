@@ -0,0 +1,292 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.support.reflect.declaration.CtElementImpl;
+
+/**
+ * A set of named elements ordered by signature, as a {@link TreeSet}, which
+ * also indexes its elements by simple name. The index is built on the first
+ * lookup, kept up to date by the additions, and built again after any other
+ * change of the set or after the renaming of a named element of the factory
+ * of its elements (see {@link ModelChanges#elementRenamed()}). As a set of
+ * children, it signals its changes to its owner (see {@link ChildContainer}).
+ */
+public class NamedElementSet<E extends CtNamedElement> extends AbstractSet<E>
+		implements ChildContainer, Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Object owner;
+
+	private TreeSet<E> elements = new TreeSet<E>();
+
+	private transient volatile Map<String, List<E>> index;
+
+	/**
+	 * The changes of the factory of the indexed elements, or null if no
+	 * element is indexed.
+	 */
+	private transient ModelChanges indexChanges;
+
+	private transient int renamings;
+
+	public NamedElementSet() {
+		this((Object) null);
+	}
+
+	public NamedElementSet(Object owner) {
+		super();
+		this.owner = owner;
+	}
+
+	public NamedElementSet(Collection<? extends E> elements) {
+		this();
+		addAll(elements);
+	}
+
+	/**
+	 * Gets a set of children of the given node that holds the elements of
+	 * the given set, which is the set itself if it is already such a set or
+	 * if it is empty and unmodifiable (see {@link CtElementImpl#EMPTY_SET()}).
+	 * This method is used by the setters of the model, so that the sets they
+	 * are given are copied.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends CtNamedElement> Set<E> adopt(Object owner,
+			Set<E> set) {
+		if (set == null || set == CtElementImpl.<E> EMPTY_SET()
+				|| (set instanceof NamedElementSet
+						&& ((NamedElementSet<E>) set).owner == owner)) {
+			return set;
+		}
+		NamedElementSet<E> children = new NamedElementSet<E>(owner);
+		children.addAll(set);
+		return children;
+	}
+
+	public Object getOwner() {
+		return owner;
+	}
+
+	public ChildContainer newContainer(Object owner) {
+		return new NamedElementSet<E>(owner);
+	}
+
+	private Map<String, List<E>> getIndex() {
+		Map<String, List<E>> i = index;
+		if (i == null || isRenamed()) {
+			indexChanges = null;
+			i = new HashMap<String, List<E>>();
+			for (E e : elements) {
+				if (e.getSimpleName() == null || !watch(e)) {
+					// a later naming would not be noticed
+					index = null;
+					return null;
+				}
+				List<E> l = i.get(e.getSimpleName());
+				if (l == null) {
+					l = new ArrayList<E>(1);
+					i.put(e.getSimpleName(), l);
+				}
+				l.add(e);
+			}
+			index = i;
+		}
+		return i;
+	}
+
+	/**
+	 * Watches the renamings of the given element, which is possible if it has
+	 * the factory of the other indexed elements.
+	 */
+	private boolean watch(E e) {
+		ModelChanges c = ModelChanges.of(e.getFactory());
+		if (indexChanges == null) {
+			indexChanges = c;
+			renamings = c.getRenamings();
+			return true;
+		}
+		return indexChanges == c;
+	}
+
+	private boolean isRenamed() {
+		return indexChanges != null && renamings != indexChanges.getRenamings();
+	}
+
+	/**
+	 * Gets the elements of the given simple name, in the order of this set.
+	 */
+	public List<E> get(String name) {
+		Map<String, List<E>> i = getIndex();
+		List<E> l = new ArrayList<E>();
+		if (i == null) {
+			for (E e : elements) {
+				if (name.equals(e.getSimpleName())) {
+					l.add(e);
+				}
+			}
+		} else if (i.containsKey(name)) {
+			l.addAll(i.get(name));
+		}
+		return l;
+	}
+
+	/**
+	 * Gets the first element of the given simple name, or null.
+	 */
+	public E getFirst(String name) {
+		Map<String, List<E>> i = getIndex();
+		if (i == null) {
+			for (E e : elements) {
+				if (name.equals(e.getSimpleName())) {
+					return e;
+				}
+			}
+			return null;
+		}
+		List<E> l = i.get(name);
+		return l == null ? null : l.get(0);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean add(E e) {
+		if (!elements.add(e)) {
+			return false;
+		}
+		ModelChanges.ofElement(e).declarationsChanged();
+		packageTreeChanged(e);
+		ModelChanges.containerChanged(owner);
+		if (index != null && !isRenamed() && e.getSimpleName() != null
+				&& watch(e)) {
+			List<E> l = index.get(e.getSimpleName());
+			if (l == null) {
+				l = new ArrayList<E>(1);
+				index.put(e.getSimpleName(), l);
+			}
+			int position = 0;
+			while (position < l.size()
+					&& ((Comparable<E>) l.get(position)).compareTo(e) < 0) {
+				position++;
+			}
+			l.add(position, e);
+		} else {
+			index = null;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return elements.contains(o);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (elements.remove(o)) {
+			ModelChanges.ofElement(o).declarationsChanged();
+			packageTreeChanged(o);
+			ModelChanges.containerChanged(owner);
+			index = null;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		if (!elements.isEmpty()) {
+			ModelChanges.ofElement(elements.first()).declarationsChanged();
+		}
+		for (E e : elements) {
+			packageTreeChanged(e);
+		}
+		elements.clear();
+		ModelChanges.containerChanged(owner);
+		index = null;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> it = elements.iterator();
+		return new Iterator<E>() {
+			private E current;
+
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			public E next() {
+				current = it.next();
+				return current;
+			}
+
+			public void remove() {
+				it.remove();
+				ModelChanges.ofElement(current).declarationsChanged();
+				packageTreeChanged(current);
+				ModelChanges.containerChanged(owner);
+				index = null;
+			}
+		};
+	}
+
+	/**
+	 * Signals the addition or the removal of the given element to the
+	 * indexes of the package tree if it is a package or a type.
+	 */
+	private static void packageTreeChanged(Object e) {
+		if (e instanceof CtType || e instanceof CtPackage) {
+			ModelChanges.packageTreeChanged((CtNamedElement) e);
+		}
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object clone() {
+		try {
+			NamedElementSet<E> clone = (NamedElementSet<E>) super.clone();
+			clone.elements = (TreeSet<E>) elements.clone();
+			clone.index = null;
+			return clone;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+}
@@ -0,0 +1,375 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import spoon.SpoonException;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.reference.CtReference;
+
+/**
+ * The roles of the fields of a class of the metamodel (the elements, the
+ * references and the objects they contain), which are computed once per
+ * class. The clone, replace and match operations, as well as any generic
+ * walker of the model, rely on this table to find the children of a node
+ * instead of reflecting over its class on each call.
+ *
+ * <p>
+ * A role is a non-static field of the class or of its super classes, except
+ * for the parent of the elements. The roles of a class are given from the
+ * fields of the class itself to the fields of its topmost super class.
+ * </p>
+ */
+public final class RoleTable {
+
+	/**
+	 * The kinds of roles.
+	 */
+	public enum Kind {
+		/**
+		 * A role that holds a single value.
+		 */
+		SINGLE,
+		/**
+		 * A role that holds a list of values.
+		 */
+		LIST,
+		/**
+		 * A role that holds a set (or a collection that is not a list) of
+		 * values.
+		 */
+		SET,
+		/**
+		 * A role that holds a map, whose values can be children.
+		 */
+		MAP
+	}
+
+	/**
+	 * A role of a class of the metamodel.
+	 */
+	public static final class Role {
+
+		private final Field field;
+
+		private final Kind kind;
+
+		private final boolean child;
+
+		private final boolean link;
+
+		Role(Field field, Kind kind, boolean child, boolean link) {
+			this.field = field;
+			this.kind = kind;
+			this.child = child;
+			this.link = link;
+		}
+
+		/**
+		 * Gets the name of the role (the name of its field).
+		 */
+		public String getName() {
+			return field.getName();
+		}
+
+		/**
+		 * Gets the kind of the role.
+		 */
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * Tells if the role may hold children of the node: the elements and
+		 * references that are owned by the node.
+		 */
+		public boolean isChild() {
+			return child;
+		}
+
+		/**
+		 * Tells if the role holds the element that a reference points to,
+		 * which is shared by the copies of the reference.
+		 */
+		public boolean isLink() {
+			return link;
+		}
+
+		/**
+		 * Tells if the role is transient: a cache or a link that is not part
+		 * of the state of the node.
+		 */
+		public boolean isTransient() {
+			return Modifier.isTransient(field.getModifiers());
+		}
+
+		/**
+		 * Gets the value of the role in the given node.
+		 */
+		public Object get(Object node) {
+			try {
+				return field.get(node);
+			} catch (IllegalAccessException e) {
+				throw new SpoonException(e);
+			}
+		}
+
+		/**
+		 * Sets the value of the role in the given node, without any other
+		 * side effect (the parent of the value is not set).
+		 */
+		public void set(Object node, Object value) {
+			try {
+				field.set(node, value);
+			} catch (IllegalAccessException e) {
+				throw new SpoonException(e);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return field.getDeclaringClass().getSimpleName() + "."
+					+ field.getName();
+		}
+	}
+
+	private static final ConcurrentMap<Class<?>, RoleTable> tables = new ConcurrentHashMap<Class<?>, RoleTable>();
+
+	/**
+	 * Gets the role table of the given class.
+	 */
+	public static RoleTable get(Class<?> type) {
+		RoleTable table = tables.get(type);
+		if (table == null) {
+			table = new RoleTable(type);
+			RoleTable previous = tables.putIfAbsent(type, table);
+			if (previous != null) {
+				table = previous;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Tells if the given object is a node of the model: an element or a
+	 * reference.
+	 */
+	public static boolean isNode(Object o) {
+		return o instanceof CtElement || o instanceof CtReference;
+	}
+
+	/**
+	 * Gets the direct children of the given node, in the order of the roles
+	 * that hold them.
+	 */
+	public static List<Object> getChildren(Object node) {
+		List<Object> children = new ArrayList<Object>();
+		for (Role role : get(node.getClass()).getChildRoles()) {
+			Object value = role.get(node);
+			if (value == null) {
+				continue;
+			}
+			switch (role.getKind()) {
+			case SINGLE:
+				if (isNode(value)) {
+					children.add(value);
+				}
+				break;
+			default:
+				Collection<?> values = role.getKind() == Kind.MAP ? ((Map<?, ?>) value)
+						.values() : (Collection<?>) value;
+				for (Object o : values) {
+					if (isNode(o)) {
+						children.add(o);
+					}
+				}
+			}
+		}
+		return children;
+	}
+
+	private final Class<?> type;
+
+	private final Constructor<?> constructor;
+
+	private final Role[] roles;
+
+	private final Role[] childRoles;
+
+	private Role parent;
+
+	private RoleTable(Class<?> type) {
+		this.type = type;
+		boolean reference = CtReference.class.isAssignableFrom(type);
+		List<Role> l = new ArrayList<Role>();
+		List<Role> children = new ArrayList<Role>();
+		for (Class<?> c = type; c != null && c != Object.class; c = c
+				.getSuperclass()) {
+			for (Field f : c.getDeclaredFields()) {
+				int modifiers = f.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+						|| f.isSynthetic()) {
+					continue;
+				}
+				f.setAccessible(true);
+				if (f.getName().equals("parent")) {
+					parent = new Role(f, Kind.SINGLE, false, false);
+					continue;
+				}
+				Kind kind;
+				Type content = f.getGenericType();
+				if (List.class.isAssignableFrom(f.getType())) {
+					kind = Kind.LIST;
+					content = getTypeArgument(content, 0);
+				} else if (Collection.class.isAssignableFrom(f.getType())) {
+					kind = Kind.SET;
+					content = getTypeArgument(content, 0);
+				} else if (Map.class.isAssignableFrom(f.getType())) {
+					kind = Kind.MAP;
+					content = getTypeArgument(content, 1);
+				} else {
+					kind = Kind.SINGLE;
+				}
+				Class<?> erasure = erase(content);
+				boolean link = reference
+						&& CtElement.class.isAssignableFrom(erasure);
+				boolean child = !link && mayBeNode(erasure);
+				Role role = new Role(f, kind, child, link);
+				l.add(role);
+				if (child) {
+					children.add(role);
+				}
+			}
+		}
+		roles = l.toArray(new Role[l.size()]);
+		childRoles = children.toArray(new Role[children.size()]);
+		Constructor<?> c = null;
+		if (!Modifier.isAbstract(type.getModifiers())) {
+			try {
+				c = type.getDeclaredConstructor();
+				c.setAccessible(true);
+			} catch (NoSuchMethodException e) {
+				// cannot be instantiated
+			}
+		}
+		constructor = c;
+	}
+
+	private static Type getTypeArgument(Type type, int index) {
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type)
+					.getActualTypeArguments();
+			if (index < arguments.length) {
+				return arguments[index];
+			}
+		}
+		return Object.class;
+	}
+
+	private static Class<?> erase(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return erase(((ParameterizedType) type).getRawType());
+		} else if (type instanceof WildcardType) {
+			return erase(((WildcardType) type).getUpperBounds()[0]);
+		} else if (type instanceof TypeVariable) {
+			return erase(((TypeVariable<?>) type).getBounds()[0]);
+		} else if (type instanceof GenericArrayType) {
+			return Object[].class;
+		}
+		return Object.class;
+	}
+
+	private static boolean mayBeNode(Class<?> type) {
+		return CtElement.class.isAssignableFrom(type)
+				|| CtReference.class.isAssignableFrom(type)
+				|| type.isAssignableFrom(CtElement.class)
+				|| type.isAssignableFrom(CtReference.class);
+	}
+
+	/**
+	 * Gets the class of this table.
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Gets all the roles of the class.
+	 */
+	public Role[] getRoles() {
+		return roles;
+	}
+
+	/**
+	 * Gets the roles that may hold children (see {@link Role#isChild()}).
+	 */
+	public Role[] getChildRoles() {
+		return childRoles;
+	}
+
+	/**
+	 * Gets the parent of the elements as a role, which is not one of the roles
+	 * of the class, or null for the references.
+	 */
+	public Role getParentRole() {
+		return parent;
+	}
+
+	/**
+	 * Gets the role of the given name, or null if the class has no such role.
+	 */
+	public Role getRole(String name) {
+		for (Role role : roles) {
+			if (role.getName().equals(name)) {
+				return role;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an instance of the class with its default constructor.
+	 */
+	public Object newInstance() {
+		if (constructor == null) {
+			throw new SpoonException(type.getName() + " cannot be instantiated");
+		}
+		try {
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new SpoonException(e);
+		}
+	}
+
+}
@@ -0,0 +1,293 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.visitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtIterativeScanner;
+
+/**
+ * An index of the elements of a model by runtime class, which answers the
+ * queries of the elements of a given type without scanning the model (see
+ * {@link spoon.compiler.Environment#isIndexingElements()}).
+ * 
+ * <p>
+ * The index has a part per top-level type and a part for the package tree
+ * (see {@link PartitionedIndex}), so that a change of the model only makes
+ * the index scan the tree of the top-level type where it occurred again, or
+ * the package tree if a type or a package has been added or removed. In each
+ * part, the elements are numbered in the order of a scan of the tree, and
+ * each element has the number that follows its last descendant, so that the
+ * elements of a subtree are the ones whose numbers are between the number of
+ * its root and this end. The elements are listed by concrete class, and the
+ * lists of the classes that are assignable to a queried type are merged on
+ * the first query of this type.
+ */
+public class ElementIndex extends PartitionedIndex<ElementIndex.Tree> {
+
+	/**
+	 * A sorted list of element numbers.
+	 */
+	private static class Numbers {
+		int[] values = new int[16];
+
+		int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/**
+		 * Gets the position of the first number that is not lower than the
+		 * given one.
+		 */
+		int lowerBound(int value) {
+			int i = Arrays.binarySearch(values, 0, size, value);
+			return i < 0 ? -i - 1 : i;
+		}
+	}
+
+	/**
+	 * The index of a tree: the one of a top-level type, or the package tree,
+	 * where the top-level types stand for their trees.
+	 */
+	protected static class Tree {
+		/**
+		 * The scanned elements, by number.
+		 */
+		final List<CtElement> elements = new ArrayList<CtElement>();
+
+		/**
+		 * The numbers that follow the descendants of the elements.
+		 */
+		int[] ends = new int[16];
+
+		/**
+		 * The number of each element, which is the one of its first
+		 * occurrence if it is scanned twice.
+		 */
+		final Map<CtElement, Integer> numbers = new IdentityHashMap<CtElement, Integer>();
+
+		final Map<Class<?>, Numbers> classes = new HashMap<Class<?>, Numbers>();
+
+		final Map<Class<?>, Numbers> types = new HashMap<Class<?>, Numbers>();
+
+		/**
+		 * The numbers of the top-level types, whose trees are indexed apart.
+		 */
+		final Numbers subtrees = new Numbers();
+
+		Numbers getNumbers(Class<?> type) {
+			Numbers t = types.get(type);
+			if (t == null) {
+				t = new Numbers();
+				for (Map.Entry<Class<?>, Numbers> c : classes.entrySet()) {
+					if (type.isAssignableFrom(c.getKey())) {
+						for (int i = 0; i < c.getValue().size; i++) {
+							t.add(c.getValue().values[i]);
+						}
+					}
+				}
+				Arrays.sort(t.values, 0, t.size);
+				types.put(type, t);
+			}
+			return t;
+		}
+
+		void setEnd(int n, int end) {
+			if (n >= ends.length) {
+				ends = Arrays.copyOf(ends, Math.max(n + 1, ends.length * 2));
+			}
+			ends[n] = end;
+		}
+	}
+
+	/**
+	 * Indexes a tree.
+	 */
+	private static class TreeScanner extends CtIterativeScanner {
+		final Tree tree = new Tree();
+
+		/**
+		 * True if the top-level types are not scanned.
+		 */
+		final boolean packages;
+
+		/**
+		 * The numbers of the elements entered and not exited yet.
+		 */
+		final List<Integer> open = new ArrayList<Integer>();
+
+		TreeScanner(boolean packages) {
+			this.packages = packages;
+		}
+
+		@Override
+		protected boolean isToBeScanned(CtElement element) {
+			if (packages && isTopLevelType(element)) {
+				int n = tree.elements.size();
+				tree.elements.add(element);
+				tree.subtrees.add(n);
+				tree.setEnd(n, n + 1);
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		protected void enter(CtElement element) {
+			int n = tree.elements.size();
+			tree.elements.add(element);
+			open.add(n);
+			if (!tree.numbers.containsKey(element)) {
+				tree.numbers.put(element, n);
+			}
+			Numbers c = tree.classes.get(element.getClass());
+			if (c == null) {
+				c = new Numbers();
+				tree.classes.put(element.getClass(), c);
+			}
+			c.add(n);
+		}
+
+		@Override
+		protected void exit(CtElement element) {
+			int n = open.remove(open.size() - 1);
+			tree.setEnd(n, tree.elements.size());
+		}
+	}
+
+	private Tree packages;
+
+	public ElementIndex(Factory factory) {
+		super(factory);
+	}
+
+	@Override
+	protected Tree buildPart(CtType<?> type) {
+		TreeScanner scanner = new TreeScanner(false);
+		scanner.scan(type);
+		return scanner.tree;
+	}
+
+	@Override
+	protected void buildPackages() {
+		TreeScanner scanner = new TreeScanner(true);
+		for (CtPackage p : factory.Package().getAllRoots()) {
+			scanner.scan(p);
+		}
+		packages = scanner.tree;
+	}
+
+	/**
+	 * Gets the tree that holds the given element, or null if it is not part
+	 * of the model.
+	 */
+	private Tree getTree(CtElement element) {
+		CtElement root = getRoot(element);
+		Tree tree;
+		if (root instanceof CtPackage) {
+			tree = packages;
+		} else if (root != null) {
+			tree = getPart((CtType<?>) root);
+		} else {
+			return null;
+		}
+		return tree != null && tree.numbers.containsKey(element) ? tree
+				: null;
+	}
+
+	/**
+	 * Tells if the given element is part of the indexed model.
+	 */
+	public synchronized boolean contains(CtElement element) {
+		update();
+		return getTree(element) != null;
+	}
+
+	/**
+	 * Gets the elements of the model that are instances of the given type, in
+	 * the order of a scan of the model.
+	 */
+	public synchronized <E extends CtElement> List<E> getElements(Class<?> type) {
+		update();
+		List<E> result = new ArrayList<E>();
+		addElements(packages, 0, packages.elements.size(), type, result);
+		return result;
+	}
+
+	/**
+	 * Gets the elements of the subtree of the given element, itself included,
+	 * that are instances of the given type, in the order of a scan of the
+	 * subtree. The element must be part of the model (see
+	 * {@link #contains(CtElement)}).
+	 */
+	public synchronized <E extends CtElement> List<E> getElements(
+			CtElement root, Class<?> type) {
+		update();
+		Tree tree = getTree(root);
+		if (tree == null) {
+			throw new IllegalArgumentException(
+					"the element is not part of the model");
+		}
+		int n = tree.numbers.get(root);
+		List<E> result = new ArrayList<E>();
+		addElements(tree, n, tree.ends[n], type, result);
+		return result;
+	}
+
+	/**
+	 * Adds the elements of a tree that are numbered in the given range and
+	 * are instances of the given type, and the ones of the trees of the
+	 * top-level types in this range.
+	 */
+	@SuppressWarnings("unchecked")
+	private <E extends CtElement> void addElements(Tree tree, int start,
+			int end, Class<?> type, List<E> result) {
+		Numbers t = tree.getNumbers(type);
+		int i = t.lowerBound(start);
+		int to = t.lowerBound(end);
+		int j = tree.subtrees.lowerBound(start);
+		int subtreesTo = tree.subtrees.lowerBound(end);
+		while (i < to || j < subtreesTo) {
+			if (j < subtreesTo
+					&& (i == to || tree.subtrees.values[j] < t.values[i])) {
+				Tree part = getPart((CtType<?>) tree.elements
+						.get(tree.subtrees.values[j++]));
+				if (part != null) {
+					addElements(part, 0, part.elements.size(), type, result);
+				}
+			} else {
+				result.add((E) tree.elements.get(t.values[i++]));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,306 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.visitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.util.ModelChanges;
+
+/**
+ * An index of the model of a factory that is built in parts: one part per
+ * top-level type, for the tree of this type, and the package tree without
+ * the top-level types. After a change of the model, only the parts of the
+ * trees where the change occurred are built again.
+ * 
+ * <p>
+ * The changes are the ones signaled to the listeners of the model (see
+ * {@link ModelChanges.Listener}): the children set, added or removed by the
+ * methods of the elements or through the collections they return, which
+ * signal their changes (see {@link spoon.support.util.ChildContainer}). The
+ * element whose children have changed gives the tree to build again, which
+ * is found from its parents. The changes that are made otherwise, for
+ * instance by setting a field by reflection, must be signaled with
+ * {@link #invalidate()}.
+ * 
+ * @param <P>
+ *            the type of the parts of the index
+ */
+public abstract class PartitionedIndex<P> implements ModelChanges.Listener {
+
+	/**
+	 * The number of changes that can be pending before the whole index is
+	 * built again.
+	 */
+	private static final int MAX_PENDING_CHANGES = 4096;
+
+	protected final Factory factory;
+
+	/**
+	 * The top-level types, in the order of a scan of the model, or null if
+	 * the index is not built.
+	 */
+	private List<CtType<?>> types;
+
+	private Map<CtType<?>, P> parts;
+
+	/**
+	 * The elements whose children have changed since the last update.
+	 */
+	private final Queue<CtElement> changes = new ConcurrentLinkedQueue<CtElement>();
+
+	private final AtomicInteger pendingChanges = new AtomicInteger();
+
+	private volatile CtElement lastChange;
+
+	private volatile boolean listening;
+
+	/**
+	 * The thread that updates the index, whose changes (e.g. the lazy
+	 * building of the bodies) are not changes of the indexed model.
+	 */
+	private volatile Thread updating;
+
+	protected PartitionedIndex(Factory factory) {
+		this.factory = factory;
+		ModelChanges.of(factory).addListener(this);
+	}
+
+	/**
+	 * Drops the index, which is built again on the next query.
+	 */
+	public synchronized void invalidate() {
+		listening = false;
+		if (parts != null) {
+			for (Map.Entry<CtType<?>, P> part : parts.entrySet()) {
+				partDropped(part.getKey(), part.getValue());
+			}
+		}
+		types = null;
+		parts = null;
+	}
+
+	/**
+	 * Tells if the index has been built by a query, and is kept up to date
+	 * since.
+	 */
+	public synchronized boolean isBuilt() {
+		return types != null;
+	}
+
+	public void childrenChanged(CtElement owner) {
+		if (!listening || Thread.currentThread() == updating
+				|| owner == lastChange) {
+			return;
+		}
+		lastChange = owner;
+		if (pendingChanges.incrementAndGet() > MAX_PENDING_CHANGES) {
+			// too many changes to be worth sorting out
+			listening = false;
+			return;
+		}
+		changes.add(owner);
+	}
+
+	/**
+	 * Gets the changes of the model that make the whole index out of date,
+	 * for instance the changes of the declarations that the references
+	 * resolve to. None by default.
+	 */
+	protected int getGlobalChanges() {
+		return 0;
+	}
+
+	private int globalChanges;
+
+	/**
+	 * Brings the index up to date. The subclasses call this method at the
+	 * beginning of their queries, holding the lock of the index.
+	 */
+	protected final void update() {
+		updating = Thread.currentThread();
+		try {
+			if (!listening || types == null
+					|| globalChanges != getGlobalChanges()) {
+				invalidate();
+				clearChanges();
+				listening = true;
+				types = getTopLevelTypes();
+				parts = new IdentityHashMap<CtType<?>, P>();
+				for (CtType<?> type : types) {
+					parts.put(type, buildPart(type));
+				}
+				buildPackages();
+				return;
+			}
+			Set<CtType<?>> changed = null;
+			boolean packagesChanged = false;
+			lastChange = null;
+			CtElement owner;
+			while ((owner = changes.poll()) != null) {
+				pendingChanges.decrementAndGet();
+				CtElement root = getRoot(owner);
+				if (root instanceof CtPackage) {
+					packagesChanged = true;
+				} else if (root != null && parts.containsKey(root)) {
+					if (changed == null) {
+						changed = Collections
+								.newSetFromMap(new IdentityHashMap<CtType<?>, Boolean>());
+					}
+					changed.add((CtType<?>) root);
+				}
+			}
+			if (packagesChanged) {
+				types = getTopLevelTypes();
+				Map<CtType<?>, P> previous = parts;
+				parts = new IdentityHashMap<CtType<?>, P>();
+				for (CtType<?> type : types) {
+					P part = previous.remove(type);
+					if (part == null) {
+						part = buildPart(type);
+						if (changed != null) {
+							changed.remove(type);
+						}
+					}
+					parts.put(type, part);
+				}
+				for (Map.Entry<CtType<?>, P> part : previous.entrySet()) {
+					partDropped(part.getKey(), part.getValue());
+				}
+			}
+			if (changed != null) {
+				for (CtType<?> type : changed) {
+					P part = parts.get(type);
+					if (part != null) {
+						partDropped(type, part);
+						parts.put(type, buildPart(type));
+					}
+				}
+			}
+			if (packagesChanged) {
+				buildPackages();
+			}
+		} finally {
+			// building the parts (e.g. resolving the references) is not a
+			// change of the model
+			globalChanges = getGlobalChanges();
+			updating = null;
+		}
+	}
+
+	private void clearChanges() {
+		lastChange = null;
+		while (changes.poll() != null) {
+			pendingChanges.decrementAndGet();
+		}
+	}
+
+	private List<CtType<?>> getTopLevelTypes() {
+		List<CtType<?>> result = new ArrayList<CtType<?>>();
+		for (CtPackage p : factory.Package().getAllRoots()) {
+			addTopLevelTypes(p, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the top-level types of the given package tree in the order of a
+	 * scan, which scans the subpackages before the types.
+	 */
+	private static void addTopLevelTypes(CtPackage p, List<CtType<?>> result) {
+		for (CtPackage subpackage : p.getPackages()) {
+			addTopLevelTypes(subpackage, result);
+		}
+		result.addAll(p.getTypes());
+	}
+
+	/**
+	 * Gets the top-level type that holds the given element, or its package if
+	 * it is in the package tree without the types, or null if the element is
+	 * not in a package tree.
+	 */
+	protected static CtElement getRoot(CtElement element) {
+		CtElement e = element;
+		while (!(e instanceof CtPackage)) {
+			if (!e.isParentInitialized()) {
+				return null;
+			}
+			CtElement parent = e.getParent();
+			if (e instanceof CtType && parent instanceof CtPackage) {
+				return e;
+			}
+			e = parent;
+		}
+		return e;
+	}
+
+	/**
+	 * Tells if the given element is a top-level type, whose tree is indexed
+	 * in its own part.
+	 */
+	protected static boolean isTopLevelType(CtElement element) {
+		return element instanceof CtType && element.isParentInitialized()
+				&& element.getParent() instanceof CtPackage;
+	}
+
+	/**
+	 * Gets the top-level types of the model, in the order of a scan of the
+	 * model.
+	 */
+	protected final List<CtType<?>> getTypes() {
+		return types;
+	}
+
+	/**
+	 * Gets the part of the given top-level type, or null if it is not a
+	 * top-level type of the model.
+	 */
+	protected final P getPart(CtType<?> type) {
+		return parts.get(type);
+	}
+
+	/**
+	 * Builds the part of the index of the given top-level type.
+	 */
+	protected abstract P buildPart(CtType<?> type);
+
+	/**
+	 * Called when the part of a top-level type is dropped, because the type
+	 * has changed or has been removed from the model.
+	 */
+	protected void partDropped(CtType<?> type, P part) {
+	}
+
+	/**
+	 * Builds the part of the index of the package tree, without the
+	 * top-level types, once the parts of all the types are up to date.
+	 */
+	protected abstract void buildPackages();
+
+}
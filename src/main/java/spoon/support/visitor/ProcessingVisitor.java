@@ -19,23 +19,38 @@ package spoon.support.visitor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import spoon.processing.Processor;
 import spoon.processing.TraversalStrategy;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
-import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.CtIterativeScanner;
 
 /**
- * This visitor implements the code processing engine.
- * 
+ * This visitor implements the code processing engine. It applies one or
+ * several processors in a single traversal: the processors interested in a
+ * given element class are computed once per class, from their processed
+ * element types and traversal strategies.
  */
-public class ProcessingVisitor extends CtScanner {
+public class ProcessingVisitor extends CtIterativeScanner {
+
+	private static final Processor<?>[] NONE = new Processor<?>[0];
 
 	Factory factory;
 
 	Processor<?> processor;
 
+	List<Processor<?>> processors = Collections.emptyList();
+
+	private final Map<Class<?>, Processor<?>[]> preOrder = new HashMap<Class<?>, Processor<?>[]>();
+
+	private final Map<Class<?>, Processor<?>[]> postOrder = new HashMap<Class<?>, Processor<?>[]>();
+
 	/**
 	 * The constructor.
 	 */
@@ -43,11 +58,34 @@ public class ProcessingVisitor extends CtScanner {
 		this.factory = factory;
 	}
 
-	private boolean canBeProcessed(Processor<?> p, CtElement e) {
-		if (!factory.getEnvironment().isProcessingStopped()
-				&& p.getProcessedElementTypes() != null) {
+	/**
+	 * Gets the processors of the given traversal strategy that process the
+	 * given element class, in the order of {@link #getProcessors()}.
+	 */
+	private Processor<?>[] getProcessors(Class<?> elementClass,
+			TraversalStrategy strategy) {
+		Map<Class<?>, Processor<?>[]> table = strategy == TraversalStrategy.PRE_ORDER ? preOrder
+				: postOrder;
+		Processor<?>[] interested = table.get(elementClass);
+		if (interested == null) {
+			List<Processor<?>> l = new ArrayList<Processor<?>>();
+			for (Processor<?> p : processors) {
+				if (p.getTraversalStrategy() == strategy
+						&& canBeProcessed(p, elementClass)) {
+					l.add(p);
+				}
+			}
+			interested = l.isEmpty() ? NONE : l.toArray(new Processor<?>[l
+					.size()]);
+			table.put(elementClass, interested);
+		}
+		return interested;
+	}
+
+	private boolean canBeProcessed(Processor<?> p, Class<?> elementClass) {
+		if (p.getProcessedElementTypes() != null) {
 			for (Object o : p.getProcessedElementTypes()) {
-				if (((Class<?>) o).isAssignableFrom(e.getClass())) {
+				if (((Class<?>) o).isAssignableFrom(elementClass)) {
 					return true;
 				}
 			}
@@ -55,13 +93,28 @@ public class ProcessingVisitor extends CtScanner {
 		return false;
 	}
 
+	/**
+	 * Gets the processor applied by this visitor, or the first one if it
+	 * applies several processors.
+	 */
 	public Processor<?> getProcessor() {
 		return processor;
 	}
 
+	/**
+	 * Gets the processors applied by this visitor.
+	 */
+	public List<Processor<?>> getProcessors() {
+		return processors;
+	}
+
+	/**
+	 * Scans a copy of the given elements, which the processors may change,
+	 * when the scan recurses (see {@link CtIterativeScanner}).
+	 */
 	@Override
 	public void scan(Collection<? extends CtElement> elements) {
-		if ((elements != null)) {
+		if (elements != null) {
 			for (CtElement e : new ArrayList<CtElement>(elements)) {
 				scan(e);
 			}
@@ -69,34 +122,62 @@ public class ProcessingVisitor extends CtScanner {
 	}
 
 	/**
-	 * Applies the processing to the given element. To apply the processing,
-	 * this method upcalls, for all the registered processor in, the
-	 * {@link Processor#process(CtElement)} method if
-	 * {@link Processor#isToBeProcessed(CtElement)} returns true.
+	 * Skips the stubs, which are only built to resolve the other types.
+	 */
+	@Override
+	protected boolean isToBeScanned(CtElement e) {
+		return !(e instanceof CtType && factory.Type().isStub((CtType<?>) e));
+	}
+
+	/**
+	 * Applies the processing to the given element for the processors that use
+	 * a pre-order traversal. To apply the processing, this method upcalls the
+	 * {@link Processor#process(CtElement)} method of the processors if
+	 * {@link Processor#isToBeProcessed(CtElement)} returns true. The children
+	 * of the element are read after its processing.
 	 */
 	@Override
+	protected void enter(CtElement e) {
+		process(e, getProcessors(e.getClass(), TraversalStrategy.PRE_ORDER));
+	}
+
+	/**
+	 * Applies the processing to the given element for the processors that use
+	 * a post-order traversal.
+	 */
+	@Override
+	protected void exit(CtElement e) {
+		process(e, getProcessors(e.getClass(), TraversalStrategy.POST_ORDER));
+	}
+
 	@SuppressWarnings("unchecked")
-	public void scan(CtElement e) {
-		if (e == null) {
-			return;
-		}
-		Processor<CtElement> p=(Processor<CtElement>)processor;
-		if (p.getTraversalStrategy() == TraversalStrategy.PRE_ORDER
-				&& canBeProcessed(p, e)) {
-			if (p.isToBeProcessed(e)) {
-				p.process(e);
+	private void process(CtElement e, Processor<?>[] interested) {
+		for (Processor<?> processor : interested) {
+			if (factory.getEnvironment().isProcessingStopped()) {
+				return;
 			}
-		}
-		super.scan(e);
-		if (p.getTraversalStrategy() == TraversalStrategy.POST_ORDER
-				&& canBeProcessed(p, e)) {
+			Processor<CtElement> p = (Processor<CtElement>) processor;
 			if (p.isToBeProcessed(e)) {
 				p.process(e);
 			}
 		}
 	}
 
+	/**
+	 * Sets the processor applied by this visitor.
+	 */
 	public void setProcessor(Processor<?> processor) {
-		this.processor = processor;
+		setProcessors(Collections.<Processor<?>> singletonList(processor));
+	}
+
+	/**
+	 * Sets the processors applied by this visitor in a single traversal. On
+	 * each element, the processors are upcalled in the order of the list.
+	 */
+	public void setProcessors(List<Processor<?>> processors) {
+		this.processors = processors;
+		this.processor = processors.isEmpty() ? null : processors.get(0);
+		preOrder.clear();
+		postOrder.clear();
 	}
 }
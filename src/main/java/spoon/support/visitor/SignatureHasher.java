@@ -0,0 +1,79 @@
+/* 
+ * Spoon - http://spoon.gforge.inria.fr/
+ * Copyright (C) 2006 INRIA Futurs <renaud.pawlak@inria.fr>
+ * 
+ * This software is governed by the CeCILL-C License under French law and
+ * abiding by the rules of distribution of free software. You can use, modify 
+ * and/or redistribute the software under the terms of the CeCILL-C license as 
+ * circulated by CEA, CNRS and INRIA at http://www.cecill.info. 
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT 
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or 
+ * FITNESS FOR A PARTICULAR PURPOSE. See the CeCILL-C License for more details.
+ *  
+ * The fact that you are presently reading this means that you have had
+ * knowledge of the CeCILL-C license and that you accept its terms.
+ */
+
+package spoon.support.visitor;
+
+/**
+ * Computes the hash code of the signature of an element, as built by
+ * {@link SignaturePrinter}, without building the signature. The hash is the
+ * one of the signature string ({@link String#hashCode()}), so that elements
+ * of equal signatures have equal hashes.
+ */
+public class SignatureHasher extends SignatureVisitor {
+
+	private int hash;
+
+	/**
+	 * The last written character, which is not hashed yet since it can be
+	 * cleared, or -1.
+	 */
+	private int last;
+
+	public SignatureHasher() {
+		super();
+		reset();
+	}
+
+	/**
+	 * Gets the hash code of the signature of the scanned elements.
+	 */
+	public int getHash() {
+		return last < 0 ? hash : 31 * hash + last;
+	}
+
+	@Override
+	public void reset() {
+		hash = 0;
+		last = -1;
+	}
+
+	@Override
+	protected SignatureHasher write(String value) {
+		if (value == null) {
+			// as appended to a string buffer
+			value = "null";
+		}
+		int length = value.length();
+		if (length > 0) {
+			if (last >= 0) {
+				hash = 31 * hash + last;
+			}
+			for (int i = 0; i < length - 1; i++) {
+				hash = 31 * hash + value.charAt(i);
+			}
+			last = value.charAt(length - 1);
+		}
+		return this;
+	}
+
+	@Override
+	protected SignatureHasher clearLast() {
+		last = -1;
+		return this;
+	}
+
+}
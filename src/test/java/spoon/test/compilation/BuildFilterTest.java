@@ -0,0 +1,169 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.processing.AbstractProcessor;
+import spoon.processing.ProcessingManager;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.Filter;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.QualifiedNameFilter;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.QueueProcessingManager;
+
+public class BuildFilterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+
+	private void write(String name, String content) throws IOException {
+		FileWriter writer = new FileWriter(new File(sources, "p/" + name + ".java"));
+		writer.write("package p;\n\n" + content + "\n");
+		writer.close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sources = folder.newFolder("src");
+		new File(sources, "p").mkdirs();
+		write("A", "public class A {\n\tint foo() {\n\t\treturn new B().bar() + B.E.X.ordinal();\n\t}\n}");
+		write("B", "@Deprecated\npublic class B {\n\tstatic int count = 3;\n\tstatic { count++; }\n\tRunnable r = new Runnable() { public void run() { } };\n\tpublic int bar() {\n\t\treturn count;\n\t}\n\tenum E { X { }, Y }\n\tclass Inner { void baz() { } }\n}");
+		write("C", "class C { C(int i) { super(); } }");
+	}
+
+	private Factory build(Filter<CtType<?>> filter) {
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.setBuildFilter(filter);
+		compiler.addInputSource(sources);
+		compiler.build();
+		return factory;
+	}
+
+	@Test
+	public void testOnlyMatchingTypesAreFullyBuilt() throws Exception {
+		Factory factory = build(new QualifiedNameFilter("p.A"));
+		assertEquals(3, factory.Type().getAll().size());
+
+		CtType<?> a = factory.Type().get("p.A");
+		assertFalse(factory.Type().isStub(a));
+		assertEquals(3, factory.Package().get("p").getTypes().size());
+		assertSame(a, a.getPosition().getCompilationUnit().getDeclaredTypes().get(0));
+		assertEquals(1, a.getPosition().getCompilationUnit().getDeclaredTypes().size());
+
+		// the stubs have the signatures of the members
+		CtClass<?> b = (CtClass<?>) factory.Type().get("p.B");
+		assertTrue(factory.Type().isStub(b));
+		// the sub-factories of the types share the stubs
+		assertTrue(factory.Class().isStub(b));
+		assertNotNull(b.getAnnotation(Deprecated.class));
+		CtMethod<?> bar = b.getMethod("bar");
+		assertEquals("int", bar.getType().getQualifiedName());
+		assertNull(bar.getBody());
+		assertNull(b.getField("count").getDefaultExpression());
+		assertTrue(b.getAnonymousExecutables().isEmpty());
+		CtType<?> inner = b.getNestedType("Inner");
+		assertTrue(factory.Type().isStub(inner));
+		assertNull(inner.getMethodsByName("baz").get(0).getBody());
+		// B, E and Inner, without the anonymous classes
+		assertEquals(3, Query.getElements(b, new TypeFilter<CtClass<?>>(CtClass.class)).size());
+		assertNotNull(((CtClass<?>) factory.Type().get("p.C")).getConstructors().iterator().next());
+
+		// the full types are linked to the stubs
+		CtInvocation<?> barInvocation = null;
+		for (CtInvocation<?> invocation : Query.getElements(a,
+				new TypeFilter<CtInvocation<?>>(CtInvocation.class))) {
+			if ("bar".equals(invocation.getExecutable().getSimpleName())) {
+				barInvocation = invocation;
+			}
+		}
+		assertSame(bar, barInvocation.getExecutable().getDeclaration());
+	}
+
+	@Test
+	public void testQualifiedNamesAreMatchedBeforeBuilding() throws Exception {
+		final List<CtType<?>> given = new ArrayList<CtType<?>>();
+		Factory factory = build(new QualifiedNameFilter("p.A") {
+			@Override
+			public boolean matches(CtType<?> element) {
+				given.add(element);
+				return super.matches(element);
+			}
+		});
+		// no type is built twice to be given to the filter
+		assertTrue(given.isEmpty());
+		assertFalse(factory.Type().isStub(factory.Type().get("p.A")));
+		assertTrue(factory.Type().isStub(factory.Type().get("p.B")));
+		assertTrue(factory.Type().isStub(factory.Type().get("p.C")));
+	}
+
+	@Test
+	public void testFilterIsGivenTheStubs() throws Exception {
+		Factory factory = build(new Filter<CtType<?>>() {
+			public boolean matches(CtType<?> type) {
+				return type.getAnnotation(Deprecated.class) != null;
+			}
+		});
+		assertFalse(factory.Type().isStub(factory.Type().get("p.B")));
+		assertTrue(factory.Type().isStub(factory.Type().get("p.A")));
+		CtClass<?> b = (CtClass<?>) factory.Type().get("p.B");
+		assertNotNull(b.getMethod("bar").getBody());
+		assertEquals(1, b.getAnonymousExecutables().size());
+		assertEquals(3, factory.Package().get("p").getTypes().size());
+		assertEquals(3, factory.Type().getAll().size());
+	}
+
+	@Test
+	public void testStubsAreNotProcessed() throws Exception {
+		Factory factory = build(new QualifiedNameFilter("**A"));
+		final List<String> processed = new ArrayList<String>();
+		ProcessingManager manager = new QueueProcessingManager(factory);
+		manager.addProcessor(new AbstractProcessor<CtMethod<?>>() {
+			public void process(CtMethod<?> method) {
+				processed.add(method.getSimpleName());
+			}
+		});
+		manager.process();
+		assertEquals(1, processed.size());
+		assertEquals("foo", processed.get(0));
+	}
+
+	@Test
+	public void testQualifiedNameFilter() throws Exception {
+		Factory factory = build(null);
+		CtType<?> b = factory.Type().get("p.B");
+		assertFalse(factory.Type().isStub(b));
+		assertTrue(new QualifiedNameFilter("p.*").matches(b));
+		assertTrue(new QualifiedNameFilter("**").matches(b));
+		assertTrue(new QualifiedNameFilter("x.**", "p.B").matches(b));
+		assertFalse(new QualifiedNameFilter("*").matches(b));
+		assertFalse(new QualifiedNameFilter("p.A*").matches(b));
+		assertTrue(new QualifiedNameFilter("**.B").matches(b));
+	}
+
+}
@@ -0,0 +1,195 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.IncrementalBuildState;
+
+public class IncrementalBuildTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+
+	private File state;
+
+	private void write(String name, String content) throws IOException {
+		FileWriter writer = new FileWriter(new File(sources, "p/" + name + ".java"));
+		writer.write("package p;\n\n" + content + "\n");
+		writer.close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sources = folder.newFolder("src");
+		new File(sources, "p").mkdirs();
+		state = new File(folder.getRoot(), "state");
+		write("A", "public class A { public int foo() { return 1; } }");
+		write("B", "public class B { int bar() { return new A().foo(); } }");
+		write("C", "public class C { }");
+		write("E", "public class E { int baz() { return new A().foo(); } }");
+	}
+
+	private Factory build(Factory factory, boolean onlyOutdated) {
+		Launcher launcher = new Launcher();
+		if (factory == null) {
+			factory = launcher.createFactory();
+			factory.getEnvironment().setNoClasspath(true);
+		}
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.setBuildStateFile(state);
+		compiler.setBuildOnlyOutdatedFiles(onlyOutdated);
+		compiler.addInputSource(sources);
+		compiler.build();
+		return factory;
+	}
+
+	@Test
+	public void testRebuildOnlyChangedFilesAndDependents() throws Exception {
+		Factory factory = build(null, false);
+		assertEquals(4, factory.Type().getAll().size());
+		CtType<?> a = factory.Type().get("p.A");
+		CtType<?> b = factory.Type().get("p.B");
+		CtType<?> c = factory.Type().get("p.C");
+
+		// nothing changed: nothing is rebuilt
+		build(factory, false);
+		assertSame(a, factory.Type().get("p.A"));
+		assertSame(b, factory.Type().get("p.B"));
+
+		// A changed: A and its dependents are rebuilt
+		write("A", "public class A { public int foo() { return 2; } public void other() { } }");
+		build(factory, false);
+		assertEquals(4, factory.Type().getAll().size());
+		assertNotSame(a, factory.Type().get("p.A"));
+		assertNotNull(factory.Type().get("p.A").getMethod("other"));
+		assertNotSame(b, factory.Type().get("p.B"));
+		assertNotSame(b.getPosition().getCompilationUnit(), factory.Type().get("p.B").getPosition().getCompilationUnit());
+		assertSame(c, factory.Type().get("p.C"));
+		assertEquals(4, factory.Package().get("p").getTypes().size());
+
+		// E changed: A is only resolved from the source path
+		CtType<?> newA = factory.Type().get("p.A");
+		write("E", "public class E { long baz() { return new A().foo(); } }");
+		build(factory, false);
+		assertSame(newA, factory.Type().get("p.A"));
+		CtInvocation<?> invocation = null;
+		for (CtInvocation<?> i : Query.getElements(factory.Type().get("p.E"),
+				new TypeFilter<CtInvocation<?>>(CtInvocation.class))) {
+			if ("foo".equals(i.getExecutable().getSimpleName())) {
+				invocation = i;
+			}
+		}
+		assertEquals("p.A", invocation.getExecutable().getDeclaringType().getQualifiedName());
+		assertEquals("int", invocation.getType().getQualifiedName());
+
+		// C removed
+		new File(sources, "p/C.java").delete();
+		build(factory, false);
+		assertNull(factory.Type().get("p.C"));
+		assertEquals(3, factory.Type().getAll().size());
+	}
+
+	@Test
+	public void testRebuildIndirectDependentsAndUnresolvedReferences() throws Exception {
+		write("F", "public class F { int f() { return new B().bar(); } }");
+		write("G", "public class G { N n; }");
+		Factory factory = build(null, false);
+		CtType<?> c = factory.Type().get("p.C");
+		CtType<?> f = factory.Type().get("p.F");
+		CtType<?> g = factory.Type().get("p.G");
+		assertNull(g.getField("n").getType().getDeclaration());
+
+		// F depends on A through B
+		write("A", "public class A { public int foo() { return 2; } }");
+		build(factory, false);
+		assertNotSame(f, factory.Type().get("p.F"));
+		assertSame(c, factory.Type().get("p.C"));
+		assertSame(g, factory.Type().get("p.G"));
+
+		// the new file declares the type that G could not resolve
+		write("N", "public class N { }");
+		build(factory, false);
+		assertNotNull(factory.Type().get("p.N"));
+		assertNotSame(g, factory.Type().get("p.G"));
+		assertEquals("p.N", factory.Type().get("p.G").getField("n").getType().getQualifiedName());
+		assertSame(c, factory.Type().get("p.C"));
+	}
+
+	@Test
+	public void testFullBuildWhenModelIsNotAvailable() throws Exception {
+		build(null, false);
+		write("C", "public class C { int i; }");
+
+		// the factory is empty, the whole model has to be built
+		Factory factory = build(null, false);
+		assertEquals(4, factory.Type().getAll().size());
+		assertNotNull(((CtClass<?>) factory.Type().get("p.C")).getField("i"));
+	}
+
+	@Test
+	public void testBuildOnlyOutdatedFiles() throws Exception {
+		build(null, true);
+		write("A", "public class A { public int foo() { return 2; } }");
+
+		Factory factory = build(null, true);
+		assertNotNull(factory.Type().get("p.A"));
+		assertNotNull(factory.Type().get("p.B"));
+		assertNotNull(factory.Type().get("p.E"));
+		assertNull(factory.Type().get("p.C"));
+	}
+
+	static boolean deserialized;
+
+	static class Unexpected implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private void readObject(ObjectInputStream in) throws IOException,
+				ClassNotFoundException {
+			in.defaultReadObject();
+			deserialized = true;
+		}
+	}
+
+	@Test
+	public void testBuildStateOnlyReadsItsClasses() throws Exception {
+		ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(state));
+		out.writeObject(new Unexpected());
+		out.close();
+
+		deserialized = false;
+		assertNotNull(IncrementalBuildState.load(state));
+		assertFalse(deserialized);
+
+		// the saved states are read, so that no file is outdated
+		build(null, false);
+		assertEquals(0, build(null, true).Type().getAll().size());
+	}
+
+}
@@ -0,0 +1,126 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+
+public class LazyBodiesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+
+	private void write(String name, String content) throws IOException {
+		FileWriter writer = new FileWriter(new File(sources, "p/" + name + ".java"));
+		writer.write("package p;\n\n" + content + "\n");
+		writer.close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sources = folder.newFolder("src");
+		new File(sources, "p").mkdirs();
+		write("A", "public class A<T> {\n\tjava.util.List<T> values = new java.util.ArrayList<T>();\n\tpublic A() {\n\t\tthis(null);\n\t}\n\tA(T t) {\n\t\tsuper();\n\t\tvalues.add(t);\n\t}\n\tpublic int foo(T t) {\n\t\tvalues.add(t);\n\t\treturn values.size();\n\t}\n}");
+		write("B", "public class B extends A<String> {\n\tRunnable r = new Runnable() {\n\t\tpublic void run() {\n\t\t\tbar();\n\t\t}\n\t};\n\tint bar() {\n\t\tclass L { int l() { return 1; } }\n\t\ttry {\n\t\t\treturn foo(\"b\") * new L().l();\n\t\t} catch (RuntimeException e) {\n\t\t\treturn -1;\n\t\t}\n\t}\n\tnative void n();\n}");
+		write("D", "public interface D { void d(int... values); }");
+	}
+
+	private Factory build(boolean lazy, boolean release) {
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.setLazyBodies(lazy);
+		compiler.setReleaseLazyBodies(release);
+		compiler.addInputSource(sources);
+		compiler.build();
+		return factory;
+	}
+
+	@Test
+	public void testLazyBodiesAreBuiltOnAccess() throws Exception {
+		Factory eager = build(false, false);
+		Factory lazy = build(true, false);
+		assertEquals(eager.Type().getAll().size(), lazy.Type().getAll().size());
+
+		// the signatures are available without building the bodies
+		CtMethod<?> foo = lazy.Type().get("p.A").getMethod("foo",
+				lazy.Type().get("p.A").getFormalTypeParameters().get(0));
+		assertNotNull(foo);
+		assertEquals("int", foo.getType().getQualifiedName());
+		assertNotNull(((CtExecutableImpl<?>) foo).getLazyBody());
+
+		// accessing a body builds the bodies of the whole unit
+		CtBlock<?> body = foo.getBody();
+		assertEquals(2, body.getStatements().size());
+		assertSame(foo, body.getParent());
+		assertSame(body, foo.getBody());
+		for (CtConstructor<?> c : ((CtClass<?>) lazy.Type().get("p.A"))
+				.getConstructors()) {
+			assertNull(((CtExecutableImpl<?>) c).getLazyBody());
+		}
+		assertEquals(body.getPosition().getLine(), eager.Type().get("p.A")
+				.getMethodsByName("foo").get(0).getBody().getPosition()
+				.getLine());
+
+		for (CtType<?> type : eager.Type().getAll()) {
+			assertEquals(type.toString(), lazy.Type().get(type.getQualifiedName()).toString());
+		}
+	}
+
+	@Test
+	public void testClonedExecutableGetsItsOwnBody() throws Exception {
+		Factory lazy = build(true, false);
+		CtMethod<?> bar = lazy.Type().get("p.B").getMethod("bar");
+		CtMethod<?> clone = lazy.Core().clone(bar);
+		clone.setParent(bar.getDeclaringType());
+		assertNotNull(clone.getBody());
+		assertSame(clone, clone.getBody().getParent());
+		assertEquals(bar.getBody().toString(), clone.getBody().toString());
+		assertNull(lazy.Type().get("p.B").getMethod("n").getBody());
+	}
+
+	@Test
+	public void testReleasedBodiesAreBuiltAgain() throws Exception {
+		Factory eager = build(false, false);
+		Factory lazy = build(true, true);
+		CtMethod<?> bar = lazy.Type().get("p.B").getMethod("bar");
+		assertEquals(eager.Type().get("p.B").getMethod("bar").getBody().toString(),
+				bar.getBody().toString());
+		// the accessed body is kept, and the others of the unit are only
+		// softly referenced
+		assertNull(((CtExecutableImpl<?>) bar).getLazyBody());
+		CtMethod<?> n = lazy.Type().get("p.B").getMethod("n");
+		CtMethod<?> foo = lazy.Type().get("p.A").getMethodsByName("foo").get(0);
+		assertNotNull(foo.getBody());
+		assertNull(((CtExecutableImpl<?>) foo).getLazyBody());
+		for (CtConstructor<?> c : lazy.Class().get("p.A").getConstructors()) {
+			assertNotNull(((CtExecutableImpl<?>) c).getLazyBody());
+		}
+		assertNull(n.getBody());
+		for (CtType<?> type : eager.Type().getAll()) {
+			assertEquals(type.toString(), lazy.Type().get(type.getQualifiedName()).toString());
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.compiler.BinaryModelCache;
+
+public class ModelCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+
+	private File cache;
+
+	private void write(String name, String content) throws IOException {
+		FileWriter writer = new FileWriter(new File(sources, "p/" + name + ".java"));
+		writer.write("package p;\n\n" + content + "\n");
+		writer.close();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sources = folder.newFolder("src");
+		new File(sources, "p").mkdirs();
+		cache = folder.newFolder("cache");
+		write("A", "public class A<T> {\n\tjava.util.List<T> values = new java.util.ArrayList<T>();\n\tpublic int foo(T t) {\n\t\tvalues.add(t);\n\t\treturn values.size();\n\t}\n}");
+		write("B", "@Deprecated\npublic class B extends A<String> {\n\tint bar() {\n\t\ttry {\n\t\t\treturn foo(\"b\") * 2;\n\t\t} catch (RuntimeException e) {\n\t\t\treturn -1;\n\t\t}\n\t}\n}");
+		write("C", "public enum C { X, Y; static final String[] NAMES = { \"x\", \"y\" }; }");
+		write("D", "public interface D { @SuppressWarnings(\"unchecked\") void d(int... values); }");
+	}
+
+	private Factory build() {
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.setModelCacheDirectory(cache);
+		compiler.addInputSource(sources);
+		compiler.build();
+		return factory;
+	}
+
+	private void assertSameModel(Factory expected, Factory actual) {
+		assertEquals(expected.Type().getAll().size(), actual.Type().getAll().size());
+		for (CtType<?> type : expected.Type().getAll()) {
+			CtType<?> other = actual.Type().get(type.getQualifiedName());
+			assertNotNull(other);
+			assertEquals(type.toString(), other.toString());
+			assertEquals(type.getPosition().getLine(), other.getPosition().getLine());
+			assertEquals(type.getPosition().getFile(), other.getPosition().getFile());
+			assertEquals(type.getPosition().getCompilationUnit().getDeclaredTypes().size(),
+					other.getPosition().getCompilationUnit().getDeclaredTypes().size());
+		}
+	}
+
+	@Test
+	public void testWarmBuildLoadsModelFromCache() throws Exception {
+		Factory cold = build();
+		assertEquals(0, cold.getEnvironment().getModelCacheHitCount());
+		assertEquals(4, cold.getEnvironment().getModelCacheMissCount());
+
+		Factory warm = build();
+		assertEquals(4, warm.getEnvironment().getModelCacheHitCount());
+		assertEquals(0, warm.getEnvironment().getModelCacheMissCount());
+		assertSameModel(cold, warm);
+		CtType<?> b = warm.Type().get("p.B");
+		assertEquals("p.A", b.getSuperclass().getQualifiedName());
+		assertEquals(b, b.getMethod("bar").getDeclaringType());
+		assertEquals(warm, b.getFactory());
+		assertEquals("p", b.getPackage().getQualifiedName());
+	}
+
+	@Test
+	public void testChangedFilesAreRebuilt() throws Exception {
+		build();
+		write("C", "public enum C { X, Y, Z; }");
+
+		Factory factory = build();
+		assertEquals(3, factory.getEnvironment().getModelCacheHitCount());
+		assertEquals(1, factory.getEnvironment().getModelCacheMissCount());
+		assertNotNull(((CtClass<?>) factory.Type().get("p.C")).getField("Z"));
+
+		Factory warm = build();
+		assertEquals(4, warm.getEnvironment().getModelCacheHitCount());
+		assertSameModel(factory, warm);
+	}
+
+	@Test
+	public void testClasspathFingerprintDependsOnTheContent() throws Exception {
+		File classes = folder.newFolder("classes");
+		File classFile = new File(classes, "X.class");
+		FileWriter writer = new FileWriter(classFile);
+		writer.write("aaaa");
+		writer.close();
+		long date = classFile.lastModified();
+		String fingerprint = BinaryModelCache.computeClasspathFingerprint(classes.getPath());
+
+		// same size and date, but another content
+		writer = new FileWriter(classFile);
+		writer.write("bbbb");
+		writer.close();
+		classFile.setLastModified(date);
+		assertFalse(fingerprint.equals(BinaryModelCache.computeClasspathFingerprint(classes.getPath())));
+	}
+
+}
@@ -0,0 +1,66 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+public class ParallelBuildTest {
+
+	private Factory build(int threadCount) {
+		// test-classes contains Java files (see MainTest)
+		StringBuilder classpath = new StringBuilder();
+		for (String classpathEntry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (!classpathEntry.contains("test-classes")) {
+				classpath.append(classpathEntry);
+				classpath.append(File.pathSeparator);
+			}
+		}
+		Launcher launcher = new Launcher();
+		launcher.setArgs(new String[] {
+				"-i", "src/main/java",
+				"--source-classpath", classpath.substring(0, classpath.length() - 1),
+				"--build-threads", String.valueOf(threadCount),
+				"--output-type", "nooutput" });
+		assertEquals(threadCount, launcher.getModelBuilder().getBuildThreadCount());
+		launcher.buildModel();
+		return launcher.getFactory();
+	}
+
+	private List<String> getTypeNames(Factory factory) {
+		List<String> names = new ArrayList<String>();
+		for (CtType<?> t : factory.Type().getAll(true)) {
+			names.add(t.getQualifiedName());
+		}
+		return names;
+	}
+
+	@Test
+	public void testParallelBuildProducesSameModel() throws Exception {
+		Factory serial = build(1);
+		Factory parallel = build(4);
+
+		assertEquals(getTypeNames(serial), getTypeNames(parallel));
+		assertEquals(serial.CompilationUnit().getMap().keySet(), parallel
+				.CompilationUnit().getMap().keySet());
+
+		List<CtType<?>> serialTypes = serial.Type().getAll();
+		List<CtType<?>> parallelTypes = parallel.Type().getAll();
+		for (int i = 0; i < serialTypes.size(); i++) {
+			assertEquals(serialTypes.get(i).toString(), parallelTypes.get(i)
+					.toString());
+			assertEquals(serialTypes.get(i).getPosition().getCompilationUnit()
+					.getDeclaredTypes().size(), parallelTypes.get(i)
+					.getPosition().getCompilationUnit().getDeclaredTypes()
+					.size());
+		}
+	}
+
+}
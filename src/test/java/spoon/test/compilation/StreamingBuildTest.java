@@ -0,0 +1,146 @@
+package spoon.test.compilation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.lookup.CompilationUnitScope;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+import spoon.support.compiler.jdt.JDTTreeBuilder;
+
+public class StreamingBuildTest {
+
+	private static final int CLASS_COUNT = 150;
+
+	private static final int METHOD_COUNT = 40;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Generates a large program, where each class uses the previous one.
+	 */
+	private File generateSources() throws IOException {
+		File dir = folder.newFolder("gen");
+		for (int i = 0; i < CLASS_COUNT; i++) {
+			StringBuilder src = new StringBuilder();
+			src.append("package gen;\n\n");
+			src.append("public class C" + i + " {\n");
+			src.append("\tjava.util.List<String> values = new java.util.ArrayList<String>();\n");
+			for (int j = 0; j < METHOD_COUNT; j++) {
+				src.append("\tpublic int m" + j + "(int p, String s) {\n");
+				src.append("\t\tint r = p * " + j + ";\n");
+				src.append("\t\tfor (int k = 0; k < p; k++) {\n");
+				src.append("\t\t\tif (s.length() > k) {\n");
+				src.append("\t\t\t\tr += s.charAt(k) + values.size();\n");
+				src.append("\t\t\t} else {\n");
+				src.append("\t\t\t\tvalues.add(s + \"_\" + k + \"_" + j + "\");\n");
+				src.append("\t\t\t}\n");
+				src.append("\t\t}\n");
+				if (i > 0) {
+					src.append("\t\tr += new C" + (i - 1) + "().m" + j + "(r % 7, s.trim());\n");
+				}
+				src.append("\t\treturn r;\n");
+				src.append("\t}\n");
+			}
+			src.append("}\n");
+			FileWriter writer = new FileWriter(new File(dir, "C" + i + ".java"));
+			writer.write(src.toString());
+			writer.close();
+		}
+		return dir;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Builds the given sources and returns how much the heap usage measured
+	 * (after a garbage collection) while building the model exceeds the heap
+	 * usage of the built model alone.
+	 */
+	private long buildAndMeasure(File sources, boolean streaming) {
+		final long[] peak = new long[1];
+		final Factory factory = new Launcher().createFactory();
+		SpoonCompiler compiler = new JDTBasedSpoonCompiler(factory) {
+			@Override
+			protected JDTTreeBuilder createTreeBuilder() {
+				return new JDTTreeBuilder(factory) {
+					int count = 0;
+
+					@Override
+					public void endVisit(CompilationUnitDeclaration compilationUnitDeclaration, CompilationUnitScope scope) {
+						super.endVisit(compilationUnitDeclaration, scope);
+						count++;
+						if (count % 25 == 0 || count == CLASS_COUNT) {
+							peak[0] = Math.max(peak[0], usedMemory());
+						}
+					}
+				};
+			}
+		};
+		compiler.setStreamingBuild(streaming);
+		compiler.addInputSource(sources);
+		compiler.build();
+		long model = usedMemory();
+		assertEquals(CLASS_COUNT, factory.Type().getAll().size());
+		return peak[0] - model;
+	}
+
+	private Factory build(File sources, boolean streaming) {
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.setStreamingBuild(streaming);
+		compiler.addInputSource(sources);
+		compiler.build();
+		return factory;
+	}
+
+	@Test
+	public void testStreamingBuildProducesSameModel() throws Exception {
+		File sources = generateSources();
+		Factory batch = build(sources, false);
+		Factory streaming = build(sources, true);
+
+		List<CtType<?>> batchTypes = batch.Type().getAll();
+		List<CtType<?>> streamingTypes = streaming.Type().getAll();
+		assertEquals(CLASS_COUNT, streamingTypes.size());
+		for (int i = 0; i < batchTypes.size(); i++) {
+			assertEquals(batchTypes.get(i).getQualifiedName(), streamingTypes.get(i).getQualifiedName());
+			assertEquals(batchTypes.get(i).toString(), streamingTypes.get(i).toString());
+			assertEquals(batchTypes.get(i).getPosition().getLine(), streamingTypes.get(i).getPosition().getLine());
+		}
+	}
+
+	@Test
+	public void testStreamingBuildLowersPeakHeap() throws Exception {
+		File sources = generateSources();
+		long batchOverhead = buildAndMeasure(sources, false);
+		long streamingOverhead = buildAndMeasure(sources, true);
+
+		// the JDT units are not kept alive together with the whole model
+		assertTrue("streaming build overhead (" + streamingOverhead
+				+ ") should be lower than the batch build overhead ("
+				+ batchOverhead + ")", streamingOverhead < batchOverhead / 2);
+	}
+
+}
@@ -2,20 +2,32 @@ package spoon.test.factory;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static spoon.test.TestUtils.build;
 
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import spoon.Launcher;
 import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.CoreFactory;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.reference.CtTypeReference;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.StandardEnvironment;
 import spoon.support.reflect.declaration.CtMethodImpl;
+import spoon.support.util.ModelChanges;
 import spoon.test.TestUtils;
 
 public class FactoryTest {
@@ -60,4 +72,104 @@ public class FactoryTest {
 		
 		Assert.assertTrue(m instanceof MyCtMethod);
 	}
+
+	@Test
+	public void testTypesAreFoundByQualifiedName() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> a = factory.Class().create("p.q.A");
+		CtClass<?> b = factory.Class().create(a, "B");
+		a.addNestedType(b);
+		b.setParent(a);
+		assertSame(a, factory.Type().get("p.q.A"));
+		assertSame(b, factory.Type().get("p.q.A$B"));
+		assertSame(a.getPackage(), factory.Package().get("p.q"));
+		assertEquals(1, factory.Type().getAll().size());
+		assertEquals(2, factory.Type().getAll(true).size());
+		// the lists are shared until the package tree changes
+		List<CtType<?>> all = factory.Type().getAll();
+		assertSame(all, factory.Type().getAll());
+		try {
+			all.clear();
+			fail();
+		} catch (UnsupportedOperationException ex) {
+		}
+
+		// the registry follows the changes of the model
+		CtClass<?> c = factory.Class().create("p.C");
+		assertSame(c, factory.Type().get("p.C"));
+		assertEquals(2, factory.Type().getAll().size());
+		a.setSimpleName("D");
+		assertNull(factory.Type().get("p.q.A"));
+		assertSame(b, factory.Type().get("p.q.D$B"));
+		assertNotSame(all, factory.Type().getAll());
+		CtPackage p = factory.Package().get("p");
+		all = factory.Type().getAll();
+		p.removeType(c);
+		assertNull(factory.Type().get("p.C"));
+		assertNotSame(all, factory.Type().getAll());
+		assertFalse(factory.Type().getAll().contains(c));
+		for (CtType<?> t : factory.Type().getAll(true)) {
+			assertSame(t, factory.Type().get(t.getQualifiedName()));
+		}
+		assertEquals(2, factory.Package().getAll().size());
+
+		// the moved types and packages are found under their new names
+		CtPackage q = factory.Package().get("p.q");
+		q.removeType(a);
+		factory.Package().getOrCreate("r").addType(a);
+		assertNull(factory.Type().get("p.q.D"));
+		assertSame(a, factory.Type().get("r.D"));
+		assertSame(b, factory.Type().get("r.D$B"));
+		q.setSimpleName("s");
+		assertNull(factory.Package().get("p.q"));
+		assertSame(q, factory.Package().get("p.s"));
+		CtClass<?> e = factory.Class().create("p.s.E");
+		assertSame(e, factory.Type().get("p.s.E"));
+		assertTrue(factory.Type().getAll(true).contains(e));
+		q.getTypes().remove(e);
+		assertNull(factory.Type().get("p.s.E"));
+		assertFalse(factory.Type().getAll(true).contains(e));
+		q.getTypes().add(e);
+		assertSame(e, factory.Type().get("p.s.E"));
+		for (CtType<?> t : factory.Type().getAll(true)) {
+			assertSame(t, factory.Type().get(t.getQualifiedName()));
+		}
+	}
+
+	@Test
+	public void testRenamingsAreCountedByFactory() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		Factory other = new Launcher().createFactory();
+		CtClass<?> a = factory.Class().create("p.A");
+		CtField<?> f = factory.Field().create(a, null,
+				factory.Type().INTEGER_PRIMITIVE, "f");
+		assertSame(f, a.getField("f"));
+
+		int renamings = ModelChanges.of(factory).getRenamings();
+		f.setSimpleName("g");
+		assertEquals(renamings + 1, ModelChanges.of(factory).getRenamings());
+		assertEquals(0, ModelChanges.of(other).getRenamings());
+		// the index of the fields follows the renaming
+		assertNull(a.getField("f"));
+		assertSame(f, a.getField("g"));
+	}
+
+	@Test
+	public void testReferenceChangesAreCountedByFactory() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		Factory other = new Launcher().createFactory();
+		int changes = ModelChanges.of(factory).getReferenceChanges();
+		int otherChanges = ModelChanges.of(other).getReferenceChanges();
+
+		// creating a reference is not a change
+		CtTypeReference<?> reference = factory.Type().createReference("p.A");
+		assertEquals(changes, ModelChanges.of(factory).getReferenceChanges());
+		reference.setSimpleName("A");
+		assertEquals(changes, ModelChanges.of(factory).getReferenceChanges());
+
+		reference.setSimpleName("B");
+		reference.setPackage(factory.Package().createReference("q"));
+		assertEquals(changes + 2, ModelChanges.of(factory).getReferenceChanges());
+		assertEquals(otherChanges, ModelChanges.of(other).getReferenceChanges());
+	}
 }
@@ -1,9 +1,14 @@
 package spoon.test.filters;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Before;
@@ -14,15 +19,21 @@ import spoon.compiler.SpoonResourceHelper;
 import spoon.reflect.code.CtCFlowBreak;
 import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtFieldAccess;
+import spoon.reflect.code.CtInvocation;
 import spoon.reflect.code.CtNewClass;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtVariableAccess;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtVariable;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.AbstractFilter;
 import spoon.reflect.visitor.filter.AnnotationFilter;
 import spoon.reflect.visitor.filter.CompositeFilter;
 import spoon.reflect.visitor.filter.FieldAccessFilter;
@@ -32,6 +43,7 @@ import spoon.reflect.visitor.filter.RegexFilter;
 import spoon.reflect.visitor.filter.ReturnOrThrowFilter;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.reflect.declaration.CtMethodImpl;
+import spoon.support.visitor.ElementIndex;
 import spoon.test.TestUtils;
 
 public class FilterTest {
@@ -140,6 +152,26 @@ public class FilterTest {
 		assertTrue(filteredWithCompositeFilter.containsAll(union));
 	}
 	
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	@Test
+	public void substractionOfTwoFilters() throws Exception {
+		Factory factory = TestUtils.build("spoon.test", "SampleClass").getFactory();
+		TypeFilter<CtElement> elementFilter = new TypeFilter<CtElement>(CtElement.class);
+		TypeFilter<CtMethod> methodFilter = new TypeFilter<CtMethod>(CtMethod.class);
+		CompositeFilter compositeFilter = new CompositeFilter(FilteringOperator.SUBSTRACTION, elementFilter, methodFilter);
+
+		List filteredWithCompositeFilter = Query.getElements(factory, compositeFilter);
+		List<CtElement> elements = Query.getElements(factory, elementFilter);
+		List<CtMethod> methods = Query.getElements(factory, methodFilter);
+
+		// the elements that the method filter is not given are kept
+		assertTrue(methods.size() > 0);
+		assertEquals(elements.size() - methods.size(), filteredWithCompositeFilter.size());
+		for (CtMethod method : methods) {
+			assertTrue(!filteredWithCompositeFilter.contains(method));
+		}
+	}
+
 	@SuppressWarnings({"rawtypes", "unchecked"})
 	@Test
 	public void classCastExceptionIsNotThrown() throws Exception {
@@ -151,4 +183,185 @@ public class FilterTest {
 		assertTrue(filteredWithCompositeFilter.isEmpty());
 	}
 
+	@Test
+	public void testIndexedQueriesFindTheScannedElements() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.filters").getType("Foo");
+		CtMethod<?> fooMethod = foo.getMethod("foo");
+		TypeFilter<CtVariableAccess<?>> accessFilter = new TypeFilter<CtVariableAccess<?>>(CtVariableAccess.class);
+		AbstractFilter<CtInvocation<?>> printFilter = new AbstractFilter<CtInvocation<?>>(CtInvocation.class) {
+			@Override
+			public boolean matches(CtInvocation<?> element) {
+				return "println".equals(element.getExecutable().getSimpleName());
+			}
+		};
+		List<CtVariableAccess<?>> accesses = Query.getElements(factory, accessFilter);
+		List<CtVariableAccess<?>> fooAccesses = fooMethod.getElements(accessFilter);
+		List<CtInvocation<?>> prints = foo.getElements(printFilter);
+		List<CtElement> elements = Query.getElements(factory, new TypeFilter<CtElement>(CtElement.class));
+
+		factory.getEnvironment().setIndexingElements(true);
+		assertEquals(accesses, Query.getElements(factory, accessFilter));
+		assertEquals(fooAccesses, fooMethod.getElements(accessFilter));
+		assertEquals(5, fooAccesses.size());
+		assertEquals(prints, foo.getElements(printFilter));
+		assertEquals(1, prints.size());
+		assertEquals(elements, Query.getElements(factory, new TypeFilter<CtElement>(CtElement.class)));
+
+		// the index follows the removed and the attached elements
+		CtStatement print = fooMethod.getBody().getLastStatement();
+		fooMethod.getBody().removeStatement(print);
+		assertTrue(foo.getElements(printFilter).isEmpty());
+		assertEquals(3, fooMethod.getElements(accessFilter).size());
+		fooMethod.getBody().insertEnd(print);
+		assertEquals(prints, foo.getElements(printFilter));
+		assertEquals(fooAccesses, fooMethod.getElements(accessFilter));
+	}
+
+	@Test
+	public void testElementIndexScansTheChangedTypesOnly() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.filters").getType("Foo");
+		CtClass<?> bar = factory.Class().create("spoon.test.filters.Bar");
+		CtMethod<?> fooMethod = foo.getMethod("foo");
+		final List<CtType<?>> scanned = new ArrayList<CtType<?>>();
+		ElementIndex index = new ElementIndex(factory) {
+			@Override
+			protected Tree buildPart(CtType<?> type) {
+				scanned.add(type);
+				return super.buildPart(type);
+			}
+		};
+		List<CtInvocation<?>> invocations = Query.getElements(factory, new TypeFilter<CtInvocation<?>>(CtInvocation.class));
+		assertEquals(invocations, index.getElements(CtInvocation.class));
+		assertEquals(2, scanned.size());
+
+		// a list of children changed in place is noticed
+		scanned.clear();
+		CtStatement print = fooMethod.getBody().getLastStatement();
+		fooMethod.getBody().getStatements().remove(print);
+		assertEquals(invocations.size() - 1, index.getElements(foo, CtInvocation.class).size());
+		assertFalse(index.contains(print));
+		assertEquals(Arrays.asList(foo), scanned);
+		fooMethod.getBody().getStatements().add(print);
+		assertEquals(invocations, index.getElements(CtInvocation.class));
+		assertTrue(index.contains(print));
+		assertEquals(Arrays.asList(foo, foo), scanned);
+
+		// the removed and the added types
+		scanned.clear();
+		CtMethod<?> copy = factory.Core().clone(fooMethod);
+		CtClass<?> baz = factory.Class().create("spoon.test.filters.Baz");
+		baz.addMethod(copy);
+		factory.Package().get("spoon.test.filters").getTypes().remove(bar);
+		assertEquals(Query.getElements(factory, new TypeFilter<CtMethod<?>>(CtMethod.class)),
+				index.getElements(CtMethod.class));
+		assertTrue(index.getElements(CtMethod.class).contains(copy));
+		assertFalse(index.contains(bar));
+		assertEquals(Arrays.asList(baz), scanned);
+	}
+
+	@Test
+	public void testQueriesStopAtTheLimit() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.filters").getType("Foo");
+		final List<CtElement> tested = new ArrayList<CtElement>();
+		Filter<CtVariableAccess<?>> accessFilter = new Filter<CtVariableAccess<?>>() {
+			public boolean matches(CtVariableAccess<?> element) {
+				tested.add(element);
+				return true;
+			}
+		};
+		List<CtVariableAccess<?>> accesses = foo.getElements(accessFilter);
+		assertTrue(accesses.size() > 2);
+		int all = tested.size();
+
+		tested.clear();
+		assertEquals(accesses.subList(0, 2), Query.getElements(foo, accessFilter, 2));
+		assertTrue(tested.size() < all);
+		tested.clear();
+		assertSame(accesses.get(0), foo.getFirstElement(accessFilter));
+		assertSame(accesses.get(0), tested.get(tested.size() - 1));
+		assertSame(accesses.get(0), Query.getFirstElement(factory, accessFilter));
+		assertTrue(Query.hasElement(foo, new TypeFilter<CtInvocation<?>>(CtInvocation.class)));
+		assertNull(foo.getFirstElement(new TypeFilter<CtNewClass<?>>(CtNewClass.class)));
+		assertEquals(accesses.subList(0, 3), Query.getElements(factory, accessFilter, 3));
+
+		factory.getEnvironment().setIndexingElements(true);
+		TypeFilter<CtVariableAccess<?>> typeFilter = new TypeFilter<CtVariableAccess<?>>(CtVariableAccess.class);
+		assertEquals(accesses.subList(0, 2), Query.getElements(foo, typeFilter, 2));
+		assertSame(accesses.get(0), foo.getFirstElement(typeFilter));
+	}
+
+	@Test
+	public void testIteratedQueriesScanOnDemand() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.filters").getType("Foo");
+		final List<CtElement> tested = new ArrayList<CtElement>();
+		Filter<CtVariableAccess<?>> accessFilter = new Filter<CtVariableAccess<?>>() {
+			public boolean matches(CtVariableAccess<?> element) {
+				tested.add(element);
+				return true;
+			}
+		};
+		List<CtVariableAccess<?>> accesses = foo.getElements(accessFilter);
+		tested.clear();
+
+		// the elements are scanned as they are pulled
+		Iterator<CtVariableAccess<?>> iterator = Query.iterate(foo, accessFilter).iterator();
+		assertTrue(tested.isEmpty());
+		assertSame(accesses.get(0), iterator.next());
+		assertEquals(1, tested.size());
+		assertSame(accesses.get(1), iterator.next());
+		assertEquals(2, tested.size());
+
+		List<CtVariableAccess<?>> iterated = new ArrayList<CtVariableAccess<?>>();
+		for (CtVariableAccess<?> access : Query.iterate(foo, accessFilter)) {
+			iterated.add(access);
+		}
+		assertEquals(accesses, iterated);
+		assertFalse(Query.iterate(foo, new TypeFilter<CtNewClass<?>>(CtNewClass.class)).iterator().hasNext());
+
+		assertEquals(accesses.subList(0, 2), foo.getElements(accessFilter, 2));
+		assertTrue(foo.hasElement(accessFilter));
+		assertFalse(foo.hasElement(new TypeFilter<CtNewClass<?>>(CtNewClass.class)));
+
+		factory.getEnvironment().setIndexingElements(true);
+		iterated.clear();
+		for (CtVariableAccess<?> access : Query.iterate(foo, accessFilter)) {
+			iterated.add(access);
+		}
+		assertEquals(accesses, iterated);
+	}
+
+	@Test
+	public void testFiltersAreOnlyGivenTheirElementType() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.filters").getType("Foo");
+		final List<CtElement> tested = new ArrayList<CtElement>();
+		Filter<CtMethod<?>> methodFilter = new Filter<CtMethod<?>>() {
+			public boolean matches(CtMethod<?> element) {
+				tested.add(element);
+				return true;
+			}
+		};
+		AbstractFilter<CtInvocation<?>> invocationFilter = new AbstractFilter<CtInvocation<?>>(CtInvocation.class) {
+			@Override
+			public boolean matches(CtInvocation<?> element) {
+				tested.add(element);
+				return true;
+			}
+		};
+		assertEquals(CtMethod.class, Query.getElementType(methodFilter));
+		assertEquals(CtInvocation.class, Query.getElementType(invocationFilter));
+		assertEquals(CtNewClass.class, Query.getElementType(new TypeFilter<CtNewClass<?>>(CtNewClass.class)));
+		assertEquals(CtElement.class, Query.getElementType(new CompositeFilter<CtElement>(FilteringOperator.UNION)));
+
+		assertEquals(2, foo.getElements(methodFilter).size());
+		assertEquals(2, tested.size());
+		tested.clear();
+		assertEquals(2, foo.getElements(invocationFilter).size());
+		assertEquals(2, tested.size());
+		tested.clear();
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		List<CtElement> union = foo.getElements(new CompositeFilter(FilteringOperator.UNION, methodFilter, invocationFilter));
+		assertEquals(4, union.size());
+		assertEquals(4, tested.size());
+	}
+
 }
@@ -1,12 +1,17 @@
 package spoon.test.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static spoon.test.TestUtils.build;
 
 import java.util.Collection;
 
 import org.junit.Test;
 
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.reference.CtExecutableReference;
@@ -25,4 +30,34 @@ public class TypeTest {
 		Collection<CtExecutableReference<?>> allExecutables = type.getAllExecutables();
 		assertEquals(7, allExecutables.size());
 	}
+
+	@Test
+	public void testMembersAreFoundByName() throws Exception {
+		CtType<?> type = build("spoon.test.model", "Foo");
+		CtField<?> i = type.getField("i");
+		CtMethod<?> m = type.getMethodsByName("m").get(0);
+		assertSame(m, type.getMethod("m"));
+
+		// the lookups follow the renamings and the changes
+		i.setSimpleName("k");
+		assertNull(type.getField("i"));
+		assertSame(i, type.getField("k"));
+		m.setSimpleName("n");
+		assertEquals(0, type.getMethodsByName("m").size());
+		assertSame(m, type.getMethod("n"));
+		CtMethod<?> clone = type.getFactory().Core().clone(m);
+		clone.setSimpleName("m");
+		type.addMethod(clone);
+		assertSame(clone, type.getMethod("m"));
+		type.removeMethod(clone);
+		assertNull(type.getMethod("m"));
+
+		CtPackage pack = type.getPackage();
+		assertSame(type, pack.getType("Foo"));
+		type.setSimpleName("Foo2");
+		assertNull(pack.getType("Foo"));
+		assertSame(type, pack.getType("Foo2"));
+		assertSame(pack, type.getFactory().Package().get("spoon.test")
+				.getPackage("model"));
+	}
 }
@@ -1,13 +1,33 @@
 package spoon.test.processing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static spoon.test.TestUtils.build;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 
+import spoon.Launcher;
+import spoon.compiler.SpoonResourceHelper;
+import spoon.processing.AbstractProcessor;
+import spoon.processing.ParallelProcessor;
+import spoon.processing.ReadOnlyProcessor;
+import spoon.processing.Severity;
 import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.factory.Factory;
+import spoon.support.QueueProcessingManager;
 
 public class ProcessingTest {
 
@@ -41,4 +61,161 @@ public class ProcessingTest {
 		}
 	}
 
+	static class Logger<E extends CtElement> extends AbstractProcessor<E> {
+
+		final List<String> log;
+
+		final String name;
+
+		Logger(List<String> log, String name, Class<E> type) {
+			this.log = log;
+			this.name = name;
+			clearProcessedElementType();
+			addProcessedElementType(type);
+		}
+
+		public void process(E element) {
+			log.add(name);
+		}
+
+		@Override
+		public void processingDone() {
+			log.add(name + " done");
+		}
+
+	}
+
+	static class ReadOnlyLogger<E extends CtElement> extends Logger<E>
+			implements ReadOnlyProcessor<E> {
+
+		ReadOnlyLogger(List<String> log, String name, Class<E> type) {
+			super(log, name, type);
+		}
+
+	}
+
+	@Test
+	public void testReadOnlyProcessorsShareATraversal() throws Exception {
+		CtClass<?> type = build("spoon.test.processing",
+				"SampleForInsertBefore");
+		List<String> log = new ArrayList<String>();
+		QueueProcessingManager manager = new QueueProcessingManager(
+				type.getFactory());
+		manager.addProcessor(new ReadOnlyLogger<CtMethod<?>>(log, "a",
+				castMethod()));
+		manager.addProcessor(new ReadOnlyLogger<CtConstructor<?>>(log, "b",
+				castConstructor()));
+		manager.addProcessor(new Logger<CtMethod<?>>(log, "c", castMethod()));
+		manager.addProcessor(new ReadOnlyLogger<CtMethod<?>>(log, "d",
+				castMethod()));
+		manager.process();
+
+		// a and b are applied in a single traversal (the constructors of the
+		// anonymous classes are in the methods), c and d in their own
+		int done = log.indexOf("a done");
+		assertEquals(3, Collections.frequency(log.subList(0, done), "a"));
+		assertTrue(log.lastIndexOf("b") > log.indexOf("a"));
+		assertEquals("b done", log.get(done + 1));
+		assertEquals(Arrays.asList("c", "c", "c", "c done", "d", "d", "d",
+				"d done"), log.subList(done + 2, log.size()));
+	}
+
+	static class ParallelCounter extends AbstractProcessor<CtMethod<?>>
+			implements ParallelProcessor<CtMethod<?>> {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		final Set<Thread> threads = Collections
+				.synchronizedSet(new HashSet<Thread>());
+
+		public void process(CtMethod<?> method) {
+			count.incrementAndGet();
+			threads.add(Thread.currentThread());
+			getEnvironment().report(this, Severity.WARNING, method, "method");
+		}
+
+	}
+
+	private ParallelCounter count(int threadCount) throws Exception {
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		String dir = "./src/test/java/spoon/test/generics/";
+		launcher.createCompiler(factory,
+				SpoonResourceHelper.resources(dir + "Bar.java", dir
+						+ "BugCollection.java", dir + "Foo.java", dir
+						+ "Tree.java", dir + "ComparableComparatorBug.java"))
+				.build();
+		factory.getEnvironment().setProcessingThreadCount(threadCount);
+		ParallelCounter counter = new ParallelCounter();
+		QueueProcessingManager manager = new QueueProcessingManager(factory);
+		manager.addProcessor(counter);
+		manager.process();
+		assertEquals(counter.count.get(), factory.getEnvironment()
+				.getWarningCount());
+		return counter;
+	}
+
+	@Test
+	public void testParallelProcessorsProcessAllTheTypes() throws Exception {
+		ParallelCounter serial = count(1);
+		ParallelCounter parallel = count(4);
+		assertEquals(1, serial.threads.size());
+		assertFalse(parallel.threads.contains(Thread.currentThread()));
+		assertTrue(serial.count.get() > 0);
+		assertEquals(serial.count.get(), parallel.count.get());
+	}
+
+
+	static class ParallelOrder extends AbstractProcessor<CtElement>
+			implements ParallelProcessor<CtElement> {
+
+		final AtomicInteger methods = new AtomicInteger();
+
+		final List<Integer> methodsBeforePackages = Collections
+				.synchronizedList(new ArrayList<Integer>());
+
+		ParallelOrder() {
+			clearProcessedElementType();
+			addProcessedElementType(CtMethod.class);
+			addProcessedElementType(CtPackage.class);
+		}
+
+		public void process(CtElement element) {
+			if (element instanceof CtPackage) {
+				methodsBeforePackages.add(methods.get());
+			} else {
+				methods.incrementAndGet();
+			}
+		}
+
+	}
+
+	@Test
+	public void testParallelProcessorsProcessThePackagesAfterTheirTypes()
+			throws Exception {
+		CtClass<?> type = build("spoon.test.processing",
+				"SampleForInsertBefore");
+		type.getFactory().getEnvironment().setProcessingThreadCount(4);
+		ParallelOrder order = new ParallelOrder();
+		QueueProcessingManager manager = new QueueProcessingManager(
+				type.getFactory());
+		manager.addProcessor(order);
+		manager.process();
+		assertTrue(order.methods.get() > 0);
+		assertFalse(order.methodsBeforePackages.isEmpty());
+		for (int count : order.methodsBeforePackages) {
+			assertEquals(order.methods.get(), count);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<CtMethod<?>> castMethod() {
+		return (Class<CtMethod<?>>) (Class<?>) CtMethod.class;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<CtConstructor<?>> castConstructor() {
+		return (Class<CtConstructor<?>>) (Class<?>) CtConstructor.class;
+	}
+
 }
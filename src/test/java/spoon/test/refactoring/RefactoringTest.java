@@ -2,20 +2,39 @@ package spoon.test.refactoring;
 
 import org.junit.Test;
 import spoon.Launcher;
+import spoon.refactoring.Refactoring;
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtAssignment;
+import spoon.reflect.code.CtBlock;
 import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.AbstractFilter;
 import spoon.reflect.visitor.filter.AbstractReferenceFilter;
+import spoon.support.reflect.declaration.CtElementImpl;
+import spoon.support.reflect.reference.UsageIndex;
 import spoon.test.refactoring.testclasses.AClass;
+import spoon.test.refactoring.testclasses.AbstractClass;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class RefactoringTest {
 	@Test
@@ -89,4 +108,127 @@ public class RefactoringTest {
 		}).get(0);
 		assertEquals("this(\"\")", thisInvocation.toString());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testUsagesFollowTheChanges() throws Exception {
+		final Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		launcher.buildModel();
+		final Factory factory = launcher.getFactory();
+		final CtClass<AClass> aClass = factory.Class().get(AClass.class);
+		final CtClass<AbstractClass> abstractClass = factory.Class().get(AbstractClass.class);
+		final UsageIndex usages = factory.Type().getUsages();
+
+		final CtConstructor<AClass> constructor = aClass.getConstructor(factory.Type().STRING);
+		final List<CtAbstractInvocation<AClass>> invocations = usages.getInvocationsOf(constructor);
+		assertEquals(1, invocations.size());
+		assertEquals("this(\"\")", invocations.get(0).toString());
+		assertEquals(1, usages.getInvocationsOf(abstractClass.getConstructor()).size());
+		final CtField<?> string = aClass.getField("string");
+		assertEquals(1, usages.getAccessesOf(string).size());
+		assertEquals(Query.getReferences(factory, new AbstractReferenceFilter<CtTypeReference<?>>(CtTypeReference.class) {
+			@Override
+			public boolean matches(CtTypeReference<?> reference) {
+				return aClass.getQualifiedName().equals(reference.getQualifiedName());
+			}
+		}), usages.getReferencesTo(aClass));
+		assertSame(abstractClass, usages.getReferencesTo(abstractClass).get(0).getDeclaration());
+
+		// the index follows the removed and the attached elements
+		final CtConstructor<AClass> defaultConstructor = aClass.getConstructor();
+		defaultConstructor.getBody().removeStatement((CtStatement) invocations.get(0));
+		assertTrue(usages.getInvocationsOf(constructor).isEmpty());
+		final CtAssignment<?, ?> assignment = constructor.getBody().getStatement(1);
+		final CtStatement copy = factory.Core().clone(assignment);
+		defaultConstructor.getBody().insertEnd(copy);
+		assertEquals(2, usages.getAccessesOf(string).size());
+	}
+
+	@Test
+	public void testUsagesScanTheChangedTypesOnly() throws Exception {
+		final Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		launcher.buildModel();
+		final Factory factory = launcher.getFactory();
+		final CtClass<AClass> aClass = factory.Class().get(AClass.class);
+		final CtField<?> string = aClass.getField("string");
+		final List<CtType<?>> scanned = new ArrayList<CtType<?>>();
+		final UsageIndex usages = new UsageIndex(factory) {
+			@Override
+			protected Usages buildPart(CtType<?> type) {
+				scanned.add(type);
+				return super.buildPart(type);
+			}
+		};
+		assertEquals(1, usages.getAccessesOf(string).size());
+		assertEquals(2, scanned.size());
+
+		// the changes of the lists of children are noticed
+		scanned.clear();
+		final CtBlock<?> body = aClass.getConstructor().getBody();
+		final CtStatement copy = factory.Core().clone(aClass.getConstructor(factory.Type().STRING).getBody().getStatement(1));
+		body.getStatements().add(copy);
+		assertEquals(2, usages.getAccessesOf(string).size());
+		assertEquals(Arrays.asList(aClass), scanned);
+		body.getStatements().remove(copy);
+		assertEquals(1, usages.getAccessesOf(string).size());
+		assertEquals(Arrays.asList(aClass, aClass), scanned);
+	}
+
+	@Test
+	public void testRefactoringOnlyUsesTheBuiltUsages() throws Exception {
+		final Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		launcher.buildModel();
+		final Factory factory = launcher.getFactory();
+		final CtClass<AClass> aClass = factory.Class().get(AClass.class);
+		final List<CtTypeReference<?>> references = Query.getReferences(factory, new AbstractReferenceFilter<CtTypeReference<?>>(CtTypeReference.class) {
+			@Override
+			public boolean matches(CtTypeReference<?> reference) {
+				return aClass.getQualifiedName().equals(reference.getQualifiedName());
+			}
+		});
+
+		// the model is scanned without building the index
+		assertFalse(factory.Type().isIndexingUsages());
+		Refactoring.changeTypeName(aClass, "Foo");
+		assertFalse(factory.Type().isIndexingUsages());
+		for (CtTypeReference<?> reference : references) {
+			assertEquals("Foo", reference.getSimpleName());
+		}
+
+		// the index is used once it is enabled
+		factory.getEnvironment().setIndexingUsages(true);
+		assertTrue(factory.Type().isIndexingUsages());
+		Refactoring.changeTypeName(aClass, "Bar");
+		for (CtTypeReference<?> reference : references) {
+			assertEquals("Bar", reference.getSimpleName());
+		}
+	}
+
+	@Test
+	public void testUsagesOnlyFollowTheChangesOfTheirFactory() throws Exception {
+		final Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		launcher.buildModel();
+		final Factory factory = launcher.getFactory();
+		final Launcher other = new Launcher();
+		other.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		other.buildModel();
+		final CtClass<AClass> otherClass = other.getFactory().Class().get(AClass.class);
+
+		// the changes of another model do not invalidate the index
+		int changes = CtElementImpl.getModelChanges(factory);
+		final CtConstructor<AClass> constructor = otherClass.getConstructor(other.getFactory().Type().STRING);
+		final CtStatement statement = constructor.getBody().getStatement(1);
+		constructor.getBody().insertEnd(other.getFactory().Core().clone(statement));
+		otherClass.removeField(otherClass.getField("string"));
+		assertEquals(changes, CtElementImpl.getModelChanges(factory));
+
+		// the values of the annotations are children
+		final CtAnnotation<?> annotation = factory.Core().createAnnotation();
+		changes = CtElementImpl.getModelChanges(factory);
+		annotation.setElementValues(Collections.<String, Object> singletonMap("value", factory.Code().createLiteral(1)));
+		assertTrue(CtElementImpl.getModelChanges(factory) != changes);
+	}
+}
@@ -0,0 +1,22 @@
+package spoon.test.reference;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReferenceSharing {
+
+	String a;
+
+	String b;
+
+	List<String> strings = new ArrayList<String>();
+
+	List<Integer> integers = new ArrayList<Integer>();
+
+	Object rawList = new ArrayList();
+
+	List raw;
+
+	List other;
+
+}
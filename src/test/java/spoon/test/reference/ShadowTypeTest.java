@@ -0,0 +1,83 @@
+package spoon.test.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.declaration.CtAnnotationType;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtEnum;
+import spoon.reflect.declaration.CtInterface;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtTypeReference;
+
+public class ShadowTypeTest {
+
+	@Test
+	public void testShadowTypeFromClassFile() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> list = (CtClass<?>) factory.Type().getShadowType("java.util.ArrayList");
+		assertNotNull(list);
+		assertSame(list, factory.Type().getShadowType("java.util.ArrayList"));
+		assertSame(list, factory.Class().getShadowType("java.util.ArrayList"));
+		assertEquals("java.util.ArrayList", list.getQualifiedName());
+		assertEquals("java.util", list.getPackage().getQualifiedName());
+		assertEquals("java.util.AbstractList", list.getSuperclass().getQualifiedName());
+		assertTrue(list.getSuperInterfaces().contains(factory.Type().createReference("java.util.List")));
+		assertTrue(list.getModifiers().contains(ModifierKind.PUBLIC));
+		assertFalse(list.getModifiers().contains(ModifierKind.ABSTRACT));
+		assertEquals("int", list.getField("size").getType().getQualifiedName());
+		assertTrue(list.getField("size").getModifiers().contains(ModifierKind.PRIVATE));
+		CtMethod<?> add = list.getMethod("add", factory.Type().OBJECT);
+		assertEquals("boolean", add.getType().getQualifiedName());
+		assertNull(add.getBody());
+		assertFalse(list.getConstructors().isEmpty());
+
+		// the shadow types are not part of the model
+		assertNull(factory.Type().get("java.util.ArrayList"));
+		assertTrue(factory.Type().getAll().isEmpty());
+		assertNull(factory.Type().getShadowType("does.not.Exist"));
+	}
+
+	@Test
+	public void testShadowTypeKinds() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtType<?> entry = factory.Type().getShadowType("java.util.Map$Entry");
+		assertTrue(entry instanceof CtInterface);
+		assertSame(factory.Type().getShadowType("java.util.Map"), entry.getDeclaringType());
+		assertTrue(factory.Type().getShadowType("java.lang.annotation.Retention") instanceof CtAnnotationType);
+		assertNotNull(factory.Type().getShadowType("java.lang.annotation.Retention").getField("value"));
+		assertTrue(factory.Type().getShadowType("java.lang.Thread$State") instanceof CtEnum);
+		CtMethod<?> format = factory.Type().getShadowType("java.lang.String")
+				.getMethod("format", factory.Type().STRING,
+						factory.Type().createArrayReference(factory.Type().OBJECT));
+		assertTrue(format.getParameters().get(1).isVarArgs());
+	}
+
+	@Test
+	public void testReferencesUseShadowTypes() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		factory.getEnvironment().setSourceClasspath(new String[] {
+				"./src/test/resources/reference-test/ReferenceTest.jar" });
+		CtTypeReference<?> referenced = factory.Type().createReference("spoon.test.reference.ReferencedClass");
+		assertNull(referenced.getDeclaration());
+		assertNotNull(referenced.getTypeDeclaration());
+		assertEquals("java.lang.Object", referenced.getSuperclass().getQualifiedName());
+
+		CtTypeReference<?> list = factory.Type().createReference("java.util.ArrayList");
+		assertTrue(list.isSubtypeOf(factory.Type().createReference("java.util.Collection")));
+		assertFalse(list.isSubtypeOf(factory.Type().createReference("java.util.Map")));
+		assertFalse(list.isInterface());
+		assertFalse(list.getAllFields().isEmpty());
+	}
+
+}
@@ -2,24 +2,36 @@ package spoon.test.reference;
 
 import org.junit.Test;
 import spoon.Launcher;
+import spoon.SpoonException;
 import spoon.compiler.SpoonCompiler;
 import spoon.compiler.SpoonResource;
 import spoon.compiler.SpoonResourceHelper;
+import spoon.reflect.declaration.CtClass;
 import spoon.reflect.declaration.CtField;
 import spoon.reflect.declaration.CtInterface;
+import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
 import spoon.reflect.reference.CtExecutableReference;
 import spoon.reflect.reference.CtFieldReference;
 import spoon.reflect.reference.CtTypeReference;
 import spoon.reflect.visitor.Query;
 import spoon.reflect.visitor.filter.ReferenceTypeFilter;
+import spoon.support.reflect.reference.CtReferenceImpl;
 
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 /**
  * @author Lionel Seinturier
@@ -166,4 +178,148 @@ public class TypeReferenceTest {
 		assertFalse(nullRef.isSubtypeOf(ref));
 
 	}
+
+	@Test
+	public void testBuiltReferencesAreShared() throws Exception {
+		Launcher spoon = new Launcher();
+		Factory factory = spoon.createFactory();
+		spoon.createCompiler(
+				factory,
+				SpoonResourceHelper
+						.resources("./src/test/java/spoon/test/reference/ReferenceSharing.java"))
+				.build();
+
+		CtClass<?> type = factory.Class().get(ReferenceSharing.class);
+		CtField<?> a = type.getField("a");
+		CtField<?> strings = type.getField("strings");
+		CtField<?> integers = type.getField("integers");
+
+		// the references to the same type are the same objects
+		assertSame(a.getType(), type.getField("b").getType());
+		assertSame(a.getType(), strings.getType().getActualTypeArguments().get(0));
+		assertSame(strings.getType().getPackage(), integers.getType().getPackage());
+
+		// the references that are modified by the builder are not shared
+		assertNotSame(strings.getDefaultExpression().getType(), integers.getDefaultExpression().getType());
+		assertEquals("new java.util.ArrayList<java.lang.String>()", strings.getDefaultExpression().toString());
+		assertEquals("new java.util.ArrayList<java.lang.Integer>()", integers.getDefaultExpression().toString());
+		assertEquals("new java.util.ArrayList()", type.getField("rawList").getDefaultExpression().toString());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSharedReferencesCannotBeModified() throws Exception {
+		Launcher spoon = new Launcher();
+		Factory factory = spoon.createFactory();
+		spoon.createCompiler(
+				factory,
+				SpoonResourceHelper
+						.resources("./src/test/java/spoon/test/reference/ReferenceSharing.java"))
+				.build();
+
+		CtClass<?> type = factory.Class().get(ReferenceSharing.class);
+		CtField<List<?>> raw = (CtField<List<?>>) type.getField("raw");
+		CtField<?> other = type.getField("other");
+		assertSame(raw.getType(), other.getType());
+		assertTrue(((CtReferenceImpl) raw.getType()).isShared());
+		try {
+			raw.getType().addActualTypeArgument(factory.Type().createReference(Integer.class));
+			fail();
+		} catch (SpoonException e) {
+			// a change would reach the other field
+		}
+		try {
+			raw.getType().getActualTypeArguments().add(factory.Type().createReference(Integer.class));
+			fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// a clone can be modified without changing the other field
+		CtTypeReference<List<?>> copy = factory.Core().clone(raw.getType());
+		assertFalse(((CtReferenceImpl) copy).isShared());
+		copy.addActualTypeArgument(factory.Type().createReference(Integer.class));
+		raw.setType(copy);
+		assertEquals("java.util.List<java.lang.Integer> raw;", raw.toString());
+		assertEquals("java.util.List other;", other.toString());
+		assertEquals(0, other.getType().getActualTypeArguments().size());
+	}
+
+	@Test
+	public void testDeclarationLinksFollowTheChanges() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> a = factory.Class().create("p.A");
+		CtField<Integer> f = factory.Field().create(a,
+				EnumSet.noneOf(ModifierKind.class), factory.Type().INTEGER_PRIMITIVE, "f");
+		f.setParent(a);
+		CtTypeReference<?> ref = factory.Type().createReference("p.A");
+		CtFieldReference<Integer> fieldRef = factory.Field().createReference(f);
+		assertSame(a, ref.getDeclaration());
+		assertSame(a, ref.getDeclaration());
+		assertSame(f, fieldRef.getDeclaration());
+
+		// renaming a declaration or a reference drops the links
+		a.setSimpleName("B");
+		assertNull(ref.getDeclaration());
+		ref.setSimpleName("B");
+		assertSame(a, ref.getDeclaration());
+		assertNull(fieldRef.getDeclaration());
+		fieldRef.getDeclaringType().setSimpleName("B");
+		assertSame(f, fieldRef.getDeclaration());
+		a.removeField(f);
+		assertNull(fieldRef.getDeclaration());
+
+		factory.getEnvironment().setLinkingDeclarations(false);
+		a.addField(f);
+		assertSame(f, fieldRef.getDeclaration());
+		assertSame(a, ref.getDeclaration());
+	}
+
+	@Test
+	public void testSubtypesFollowTheSupertypeChanges() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> a = factory.Class().create("p.A");
+		CtClass<?> b = factory.Class().create("p.B");
+		CtInterface<?> i = ((FactoryImpl) factory).Interface().create("p.I");
+		b.setSuperclass(a.getReference());
+		a.addSuperInterface(i.getReference());
+		assertTrue(b.getReference().isSubtypeOf(a.getReference()));
+		assertTrue(b.getReference().isSubtypeOf(i.getReference()));
+		assertTrue(b.getReference().isSubtypeOf(factory.Type().OBJECT));
+		assertFalse(a.getReference().isSubtypeOf(b.getReference()));
+		assertFalse(b.getReference().isSubtypeOf(factory.Type().STRING));
+		assertTrue(factory.Type().STRING.isSubtypeOf(
+				factory.Type().createReference(CharSequence.class)));
+
+		a.removeSuperInterface(i.getReference());
+		assertFalse(b.getReference().isSubtypeOf(i.getReference()));
+		b.addSuperInterface(i.getReference());
+		assertTrue(b.getReference().isSubtypeOf(i.getReference()));
+
+		CtMethod<?> m = factory.Method().create(a, null,
+				factory.Type().VOID_PRIMITIVE, "m", null, null);
+		m.setParent(a);
+		CtMethod<?> n = factory.Method().create(b, null,
+				factory.Type().VOID_PRIMITIVE, "m", null, null);
+		n.setParent(b);
+		assertTrue(n.getReference().isOverriding(m.getReference()));
+		assertFalse(m.getReference().isOverriding(n.getReference()));
+		assertEquals(n.getReference(),
+				m.getReference().getOverridingExecutable(b.getReference()));
+		b.setSuperclass(null);
+		assertFalse(n.getReference().isOverriding(m.getReference()));
+		assertNull(m.getReference().getOverridingExecutable(b.getReference()));
+
+		// the renamed, removed and added types are declared by other types
+		b.setSuperclass(factory.Type().createReference("p.A"));
+		assertTrue(b.getReference().isSubtypeOf(a.getReference()));
+		a.setSimpleName("C");
+		assertFalse(b.getReference().isSubtypeOf(a.getReference()));
+		CtInterface<?> j = ((FactoryImpl) factory).Interface().create("p.J");
+		assertFalse(b.getReference().isSubtypeOf(j.getReference()));
+		CtClass<?> other = factory.Class().create("p.A");
+		other.addSuperInterface(j.getReference());
+		assertTrue(b.getReference().isSubtypeOf(j.getReference()));
+		other.getPackage().getTypes().remove(other);
+		assertFalse(b.getReference().isSubtypeOf(j.getReference()));
+	}
 }
@@ -5,6 +5,7 @@ import org.junit.Test;
 import spoon.Launcher;
 import spoon.compiler.SpoonResourceHelper;
 import spoon.reflect.code.CtAssignment;
+import spoon.reflect.code.CtBlock;
 import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtLiteral;
 import spoon.reflect.code.CtLocalVariable;
@@ -16,9 +17,12 @@ import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.visitor.filter.NameFilter;
 import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.reflect.declaration.CtElementImpl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ReplaceTest {
 
@@ -134,4 +138,30 @@ public class ReplaceTest {
 		assertEquals(2, sample.getMethod("retry").getBody().getStatements().size());
 	}
 
+	@Test
+	public void testReplaceOnlyTouchesTheSlotOfTheElement() throws Exception {
+		CtClass<?> foo = factory.Package().get("spoon.test.replace")
+				.getType("Foo");
+		CtBlock<?> body = foo.getMethod("foo").getBody();
+		CtStatement z = body.getStatement(1);
+		CtStatement s = factory.Code().createCodeSnippetStatement("int w");
+
+		// the statement keeps its index and the others are untouched
+		int changes = CtElementImpl.getModelChanges(factory);
+		z.replace(s);
+		assertEquals(4, body.getStatements().size());
+		assertSame(s, body.getStatement(1));
+		assertSame(body, s.getParent());
+		assertTrue(CtElementImpl.getModelChanges(factory) != changes);
+
+		// a field keeps its place among the members
+		CtField<?> i = foo.getField("i");
+		CtField<?> j = factory.Core().clone(i);
+		j.setSimpleName("j");
+		i.replace(j);
+		assertSame(j, foo.getField("j"));
+		assertNull(foo.getField("i"));
+		assertSame(foo, j.getParent());
+	}
+
 }
@@ -3,8 +3,12 @@ package spoon.test.signature;
 import static org.junit.Assert.*;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.util.HashSet;
 
 import spoon.Launcher;
@@ -17,16 +21,28 @@ import spoon.reflect.code.CtLiteral;
 import spoon.reflect.code.CtReturn;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.factory.FactoryImpl;
+import spoon.refactoring.Refactoring;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.ReferenceTypeFilter;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.DefaultCoreFactory;
 import spoon.support.StandardEnvironment;
 import spoon.support.compiler.jdt.JDTSnippetCompiler;
+import spoon.support.visitor.SignaturePrinter;
 
 public class SignatureTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void testNullSignature() throws Exception {
 		// bug found by Thomas Vincent et Mathieu Schepens (students at the
@@ -291,4 +307,79 @@ public class SignatureTest {
 	
 	}
 	
+	@Test
+	public void testHashCodeIsTheHashOfTheSignature() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> clazz = factory
+				.Code()
+				.createCodeSnippetStatement(
+						"class X<T> { int i; X(int i) { this.i = i; } <U> T foo(T t, U[] u, int... v) {"
+								+ " for (int j = 0; j < v.length; j++) { i += v[j]; }"
+								+ " return i > 0 ? t : null; }};").compile();
+		for (CtElement e : clazz.getElements(new TypeFilter<CtElement>(CtElement.class))) {
+			assertEquals(e.getSignature(), e.getSignature().hashCode(), e.hashCode());
+		}
+		for (CtTypeReference<?> r : Query.getReferences(clazz,
+				new ReferenceTypeFilter<CtTypeReference<?>>(CtTypeReference.class))) {
+			SignaturePrinter printer = new SignaturePrinter();
+			printer.scan(r);
+			assertEquals(printer.getSignature().hashCode(), r.hashCode());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCachedSignaturesAreInvalidated() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtClass<?> clazz = factory
+				.Code()
+				.createCodeSnippetStatement(
+						"class X { X(int i) { } class Y { } void foo(int i) { } };").compile();
+		CtMethod<?> foo = clazz.getMethodsByName("foo").get(0);
+		assertEquals("void foo(int)", foo.getSignature());
+		int hash = foo.hashCode();
+
+		// changing a parameter changes the signature of the method
+		CtParameter<String> parameter = (CtParameter<String>) foo.getParameters().get(0);
+		parameter.setType(factory.Type().STRING);
+		assertEquals("void foo(java.lang.String)", foo.getSignature());
+		assertEquals(foo.getSignature().hashCode(), foo.hashCode());
+		assertNotEquals(hash, foo.hashCode());
+		foo.setSimpleName("bar");
+		assertEquals("void bar(java.lang.String)", foo.getSignature());
+
+		// renaming a type changes the signatures of its nested declarations
+		CtConstructor<?> constructor = clazz.getConstructors().iterator().next();
+		CtType<?> y = clazz.getNestedType("Y");
+		assertEquals(clazz.getQualifiedName() + "(int)", constructor.getSignature());
+		assertEquals("class " + clazz.getQualifiedName() + "$Y", y.getSignature());
+		clazz.setSimpleName("Z");
+		assertTrue(constructor.getSignature().endsWith("$Z(int)"));
+		assertTrue(y.getSignature().endsWith("$Z$Y"));
+		assertEquals(y.getSignature().hashCode(), y.hashCode());
+	}
+
+	@Test
+	public void testCachedSignaturesFollowTheReferences() throws Exception {
+		File sources = folder.newFolder("p");
+		FileWriter writer = new FileWriter(new File(sources, "A.java"));
+		writer.write("package p; class A { }");
+		writer.close();
+		writer = new FileWriter(new File(sources, "C.java"));
+		writer.write("package p; class C { void baz(A a) { } }");
+		writer.close();
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.addInputSource(sources);
+		compiler.build();
+		CtMethod<?> baz = factory.Class().get("p.C").getMethodsByName("baz").get(0);
+		assertEquals("void baz(p.A)", baz.getSignature());
+
+		// the references to a renamed type are changed in place
+		Refactoring.changeTypeName(factory.Type().get("p.A"), "B");
+		assertEquals("void baz(p.B)", baz.getSignature());
+		assertEquals(baz.getSignature().hashCode(), baz.hashCode());
+	}
+
 }
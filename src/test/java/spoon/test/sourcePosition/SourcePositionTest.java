@@ -1,21 +1,34 @@
 package spoon.test.sourcePosition;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.util.List;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import spoon.Launcher;
+import spoon.compiler.SpoonCompiler;
+import spoon.reflect.cu.CompilationUnit;
 import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.factory.Factory;
 import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.reflect.cu.SourcePositionImpl;
 import spoon.test.TestUtils;
 
 public class SourcePositionTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Test
 	public void equalPositionsHaveSameHashcode() throws Exception {
 		String packageName = "spoon.test";
@@ -39,6 +52,102 @@ public class SourcePositionTest {
 		}
 	}
 	
+	private static int line(String source, int index) {
+		int line = 1;
+		for (int i = 0; i < index; i++) {
+			if (source.charAt(i) == '\n') {
+				line++;
+			}
+		}
+		return line;
+	}
+
+	private static int column(String source, int index) {
+		return index - source.lastIndexOf('\n', index - 1);
+	}
+
+	@Test
+	public void linesAndColumnsMatchTheSourceCode() throws Exception {
+		StringBuilder longLine = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			longLine.append(' ');
+		}
+		String source = "package p;\n\npublic class A {\n\tint f = 1;\n\n\tvoid m() {\n\t\tf++;\n\t}\n"
+				+ longLine + "int g = f;\n}\n";
+		File dir = folder.newFolder("p");
+		FileWriter writer = new FileWriter(new File(dir, "A.java"));
+		writer.write(source);
+		writer.close();
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.addInputSource(dir);
+		compiler.build();
+
+		List<CtElement> elements = factory.Class().get("p.A").getElements(new TypeFilter<CtElement>(CtElement.class));
+		assertTrue(elements.size() > 5);
+		for (CtElement element : elements) {
+			SourcePosition position = element.getPosition();
+			if (position == null) {
+				continue;
+			}
+			assertEquals(line(source, position.getSourceStart()), position.getLine());
+			assertEquals(column(source, position.getSourceStart()), position.getColumn());
+			assertEquals(line(source, position.getSourceEnd()), position.getEndLine());
+			assertEquals(column(source, position.getSourceEnd()), position.getEndColumn());
+		}
+		SourcePosition g = factory.Class().get("p.A").getField("g").getPosition();
+		assertEquals(9, g.getLine());
+		// the position of a field starts at its name
+		assertEquals(5005, g.getColumn());
+	}
+
+	@Test
+	public void tabulationsCountAsOneCharacter() throws Exception {
+		// tabulations on the first and on the last line
+		String source = "\tpackage p; class A {\n\t\tint f; }";
+		File dir = folder.newFolder("p");
+		FileWriter writer = new FileWriter(new File(dir, "A.java"));
+		writer.write(source);
+		writer.close();
+		Launcher launcher = new Launcher();
+		Factory factory = launcher.createFactory();
+		factory.getEnvironment().setTabulationSize(4);
+		SpoonCompiler compiler = launcher.createCompiler(factory);
+		compiler.addInputSource(dir);
+		compiler.build();
+
+		SourcePosition a = factory.Class().get("p.A").getPosition();
+		assertEquals(1, a.getLine());
+		// the position of a type starts at its name
+		assertEquals(19, a.getColumn());
+		SourcePosition f = factory.Class().get("p.A").getField("f").getPosition();
+		assertEquals(2, f.getLine());
+		assertEquals(7, f.getColumn());
+	}
+
+	@Test
+	public void positionsKeepTheirOwnLineSeparators() throws Exception {
+		SourcePosition position = new SourcePositionImpl(null, 15, 20, new int[] { 4, 9, 14 });
+		assertNull(position.getFile());
+		assertEquals(15, position.getSourceStart());
+		assertEquals(20, position.getSourceEnd());
+		assertEquals(4, position.getLine());
+		assertEquals(1, position.getColumn());
+		assertEquals(4, position.getEndLine());
+		assertEquals(6, position.getEndColumn());
+
+		Factory factory = new Launcher().createFactory();
+		CompilationUnit cu = factory.CompilationUnit().create("A.java");
+		SourcePosition first = new SourcePositionImpl(cu, 6, 6, new int[] { 10 });
+		SourcePosition other = new SourcePositionImpl(cu, 6, 6, new int[] { 4 });
+		assertEquals(1, first.getLine());
+		assertEquals(7, first.getColumn());
+		assertEquals(2, other.getLine());
+		assertEquals(2, other.getColumn());
+		assertEquals(6, other.getSourceStart());
+	}
+
 	private Factory factoryFor(String packageName, String className) throws Exception {
 		return TestUtils.build(packageName, className).getFactory();
 	}
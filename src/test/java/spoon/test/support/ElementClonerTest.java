@@ -0,0 +1,141 @@
+package spoon.test.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.SpoonException;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.reflect.declaration.CtExecutableImpl;
+import spoon.support.util.NamedElementList;
+
+public class ElementClonerTest {
+
+	@Test
+	public void testClonesAreDeepAndHaveTheirOwnParents() throws Exception {
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/filters/Foo.java");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtClass<?> foo = (CtClass<?>) factory.Type().get("spoon.test.filters.Foo");
+
+		CtClass<?> clone = factory.Core().clone(foo);
+		assertNotSame(foo, clone);
+		assertFalse(clone.isParentInitialized());
+		assertEquals(foo.toString(), clone.toString());
+		assertTrue(clone.getFields() instanceof NamedElementList);
+		assertNotSame(foo.getFields(), clone.getFields());
+		assertSame(clone, clone.getField("i").getParent());
+		assertEquals(foo.getModifiers(), clone.getModifiers());
+		assertNotSame(foo.getModifiers(), clone.getModifiers());
+
+		Map<CtElement, Boolean> original = new IdentityHashMap<CtElement, Boolean>();
+		for (CtElement e : Query.getElements(foo, new TypeFilter<CtElement>(CtElement.class))) {
+			original.put(e, true);
+		}
+		List<CtElement> copies = Query.getElements(clone, new TypeFilter<CtElement>(CtElement.class));
+		assertEquals(original.size(), copies.size());
+		for (CtElement e : copies) {
+			assertFalse(original.containsKey(e));
+			if (e != clone) {
+				assertTrue(e.hasParent(clone));
+			}
+		}
+
+		// the clone changes on its own
+		CtMethod<?> bar = clone.getMethodsByName("bar").get(0);
+		CtBlock<?> body = bar.getBody();
+		body.getStatements().remove(0);
+		assertEquals(1, body.getStatements().size());
+		assertEquals(2, foo.getMethodsByName("bar").get(0).getBody().getStatements().size());
+	}
+
+	@Test
+	public void testLazyClonesCopyTheBodiesOnAccess() throws Exception {
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/filters/Foo.java");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtClass<?> foo = (CtClass<?>) factory.Type().get("spoon.test.filters.Foo");
+
+		CtClass<?> clone = factory.Core().lazyClone(foo);
+		CtMethod<?> fooMethod = clone.getMethodsByName("foo").get(0);
+		CtMethod<?> bar = clone.getMethodsByName("bar").get(0);
+		assertNotNull(((CtExecutableImpl<?>) fooMethod).getLazyBody());
+		assertNotNull(((CtExecutableImpl<?>) bar).getLazyBody());
+
+		// only the accessed body is copied
+		CtBlock<?> body = bar.getBody();
+		assertNotSame(foo.getMethodsByName("bar").get(0).getBody(), body);
+		assertSame(bar, body.getParent());
+		assertSame(body, bar.getBody());
+		assertNull(((CtExecutableImpl<?>) bar).getLazyBody());
+		assertNotNull(((CtExecutableImpl<?>) fooMethod).getLazyBody());
+		body.getStatements().remove(0);
+		assertEquals(2, foo.getMethodsByName("bar").get(0).getBody().getStatements().size());
+
+		// a clone of the clone has its own copy of the shared bodies
+		CtClass<?> second = factory.Core().clone(clone);
+		CtBlock<?> secondBody = second.getMethodsByName("foo").get(0).getBody();
+		assertNotSame(fooMethod.getBody(), secondBody);
+		assertEquals(fooMethod.getBody().toString(), secondBody.toString());
+		assertEquals(foo.getMethodsByName("foo").get(0).toString(), fooMethod.toString());
+		for (CtElement e : Query.getElements(secondBody, new TypeFilter<CtElement>(CtElement.class))) {
+			assertTrue(e.hasParent(second));
+		}
+	}
+
+	@Test
+	public void testLazyClonesFailOnChangedOriginalBodies() throws Exception {
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/filters/Foo.java");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+		CtClass<?> foo = (CtClass<?>) factory.Type().get("spoon.test.filters.Foo");
+
+		// a value changed in the original body
+		CtClass<?> clone = factory.Core().lazyClone(foo);
+		CtLiteral<Integer> three = foo.getMethodsByName("foo").get(0).getBody()
+				.getElements(new TypeFilter<CtLiteral<Integer>>(CtLiteral.class)).get(0);
+		three.setValue(4);
+		try {
+			clone.getMethodsByName("foo").get(0).getBody();
+			fail();
+		} catch (SpoonException e) {
+		}
+		// the unchanged bodies are still copied
+		assertEquals(foo.getMethodsByName("bar").get(0).getBody().toString(),
+				clone.getMethodsByName("bar").get(0).getBody().toString());
+
+		// a statement removed from the original body
+		clone = factory.Core().lazyClone(foo);
+		foo.getMethodsByName("bar").get(0).getBody().getStatements().remove(0);
+		try {
+			clone.getMethodsByName("bar").get(0).getBody();
+			fail();
+		} catch (SpoonException e) {
+		}
+		assertEquals(foo.getMethodsByName("foo").get(0).getBody().toString(),
+				clone.getMethodsByName("foo").get(0).getBody().toString());
+	}
+
+}
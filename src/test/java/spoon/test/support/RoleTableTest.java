@@ -0,0 +1,74 @@
+package spoon.test.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.factory.Factory;
+import spoon.support.reflect.code.CtBlockImpl;
+import spoon.support.reflect.declaration.CtMethodImpl;
+import spoon.support.reflect.reference.CtTypeReferenceImpl;
+import spoon.support.util.RoleTable;
+import spoon.support.util.RoleTable.Kind;
+import spoon.support.util.RoleTable.Role;
+
+public class RoleTableTest {
+
+	@Test
+	public void testRolesOfTheMetamodelClasses() throws Exception {
+		RoleTable block = RoleTable.get(CtBlockImpl.class);
+		assertSame(block, RoleTable.get(CtBlockImpl.class));
+		assertEquals(Kind.LIST, block.getRole("statements").getKind());
+		assertTrue(block.getRole("statements").isChild());
+		assertNull(block.getRole("parent"));
+		assertFalse(block.getRole("position").isChild());
+		assertFalse(block.getRole("docComment").isChild());
+		assertTrue(block.getRole("factory").isTransient());
+		assertTrue(block.newInstance() instanceof CtBlockImpl);
+
+		RoleTable method = RoleTable.get(CtMethodImpl.class);
+		assertEquals(Kind.SET, method.getRole("modifiers").getKind());
+		assertFalse(method.getRole("modifiers").isChild());
+		assertEquals(Kind.SET, method.getRole("thrownTypes").getKind());
+		assertTrue(method.getRole("thrownTypes").isChild());
+		assertTrue(method.getRole("body").isChild());
+
+		// the declarations of the references are links
+		Role declaration = RoleTable.get(CtTypeReferenceImpl.class).getRole("declaration");
+		assertTrue(declaration.isLink());
+		assertFalse(declaration.isChild());
+		for (Role role : RoleTable.get(CtTypeReferenceImpl.class).getChildRoles()) {
+			assertFalse(role.isLink());
+		}
+	}
+
+	@Test
+	public void testChildrenAreGivenInTheOrderOfTheRoles() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		CtIf ifStatement = factory.Core().createIf();
+		CtLiteral<Boolean> condition = factory.Code().createLiteral(true);
+		CtBlock<?> thenBlock = factory.Core().createBlock();
+		CtBlock<?> elseBlock = factory.Core().createBlock();
+		ifStatement.setCondition(condition);
+		ifStatement.setThenStatement(thenBlock);
+		assertEquals(Arrays.<Object> asList(condition, thenBlock),
+				RoleTable.getChildren(ifStatement));
+		ifStatement.setElseStatement(elseBlock);
+		assertEquals(3, RoleTable.getChildren(ifStatement).size());
+		assertTrue(RoleTable.getChildren(ifStatement).contains(elseBlock));
+
+		// the literal values are not nodes
+		assertTrue(RoleTable.getChildren(condition).isEmpty());
+	}
+
+}
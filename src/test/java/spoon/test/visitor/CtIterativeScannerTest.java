@@ -0,0 +1,111 @@
+package spoon.test.visitor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import spoon.Launcher;
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.visitor.CtIterativeScanner;
+import spoon.reflect.visitor.CtScanner;
+import spoon.reflect.visitor.Query;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+public class CtIterativeScannerTest {
+
+	private static void scanAll(CtScanner scanner, Factory factory) {
+		for (CtPackage p : factory.Package().getAllRoots()) {
+			scanner.scan(p);
+		}
+	}
+
+	@Test
+	public void testElementsAreScannedInTheSameOrder() throws Exception {
+		Launcher launcher = new Launcher();
+		launcher.addInputResource("src/test/java/spoon/test/refactoring/testclasses");
+		launcher.addInputResource("src/test/java/spoon/test/filters/Foo.java");
+		launcher.buildModel();
+		Factory factory = launcher.getFactory();
+
+		final List<Object> recursive = new ArrayList<Object>();
+		scanAll(new CtScanner() {
+			@Override
+			protected void enter(CtElement e) {
+				recursive.add(e);
+			}
+
+			@Override
+			protected void exit(CtElement e) {
+				recursive.add("exit");
+			}
+
+			@Override
+			protected void enterReference(CtReference e) {
+				recursive.add(e);
+			}
+
+			@Override
+			protected void exitReference(CtReference e) {
+				recursive.add("exitReference");
+			}
+		}, factory);
+		assertSameScan(recursive, factory);
+		// with an explicit stack
+		factory.getEnvironment().setDeepModel(true);
+		assertSameScan(recursive, factory);
+	}
+
+	private static void assertSameScan(List<Object> recursive, Factory factory) {
+		final List<Object> iterative = new ArrayList<Object>();
+		scanAll(new CtIterativeScanner() {
+			@Override
+			protected void enter(CtElement e) {
+				iterative.add(e);
+			}
+
+			@Override
+			protected void exit(CtElement e) {
+				iterative.add("exit");
+			}
+
+			@Override
+			protected void enterReference(CtReference e) {
+				iterative.add(e);
+			}
+
+			@Override
+			protected void exitReference(CtReference e) {
+				iterative.add("exitReference");
+			}
+		}, factory);
+		assertEquals(recursive.size(), iterative.size());
+		for (int i = 0; i < recursive.size(); i++) {
+			assertEquals(recursive.get(i), iterative.get(i));
+		}
+	}
+
+	@Test
+	public void testDeepModelsAreScanned() throws Exception {
+		Factory factory = new Launcher().createFactory();
+		factory.getEnvironment().setDeepModel(true);
+		CtExpression<Integer> e = factory.Code().createLiteral(0);
+		for (int i = 1; i <= 100000; i++) {
+			CtBinaryOperator<Integer> plus = factory.Code().createBinaryOperator(e,
+					factory.Code().createLiteral(i), BinaryOperatorKind.PLUS);
+			e.setParent(plus);
+			e = plus;
+		}
+		assertEquals(100000, Query.getElements(e,
+				new TypeFilter<CtBinaryOperator<?>>(CtBinaryOperator.class)).size());
+	}
+
+}